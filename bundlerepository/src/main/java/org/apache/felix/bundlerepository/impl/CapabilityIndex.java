@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.InterruptedResolutionException;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+/**
+ * A catalog of the capabilities of a set of resources, indexed by capability
+ * name and, for packages, bundles and services, by the package name, symbolic
+ * name or service interface. It is used to find the candidates for a
+ * requirement without looking at every capability of every resource.
+ *
+ * Candidates are always returned in the order of the resources and of their
+ * capabilities, so that the resolver selects the same candidate as when
+ * scanning all resources.
+ */
+class CapabilityIndex
+{
+    /**
+     * The attribute identifying a capability, per capability name.
+     */
+    private static final Map<String, String> KEY_ATTRIBUTES = new HashMap<String, String>();
+
+    static
+    {
+        KEY_ATTRIBUTES.put(Capability.PACKAGE, Capability.PACKAGE);
+        KEY_ATTRIBUTES.put(Capability.BUNDLE, Resource.SYMBOLIC_NAME);
+        KEY_ATTRIBUTES.put(Capability.SERVICE, Capability.SERVICE);
+    }
+
+    /**
+     * Below this number of candidates matching is not worth being split.
+     */
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    private final List<Entry> m_all = new ArrayList<Entry>();
+    private final Map<String, List<Entry>> m_byName = new HashMap<String, List<Entry>>();
+    private final Map<String, Map<String, List<Entry>>> m_byKey = new HashMap<String, Map<String, List<Entry>>>();
+    private final Map<String, List<Entry>> m_unkeyed = new HashMap<String, List<Entry>>();
+
+    CapabilityIndex(Resource[] resources)
+    {
+        for (int resIdx = 0; (resources != null) && (resIdx < resources.length); resIdx++)
+        {
+            Resource resource = resources[resIdx];
+            if (resource instanceof RepositoryIndex.IndexedResourceImpl)
+            {
+                // Read the capabilities from the index, without materializing the resource
+                RepositoryIndex.IndexedResourceImpl indexed = (RepositoryIndex.IndexedResourceImpl) resource;
+                int count = indexed.getCapabilityCount();
+                for (int capIdx = 0; capIdx < count; capIdx++)
+                {
+                    add(new Entry(m_all.size(), resource, capIdx, null),
+                        indexed.getCapabilityName(capIdx), indexed.getCapabilityKey(capIdx));
+                }
+                continue;
+            }
+            Capability[] caps = (resource != null) ? resource.getCapabilities() : null;
+            for (int capIdx = 0; (caps != null) && (capIdx < caps.length); capIdx++)
+            {
+                add(new Entry(m_all.size(), resource, capIdx, new ResourceCapabilityImpl(resource, caps[capIdx])),
+                    caps[capIdx].getName(), getKey(caps[capIdx]));
+            }
+        }
+    }
+
+    private void add(Entry entry, String name, String key)
+    {
+        m_all.add(entry);
+        add(m_byName, name, entry);
+
+        if (KEY_ATTRIBUTES.containsKey(name))
+        {
+            if (key != null)
+            {
+                Map<String, List<Entry>> byKey = m_byKey.get(name);
+                if (byKey == null)
+                {
+                    byKey = new HashMap<String, List<Entry>>();
+                    m_byKey.put(name, byKey);
+                }
+                add(byKey, key, entry);
+            }
+            else
+            {
+                add(m_unkeyed, name, entry);
+            }
+        }
+    }
+
+    /**
+     * Get the value of the attribute identifying the given capability.
+     * @return the value, or <code>null</code> if the capability is not
+     *         identified by a string attribute
+     */
+    static String getKey(Capability cap)
+    {
+        String attribute = KEY_ATTRIBUTES.get(cap.getName());
+        Object key = (attribute != null) ? cap.getPropertiesAsMap().get(attribute) : null;
+        return (key instanceof String) ? (String) key : null;
+    }
+
+    /**
+     * Find the capabilities satisfying the given requirement.
+     * @param req the requirement to satisfy
+     * @param excluded resources whose capabilities are not to be returned
+     * @param executor used to match large numbers of candidates concurrently,
+     *        or <code>null</code> to match them in the calling thread
+     * @return the matching capabilities, in the order of the resources
+     */
+    List<ResourceCapability> match(Requirement req, Set<Resource> excluded, ExecutorService executor)
+    {
+        List<Entry> candidates = getCandidates(req);
+        if (executor == null || candidates.size() < PARALLEL_THRESHOLD)
+        {
+            return match(req, excluded, candidates);
+        }
+
+        int chunks = (candidates.size() + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD;
+        List<Future<List<ResourceCapability>>> futures = new ArrayList<Future<List<ResourceCapability>>>(chunks);
+        try
+        {
+            for (int i = 0; i < chunks; i++)
+            {
+                final List<Entry> chunk = candidates.subList(
+                    i * PARALLEL_THRESHOLD, Math.min(candidates.size(), (i + 1) * PARALLEL_THRESHOLD));
+                final Requirement r = req;
+                final Set<Resource> e = excluded;
+                futures.add(executor.submit(new Callable<List<ResourceCapability>>()
+                {
+                    public List<ResourceCapability> call()
+                    {
+                        return match(r, e, chunk);
+                    }
+                }));
+            }
+            List<ResourceCapability> matches = new ArrayList<ResourceCapability>();
+            for (Future<List<ResourceCapability>> future : futures)
+            {
+                matches.addAll(future.get());
+            }
+            return matches;
+        }
+        catch (InterruptedException ex)
+        {
+            throw new InterruptedResolutionException();
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        finally
+        {
+            for (Future<List<ResourceCapability>> future : futures)
+            {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private List<ResourceCapability> match(Requirement req, Set<Resource> excluded, List<Entry> candidates)
+    {
+        List<ResourceCapability> matches = new ArrayList<ResourceCapability>();
+        for (Entry entry : candidates)
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedResolutionException();
+            }
+            if (excluded.contains(entry.m_resource))
+            {
+                continue;
+            }
+            ResourceCapability rc = entry.getCapability();
+            if (req.isSatisfied(rc.getCapability()))
+            {
+                matches.add(rc);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the capabilities that may satisfy the given requirement
+     */
+    private List<Entry> getCandidates(Requirement req)
+    {
+        // Other requirements do not necessarily match on the capability name
+        if (!(req instanceof RequirementImpl))
+        {
+            return m_all;
+        }
+
+        String name = req.getName();
+        String attribute = KEY_ATTRIBUTES.get(name);
+        String key = (attribute != null) ? getKey(req.getFilter(), attribute) : null;
+        if (key == null)
+        {
+            return get(m_byName, name);
+        }
+
+        Map<String, List<Entry>> byKey = m_byKey.get(name);
+        List<Entry> keyed = (byKey != null) ? get(byKey, key) : Collections.<Entry>emptyList();
+        return merge(keyed, get(m_unkeyed, name));
+    }
+
+    /**
+     * Extract the value the given attribute must be equal to for a filter to
+     * match, if the filter requires such a value.
+     * @return the value, or <code>null</code> if the filter does not
+     *         require a single value for the attribute
+     */
+    static String getKey(String filter, String attribute)
+    {
+        if (filter == null)
+        {
+            return null;
+        }
+        filter = filter.trim();
+        if (filter.startsWith("(&") && filter.endsWith(")"))
+        {
+            // Look at each operand of the top-level conjunction
+            int depth = 0;
+            int start = -1;
+            for (int i = 2; i < filter.length() - 1; i++)
+            {
+                char c = filter.charAt(i);
+                if (c == '\\')
+                {
+                    // Escaped values are not indexed
+                    return null;
+                }
+                else if (c == '(')
+                {
+                    if (depth++ == 0)
+                    {
+                        start = i;
+                    }
+                }
+                else if (c == ')')
+                {
+                    if (--depth == 0)
+                    {
+                        String key = getSimpleKey(filter.substring(start, i + 1), attribute);
+                        if (key != null)
+                        {
+                            return key;
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+        return getSimpleKey(filter, attribute);
+    }
+
+    private static String getSimpleKey(String filter, String attribute)
+    {
+        if (!filter.startsWith("(") || !filter.endsWith(")") || filter.indexOf('\\') >= 0)
+        {
+            return null;
+        }
+        int eq = filter.indexOf('=');
+        if (eq <= 1)
+        {
+            return null;
+        }
+        char op = filter.charAt(eq - 1);
+        if (op == '~' || op == '<' || op == '>')
+        {
+            return null;
+        }
+        String attr = filter.substring(1, eq).trim();
+        String value = filter.substring(eq + 1, filter.length() - 1);
+        if (!attr.equalsIgnoreCase(attribute) || attr.indexOf('(') >= 0
+            || value.length() == 0 || value.indexOf('*') >= 0
+            || value.indexOf('(') >= 0 || value.indexOf(')') >= 0)
+        {
+            return null;
+        }
+        return value;
+    }
+
+    private static List<Entry> merge(List<Entry> l1, List<Entry> l2)
+    {
+        if (l2.isEmpty())
+        {
+            return l1;
+        }
+        if (l1.isEmpty())
+        {
+            return l2;
+        }
+        List<Entry> merged = new ArrayList<Entry>(l1.size() + l2.size());
+        int i1 = 0;
+        int i2 = 0;
+        while (i1 < l1.size() && i2 < l2.size())
+        {
+            if (l1.get(i1).m_ordinal < l2.get(i2).m_ordinal)
+            {
+                merged.add(l1.get(i1++));
+            }
+            else
+            {
+                merged.add(l2.get(i2++));
+            }
+        }
+        merged.addAll(l1.subList(i1, l1.size()));
+        merged.addAll(l2.subList(i2, l2.size()));
+        return merged;
+    }
+
+    private static void add(Map<String, List<Entry>> map, String key, Entry entry)
+    {
+        List<Entry> entries = map.get(key);
+        if (entries == null)
+        {
+            entries = new ArrayList<Entry>();
+            map.put(key, entries);
+        }
+        entries.add(entry);
+    }
+
+    private static List<Entry> get(Map<String, List<Entry>> map, String key)
+    {
+        List<Entry> entries = map.get(key);
+        return (entries != null) ? entries : Collections.<Entry>emptyList();
+    }
+
+    /**
+     * A capability of a resource. The capabilities of indexed resources are
+     * only looked up when matched, so that the resources are not held.
+     */
+    private static class Entry
+    {
+        private final int m_ordinal;
+        private final Resource m_resource;
+        private final int m_index;
+        private final ResourceCapability m_capability;
+
+        Entry(int ordinal, Resource resource, int index, ResourceCapability capability)
+        {
+            m_ordinal = ordinal;
+            m_resource = resource;
+            m_index = index;
+            m_capability = capability;
+        }
+
+        ResourceCapability getCapability()
+        {
+            return (m_capability != null) ? m_capability
+                : new ResourceCapabilityImpl(m_resource, m_resource.getCapabilities()[m_index]);
+        }
+    }
+}
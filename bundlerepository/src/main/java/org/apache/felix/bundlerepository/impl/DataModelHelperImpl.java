@@ -89,50 +89,24 @@ public class DataModelHelperImpl implements DataModelHelper
     }
 
     public Repository repository(final URL url) throws Exception
+    {
+        return repository(url, FileUtil.openURL(url));
+    }
+
+    /**
+     * Parse the repository at the given URL from the given content, which
+     * may have been downloaded before. The stream is closed.
+     */
+    static RepositoryImpl repository(URL url, InputStream in) throws Exception
     {
         InputStream is = null;
-        BufferedReader br = null;
 
         try
         {
-            if (url.getPath().endsWith(".zip"))
-            {
-                ZipInputStream zin = new ZipInputStream(FileUtil.openURL(url));
-                ZipEntry entry = zin.getNextEntry();
-                while (entry != null)
-                {
-                    if (entry.getName().equals("repository.xml"))
-                    {
-                        is = zin;
-                        break;
-                    }
-                    entry = zin.getNextEntry();
-                }
-                // as the ZipInputStream is not used further it would not be closed.
-                if (is == null)
-                {
-                    try
-                    {
-                        zin.close();
-                    }
-                    catch (IOException ex)
-                    {
-                        // Not much we can do.
-                    }
-                }
-            }
-            else if (url.getPath().endsWith(".gz"))
-            {
-                is = new GZIPInputStream(FileUtil.openURL(url));
-            }
-            else
-            {
-                is = FileUtil.openURL(url);
-            }
-
+            is = openRepository(url, in);
             if (is != null)
             {
-                RepositoryImpl repository = repository(is);
+                RepositoryImpl repository = RepositoryParser.getParser().parseRepository(is);
                 repository.setURI(url.toExternalForm());
                 return repository;
             }
@@ -158,6 +132,54 @@ public class DataModelHelperImpl implements DataModelHelper
         }
     }
 
+    /**
+     * Get the repository XML from the content of the given URL, which is
+     * uncompressed if the URL denotes a zip file, or if the content is gzip
+     * compressed. The content of a gzip file may already have been
+     * uncompressed, when it has been transferred with a gzip encoding.
+     * @return the repository XML, or <code>null</code> if a zip file does not
+     *         contain a repository.xml entry, in which case the stream is closed
+     */
+    static InputStream openRepository(URL url, InputStream in) throws IOException
+    {
+        if (url.getPath().endsWith(".zip"))
+        {
+            ZipInputStream zin = new ZipInputStream(in);
+            ZipEntry entry = zin.getNextEntry();
+            while (entry != null)
+            {
+                if (entry.getName().equals("repository.xml"))
+                {
+                    return zin;
+                }
+                entry = zin.getNextEntry();
+            }
+            // as the ZipInputStream is not used further it would not be closed.
+            try
+            {
+                zin.close();
+            }
+            catch (IOException ex)
+            {
+                // Not much we can do.
+            }
+            return null;
+        }
+
+        // Compressed repositories are not always named accordingly, and
+        // gzip files may have been uncompressed by the transfer
+        InputStream bin = new BufferedInputStream(in);
+        bin.mark(2);
+        int b1 = bin.read();
+        int b2 = bin.read();
+        bin.reset();
+        if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8))
+        {
+            return new GZIPInputStream(bin);
+        }
+        return bin;
+    }
+
     public RepositoryImpl repository(InputStream is) throws Exception
     {
         RepositoryParser parser = RepositoryParser.getParser();
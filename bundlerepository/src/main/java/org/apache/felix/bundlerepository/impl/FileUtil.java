@@ -26,8 +26,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -219,4 +222,32 @@ public class FileUtil
             throw newException;
         }
     }
+
+    /**
+     * Get the SHA-256 digest of the given URL in hexadecimal, to name the
+     * files cached for it.
+     */
+    public static String digest(String url)
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            StringBuffer sb = new StringBuffer(64);
+            byte[] bytes = md.digest(url.getBytes("UTF-8"));
+            for (int i = 0; i < bytes.length; i++)
+            {
+                sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(bytes[i] & 0xF, 16));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
 }
\ No newline at end of file
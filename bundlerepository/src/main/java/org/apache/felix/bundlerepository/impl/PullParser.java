@@ -37,6 +37,17 @@ public class PullParser extends RepositoryParser
     }
 
     public RepositoryImpl parseRepository(InputStream is) throws Exception
+    {
+        return parseRepository(is, new RepositoryImpl());
+    }
+
+    /**
+     * Parse a repository, adding its referrals and resources to the given
+     * repository.
+     * @return the given repository, or a new one if the document uses the
+     *         namespace of the OSGi Repository specification
+     */
+    public RepositoryImpl parseRepository(InputStream is, RepositoryImpl repository) throws Exception
     {
         XmlPullParser reader = new KXmlParser();
 
@@ -57,7 +68,7 @@ public class PullParser extends RepositoryParser
             return SpecXMLPullParser.parse(reader);
         else
             // We're parsing the old
-            return parse(reader);
+            return parse(reader, repository);
     }
 
     public RepositoryImpl parseRepository(Reader r) throws Exception
@@ -132,7 +143,11 @@ public class PullParser extends RepositoryParser
 
     public RepositoryImpl parse(XmlPullParser reader) throws Exception
     {
-        RepositoryImpl repository = new RepositoryImpl();
+        return parse(reader, new RepositoryImpl());
+    }
+
+    public RepositoryImpl parse(XmlPullParser reader, RepositoryImpl repository) throws Exception
+    {
         for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++)
         {
             String name = reader.getAttributeName(i);
@@ -198,9 +213,17 @@ public class PullParser extends RepositoryParser
         return referral;
     }
 
+    /**
+     * Create the resource parsed resource elements are stored in.
+     */
+    protected ResourceImpl createResource()
+    {
+        return new ResourceImpl();
+    }
+
     public ResourceImpl parseResource(XmlPullParser reader) throws Exception
     {
-        ResourceImpl resource = new ResourceImpl();
+        ResourceImpl resource = createResource();
         try
         {
             for (int i = 0, nb = reader.getAttributeCount(); i < nb; i++)
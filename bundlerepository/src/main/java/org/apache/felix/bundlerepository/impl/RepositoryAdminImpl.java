@@ -18,6 +18,8 @@
  */
 package org.apache.felix.bundlerepository.impl;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.AccessController;
@@ -26,10 +28,15 @@ import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.felix.bundlerepository.Capability;
 import org.apache.felix.bundlerepository.DataModelHelper;
@@ -59,6 +66,10 @@ public class RepositoryAdminImpl implements RepositoryAdmin
 
     public static final String REPOSITORY_URL_PROP = "obr.repository.url";
     public static final String EXTERN_REPOSITORY_TAG = "extern-repositories";
+    public static final String RESOLVER_PARALLELISM_PROP = "obr.resolver.parallelism";
+    public static final String REPOSITORY_INDEX_DIR_PROP = "obr.repository.index.dir";
+    public static final String REPOSITORY_CACHE_DIR_PROP = "obr.repository.cache.dir";
+    public static final String REPOSITORY_FETCH_PARALLELISM_PROP = "obr.repository.fetch.parallelism";
 
     public RepositoryAdminImpl(BundleContext context, Logger logger)
     {
@@ -105,39 +116,164 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         // If the repository URL is a duplicate, then we will just
         // replace the existing repository object with a new one,
         // which is effectively the same as refreshing the repository.
-        try
+        // Referred repositories are fetched concurrently, but added
+        // in the same order as when fetching them one after the other.
+        int parallelism = getIntProperty(REPOSITORY_FETCH_PARALLELISM_PROP, 4);
+        ExecutorService executor = null;
+        if (parallelism > 1)
         {
-            RepositoryImpl repository = (RepositoryImpl) AccessController.doPrivileged(new PrivilegedExceptionAction()
+            executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory()
             {
-                public Object run() throws Exception
+                public Thread newThread(Runnable r)
                 {
-                    return m_helper.repository(url);
+                    Thread thread = new Thread(r, "OBR Repository Fetcher");
+                    thread.setDaemon(true);
+                    return thread;
                 }
             });
-            m_repoMap.put(url.toExternalForm(), repository);
+        }
+        try
+        {
+            Fetch fetch = new Fetch(url, hopCount, new HashMap(m_repoMap), executor);
+            fetch.run();
+            return fetch.addTo(m_repoMap);
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
 
-            // resolve referrals
-            hopCount--;
-            if (hopCount > 0 && repository.getReferrals() != null)
+    /**
+     * Get the repository at the given URL. If a cache directory is
+     * configured, the repository is only downloaded and parsed again
+     * if it has changed.
+     * @param previous the repository previously obtained from the URL,
+     *        or <code>null</code>
+     */
+    private RepositoryImpl loadRepository(final URL url, final RepositoryImpl previous) throws Exception
+    {
+        final File indexDir = getDir(REPOSITORY_INDEX_DIR_PROP);
+        final File cacheDir = getDir(REPOSITORY_CACHE_DIR_PROP);
+        try
+        {
+            RepositoryImpl repository = (RepositoryImpl) AccessController.doPrivileged(new PrivilegedExceptionAction()
             {
-                for (int i = 0; i < repository.getReferrals().length; i++)
+                public Object run() throws Exception
                 {
-                    Referral referral = repository.getReferrals()[i];
-
-                    URL referralUrl = new URL(url, referral.getUrl());
-                    hopCount = (referral.getDepth() > hopCount) ? hopCount : referral.getDepth();
-
-                    addRepository(referralUrl, hopCount);
+                    File dir = (indexDir != null) ? indexDir : cacheDir;
+                    if (dir == null)
+                    {
+                        return m_helper.repository(url);
+                    }
+                    RepositoryCache.Entry entry = new RepositoryCache(dir).fetch(url);
+                    if (!entry.isModified() && previous != null)
+                    {
+                        return previous;
+                    }
+                    if (indexDir != null)
+                    {
+                        return RepositoryIndex.load(url, entry.getFile(), indexDir);
+                    }
+                    return DataModelHelperImpl.repository(url, new FileInputStream(entry.getFile()));
                 }
+            });
+            if (indexDir == null)
+            {
+                // Index the capabilities once, rather than on each resolution
+                repository.getCapabilityIndex();
             }
-
             return repository;
         }
         catch (PrivilegedActionException ex)
         {
             throw (Exception) ex.getCause();
         }
+    }
+
+    /**
+     * The loading of a repository and of the repositories it refers to.
+     */
+    private class Fetch implements Runnable
+    {
+        private final URL m_url;
+        private final int m_hopCount;
+        private final Map m_previous;
+        private final ExecutorService m_executor;
+        private final List<Fetch> m_referrals = new ArrayList<Fetch>();
+        private final CountDownLatch m_done = new CountDownLatch(1);
+        private RepositoryImpl m_repository;
+        private Exception m_exception;
+
+        Fetch(URL url, int hopCount, Map previous, ExecutorService executor)
+        {
+            m_url = url;
+            m_hopCount = hopCount;
+            m_previous = previous;
+            m_executor = executor;
+        }
+
+        public void run()
+        {
+            try
+            {
+                m_repository = loadRepository(m_url, (RepositoryImpl) m_previous.get(m_url.toExternalForm()));
+
+                // resolve referrals
+                int hopCount = m_hopCount - 1;
+                Referral[] referrals = m_repository.getReferrals();
+                if (hopCount > 0 && referrals != null)
+                {
+                    for (int i = 0; i < referrals.length; i++)
+                    {
+                        URL referralUrl = new URL(m_url, referrals[i].getUrl());
+                        hopCount = (referrals[i].getDepth() > hopCount) ? hopCount : referrals[i].getDepth();
+
+                        Fetch referral = new Fetch(referralUrl, hopCount, m_previous, m_executor);
+                        m_referrals.add(referral);
+                        if (m_executor != null)
+                        {
+                            m_executor.execute(referral);
+                        }
+                    }
+                }
+            }
+            catch (Exception ex)
+            {
+                m_exception = ex;
+            }
+            finally
+            {
+                m_done.countDown();
+            }
+        }
 
+        /**
+         * Wait for the repository and add it, followed by the repositories
+         * it refers to, to the given map.
+         * @return the repository
+         */
+        RepositoryImpl addTo(Map repoMap) throws Exception
+        {
+            m_done.await();
+            if (m_exception != null)
+            {
+                throw m_exception;
+            }
+            repoMap.put(m_url.toExternalForm(), m_repository);
+            for (Fetch referral : m_referrals)
+            {
+                if (m_executor == null)
+                {
+                    referral.run();
+                }
+                referral.addTo(repoMap);
+            }
+            return m_repository;
+        }
     }
 
     public synchronized boolean removeRepository(String uri)
@@ -181,7 +317,36 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         {
             return resolver();
         }
-        return new ResolverImpl(m_context, repositories, m_logger);
+        return new ResolverImpl(m_context, repositories, m_logger, getIntProperty(RESOLVER_PARALLELISM_PROP, 1));
+    }
+
+    private int getIntProperty(String name, int defaultValue)
+    {
+        String value = m_context.getProperty(name);
+        if (value != null)
+        {
+            try
+            {
+                return Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException ex)
+            {
+                m_logger.log(
+                    Logger.LOG_WARNING,
+                    "Invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return the directory given by the property with the given name,
+     *         or <code>null</code> if it is not set
+     */
+    private File getDir(String name)
+    {
+        String dir = m_context.getProperty(name);
+        return (dir != null && dir.trim().length() > 0) ? new File(dir.trim()) : null;
     }
 
     public synchronized Resource[] discoverResources(String filterExpr) throws InvalidSyntaxException
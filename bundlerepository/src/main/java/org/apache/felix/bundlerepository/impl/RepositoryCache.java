@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A persistent cache of downloaded repository files. A cached file is
+ * revalidated on each fetch: HTTP servers are sent a conditional request
+ * based on the entity tag and last modification time of the cached copy,
+ * and other URLs are downloaded again when their last modification time or
+ * length change. Compressed HTTP transfers are requested and decompressed.
+ *
+ * Each repository is stored in the cache directory as a content file and a
+ * properties file holding the validators of the content.
+ */
+class RepositoryCache
+{
+    private static final String URL_KEY = "url";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "last-modified";
+    private static final String TIMESTAMP_KEY = "timestamp";
+    private static final String LENGTH_KEY = "length";
+
+    private final File m_dir;
+
+    RepositoryCache(File dir)
+    {
+        m_dir = dir;
+    }
+
+    /**
+     * Get the content at the given URL, downloading it only if the cached
+     * copy is missing or out of date.
+     */
+    Entry fetch(URL url) throws IOException
+    {
+        String uri = url.toExternalForm();
+        String name = "repository-" + FileUtil.digest(uri);
+        File content = new File(m_dir, name + ".cache");
+        File info = new File(m_dir, name + ".properties");
+
+        Properties props = load(info);
+        boolean cached = content.isFile() && uri.equals(props.getProperty(URL_KEY));
+
+        URLConnection conn = url.openConnection();
+        FileUtil.setProxyAuth(conn);
+        if (conn instanceof HttpURLConnection)
+        {
+            HttpURLConnection http = (HttpURLConnection) conn;
+            http.setRequestProperty("Accept-Encoding", "gzip");
+            if (cached && props.getProperty(ETAG_KEY) != null)
+            {
+                http.setRequestProperty("If-None-Match", props.getProperty(ETAG_KEY));
+            }
+            if (cached && props.getProperty(LAST_MODIFIED_KEY) != null)
+            {
+                http.setRequestProperty("If-Modified-Since", props.getProperty(LAST_MODIFIED_KEY));
+            }
+            int code = http.getResponseCode();
+            if (cached && code == HttpURLConnection.HTTP_NOT_MODIFIED)
+            {
+                http.disconnect();
+                return new Entry(content, false);
+            }
+            if (code >= HttpURLConnection.HTTP_BAD_REQUEST)
+            {
+                http.disconnect();
+                throw new IOException("Unable to fetch " + uri + ": " + code + " " + http.getResponseMessage());
+            }
+        }
+        else if (cached && conn.getLastModified() != 0
+            && Long.toString(conn.getLastModified()).equals(props.getProperty(TIMESTAMP_KEY))
+            && Long.toString(conn.getContentLength()).equals(props.getProperty(LENGTH_KEY)))
+        {
+            close(conn);
+            return new Entry(content, false);
+        }
+
+        if (!m_dir.isDirectory() && !m_dir.mkdirs())
+        {
+            close(conn);
+            throw new IOException("Unable to create directory " + m_dir);
+        }
+        // Each fetch downloads to its own file, as referrals may be fetched
+        // concurrently from the same URL
+        File tmp = File.createTempFile(name, ".tmp", m_dir);
+        try
+        {
+            InputStream is = FileUtil.openURL(conn);
+            try
+            {
+                if ("gzip".equalsIgnoreCase(conn.getContentEncoding()))
+                {
+                    is = new GZIPInputStream(is);
+                }
+                OutputStream os = new FileOutputStream(tmp);
+                try
+                {
+                    byte[] buffer = new byte[8192];
+                    int count;
+                    while ((count = is.read(buffer)) > 0)
+                    {
+                        os.write(buffer, 0, count);
+                    }
+                }
+                finally
+                {
+                    os.close();
+                }
+            }
+            finally
+            {
+                is.close();
+            }
+
+            // Forget the validators before replacing the content
+            info.delete();
+            content.delete();
+            if (!tmp.renameTo(content))
+            {
+                throw new IOException("Unable to rename " + tmp + " to " + content);
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+
+        props = new Properties();
+        props.setProperty(URL_KEY, uri);
+        props.setProperty(TIMESTAMP_KEY, Long.toString(conn.getLastModified()));
+        props.setProperty(LENGTH_KEY, Long.toString(conn.getContentLength()));
+        if (conn.getHeaderField("ETag") != null)
+        {
+            props.setProperty(ETAG_KEY, conn.getHeaderField("ETag"));
+        }
+        if (conn.getHeaderField("Last-Modified") != null)
+        {
+            props.setProperty(LAST_MODIFIED_KEY, conn.getHeaderField("Last-Modified"));
+        }
+        OutputStream os = new FileOutputStream(info);
+        try
+        {
+            props.store(os, uri);
+        }
+        finally
+        {
+            os.close();
+        }
+        return new Entry(content, true);
+    }
+
+    private static Properties load(File file)
+    {
+        Properties props = new Properties();
+        if (file.isFile())
+        {
+            try
+            {
+                InputStream is = new FileInputStream(file);
+                try
+                {
+                    props.load(is);
+                }
+                finally
+                {
+                    is.close();
+                }
+            }
+            catch (IOException ex)
+            {
+                // Download the content again
+                props.clear();
+            }
+        }
+        return props;
+    }
+
+    private static void close(URLConnection conn)
+    {
+        try
+        {
+            conn.getInputStream().close();
+        }
+        catch (IOException ex)
+        {
+            // Not much we can do.
+        }
+    }
+
+    /**
+     * The cached content of a URL.
+     */
+    static class Entry
+    {
+        private final File m_file;
+        private final boolean m_modified;
+
+        Entry(File file, boolean modified)
+        {
+            m_file = file;
+            m_modified = modified;
+        }
+
+        /**
+         * @return the file holding the content
+         */
+        File getFile()
+        {
+            return m_file;
+        }
+
+        /**
+         * @return whether the content has been downloaded by this fetch
+         */
+        boolean isModified()
+        {
+            return m_modified;
+        }
+    }
+}
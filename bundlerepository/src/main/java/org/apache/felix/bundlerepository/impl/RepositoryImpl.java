@@ -35,6 +35,7 @@ public class RepositoryImpl implements Repository
     private Resource[] m_resources = null;
     private Referral[] m_referrals = null;
     private Set m_resourceSet = new HashSet();
+    private volatile CapabilityIndex m_index = null;
 
     public RepositoryImpl()
     {
@@ -66,6 +67,21 @@ public class RepositoryImpl implements Repository
         return m_resources;
     }
 
+    /**
+     * Returns the catalog of the capabilities of this repository's resources,
+     * which is built once and kept until resources are added.
+     */
+    CapabilityIndex getCapabilityIndex()
+    {
+        CapabilityIndex index = m_index;
+        if (index == null)
+        {
+            index = new CapabilityIndex(getResources());
+            m_index = index;
+        }
+        return index;
+    }
+
     public void addResource(Resource resource)
     {
         // Set resource's repository.
@@ -78,6 +94,7 @@ public class RepositoryImpl implements Repository
         m_resourceSet.remove(resource);
         m_resourceSet.add(resource);
         m_resources = null;
+        m_index = null;
     }
 
     public Referral[] getReferrals()
@@ -0,0 +1,885 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Property;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.utils.version.VersionTable;
+import org.osgi.framework.Version;
+
+/**
+ * A compact binary form of a repository XML file, stored in a cache directory
+ * and memory mapped when used. Resources are only materialized when their
+ * properties, capabilities or requirements are accessed, so that a large
+ * repository does not need to be held in memory as a whole.
+ *
+ * The index records the calls the parser makes to build each resource, and
+ * materializing a resource replays them on a new {@link ResourceImpl}, which
+ * is only softly referenced. The name and key of each capability are also
+ * recorded, so that a {@link CapabilityIndex} can be built without
+ * materializing the resources. The file consists of a header, the resource
+ * records, a table with the offset of each resource, a table with the offset
+ * of each string, the strings themselves and the repository name, last
+ * modification time and referrals.
+ * All references to strings are indices in the string table.
+ *
+ * The index is written while the XML is parsed, one resource at a time, and
+ * is reused as long as the last modification time and length of the local
+ * copy of the XML, kept in a {@link RepositoryCache}, do not change. Index
+ * files are named after a digest of the repository URL, and a new version
+ * of an index is written to a new file rather than over a mapped one.
+ */
+class RepositoryIndex
+{
+    private static final int MAGIC = 0x4F425249; // "OBRI"
+    private static final int FORMAT = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 4;
+    private static final String UTF8 = "UTF-8";
+
+    private static final byte END = 0;
+    private static final byte PUT = 1;
+    private static final byte CATEGORY = 2;
+    private static final byte CAPABILITY = 3;
+    private static final byte REQUIRE = 4;
+
+    private static final byte EXTEND = 1;
+    private static final byte MULTIPLE = 2;
+    private static final byte OPTIONAL = 4;
+
+    private final ByteBuffer m_buffer;
+    private final int m_stringTable;
+    private final String[] m_strings;
+
+    private RepositoryIndex(ByteBuffer buffer, int stringTable, int stringCount)
+    {
+        m_buffer = buffer;
+        m_stringTable = stringTable;
+        m_strings = new String[stringCount];
+    }
+
+    /**
+     * Get the repository at the given URL from its index in the cache
+     * directory, creating or updating the index from the given local copy
+     * of the repository if needed.
+     */
+    static RepositoryImpl load(URL url, File content, File cacheDir) throws Exception
+    {
+        String uri = url.toExternalForm();
+        String prefix = "repository-" + FileUtil.digest(uri) + "-";
+        long lastModified = content.lastModified();
+        long length = content.length();
+
+        File[] files = listIndexes(cacheDir, prefix);
+        for (int i = 0; i < files.length; i++)
+        {
+            RepositoryImpl repository = read(files[i], uri, lastModified, length);
+            if (repository != null)
+            {
+                deleteIndexes(files, files[i]);
+                return repository;
+            }
+        }
+
+        File file;
+        InputStream is = null;
+        try
+        {
+            is = DataModelHelperImpl.openRepository(url, new FileInputStream(content));
+            if (is == null)
+            {
+                throw new Exception("Unable to get input stream for repository.");
+            }
+            if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+            {
+                throw new IOException("Unable to create directory " + cacheDir);
+            }
+            // Each version of the index gets a new file, as a repository
+            // still in use may keep the previous one mapped
+            File tmp = File.createTempFile(prefix, ".tmp", cacheDir);
+            RepositoryImpl repository;
+            try
+            {
+                repository = write(is, tmp, uri, lastModified, length);
+            }
+            catch (Exception e)
+            {
+                tmp.delete();
+                throw e;
+            }
+            if (repository != null)
+            {
+                // The document does not use the format the index supports
+                tmp.delete();
+                repository.setURI(uri);
+                return repository;
+            }
+            String name = tmp.getName();
+            file = new File(cacheDir, name.substring(0, name.length() - 4) + ".idx");
+            if (!tmp.renameTo(file))
+            {
+                tmp.delete();
+                throw new IOException("Unable to rename " + tmp + " to " + file);
+            }
+        }
+        finally
+        {
+            if (is != null)
+            {
+                try
+                {
+                    is.close();
+                }
+                catch (IOException ex)
+                {
+                    // Not much we can do.
+                }
+            }
+        }
+
+        RepositoryImpl repository = read(file, uri, lastModified, length);
+        if (repository == null)
+        {
+            throw new IOException("Invalid repository index " + file);
+        }
+        deleteIndexes(files, file);
+        return repository;
+    }
+
+    /**
+     * @return the indexes of a repository in the given directory, most
+     *         recent first
+     */
+    private static File[] listIndexes(File cacheDir, final String prefix)
+    {
+        File[] files = cacheDir.listFiles(new FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                return file.getName().startsWith(prefix) && file.getName().endsWith(".idx");
+            }
+        });
+        if (files == null)
+        {
+            return new File[0];
+        }
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(File f1, File f2)
+            {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return (m1 > m2) ? -1 : ((m1 < m2) ? 1 : 0);
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Delete the outdated indexes of a repository. The mapping of an index
+     * is only released once the repository using it has been garbage
+     * collected, and some platforms do not delete a mapped file, in which
+     * case the index is deleted by a later load.
+     */
+    private static void deleteIndexes(File[] files, File current)
+    {
+        for (int i = 0; i < files.length; i++)
+        {
+            if (!files[i].equals(current))
+            {
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Parse the repository XML and write its index to the given file.
+     * @return <code>null</code> if the index has been written, or the parsed
+     *         repository if the document can not be indexed
+     */
+    static RepositoryImpl write(InputStream is, File file, String uri, long lastModified, long length) throws Exception
+    {
+        Writer writer = new Writer(file);
+        try
+        {
+            writer.writeHeader(uri, lastModified, length);
+            IndexingRepository repository = new IndexingRepository(writer);
+            RepositoryImpl parsed = new IndexingParser(writer).parseRepository(is, repository);
+            if (parsed != repository)
+            {
+                return parsed;
+            }
+            writer.writeTrailer(repository);
+        }
+        finally
+        {
+            writer.close();
+        }
+        return null;
+    }
+
+    /**
+     * Map the index in the given file.
+     * @return the repository, or <code>null</code> if the file is not an
+     *         index of the given URL and version of the repository XML
+     */
+    static RepositoryImpl read(File file, String uri, long lastModified, long length) throws IOException
+    {
+        MappedByteBuffer buffer;
+        FileInputStream fis = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = fis.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally
+        {
+            fis.close();
+        }
+
+        if (buffer.capacity() < HEADER_SIZE
+            || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT
+            || buffer.getLong(8) != lastModified || buffer.getLong(16) != length)
+        {
+            return null;
+        }
+        int resourceTable = buffer.getInt(24);
+        int resourceCount = buffer.getInt(28);
+        int stringTable = buffer.getInt(32);
+        int trailer = buffer.getInt(36);
+
+        ByteBuffer b = buffer.duplicate();
+        b.position(stringTable);
+        RepositoryIndex index = new RepositoryIndex(buffer, stringTable, b.getInt());
+        if (!uri.equals(index.getString(0)))
+        {
+            return null;
+        }
+
+        RepositoryImpl repository = new RepositoryImpl();
+        b.position(trailer);
+        String name = index.getString(b.getInt());
+        if (name != null)
+        {
+            repository.setName(name);
+        }
+        repository.setLastModified(b.getLong());
+        int referrals = b.getInt();
+        for (int i = 0; i < referrals; i++)
+        {
+            Referral referral = new Referral();
+            referral.setDepth(Integer.toString(b.getInt()));
+            referral.setUrl(index.getString(b.getInt()));
+            try
+            {
+                repository.addReferral(referral);
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        b.position(resourceTable);
+        for (int i = 0; i < resourceCount; i++)
+        {
+            int offset = b.getInt();
+            ByteBuffer rb = buffer.duplicate();
+            rb.position(offset);
+            repository.addResource(new IndexedResourceImpl(index, rb.getInt(),
+                index.getString(rb.getInt()), index.getString(rb.getInt()),
+                index.getString(rb.getInt()), index.getString(rb.getInt()), rb.position()));
+        }
+        repository.setURI(uri);
+        return repository;
+    }
+
+    /**
+     * Replay the calls recorded for the resource at the given offset.
+     */
+    void materialize(int offset, ResourceImpl resource)
+    {
+        ByteBuffer b = m_buffer.duplicate();
+        b.position(offset);
+        byte op;
+        while ((op = b.get()) != END)
+        {
+            switch (op)
+            {
+                case PUT:
+                {
+                    String key = getString(b.getInt());
+                    String value = getString(b.getInt());
+                    String type = getString(b.getInt());
+                    resource.put(key, value, type);
+                    break;
+                }
+                case CATEGORY:
+                    resource.addCategory(getString(b.getInt()));
+                    break;
+                case CAPABILITY:
+                {
+                    CapabilityImpl capability = new CapabilityImpl();
+                    String name = getString(b.getInt());
+                    if (name != null)
+                    {
+                        capability.setName(name);
+                    }
+                    int count = b.getInt();
+                    for (int i = 0; i < count; i++)
+                    {
+                        String n = getString(b.getInt());
+                        String t = getString(b.getInt());
+                        String v = getString(b.getInt());
+                        capability.addProperty(new PropertyImpl(n, t, v));
+                    }
+                    resource.addCapability(capability);
+                    break;
+                }
+                case REQUIRE:
+                {
+                    RequirementImpl requirement = new RequirementImpl();
+                    String name = getString(b.getInt());
+                    String filter = getString(b.getInt());
+                    byte flags = b.get();
+                    String comment = getString(b.getInt());
+                    if (name != null)
+                    {
+                        requirement.setName(name);
+                    }
+                    if (filter != null)
+                    {
+                        requirement.setFilter(filter);
+                    }
+                    requirement.setExtend((flags & EXTEND) != 0);
+                    requirement.setMultiple((flags & MULTIPLE) != 0);
+                    requirement.setOptional((flags & OPTIONAL) != 0);
+                    if (comment != null)
+                    {
+                        requirement.addText(comment);
+                    }
+                    resource.addRequire(requirement);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Invalid repository index");
+            }
+        }
+    }
+
+    private String getString(int index)
+    {
+        if (index < 0)
+        {
+            return null;
+        }
+        String s = m_strings[index];
+        if (s == null)
+        {
+            ByteBuffer b = m_buffer.duplicate();
+            b.position(m_buffer.getInt(m_stringTable + 4 + index * 4));
+            byte[] bytes = new byte[b.getInt()];
+            b.get(bytes);
+            try
+            {
+                s = new String(bytes, UTF8);
+            }
+            catch (UnsupportedEncodingException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            m_strings[index] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Writes an index, keeping only the string table and offsets in memory.
+     */
+    private static class Writer
+    {
+        private final File m_file;
+        private final DataOutputStream m_out;
+        private final Map<String, Integer> m_stringIds = new HashMap<String, Integer>();
+        private final List<String> m_strings = new ArrayList<String>();
+        private final List<Integer> m_resources = new ArrayList<Integer>();
+
+        Writer(File file) throws IOException
+        {
+            m_file = file;
+            m_out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        }
+
+        void writeHeader(String uri, long lastModified, long length) throws IOException
+        {
+            m_out.writeInt(MAGIC);
+            m_out.writeInt(FORMAT);
+            m_out.writeLong(lastModified);
+            m_out.writeLong(length);
+            // The offsets are written once known
+            for (int i = 0; i < 4; i++)
+            {
+                m_out.writeInt(0);
+            }
+            // The URL is always the first string
+            id(uri);
+        }
+
+        int id(String s)
+        {
+            if (s == null)
+            {
+                return -1;
+            }
+            Integer id = m_stringIds.get(s);
+            if (id == null)
+            {
+                id = Integer.valueOf(m_strings.size());
+                m_strings.add(s);
+                m_stringIds.put(s, id);
+            }
+            return id.intValue();
+        }
+
+        void writeResource(RecordingResourceImpl resource) throws IOException
+        {
+            Capability[] caps = resource.getCapabilities();
+            m_resources.add(Integer.valueOf(position()));
+            m_out.writeInt(position() + 4 * 6 + caps.length * 4 * 2);
+            m_out.writeInt(id(resource.getId()));
+            m_out.writeInt(id(resource.getSymbolicName()));
+            m_out.writeInt(id(resource.getVersion().toString()));
+            m_out.writeInt(id(resource.getPresentationName()));
+            m_out.writeInt(caps.length);
+            for (int i = 0; i < caps.length; i++)
+            {
+                m_out.writeInt(id(caps[i].getName()));
+                m_out.writeInt(id(CapabilityIndex.getKey(caps[i])));
+            }
+            resource.m_ops.writeTo(m_out);
+            m_out.writeByte(END);
+        }
+
+        void writeTrailer(RepositoryImpl repository) throws IOException
+        {
+            // The strings of the trailer must be in the table before it is written
+            int name = id(repository.getName());
+            Referral[] referrals = repository.getReferrals();
+            int[] referralUrls = new int[(referrals != null) ? referrals.length : 0];
+            for (int i = 0; i < referralUrls.length; i++)
+            {
+                referralUrls[i] = id(referrals[i].getUrl());
+            }
+
+            int resourceTable = position();
+            for (Integer offset : m_resources)
+            {
+                m_out.writeInt(offset.intValue());
+            }
+
+            int stringTable = position();
+            m_out.writeInt(m_strings.size());
+            int offset = stringTable + 4 + m_strings.size() * 4;
+            List<byte[]> encoded = new ArrayList<byte[]>(m_strings.size());
+            for (String s : m_strings)
+            {
+                byte[] bytes = s.getBytes(UTF8);
+                encoded.add(bytes);
+                m_out.writeInt(offset);
+                offset += 4 + bytes.length;
+            }
+            for (byte[] bytes : encoded)
+            {
+                m_out.writeInt(bytes.length);
+                m_out.write(bytes);
+            }
+
+            int trailer = position();
+            m_out.writeInt(name);
+            m_out.writeLong(repository.getLastModified());
+            m_out.writeInt(referralUrls.length);
+            for (int i = 0; i < referralUrls.length; i++)
+            {
+                m_out.writeInt(referrals[i].getDepth());
+                m_out.writeInt(referralUrls[i]);
+            }
+            m_out.flush();
+            // The size saturates instead of overflowing
+            if (m_out.size() == Integer.MAX_VALUE)
+            {
+                throw new IOException("Repository index exceeds 2GB");
+            }
+
+            RandomAccessFile raf = new RandomAccessFile(m_file, "rw");
+            try
+            {
+                raf.seek(24);
+                raf.writeInt(resourceTable);
+                raf.writeInt(m_resources.size());
+                raf.writeInt(stringTable);
+                raf.writeInt(trailer);
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+
+        private int position()
+        {
+            return m_out.size();
+        }
+
+        void close() throws IOException
+        {
+            m_out.close();
+        }
+    }
+
+    /**
+     * Writes each parsed resource to the index instead of holding it.
+     */
+    private static class IndexingRepository extends RepositoryImpl
+    {
+        private final Writer m_writer;
+
+        IndexingRepository(Writer writer)
+        {
+            m_writer = writer;
+        }
+
+        public void addResource(org.apache.felix.bundlerepository.Resource resource)
+        {
+            try
+            {
+                m_writer.writeResource((RecordingResourceImpl) resource);
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class IndexingParser extends PullParser
+    {
+        private final Writer m_writer;
+
+        IndexingParser(Writer writer)
+        {
+            m_writer = writer;
+        }
+
+        protected ResourceImpl createResource()
+        {
+            return new RecordingResourceImpl(m_writer);
+        }
+    }
+
+    /**
+     * A resource that records the calls made by the parser.
+     */
+    private static class RecordingResourceImpl extends ResourceImpl
+    {
+        private final Writer m_writer;
+        private final java.io.ByteArrayOutputStream m_ops = new java.io.ByteArrayOutputStream();
+        private final DataOutputStream m_out = new DataOutputStream(m_ops);
+
+        RecordingResourceImpl(Writer writer)
+        {
+            m_writer = writer;
+        }
+
+        public void put(String key, String value, String type)
+        {
+            super.put(key, value, type);
+            try
+            {
+                m_out.writeByte(PUT);
+                m_out.writeInt(m_writer.id(key));
+                m_out.writeInt(m_writer.id(value));
+                m_out.writeInt(m_writer.id(type));
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public void addCategory(String category)
+        {
+            super.addCategory(category);
+            try
+            {
+                m_out.writeByte(RepositoryIndex.CATEGORY);
+                m_out.writeInt(m_writer.id(category));
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public void addCapability(Capability cap)
+        {
+            super.addCapability(cap);
+            try
+            {
+                Property[] props = cap.getProperties();
+                m_out.writeByte(CAPABILITY);
+                m_out.writeInt(m_writer.id(cap.getName()));
+                m_out.writeInt(props.length);
+                for (int i = 0; i < props.length; i++)
+                {
+                    m_out.writeInt(m_writer.id(props[i].getName()));
+                    m_out.writeInt(m_writer.id(props[i].getType()));
+                    m_out.writeInt(m_writer.id(props[i].getValue()));
+                }
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public void addRequire(Requirement req)
+        {
+            super.addRequire(req);
+            try
+            {
+                RequirementImpl r = (RequirementImpl) req;
+                m_out.writeByte(REQUIRE);
+                m_out.writeInt(m_writer.id(r.getName()));
+                m_out.writeInt(m_writer.id(r.hasFilter() ? r.getFilter() : null));
+                m_out.writeByte((r.isExtend() ? EXTEND : 0)
+                    | (r.isMultiple() ? MULTIPLE : 0)
+                    | (r.isOptional() ? OPTIONAL : 0));
+                m_out.writeInt(m_writer.id(r.getComment()));
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * A resource of an index, materialized on first use. Its identity, used
+     * for hashing, sorting and listing, is available without materializing it.
+     */
+    static class IndexedResourceImpl extends ResourceImpl
+    {
+        private final RepositoryIndex m_index;
+        private final int m_offset;
+        private final String m_id;
+        private final String m_symbolicName;
+        private final String m_version;
+        private final String m_presentationName;
+        private final int m_capabilities;
+        private volatile SoftReference<ResourceImpl> m_resource = null;
+        // Holds the resource once modified, as it can not be materialized again
+        private volatile ResourceImpl m_modified = null;
+
+        IndexedResourceImpl(RepositoryIndex index, int offset, String id,
+            String symbolicName, String version, String presentationName, int capabilities)
+        {
+            m_index = index;
+            m_offset = offset;
+            m_id = id;
+            m_symbolicName = symbolicName;
+            m_version = version;
+            m_presentationName = presentationName;
+            m_capabilities = capabilities;
+        }
+
+        boolean isMaterialized()
+        {
+            return getMaterialized() != null;
+        }
+
+        /**
+         * @return the number of capabilities of the resource, read from the index
+         */
+        int getCapabilityCount()
+        {
+            return m_index.m_buffer.getInt(m_capabilities);
+        }
+
+        /**
+         * @return the name of the capability at the given index, read from the index
+         */
+        String getCapabilityName(int index)
+        {
+            return m_index.getString(m_index.m_buffer.getInt(m_capabilities + 4 + index * 8));
+        }
+
+        /**
+         * @return the value of the key attribute of the capability at the given
+         *         index, as defined by {@link CapabilityIndex#getKey(Capability)}
+         */
+        String getCapabilityKey(int index)
+        {
+            return m_index.getString(m_index.m_buffer.getInt(m_capabilities + 8 + index * 8));
+        }
+
+        private ResourceImpl getMaterialized()
+        {
+            ResourceImpl resource = m_modified;
+            if (resource == null)
+            {
+                SoftReference<ResourceImpl> ref = m_resource;
+                resource = (ref != null) ? ref.get() : null;
+            }
+            return resource;
+        }
+
+        private ResourceImpl getResource()
+        {
+            ResourceImpl resource = getMaterialized();
+            if (resource == null)
+            {
+                synchronized (this)
+                {
+                    resource = getMaterialized();
+                    if (resource == null)
+                    {
+                        resource = new ResourceImpl();
+                        resource.setRepository(getRepository());
+                        m_index.materialize(m_offset, resource);
+                        m_resource = new SoftReference<ResourceImpl>(resource);
+                    }
+                }
+            }
+            return resource;
+        }
+
+        private synchronized ResourceImpl modify()
+        {
+            ResourceImpl resource = getResource();
+            m_modified = resource;
+            return resource;
+        }
+
+        public void setRepository(org.apache.felix.bundlerepository.Repository repository)
+        {
+            super.setRepository(repository);
+            ResourceImpl resource = getMaterialized();
+            if (resource != null)
+            {
+                resource.setRepository(repository);
+            }
+        }
+
+        public Map getProperties()
+        {
+            return getResource().getProperties();
+        }
+
+        public String getPresentationName()
+        {
+            ResourceImpl resource = getMaterialized();
+            return (resource != null) ? resource.getPresentationName() : m_presentationName;
+        }
+
+        public String getSymbolicName()
+        {
+            ResourceImpl resource = getMaterialized();
+            return (resource != null) ? resource.getSymbolicName() : m_symbolicName;
+        }
+
+        public String getId()
+        {
+            ResourceImpl resource = getMaterialized();
+            return (resource != null) ? resource.getId() : m_id;
+        }
+
+        public Version getVersion()
+        {
+            ResourceImpl resource = getMaterialized();
+            return (resource != null) ? resource.getVersion() : VersionTable.getVersion(m_version);
+        }
+
+        public String getURI()
+        {
+            return getResource().getURI();
+        }
+
+        public Long getSize()
+        {
+            return getResource().getSize();
+        }
+
+        public Requirement[] getRequirements()
+        {
+            return getResource().getRequirements();
+        }
+
+        public void addRequire(Requirement req)
+        {
+            modify().addRequire(req);
+        }
+
+        public Capability[] getCapabilities()
+        {
+            return getResource().getCapabilities();
+        }
+
+        public void addCapability(Capability cap)
+        {
+            modify().addCapability(cap);
+        }
+
+        public String[] getCategories()
+        {
+            return getResource().getCategories();
+        }
+
+        public void addCategory(String category)
+        {
+            modify().addCategory(category);
+        }
+
+        public void put(String key, String value, String type)
+        {
+            modify().put(key, value, type);
+        }
+    }
+}
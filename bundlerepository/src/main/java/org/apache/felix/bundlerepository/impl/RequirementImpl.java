@@ -104,6 +104,11 @@ public class RequirementImpl implements Requirement
         }
     }
 
+    boolean hasFilter()
+    {
+        return m_filter != null;
+    }
+
     public boolean isSatisfied(Capability capability)
     {
         Dictionary propertyDict = new MapToDictionary(capability.getPropertiesAsMap());
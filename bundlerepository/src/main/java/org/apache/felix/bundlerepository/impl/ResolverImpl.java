@@ -20,6 +20,9 @@ package org.apache.felix.bundlerepository.impl;
 
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.felix.bundlerepository.*;
 import org.apache.felix.utils.log.Logger;
@@ -34,6 +37,9 @@ public class ResolverImpl implements Resolver
     private final BundleContext m_context;
     private final Logger m_logger;
     private final Repository[] m_repositories;
+    private final int m_parallelism;
+    private final List<CapabilityIndex> m_indexes = new ArrayList<CapabilityIndex>();
+    private ExecutorService m_executor;
     private final Set<Resource> m_addedSet = new HashSet<Resource>();
     private final Set<Requirement> m_addedRequirementSet = new HashSet<Requirement>();
     private final Set<Capability> m_globalCapabilities = new HashSet<Capability>();
@@ -48,10 +54,20 @@ public class ResolverImpl implements Resolver
     private int m_resolutionFlags;
 
     public ResolverImpl(BundleContext context, Repository[] repositories, Logger logger)
+    {
+        this(context, repositories, logger, 1);
+    }
+
+    /**
+     * @param parallelism the number of threads used to match requirements
+     *        against the capabilities of the repositories
+     */
+    public ResolverImpl(BundleContext context, Repository[] repositories, Logger logger, int parallelism)
     {
         m_context = context;
         m_logger = logger;
         m_repositories = repositories;
+        m_parallelism = parallelism;
     }
 
     public synchronized void add(Resource resource)
@@ -152,6 +168,16 @@ public class ResolverImpl implements Resolver
     private Resource[] getResources()
     {
         List<Resource> resources = new ArrayList<Resource>();
+        for (Repository repository : getRepositories())
+        {
+            Collections.addAll(resources, repository.getResources());
+        }
+        return resources.toArray(new Resource[resources.size()]);
+    }
+
+    private List<Repository> getRepositories()
+    {
+        List<Repository> repositories = new ArrayList<Repository>();
         for (int repoIdx = 0; (m_repositories != null) && (repoIdx < m_repositories.length); repoIdx++)
         {
             boolean isLocal = m_repositories[repoIdx].getURI().equals(Repository.LOCAL);
@@ -162,9 +188,9 @@ public class ResolverImpl implements Resolver
             if (isSystem && (m_resolutionFlags & NO_SYSTEM_BUNDLE) != 0) {
                 continue;
             }
-            Collections.addAll(resources, m_repositories[repoIdx].getResources());
+            repositories.add(m_repositories[repoIdx]);
         }
-        return resources.toArray(new Resource[resources.size()]);
+        return repositories;
     }
 
     public synchronized boolean resolve()
@@ -178,6 +204,16 @@ public class ResolverImpl implements Resolver
         Resource[] locals = getLocalResources();
         Resource[] remotes = getRemoteResources();
 
+        // Get the capability catalogs of the repositories; repositories
+        // which do not keep one are indexed for this resolution only
+        m_indexes.clear();
+        for (Repository repository : getRepositories())
+        {
+            m_indexes.add(repository instanceof RepositoryImpl
+                ? ((RepositoryImpl) repository).getCapabilityIndex()
+                : new CapabilityIndex(repository.getResources()));
+        }
+
         // time of the resolution process start
         m_resolveTimeStamp = 0;
         for (int repoIdx = 0; (m_repositories != null) && (repoIdx < m_repositories.length); repoIdx++)
@@ -195,6 +231,53 @@ public class ResolverImpl implements Resolver
         m_resolved = true;
         m_resolutionFlags = flags;
 
+        boolean result;
+
+        if (m_parallelism > 1)
+        {
+            m_executor = Executors.newFixedThreadPool(m_parallelism, new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "OBR Resolver");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        try
+        {
+            result = doResolve(locals, remotes);
+        }
+        finally
+        {
+            if (m_executor != null)
+            {
+                m_executor.shutdownNow();
+                m_executor = null;
+            }
+            m_indexes.clear();
+        }
+
+        // Clean up the resulting data structures.
+        m_requiredSet.removeAll(m_addedSet);
+        if ((flags & NO_LOCAL_RESOURCES) == 0)
+        {
+            m_requiredSet.removeAll(Arrays.asList(locals));
+        }
+        m_optionalSet.removeAll(m_addedSet);
+        m_optionalSet.removeAll(m_requiredSet);
+        if ((flags & NO_LOCAL_RESOURCES) == 0)
+        {
+            m_optionalSet.removeAll(Arrays.asList(locals));
+        }
+
+        // Return final result.
+        return result;
+    }
+
+    private boolean doResolve(Resource[] locals, Resource[] remotes)
+    {
         boolean result = true;
 
         // Add a fake resource if needed
@@ -222,20 +305,6 @@ public class ResolverImpl implements Resolver
             }
         }
 
-        // Clean up the resulting data structures.
-        m_requiredSet.removeAll(m_addedSet);
-        if ((flags & NO_LOCAL_RESOURCES) == 0)
-        {
-            m_requiredSet.removeAll(Arrays.asList(locals));
-        }
-        m_optionalSet.removeAll(m_addedSet);
-        m_optionalSet.removeAll(m_requiredSet);
-        if ((flags & NO_LOCAL_RESOURCES) == 0)
-        {
-            m_optionalSet.removeAll(Arrays.asList(locals));
-        }
-
-        // Return final result.
         return result;
     }
 
@@ -279,8 +348,7 @@ public class ResolverImpl implements Resolver
                     candidate = searchResources(req, m_resolveSet);
                 }
                 if (candidate == null) {
-                    List<ResourceCapability> candidateCapabilities = searchResources(req, locals);
-                    candidateCapabilities.addAll(searchResources(req, remotes));
+                    List<ResourceCapability> candidateCapabilities = searchCandidates(req);
 
                     // Determine the best candidate available that
                     // can resolve.
@@ -362,32 +430,30 @@ public class ResolverImpl implements Resolver
     }
 
     /**
-     * Searches for resources that do meet the given requirement
+     * Searches the repositories for capabilities that meet the given requirement,
+     * those of local resources first.
      * @param req the the requirement that must be satisfied by resources
-     * @param resources list of resources to look at
-     * @return all resources meeting the given requirement
+     * @return all capabilities meeting the given requirement
      */
-    private List<ResourceCapability> searchResources(Requirement req, Resource[] resources)
+    private List<ResourceCapability> searchCandidates(Requirement req)
     {
-        List<ResourceCapability> matchingCapabilities = new ArrayList<ResourceCapability>();
-
-        if (resources != null) {
-            for (Resource resource : resources) {
-                checkInterrupt();
-                // We don't need to look at resources we've already looked at.
-                if (!m_failedSet.contains(resource)) {
-                    Capability[] caps = resource.getCapabilities();
-                    if (caps != null) {
-                        for (Capability cap : caps) {
-                            if (req.isSatisfied(cap))
-                                matchingCapabilities.add(new ResourceCapabilityImpl(resource, cap));
-                        }
-                    }
+        List<ResourceCapability> localCapabilities = new ArrayList<ResourceCapability>();
+        List<ResourceCapability> remoteCapabilities = new ArrayList<ResourceCapability>();
+
+        for (CapabilityIndex index : m_indexes) {
+            checkInterrupt();
+            // We don't need to look at resources we've already looked at.
+            for (ResourceCapability cap : index.match(req, m_failedSet, m_executor)) {
+                if (cap.getResource().isLocal()) {
+                    localCapabilities.add(cap);
+                } else {
+                    remoteCapabilities.add(cap);
                 }
             }
         }
 
-        return matchingCapabilities;
+        localCapabilities.addAll(remoteCapabilities);
+        return localCapabilities;
     }
 
     /**
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.bundlerepository.Resource;
+
+public class CapabilityIndexTest extends TestCase
+{
+    public void testGetKey()
+    {
+        assertEquals("org.foo", CapabilityIndex.getKey("(package=org.foo)", "package"));
+        assertEquals("org.foo", CapabilityIndex.getKey("(&(package=org.foo)(version>=1.0.0))", "package"));
+        assertEquals("org.foo", CapabilityIndex.getKey("(&(!(version>=2.0.0))(PACKAGE=org.foo))", "package"));
+        assertNull(CapabilityIndex.getKey("(package=org.*)", "package"));
+        assertNull(CapabilityIndex.getKey("(|(package=org.foo)(package=org.bar))", "package"));
+        assertNull(CapabilityIndex.getKey("(!(package=org.foo))", "package"));
+        assertNull(CapabilityIndex.getKey("(&(!(package=org.foo))(version>=1.0.0))", "package"));
+        assertNull(CapabilityIndex.getKey("(package~=org.foo)", "package"));
+        assertNull(CapabilityIndex.getKey("(symbolicname=org.foo)", "package"));
+    }
+
+    public void testMatch()
+    {
+        ResourceImpl r1 = createResource("r1", "org.foo", "1.0.0");
+        ResourceImpl r2 = createResource("r2", "org.bar", "1.0.0");
+        ResourceImpl r3 = createResource("r3", "org.foo", "2.0.0");
+        CapabilityIndex index = new CapabilityIndex(new Resource[] { r1, r2, r3 });
+        Set<Resource> excluded = Collections.emptySet();
+
+        List<ResourceCapability> matches = index.match(createRequirement("(package=org.foo)"), excluded, null);
+        assertEquals(2, matches.size());
+        assertSame(r1, matches.get(0).getResource());
+        assertSame(r3, matches.get(1).getResource());
+
+        matches = index.match(createRequirement("(&(package=org.foo)(version>=1.5.0))"), excluded, null);
+        assertEquals(1, matches.size());
+        assertSame(r3, matches.get(0).getResource());
+
+        matches = index.match(createRequirement("(package=org.*)"), excluded, null);
+        assertEquals(3, matches.size());
+
+        matches = index.match(createRequirement("(package=org.foo)"), Collections.<Resource>singleton(r1), null);
+        assertEquals(1, matches.size());
+        assertSame(r3, matches.get(0).getResource());
+    }
+
+    public void testParallelMatch()
+    {
+        Resource[] resources = new Resource[2000];
+        for (int i = 0; i < resources.length; i++)
+        {
+            resources[i] = createResource("r" + i, "org.foo" + (i % 3), "1.0." + i);
+        }
+        CapabilityIndex index = new CapabilityIndex(resources);
+        Set<Resource> excluded = new HashSet<Resource>();
+        RequirementImpl req = createRequirement("(package=org.foo*)");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<ResourceCapability> sequential = index.match(req, excluded, null);
+            List<ResourceCapability> parallel = index.match(req, excluded, executor);
+            assertEquals(resources.length, sequential.size());
+            assertEquals(sequential, parallel);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private ResourceImpl createResource(String name, String pkg, String version)
+    {
+        ResourceImpl resource = new ResourceImpl();
+        resource.put(Resource.SYMBOLIC_NAME, name);
+        resource.put(Resource.VERSION, "1.0.0");
+        CapabilityImpl cap = new CapabilityImpl("package");
+        cap.addProperty("package", pkg);
+        cap.addProperty("version", "version", version);
+        resource.addCapability(cap);
+        return resource;
+    }
+
+    private RequirementImpl createRequirement(String filter)
+    {
+        RequirementImpl req = new RequirementImpl("package");
+        req.setFilter(filter);
+        return req;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RepositoryCacheTest extends TestCase
+{
+    private File m_dir;
+    private HttpServer m_server;
+    private final List<String> m_conditions = new ArrayList<String>();
+
+    protected void setUp() throws Exception
+    {
+        m_dir = File.createTempFile("obr-cache", "");
+        m_dir.delete();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        if (m_server != null)
+        {
+            m_server.stop(0);
+        }
+        File[] files = m_dir.listFiles();
+        for (int i = 0; (files != null) && (i < files.length); i++)
+        {
+            files[i].delete();
+        }
+        m_dir.delete();
+    }
+
+    public void testFile() throws Exception
+    {
+        File file = new File(m_dir.getParentFile(), m_dir.getName() + ".xml");
+        try
+        {
+            write(file, read(getClass().getResourceAsStream("/repo_for_resolvertest.xml")));
+            file.setLastModified(file.lastModified() - 10000);
+            URL url = file.toURI().toURL();
+            RepositoryCache cache = new RepositoryCache(m_dir);
+
+            RepositoryCache.Entry entry = cache.fetch(url);
+            assertTrue(entry.isModified());
+            assertEquals(file.length(), entry.getFile().length());
+
+            assertFalse(cache.fetch(url).isModified());
+
+            write(file, read(getClass().getResourceAsStream("/referral1_repository.xml")));
+            entry = cache.fetch(url);
+            assertTrue(entry.isModified());
+            assertEquals(file.length(), entry.getFile().length());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    public void testConcurrentFetch() throws Exception
+    {
+        File file = new File(m_dir.getParentFile(), m_dir.getName() + ".xml");
+        try
+        {
+            write(file, read(getClass().getResourceAsStream("/repo_for_resolvertest.xml")));
+            final File content = file;
+            // Without a modification time the content is downloaded by each fetch
+            final URL url = new URL(null, "test:repository.xml", new URLStreamHandler()
+            {
+                protected URLConnection openConnection(URL u) throws IOException
+                {
+                    return new URLConnection(u)
+                    {
+                        public void connect()
+                        {
+                        }
+
+                        public InputStream getInputStream() throws IOException
+                        {
+                            return new FileInputStream(content);
+                        }
+                    };
+                }
+            });
+            final RepositoryCache cache = new RepositoryCache(m_dir);
+            final List<Throwable> failures = new ArrayList<Throwable>();
+            Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; i++)
+            {
+                threads[i] = new Thread()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            for (int j = 0; j < 10; j++)
+                            {
+                                cache.fetch(url);
+                            }
+                        }
+                        catch (Throwable t)
+                        {
+                            synchronized (failures)
+                            {
+                                failures.add(t);
+                            }
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for (int i = 0; i < threads.length; i++)
+            {
+                threads[i].join();
+            }
+            assertEquals(new ArrayList<Throwable>(), failures);
+            assertEquals(file.length(), cache.fetch(url).getFile().length());
+
+            String[] names = m_dir.list();
+            for (int i = 0; i < names.length; i++)
+            {
+                assertFalse(names[i], names[i].endsWith(".tmp"));
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    public void testHttp() throws Exception
+    {
+        byte[] xml = read(getClass().getResourceAsStream("/repo_for_resolvertest.xml"));
+        URL url = serve("/repository.xml", xml, true);
+        RepositoryCache cache = new RepositoryCache(m_dir);
+
+        RepositoryCache.Entry entry = cache.fetch(url);
+        assertTrue(entry.isModified());
+        assertEquals(xml.length, entry.getFile().length());
+
+        assertFalse(cache.fetch(url).isModified());
+        assertEquals(2, m_conditions.size());
+        assertNull(m_conditions.get(0));
+        assertEquals("\"1\"", m_conditions.get(1));
+
+        RepositoryImpl repository = DataModelHelperImpl.repository(url, new FileInputStream(entry.getFile()));
+        assertEquals("MyRepository", repository.getName());
+        assertEquals(url.toExternalForm(), repository.getURI());
+    }
+
+    public void testCompressedContent() throws Exception
+    {
+        byte[] xml = read(getClass().getResourceAsStream("/repo_for_resolvertest.xml"));
+        URL url = serve("/repository", gzip(xml), false);
+
+        RepositoryCache.Entry entry = new RepositoryCache(m_dir).fetch(url);
+        RepositoryImpl repository = DataModelHelperImpl.repository(url, new FileInputStream(entry.getFile()));
+        assertEquals("MyRepository", repository.getName());
+    }
+
+    public void testEncodedGzipFile() throws Exception
+    {
+        byte[] xml = read(getClass().getResourceAsStream("/repo_for_resolvertest.xml"));
+        // The server compresses the transfer of an already uncompressed file
+        URL url = serve("/repository.xml.gz", xml, true);
+
+        RepositoryCache.Entry entry = new RepositoryCache(m_dir).fetch(url);
+        RepositoryImpl repository = DataModelHelperImpl.repository(url, new FileInputStream(entry.getFile()));
+        assertEquals("MyRepository", repository.getName());
+    }
+
+    private URL serve(String path, final byte[] content, final boolean encode) throws IOException
+    {
+        m_server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        m_server.createContext(path, new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+                m_conditions.add(condition);
+                if ("\"1\"".equals(condition))
+                {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = content;
+                String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (encode && accept != null && accept.indexOf("gzip") >= 0)
+                {
+                    body = gzip(content);
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.getResponseHeaders().set("ETag", "\"1\"");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        m_server.start();
+        return new URL("http://localhost:" + m_server.getAddress().getPort() + path);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GZIPOutputStream gz = new GZIPOutputStream(baos);
+        gz.write(content);
+        gz.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] read(InputStream is) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = is.read(buffer)) > 0)
+            {
+                baos.write(buffer, 0, count);
+            }
+            return baos.toByteArray();
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+
+    private static void write(File file, byte[] content) throws IOException
+    {
+        OutputStream os = new FileOutputStream(file);
+        try
+        {
+            os.write(content);
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+}
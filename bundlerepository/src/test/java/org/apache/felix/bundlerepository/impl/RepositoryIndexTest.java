@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Resource;
+
+public class RepositoryIndexTest extends TestCase
+{
+    private File m_dir;
+
+    protected void setUp() throws Exception
+    {
+        m_dir = File.createTempFile("obr-index", "");
+        m_dir.delete();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        File[] files = m_dir.listFiles();
+        for (int i = 0; (files != null) && (i < files.length); i++)
+        {
+            files[i].delete();
+        }
+        m_dir.delete();
+    }
+
+    public void testLoad() throws Exception
+    {
+        URL url = getClass().getResource("/repo_for_resolvertest.xml");
+        RepositoryImpl expected = (RepositoryImpl) new DataModelHelperImpl().repository(url);
+        RepositoryImpl actual = load(url);
+
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getLastModified(), actual.getLastModified());
+        assertEquals(expected.getURI(), actual.getURI());
+
+        Resource[] expectedResources = expected.getResources();
+        Resource[] actualResources = actual.getResources();
+        assertEquals(expectedResources.length, actualResources.length);
+        for (int i = 0; i < expectedResources.length; i++)
+        {
+            Resource r1 = expectedResources[i];
+            Resource r2 = actualResources[i];
+            assertTrue(r2 instanceof RepositoryIndex.IndexedResourceImpl);
+            assertEquals(r1.getId(), r2.getId());
+            assertEquals(r1.getSymbolicName(), r2.getSymbolicName());
+            assertEquals(r1.getVersion(), r2.getVersion());
+            assertFalse(((RepositoryIndex.IndexedResourceImpl) r2).isMaterialized());
+
+            assertEquals(r1.getURI(), r2.getURI());
+            assertEquals(r1.getProperties(), r2.getProperties());
+            assertEquals(Arrays.asList(r1.getCategories()), Arrays.asList(r2.getCategories()));
+            assertEquals(toString(r1.getCapabilities()), toString(r2.getCapabilities()));
+            assertEquals(Arrays.asList(r1.getRequirements()), Arrays.asList(r2.getRequirements()));
+            assertSame(actual, ((ResourceImpl) r2).getRepository());
+        }
+    }
+
+    public void testReferrals() throws Exception
+    {
+        URL url = getClass().getResource("/referral1_repository.xml");
+        RepositoryImpl repository = load(url);
+
+        Referral[] referrals = repository.getReferrals();
+        assertNotNull(referrals);
+        assertEquals(1, referrals.length);
+        assertEquals(1, referrals[0].getDepth());
+        assertEquals("referred.xml", referrals[0].getUrl());
+        assertEquals("referral1_repository", repository.getName());
+    }
+
+    public void testReuse() throws Exception
+    {
+        URL url = getClass().getResource("/repo_for_resolvertest.xml");
+        load(url);
+        File[] files = listIndexes();
+        assertEquals(1, files.length);
+        long modified = files[0].lastModified();
+        files[0].setLastModified(modified - 10000);
+
+        RepositoryImpl repository = load(url);
+        assertEquals(modified - 10000, files[0].lastModified());
+        assertTrue(repository.getResources().length > 0);
+    }
+
+    public void testUpdate() throws Exception
+    {
+        URL url = getClass().getResource("/repo_for_resolvertest.xml");
+        File content = new File(url.getFile());
+        RepositoryImpl previous = RepositoryIndex.load(url, content, m_dir);
+        File[] files = listIndexes();
+        assertEquals(1, files.length);
+        assertTrue(files[0].getName().startsWith("repository-" + FileUtil.digest(url.toExternalForm()) + "-"));
+
+        long modified = content.lastModified();
+        try
+        {
+            content.setLastModified(modified - 10000);
+            RepositoryImpl repository = RepositoryIndex.load(url, content, m_dir);
+            File[] updated = listIndexes();
+            assertEquals(1, updated.length);
+            assertFalse(files[0].equals(updated[0]));
+            assertEquals(previous.getResources().length, repository.getResources().length);
+            // The previous version remains usable while it is mapped
+            assertEquals(repository.getResources()[0].getProperties(), previous.getResources()[0].getProperties());
+        }
+        finally
+        {
+            content.setLastModified(modified);
+        }
+    }
+
+    public void testCapabilityIndex() throws Exception
+    {
+        URL url = getClass().getResource("/repo_for_resolvertest.xml");
+        RepositoryImpl expected = (RepositoryImpl) new DataModelHelperImpl().repository(url);
+        RepositoryImpl actual = load(url);
+
+        CapabilityIndex index = actual.getCapabilityIndex();
+        Resource[] resources = actual.getResources();
+        for (int i = 0; i < resources.length; i++)
+        {
+            assertFalse(((RepositoryIndex.IndexedResourceImpl) resources[i]).isMaterialized());
+        }
+
+        String[] filters = new String[] {
+            "(package=org.xml.sax)",
+            "(&(package=org.springframework.validation)(version>=1.0.0))",
+            "(symbolicname=dummy)" };
+        for (int i = 0; i < filters.length; i++)
+        {
+            RequirementImpl req = new RequirementImpl(i < 2 ? Capability.PACKAGE : Capability.BUNDLE);
+            req.setFilter(filters[i]);
+            List<ResourceCapability> expectedMatches = expected.getCapabilityIndex().match(req, Collections.<Resource>emptySet(), null);
+            List<ResourceCapability> actualMatches = index.match(req, Collections.<Resource>emptySet(), null);
+            assertFalse(filters[i], expectedMatches.isEmpty());
+            assertEquals(filters[i], toString(expectedMatches), toString(actualMatches));
+        }
+    }
+
+    public void testSpecXml() throws Exception
+    {
+        URL url = getClass().getResource("/spec_repository.xml");
+        RepositoryImpl repository = load(url);
+        assertTrue(repository.getResources().length > 0);
+        assertFalse(repository.getResources()[0] instanceof RepositoryIndex.IndexedResourceImpl);
+        assertEquals(0, listIndexes().length);
+    }
+
+    private RepositoryImpl load(URL url) throws Exception
+    {
+        return RepositoryIndex.load(url, new File(url.toURI()), m_dir);
+    }
+
+    private File[] listIndexes()
+    {
+        return m_dir.listFiles(new FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                return file.getName().endsWith(".idx");
+            }
+        });
+    }
+
+    private static String toString(List<ResourceCapability> caps)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (ResourceCapability cap : caps)
+        {
+            sb.append(cap.getResource().getId()).append(':')
+                .append(toString(new Capability[] { cap.getCapability() }));
+        }
+        return sb.toString();
+    }
+
+    private static String toString(Capability[] caps)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < caps.length; i++)
+        {
+            sb.append(caps[i].getName()).append(caps[i].getPropertiesAsMap()).append(';');
+        }
+        return sb.toString();
+    }
+}
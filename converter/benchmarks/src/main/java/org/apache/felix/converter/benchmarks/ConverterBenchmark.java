@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.converter.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.util.converter.Converter;
+import org.osgi.util.converter.StandardConverter;
+
+/**
+ * Measures common conversions: configuration maps to DTOs and interfaces,
+ * DTOs to maps, and strings to primitive arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+    private Converter converter;
+    private Map<String, Object> map;
+    private ConfigDTO dto;
+    private String[] strings;
+    private List<String> stringList;
+
+    @Setup
+    public void setUp() {
+        converter = new StandardConverter();
+
+        map = new HashMap<>();
+        map.put("name", "server");
+        map.put("port", "8080");
+        map.put("enabled", "true");
+        map.put("timeout", 30000L);
+        map.put("hosts", Arrays.asList("a.example.org", "b.example.org"));
+
+        dto = converter.convert(map).to(ConfigDTO.class);
+
+        strings = new String[32];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = Integer.toString(i * 31);
+        }
+        stringList = Arrays.asList(strings);
+    }
+
+    @Benchmark
+    public ConfigDTO mapToDTO() {
+        return converter.convert(map).to(ConfigDTO.class);
+    }
+
+    @Benchmark
+    public Map<?, ?> dtoToMap() {
+        return converter.convert(dto).to(Map.class);
+    }
+
+    @Benchmark
+    public int mapToInterface() {
+        // the proxy converts the values when they are read
+        return converter.convert(map).to(Config.class).port();
+    }
+
+    @Benchmark
+    public int[] stringArrayToIntArray() {
+        return converter.convert(strings).to(int[].class);
+    }
+
+    @Benchmark
+    public long[] stringListToLongArray() {
+        return converter.convert(stringList).to(long[].class);
+    }
+}
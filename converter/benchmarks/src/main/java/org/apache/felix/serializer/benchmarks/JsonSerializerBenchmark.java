@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.serializer.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.serializer.impl.Util;
+import org.apache.felix.serializer.impl.json.JsonSerializerImpl;
+import org.apache.felix.utils.json.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.serializer.Serializer;
+
+/**
+ * Measures the throughput of the streaming JSON serializer against the
+ * previous implementation, which built the whole document as a String
+ * before writing it, and read the whole input into a String before parsing
+ * it with the utils JSONParser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializerBenchmark {
+    /** The number of entries of the document. */
+    @Param({"100", "10000"})
+    public int entries;
+
+    private Serializer serializer;
+    private Map<String, Object> document;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        serializer = new JsonSerializerImpl();
+
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", Integer.valueOf(i));
+            item.put("name", "component-" + i);
+            item.put("enabled", Boolean.valueOf(i % 2 == 0));
+            item.put("ranking", Long.valueOf(i * 1000L));
+            item.put("services", new String[] {"org.example.Service" + i, "org.example.Other"});
+            items.add(item);
+        }
+        document = new LinkedHashMap<>();
+        document.put("version", "1.0");
+        document.put("items", items);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(document).to(out);
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(document).to(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int serializeThroughString() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(serializer.serialize(document).toString().getBytes(StandardCharsets.UTF_8));
+        return out.size();
+    }
+
+    @Benchmark
+    public Map<?, ?> deserialize() {
+        return serializer.deserialize(Map.class).from(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public Map<?, ?> deserializeThroughString() throws IOException {
+        byte[] bytes = Util.readStream(new ByteArrayInputStream(json));
+        return new JSONParser(new String(bytes, StandardCharsets.UTF_8)).getParsed();
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.converter.impl;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The conversion plan for a class: everything the converter needs to know
+ * about a class to convert from or to it, computed once per class instead
+ * of on every conversion. Fields and accessors are held as method handles
+ * so that they are neither looked up nor access checked again.
+ */
+final class ClassInfo {
+    private static final ClassValue<ClassInfo> INFOS = new ClassValue<ClassInfo>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    // Marks a name for which there is no DTO field in the field cache
+    private static final Accessor NO_FIELD = new Accessor(null, null, null, null);
+
+    private final Class<?> type;
+    private final boolean dtoType;
+    private final Map<String, Accessor> dtoFieldsByName = new ConcurrentHashMap<>();
+    private final Map<Method, String> propertyNames = new ConcurrentHashMap<>();
+
+    private volatile String prefix;
+    private volatile List<Accessor> dtoReaders;
+    private volatile List<Accessor> beanReaders;
+    private volatile List<Accessor> setters;
+    private volatile Boolean writeableJavaBean;
+    private volatile MethodHandle constructor;
+    private volatile MethodHandle proxyConstructor;
+    private volatile Boolean declaresAnnotationType;
+
+    private ClassInfo(Class<?> type) {
+        this.type = type;
+        this.dtoType = computeIsDTOType(type);
+    }
+
+    static ClassInfo of(Class<?> cls) {
+        return INFOS.get(cls);
+    }
+
+    boolean isDTOType() {
+        return dtoType;
+    }
+
+    String getPrefix() {
+        String p = prefix;
+        if (p == null) {
+            p = Util.getPrefix(type);
+            prefix = p;
+        }
+        return p;
+    }
+
+    /**
+     * @return the readable DTO fields of this class, in the order in which
+     * they are to be read. A key can appear more than once, the first field
+     * that can be read wins.
+     */
+    List<Accessor> getDTOReaders() {
+        List<Accessor> readers = dtoReaders;
+        if (readers == null) {
+            readers = new ArrayList<>();
+            List<Field> fields = new ArrayList<>(Arrays.asList(type.getDeclaredFields()));
+            fields.addAll(Arrays.asList(type.getFields()));
+            for (Field f : fields) {
+                String key = Util.getDTOKey(f);
+                if (key == null)
+                    continue;
+                try {
+                    readers.add(new Accessor(key, f.getType(), LOOKUP.unreflectGetter(f), f));
+                } catch (IllegalAccessException e) {
+                    // Not readable, as with reflection such a field is skipped
+                }
+            }
+            readers = Collections.unmodifiableList(readers);
+            dtoReaders = readers;
+        }
+        return readers;
+    }
+
+    /**
+     * @return the bean accessors declared by this class. A key can appear
+     * more than once, the first accessor that can be invoked wins.
+     */
+    List<Accessor> getBeanReaders() {
+        List<Accessor> readers = beanReaders;
+        if (readers == null) {
+            readers = new ArrayList<>();
+            for (Method md : type.getDeclaredMethods()) {
+                String key = Util.getBeanKey(md);
+                if (key == null)
+                    continue;
+                readers.add(new Accessor(key, md.getReturnType(), unreflect(md), md));
+            }
+            readers = Collections.unmodifiableList(readers);
+            beanReaders = readers;
+        }
+        return readers;
+    }
+
+    /**
+     * Find the DTO field for the given (mangled) name, looking at the declared
+     * fields first and then at all public fields.
+     * @return the field or {@code null} if there is no such field.
+     */
+    Accessor getDTOField(String name) {
+        if (name == null)
+            return null;
+
+        Accessor a = dtoFieldsByName.get(name);
+        if (a == null) {
+            Field f = null;
+            try {
+                f = type.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                try {
+                    f = type.getField(name);
+                } catch (NoSuchFieldException e1) {
+                    // There is no field with this name
+                }
+            }
+            if (f == null) {
+                a = NO_FIELD;
+            } else {
+                MethodHandle mh;
+                try {
+                    mh = LOOKUP.unreflectSetter(f);
+                } catch (IllegalAccessException e) {
+                    // Use reflection, which reports the problem when the field is set
+                    mh = null;
+                }
+                a = new Accessor(name, f.getType(), mh, f);
+            }
+            dtoFieldsByName.put(name, a);
+        }
+        return a == NO_FIELD ? null : a;
+    }
+
+    /**
+     * @return the JavaBean setters of this class and its super classes, keyed
+     * by their property name.
+     */
+    List<Accessor> getSetters() {
+        List<Accessor> s = setters;
+        if (s == null) {
+            s = new ArrayList<>();
+            for (Method setter : computeSetters(type)) {
+                String setterName = setter.getName();
+                StringBuilder propName = new StringBuilder(Character.valueOf(Character.toLowerCase(setterName.charAt(3))).toString());
+                if (setterName.length() > 4)
+                    propName.append(setterName.substring(4));
+
+                s.add(new Accessor(propName.toString(), setter.getParameterTypes()[0], unreflect(setter), setter));
+            }
+            s = Collections.unmodifiableList(s);
+            setters = s;
+        }
+        return s;
+    }
+
+    boolean isWriteableJavaBean() {
+        Boolean res = writeableJavaBean;
+        if (res == null) {
+            boolean hasNoArgCtor = false;
+            for (Constructor<?> ctor : type.getConstructors()) {
+                if (ctor.getParameterTypes().length == 0)
+                    hasNoArgCtor = true;
+            }
+            // A JavaBean must have a public no-arg constructor
+            res = hasNoArgCtor && getSetters().size() > 0;
+            writeableJavaBean = res;
+        }
+        return res;
+    }
+
+    /**
+     * Create a new instance using the zero-arg constructor.
+     */
+    Object newInstance() throws Throwable {
+        MethodHandle ctor = constructor;
+        if (ctor == null) {
+            try {
+                ctor = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // Let reflection report the problem
+                return type.newInstance();
+            }
+            constructor = ctor;
+        }
+        return ctor.invoke();
+    }
+
+    /**
+     * Create a proxy implementing this interface.
+     */
+    Object newProxy(InvocationHandler handler) {
+        MethodHandle ctor = proxyConstructor;
+        if (ctor == null) {
+            try {
+                Class<?> proxyClass = Proxy.getProxyClass(type.getClassLoader(), type);
+                ctor = LOOKUP.unreflectConstructor(proxyClass.getConstructor(InvocationHandler.class))
+                        .asType(MethodType.methodType(Object.class, InvocationHandler.class));
+            } catch (Exception e) {
+                return Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type}, handler);
+            }
+            proxyConstructor = ctor;
+        }
+        try {
+            return ctor.invokeExact(handler);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Obtain the property name for a method invoked on a proxy for this
+     * interface. Unless the interface declares its own {@code annotationType}
+     * method the proxy does not provide an annotation type, so the name does
+     * not depend on the proxy instance and can be cached.
+     */
+    String getInterfacePropertyName(Method md, Object proxy) {
+        Boolean dat = declaresAnnotationType;
+        if (dat == null) {
+            try {
+                dat = !Annotation.class.equals(type.getMethod("annotationType").getDeclaringClass());
+            } catch (NoSuchMethodException e) {
+                dat = false;
+            }
+            declaresAnnotationType = dat;
+        }
+        if (dat)
+            return Util.getInterfacePropertyName(md, Util.getSingleElementAnnotationKey(type, proxy), proxy);
+
+        String name = propertyNames.get(md);
+        if (name == null) {
+            name = Util.getInterfacePropertyName(md, null, proxy);
+            // Use the empty string to remember that the method is not a property accessor
+            propertyNames.put(md, name == null ? "" : name);
+        }
+        return name.length() == 0 ? null : name;
+    }
+
+    private static MethodHandle unreflect(Method md) {
+        try {
+            return LOOKUP.unreflect(md);
+        } catch (IllegalAccessException e) {
+            // Use reflection, which reports the problem when invoked
+            return null;
+        }
+    }
+
+    private static boolean computeIsDTOType(Class<?> cls) {
+        try {
+            cls.getDeclaredConstructor();
+        } catch (NoSuchMethodException | SecurityException e) {
+            // No zero-arg constructor, not a DTO
+            return false;
+        }
+
+        if (cls.getDeclaredMethods().length > 0) {
+            // should not have any methods
+            return false;
+        }
+
+        for (Method m : cls.getMethods()) {
+            try {
+                Object.class.getMethod(m.getName(), m.getParameterTypes());
+            } catch (NoSuchMethodException snme) {
+                // Not a method defined by Object.class (or override of such method)
+                return false;
+            }
+        }
+
+        for (Field f : cls.getDeclaredFields()) {
+            int modifiers = f.getModifiers();
+            if (Modifier.isStatic(modifiers)) {
+                // ignore static fields
+                continue;
+            }
+
+            if (!Modifier.isPublic(modifiers)) {
+                return false;
+            }
+        }
+
+        for (Field f : cls.getFields()) {
+            int modifiers = f.getModifiers();
+            if (Modifier.isStatic(modifiers)) {
+                // ignore static fields
+                continue;
+            }
+
+            if (!Modifier.isPublic(modifiers)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<Method> computeSetters(Class<?> cls) {
+        Set<Method> setters = new HashSet<>();
+        while (!Object.class.equals(cls)) {
+            Set<Method> methods = new HashSet<>();
+            methods.addAll(Arrays.asList(cls.getDeclaredMethods()));
+            methods.addAll(Arrays.asList(cls.getMethods()));
+            for (Method md : methods) {
+                if (md.getParameterTypes().length != 1)
+                    continue; // Only setters with a single argument
+                String name = md.getName();
+                if (name.length() < 4)
+                    continue;
+                if (name.startsWith("set") &&
+                        Character.isUpperCase(name.charAt(3)))
+                    setters.add(md);
+            }
+            cls = cls.getSuperclass();
+        }
+        return setters;
+    }
+
+    /**
+     * A field or method of a class, together with the method handle used to
+     * access it. The handle is {@code null} if the member is not accessible,
+     * in which case reflection is used so that the problem is reported in the
+     * same way as before.
+     */
+    static final class Accessor {
+        final String name;
+        final Class<?> type;
+        private final MethodHandle handle;
+        private final Object member;
+
+        Accessor(String name, Class<?> type, MethodHandle handle, Object member) {
+            this.name = name;
+            this.type = type;
+            this.handle = handle;
+            this.member = member;
+        }
+
+        /**
+         * Read a field, or invoke a zero-arg accessor method.
+         */
+        Object get(Object obj) throws Throwable {
+            if (handle != null)
+                return handle.invoke(obj);
+            if (member instanceof Field)
+                return ((Field) member).get(obj);
+            return ((Method) member).invoke(obj);
+        }
+
+        /**
+         * Write a field, or invoke a setter method.
+         */
+        void set(Object obj, Object value) throws Throwable {
+            if (handle != null)
+                handle.invoke(obj, value);
+            else if (member instanceof Field)
+                ((Field) member).set(obj, value);
+            else
+                ((Method) member).invoke(obj, value);
+        }
+    }
+}
@@ -21,9 +21,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -295,34 +293,30 @@ public class ConvertingImpl implements Converting, InternalConverting {
         if (targetAsDTO)
             cls = targetClass;
         try {
-            String prefix = Util.getPrefix(cls);
+            ClassInfo info = ClassInfo.of(cls);
+            String prefix = info.getPrefix();
 
-            T dto = (T) targetClass.newInstance();
+            T dto = (T) ClassInfo.of(targetClass).newInstance();
 
             for (Map.Entry entry : (Set<Map.Entry>) m.entrySet()) {
-                Field f = null;
-                try {
-                    f = cls.getDeclaredField(Util.mangleName(prefix, entry.getKey().toString()));
-                } catch (NoSuchFieldException | NullPointerException e) {
-                    try {
-                        f = cls.getField(Util.mangleName(prefix, entry.getKey().toString()));
-                    } catch (NoSuchFieldException | NullPointerException e1) {
-                        // There is no field with this name
-                    }
-                }
+                if (entry.getKey() == null)
+                    continue;
 
+                ClassInfo.Accessor f = info.getDTOField(Util.mangleName(prefix, entry.getKey().toString()));
                 if (f != null) {
                     Object val = entry.getValue();
-                    if (sourceAsDTO && DTO.class.isAssignableFrom(f.getType()))
-                        val = converter.convert(val).sourceAsDTO().to(f.getType());
+                    if (sourceAsDTO && DTO.class.isAssignableFrom(f.type))
+                        val = converter.convert(val).sourceAsDTO().to(f.type);
                     else
-                        val = converter.convert(val).to(f.getType());
+                        val = converter.convert(val).to(f.type);
                     f.set(dto, val);
                 }
             }
 
             return dto;
-        } catch (Exception e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new ConversionException("Cannot create DTO " + targetClass, e);
         }
     }
@@ -426,18 +420,14 @@ public class ConvertingImpl implements Converting, InternalConverting {
         @SuppressWarnings("rawtypes")
         Map m = mapView(object, sourceCls, converter);
         try {
-            Object res = targetClass.newInstance();
-            for (Method setter : getSetters(targetCls)) {
-                String setterName = setter.getName();
-                StringBuilder propName = new StringBuilder(Character.valueOf(Character.toLowerCase(setterName.charAt(3))).toString());
-                if (setterName.length() > 4)
-                    propName.append(setterName.substring(4));
-
-                Class<?> setterType = setter.getParameterTypes()[0];
-                setter.invoke(res, converter.convert(m.get(propName.toString())).to(setterType));
+            Object res = ClassInfo.of(targetClass).newInstance();
+            for (ClassInfo.Accessor setter : ClassInfo.of(targetCls).getSetters()) {
+                setter.set(res, converter.convert(m.get(setter.name)).to(setter.type));
             }
             return res;
-        } catch (Exception e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new ConversionException("Cannot convert to class: " + targetCls.getName() +
                     ". Not a JavaBean with a Zero-arg Constructor.", e);
         }
@@ -446,11 +436,12 @@ public class ConvertingImpl implements Converting, InternalConverting {
     @SuppressWarnings("rawtypes")
     private Object createInterface(Class<?> sourceCls, Class<?> targetCls) {
         Map m = mapView(object, sourceCls, converter);
-        return Proxy.newProxyInstance(targetCls.getClassLoader(), new Class[] {targetCls},
+        ClassInfo info = ClassInfo.of(targetCls);
+        return info.newProxy(
             new InvocationHandler() {
                 @Override
                 public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                    String propName = Util.getInterfacePropertyName(method, Util.getSingleElementAnnotationKey(targetCls, proxy), proxy);
+                    String propName = info.getInterfacePropertyName(method, proxy);
                     if (propName == null)
                         return null;
 
@@ -503,51 +494,7 @@ public class ConvertingImpl implements Converting, InternalConverting {
     }
 
     private static boolean isDTOType(Class<?> cls) {
-        try {
-            cls.getDeclaredConstructor();
-        } catch (NoSuchMethodException | SecurityException e) {
-            // No zero-arg constructor, not a DTO
-            return false;
-        }
-
-        if (cls.getDeclaredMethods().length > 0) {
-            // should not have any methods
-            return false;
-        }
-
-        for (Method m : cls.getMethods()) {
-            try {
-                Object.class.getMethod(m.getName(), m.getParameterTypes());
-            } catch (NoSuchMethodException snme) {
-                // Not a method defined by Object.class (or override of such method)
-                return false;
-            }
-        }
-
-        for (Field f : cls.getDeclaredFields()) {
-            int modifiers = f.getModifiers();
-            if (Modifier.isStatic(modifiers)) {
-                // ignore static fields
-                continue;
-            }
-
-            if (!Modifier.isPublic(modifiers)) {
-                return false;
-            }
-        }
-
-        for (Field f : cls.getFields()) {
-            int modifiers = f.getModifiers();
-            if (Modifier.isStatic(modifiers)) {
-                // ignore static fields
-                continue;
-            }
-
-            if (!Modifier.isPublic(modifiers)) {
-                return false;
-            }
-        }
-        return true;
+        return ClassInfo.of(cls).isDTOType();
     }
 
     private static boolean isMapType(Class<?> cls, boolean asJavaBean) {
@@ -558,7 +505,7 @@ public class ConvertingImpl implements Converting, InternalConverting {
             return true;
         else if (isDTOType(cls))
             return true;
-        else if (asJavaBean && isWriteableJavaBean(cls))
+        else if (asJavaBean && ClassInfo.of(cls).isWriteableJavaBean())
             return true;
         else
             return Dictionary.class.isAssignableFrom(cls);
@@ -684,11 +631,9 @@ public class ConvertingImpl implements Converting, InternalConverting {
 
     @SuppressWarnings("rawtypes")
     private static Map createMapFromBeanAccessors(Object obj, Class<?> sourceCls) {
-        Set<String> invokedMethods = new HashSet<>();
-
         Map result = new HashMap();
-        for (Method md : sourceCls.getDeclaredMethods()) {
-            handleBeanMethod(obj, md, invokedMethods, result);
+        for (ClassInfo.Accessor accessor : ClassInfo.of(sourceCls).getBeanReaders()) {
+            handleAccessor(obj, accessor, result);
         }
 
         return result;
@@ -696,15 +641,9 @@ public class ConvertingImpl implements Converting, InternalConverting {
 
     @SuppressWarnings("rawtypes")
     private Map createMapFromDTO(Object obj, InternalConverter converter) {
-        Set<String> handledFields = new HashSet<>();
-
         Map result = new HashMap();
-        // Do we need 'declaredfields'? We only need to look at the public ones...
-        for (Field f : obj.getClass().getDeclaredFields()) {
-            handleDTOField(obj, f, handledFields, result, converter);
-        }
-        for (Field f : obj.getClass().getFields()) {
-            handleDTOField(obj, f, handledFields, result, converter);
+        for (ClassInfo.Accessor accessor : ClassInfo.of(obj.getClass()).getDTOReaders()) {
+            handleAccessor(obj, accessor, result);
         }
         return result;
     }
@@ -767,36 +706,13 @@ public class ConvertingImpl implements Converting, InternalConverting {
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
-    private void handleDTOField(Object obj, Field field, Set<String> handledFields, Map result,
-            InternalConverter converter) {
-        String fn = Util.getDTOKey(field);
-        if (fn == null)
-            return;
-
-        if (handledFields.contains(fn))
-            return; // Field with this name was already handled
+    private static void handleAccessor(Object obj, ClassInfo.Accessor accessor, Map res) {
+        if (res.containsKey(accessor.name))
+            return; // Field or method with this name was already handled
 
         try {
-            Object fVal = field.get(obj);
-            result.put(fn, fVal);
-            handledFields.add(fn);
-        } catch (Exception e) {
-        }
-    }
-
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    private static void handleBeanMethod(Object obj, Method md, Set<String> invokedMethods, Map res) {
-        String bp = Util.getBeanKey(md);
-        if (bp == null)
-            return;
-
-        if (invokedMethods.contains(bp))
-            return; // method with this name already invoked
-
-        try {
-            res.put(bp, md.invoke(obj));
-            invokedMethods.add(bp);
-        } catch (Exception e) {
+            res.put(accessor.name, accessor.get(obj));
+        } catch (Throwable e) {
         }
     }
 
@@ -852,37 +768,4 @@ public class ConvertingImpl implements Converting, InternalConverting {
                 cls.isArray();
     }
 
-    private static boolean isWriteableJavaBean(Class<?> cls) {
-        boolean hasNoArgCtor = false;
-        for (Constructor<?> ctor : cls.getConstructors()) {
-            if (ctor.getParameterTypes().length == 0)
-                hasNoArgCtor = true;
-        }
-        if (!hasNoArgCtor)
-            return false; // A JavaBean must have a public no-arg constructor
-
-        return getSetters(cls).size() > 0;
-    }
-
-    private static Set<Method> getSetters(Class<?> cls) {
-        Set<Method> setters = new HashSet<>();
-        while (!Object.class.equals(cls)) {
-            Set<Method> methods = new HashSet<>();
-            methods.addAll(Arrays.asList(cls.getDeclaredMethods()));
-            methods.addAll(Arrays.asList(cls.getMethods()));
-            for (Method md : methods) {
-                if (md.getParameterTypes().length != 1)
-                    continue; // Only setters with a single argument
-                String name = md.getName();
-                if (name.length() < 4)
-                    continue;
-                if (name.startsWith("set") &&
-                        Character.isUpperCase(name.charAt(3)))
-                    setters.add(md);
-            }
-            cls = cls.getSuperclass();
-        }
-        return setters;
-    }
-
 }
@@ -19,6 +19,8 @@ package org.apache.felix.serializer.impl;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.nio.CharBuffer;
 
 public class Util {
     private Util() {} // prevent instantiation
@@ -47,4 +49,32 @@ public class Util {
             is.close();
         }
     }
+
+    /**
+     * Obtain a {@link Reader} reading from the given {@link Readable}.
+     */
+    public static Reader asReader(final Readable in) {
+        if (in instanceof Reader)
+            return (Reader) in;
+
+        return new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return in.read(CharBuffer.wrap(cbuf, off, len));
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (in instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) in).close();
+                    } catch (IOException | RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+        };
+    }
 }
@@ -18,14 +18,14 @@ package org.apache.felix.serializer.impl.json;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.Scanner;
 
 import org.apache.felix.serializer.impl.Util;
-import org.apache.felix.utils.json.JSONParser;
 import org.osgi.service.serializer.Deserializing;
 import org.osgi.util.converter.ConversionException;
 import org.osgi.util.converter.Converter;
@@ -40,15 +40,13 @@ public class JsonDeserializingImpl<T> implements Deserializing<T> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public T from(CharSequence in) {
-        JSONParser jp = new JSONParser(in);
-        Map<?,?> m = jp.getParsed();
-        if (type instanceof Class)
-            if (m.getClass().isAssignableFrom((Class<?>) type))
-                return (T) m;
-
-        return (T) converter.convert(m).to(type);
+        try {
+            return from(new StringReader(in.toString()));
+        } catch (IOException e) {
+            // Cannot happen when reading from a string
+            throw new ConversionException("Error reading JSON", e);
+        }
     }
 
     @Override
@@ -58,10 +56,8 @@ public class JsonDeserializingImpl<T> implements Deserializing<T> {
 
     @Override
     public T from(InputStream in, Charset charset) {
-        try {
-            byte[] bytes = Util.readStream(in);
-            String s = new String(bytes, charset);
-            return from(s);
+        try (Reader r = new InputStreamReader(in, charset)) {
+            return from(r);
         } catch (IOException e) {
             throw new ConversionException("Error reading inputstream", e);
         }
@@ -69,12 +65,24 @@ public class JsonDeserializingImpl<T> implements Deserializing<T> {
 
     @Override
     public T from(Readable in) {
-        try (Scanner s = new Scanner(in)) {
-            s.useDelimiter("\\Z");
-            return from(s.next());
+        try (Reader r = Util.asReader(in)) {
+            return from(r);
+        } catch (IOException e) {
+            throw new ConversionException("Error reading input", e);
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private T from(Reader in) throws IOException {
+        // The input is parsed while it is read, it is never held in memory as a whole
+        Object parsed = new JsonReader(in).parse();
+        if (type instanceof Class)
+            if (parsed != null && parsed.getClass().isAssignableFrom((Class<?>) type))
+                return (T) parsed;
+
+        return (T) converter.convert(parsed).to(type);
+    }
+
     @Override
     public Deserializing<T> with(Converter c) {
         converter = c;
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.serializer.impl.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON parser that reads its input incrementally from a {@link Reader},
+ * so that the input never needs to be held in memory as a whole.
+ *
+ * Values are represented in the same way as by the
+ * {@link org.apache.felix.utils.json.JSONParser JSONParser}: objects as
+ * {@link Map}s, lists as {@link List}s, integral numbers as {@link Long}s,
+ * other numbers as {@link Double}s, and strings and booleans as
+ * {@link String}s and {@link Boolean}s.
+ */
+class JsonReader {
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+
+    JsonReader(Reader r) {
+        reader = r;
+    }
+
+    /**
+     * Read a complete JSON document.
+     */
+    Object parse() throws IOException {
+        Object value = readValue();
+        if (skipWhitespace() != -1)
+            throw error("Unexpected content after JSON value");
+        return value;
+    }
+
+    private Object readValue() throws IOException {
+        int c = skipWhitespace();
+        switch (c) {
+        case '{':
+            pos++;
+            return readObject();
+        case '[':
+            pos++;
+            return readList();
+        case '"':
+            pos++;
+            return readString();
+        case -1:
+            throw error("Unexpected end of JSON input");
+        default:
+            return readLiteral();
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        if (skipWhitespace() == '}') {
+            pos++;
+            return values;
+        }
+        while (true) {
+            if (skipWhitespace() != '"')
+                throw error("Expected a string as JSON object key");
+            pos++;
+            String key = readString();
+            if (skipWhitespace() != ':')
+                throw error("Expected ':' after JSON object key " + key);
+            pos++;
+            values.put(key, readValue());
+
+            int c = skipWhitespace();
+            pos++;
+            if (c == '}')
+                return values;
+            if (c != ',')
+                throw error("Expected ',' or '}' in JSON object");
+        }
+    }
+
+    private List<Object> readList() throws IOException {
+        List<Object> values = new ArrayList<>();
+        if (skipWhitespace() == ']') {
+            pos++;
+            return values;
+        }
+        while (true) {
+            values.add(readValue());
+
+            int c = skipWhitespace();
+            pos++;
+            if (c == ']')
+                return values;
+            if (c != ',')
+                throw error("Expected ',' or ']' in JSON list");
+        }
+    }
+
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            switch (c) {
+            case -1:
+                throw error("Unterminated JSON string");
+            case '"':
+                return sb.toString();
+            case '\\':
+                int e = read();
+                switch (e) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    char[] hex = new char[4];
+                    for (int i = 0; i < hex.length; i++) {
+                        int h = read();
+                        if (h == -1)
+                            throw error("Unterminated JSON string");
+                        hex[i] = (char) h;
+                    }
+                    sb.append((char) Integer.parseInt(new String(hex), 16));
+                    break;
+                case -1:
+                    throw error("Unterminated JSON string");
+                default:
+                    sb.append((char) e);
+                }
+                break;
+            default:
+                sb.append((char) c);
+            }
+        }
+    }
+
+    private Object readLiteral() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = peek();
+            if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c))
+                break;
+            sb.append((char) c);
+            pos++;
+        }
+        String literal = sb.toString();
+        switch (literal.toLowerCase()) {
+        case "true":
+            return Boolean.TRUE;
+        case "false":
+            return Boolean.FALSE;
+        case "null":
+            return null;
+        }
+        try {
+            if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0)
+                return Double.parseDouble(literal);
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            throw error("Malformatted JSON value: " + literal);
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && Character.isWhitespace(c))
+            pos++;
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill())
+            return -1;
+        return buffer[pos];
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill())
+            return -1;
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0)
+            return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message);
+    }
+}
@@ -16,14 +16,15 @@
  */
 package org.apache.felix.serializer.impl.json;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -49,7 +50,7 @@ public class JsonSerializingImpl implements Serializing {
     @Override
     public Appendable to(Appendable out) {
         try {
-            out.append(encode(object));
+            encode(object, out);
             return out;
         } catch (IOException e) {
             throw new ConversionException("Problem converting to JSON", e);
@@ -59,7 +60,10 @@ public class JsonSerializingImpl implements Serializing {
     @Override
     public void to(OutputStream os, Charset charset) {
         try {
-            os.write(encode(object).getBytes(charset));
+            // Write the JSON as it is produced, without building it in memory first
+            Writer w = new BufferedWriter(new OutputStreamWriter(os, charset));
+            encode(object, w);
+            w.flush();
         } catch (IOException e) {
             throw new ConversionException("Problem converting to JSON", e);
         }
@@ -72,77 +76,84 @@ public class JsonSerializingImpl implements Serializing {
 
     @Override
     public String toString() {
-        return encode(object);
+        StringBuilder sb = new StringBuilder();
+        to(sb);
+        return sb.toString();
     }
 
     @SuppressWarnings("rawtypes")
-    private String encode(Object obj) {
+    private void encode(Object obj, Appendable out) throws IOException {
         if (obj == null) {
-            return ignoreNull ? "" : "null";
-        }
-
-        if (obj instanceof Map) {
-            return encodeMap((Map) obj);
+            if (!ignoreNull)
+                out.append("null");
+        } else if (obj instanceof Map) {
+            encodeMap((Map) obj, out);
         } else if (obj instanceof Collection) {
-            return encodeCollection((Collection) obj);
+            encodeCollection((Collection) obj, out);
         } else if (obj instanceof DTO) {
-            return encodeMap(converter.convert(obj).to(Map.class));
+            // The converter provides a map view backed by the DTO, no copy is made
+            encodeMap(converter.convert(obj).to(Map.class), out);
         } else if (obj.getClass().isArray()) {
-            return encodeCollection(asCollection(obj));
+            encodeArray(obj, out);
         } else if (obj instanceof Number) {
-            return obj.toString();
+            out.append(obj.toString());
         } else if (obj instanceof Boolean) {
-            return obj.toString();
+            out.append(obj.toString());
+        } else {
+            out.append('"');
+            out.append(converter.convert(obj).to(String.class));
+            out.append('"');
         }
-
-        return "\"" + converter.convert(obj).to(String.class) + "\"";
     }
 
-    private Collection<?> asCollection(Object arr) {
+    private void encodeArray(Object arr, Appendable out) throws IOException {
         // Arrays.asList() doesn't work for primitive arrays
         int len = Array.getLength(arr);
-        List<Object> l = new ArrayList<>(len);
+        out.append('[');
         for (int i=0; i<len; i++) {
-            l.add(Array.get(arr, i));
+            if (i > 0)
+                out.append(',');
+
+            encode(Array.get(arr, i), out);
         }
-        return l;
+        out.append(']');
     }
 
-    private String encodeCollection(Collection<?> collection) {
-        StringBuilder sb = new StringBuilder("[");
+    private void encodeCollection(Collection<?> collection, Appendable out) throws IOException {
+        out.append('[');
 
         boolean first = true;
         for (Object o : collection) {
             if (first)
                 first = false;
             else
-                sb.append(',');
+                out.append(',');
 
-            sb.append(encode(o));
+            encode(o, out);
         }
 
-        sb.append("]");
-        return sb.toString();
+        out.append(']');
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
-    private String encodeMap(Map m) {
-        StringBuilder sb = new StringBuilder("{");
+    private void encodeMap(Map m, Appendable out) throws IOException {
+        out.append('{');
+        boolean first = true;
         for (Entry entry : (Set<Entry>) m.entrySet()) {
             if (entry.getKey() == null || entry.getValue() == null)
                 if (ignoreNull)
                     continue;
 
-            if (sb.length() > 1)
-                sb.append(',');
-            sb.append('"');
-            sb.append(entry.getKey().toString());
-            sb.append("\":");
-            sb.append(encode(entry.getValue()));
+            if (first)
+                first = false;
+            else
+                out.append(',');
+            out.append('"');
+            out.append(entry.getKey().toString());
+            out.append("\":");
+            encode(entry.getValue(), out);
         }
-        sb.append("}");
-
-        return sb.toString();
+        out.append('}');
     }
 
     @Override
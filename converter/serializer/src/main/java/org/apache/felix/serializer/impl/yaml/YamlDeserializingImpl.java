@@ -18,10 +18,11 @@ package org.apache.felix.serializer.impl.yaml;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
 
 import org.apache.felix.serializer.impl.Util;
 import org.osgi.service.serializer.Deserializing;
@@ -45,10 +46,8 @@ public class YamlDeserializingImpl<T> implements Deserializing<T> {
 
     @Override
     public T from(InputStream in, Charset charset) {
-        try {
-            byte[] bytes = Util.readStream(in);
-            String s = new String(bytes, charset);
-            return from(s);
+        try (Reader r = new InputStreamReader(in, charset)) {
+            return convert(new Yaml().load(r));
         } catch (IOException e) {
             throw new ConversionException("Error reading inputstream", e);
         }
@@ -56,18 +55,21 @@ public class YamlDeserializingImpl<T> implements Deserializing<T> {
 
     @Override
     public T from(Readable in) {
-        try (Scanner s = new Scanner(in)) {
-            s.useDelimiter("\\Z");
-            return from(s.next());
+        try (Reader r = Util.asReader(in)) {
+            return convert(new Yaml().load(r));
+        } catch (IOException e) {
+            throw new ConversionException("Error reading input", e);
         }
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public T from(CharSequence in) {
         Yaml yaml = new Yaml();
-        Object res = yaml.load(in.toString());
+        return convert(yaml.load(in.toString()));
+    }
 
+    @SuppressWarnings("unchecked")
+    private T convert(Object res) {
         if (type instanceof Class)
             if (res.getClass().isAssignableFrom((Class<?>) type))
                 return (T) res;
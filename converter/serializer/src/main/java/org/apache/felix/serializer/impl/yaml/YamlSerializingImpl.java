@@ -16,14 +16,15 @@
  */
 package org.apache.felix.serializer.impl.yaml;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -47,7 +48,7 @@ public class YamlSerializingImpl implements Serializing {
     @Override
     public Appendable to(Appendable out) {
         try {
-            out.append(encode(object));
+            encode(object, out);
             return out;
         } catch (IOException e) {
             throw new ConversionException("Problem converting to YAML", e);
@@ -63,7 +64,10 @@ public class YamlSerializingImpl implements Serializing {
     @Override
     public void to(OutputStream os, Charset charset) {
         try {
-            os.write(encode(object).getBytes(charset));
+            // Write the YAML as it is produced, without building it in memory first
+            Writer w = new BufferedWriter(new OutputStreamWriter(os, charset));
+            encode(object, w);
+            w.flush();
         } catch (IOException e) {
             throw new ConversionException("Problem converting to YAML", e);
         }
@@ -71,66 +75,61 @@ public class YamlSerializingImpl implements Serializing {
 
     @Override
     public String toString() {
-        return encode(object);
+        StringBuilder sb = new StringBuilder();
+        to(sb);
+        return sb.toString();
     }
 
-    private String encode(Object obj) {
-        return encode(obj, 0).trim();
+    private void encode(Object obj, Appendable out) throws IOException {
+        encode(obj, 0, new YamlWriter(out));
     }
 
     @SuppressWarnings("rawtypes")
-    private String encode(Object obj, int level) {
+    private void encode(Object obj, int level, YamlWriter out) throws IOException {
         if (obj == null)
-            return "";
+            return;
 
         if (obj instanceof Map) {
-            return encodeMap((Map) obj, level);
+            encodeMap((Map) obj, level, out);
         } else if (obj instanceof Collection) {
-            return encodeCollection((Collection) obj, level);
+            encodeCollection((Collection) obj, level, out);
         } else if (obj.getClass().isArray()) {
-            return encodeCollection(asCollection(obj), level);
+            encodeArray(obj, level, out);
         } else if (obj instanceof Number)  {
-            return obj.toString();
+            out.append(obj.toString());
         } else if (obj instanceof Boolean) {
-            return obj.toString();
+            out.append(obj.toString());
+        } else {
+            out.append("'" + converter.convert(obj).to(String.class) + "'");
         }
-
-        return "'" + converter.convert(obj).to(String.class) + "'";
     }
 
-    private Collection<?> asCollection(Object arr) {
+    private void encodeArray(Object arr, int level, YamlWriter out) throws IOException {
         // Arrays.asList() doesn't work for primitive arrays
         int len = Array.getLength(arr);
-        List<Object> l = new ArrayList<>(len);
         for (int i=0; i<len; i++) {
-            l.add(Array.get(arr, i));
+            out.newLine(getIdentPrefix(level));
+            out.append("- ");
+            encode(Array.get(arr, i), level + 1, out);
         }
-        return l;
     }
 
-    private String encodeCollection(Collection<?> collection, int level) {
-        StringBuilder sb = new StringBuilder();
+    private void encodeCollection(Collection<?> collection, int level, YamlWriter out) throws IOException {
         for (Object o : collection) {
-            sb.append("\n");
-            sb.append(getIdentPrefix(level));
-            sb.append("- ");
-            sb.append(encode(o, level + 1));
+            out.newLine(getIdentPrefix(level));
+            out.append("- ");
+            encode(o, level + 1, out);
         }
-        return sb.toString();
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
-    private String encodeMap(Map m, int level) {
-        StringBuilder sb = new StringBuilder();
+    private void encodeMap(Map m, int level, YamlWriter out) throws IOException {
         for (Entry entry : (Set<Entry>) m.entrySet()) {
-            sb.append("\n");
-            sb.append(getIdentPrefix(level));
-            sb.append(entry.getKey().toString());
-            sb.append(": ");
-            sb.append(encode(entry.getValue(), level + 1));
+            out.newLine(getIdentPrefix(level));
+            out.append(entry.getKey().toString());
+            out.append(": ");
+            encode(entry.getValue(), level + 1, out);
         }
-
-        return sb.toString();
     }
 
     private String getIdentPrefix(int level) {
@@ -141,6 +140,48 @@ public class YamlSerializingImpl implements Serializing {
         return sb.toString();
     }
 
+    /**
+     * Writes the YAML document without leading and trailing whitespace.
+     * Whitespace is held back until it is known to be followed by content.
+     */
+    private static class YamlWriter {
+        private final Appendable out;
+        private final StringBuilder pending = new StringBuilder();
+        private boolean started;
+
+        YamlWriter(Appendable out) {
+            this.out = out;
+        }
+
+        void newLine(String indent) {
+            if (started)
+                pending.append('\n');
+            pending.append(indent);
+        }
+
+        void append(String s) throws IOException {
+            int i = 0;
+            if (!started) {
+                // Drop leading whitespace
+                while (i < s.length() && Character.isWhitespace(s.charAt(i)))
+                    i++;
+                pending.setLength(0);
+                if (i == s.length())
+                    return;
+            }
+            int end = s.length();
+            while (end > i && Character.isWhitespace(s.charAt(end - 1)))
+                end--;
+            if (end > i) {
+                out.append(pending);
+                pending.setLength(0);
+                out.append(s, i, end);
+                started = true;
+            }
+            pending.append(s, end, s.length());
+        }
+    }
+
     @Override
     public Serializing pretty() {
         return this;
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.serializer.impl.json;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonReaderTest {
+    @Test
+    public void testJsonSimple() throws Exception {
+        Map<?,?> m = parse("{\"hi\": \"ho\", \"ha\": true, \"he\": null}");
+        assertEquals(3, m.size());
+        assertEquals("ho", m.get("hi"));
+        assertTrue((Boolean) m.get("ha"));
+        assertTrue(m.containsKey("he"));
+        assertNull(m.get("he"));
+    }
+
+    @Test
+    public void testJsonWithCRLF() throws Exception {
+        Map<?,?> m = parse("{\r\n  \"hi\": \"ho\",\r\n  \"ha\": [\r\n    \"one\",\r\n    \"two\"\r\n  ]\r\n}\r\n\r\n");
+        assertEquals(2, m.size());
+        assertEquals("ho", m.get("hi"));
+        assertEquals(Arrays.asList("one", "two"), m.get("ha"));
+    }
+
+    @Test
+    public void testJsonComplex() throws Exception {
+        Map<?,?> m = parse("{\"a\": [1,2,3], \"b\": {\"x\": 12, \"z\": {\"test test\": \"hello, {hello}\"}}, \"ddd\": 12.34, \"e\": []}");
+        assertEquals(4, m.size());
+        assertEquals(Arrays.asList(1L, 2L, 3L), m.get("a"));
+        Map<?,?> mb = (Map<?,?>) m.get("b");
+        assertEquals(12L, mb.get("x"));
+        assertEquals("hello, {hello}", ((Map<?,?>) mb.get("z")).get("test test"));
+        assertEquals(12.34d, ((Double) m.get("ddd")).doubleValue(), 0.0001d);
+        assertEquals(Collections.emptyList(), m.get("e"));
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        Map<?,?> m = parse("{\"a\": \"q\\\"\\u0041\\n\\\\\"}");
+        assertEquals("q\"A\n\\", m.get("a"));
+    }
+
+    @Test
+    public void testLargeInput() throws Exception {
+        // Larger than the read buffer
+        StringBuilder sb = new StringBuilder("{\"l\": [");
+        for (int i = 0; i < 10000; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(i);
+        }
+        sb.append("]}");
+        List<?> l = (List<?>) parse(sb.toString()).get("l");
+        assertEquals(10000, l.size());
+        assertEquals(9999L, l.get(9999));
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        try {
+            parse("{\"a\": 1");
+            fail("Expected an exception for an unterminated object");
+        } catch (IllegalArgumentException e) {
+            // good
+        }
+    }
+
+    private static Map<?,?> parse(String json) throws Exception {
+        return (Map<?,?>) new JsonReader(new StringReader(json)).parse();
+    }
+}
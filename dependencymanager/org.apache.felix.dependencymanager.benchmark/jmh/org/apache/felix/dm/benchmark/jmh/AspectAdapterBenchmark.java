@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.Component;
+import org.apache.felix.dm.DependencyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Builds chains of aspects and adapters on top of some services, using a dependency manager bound to
+ * the system bundle of an embedded framework (components are then created synchronously).
+ *
+ * The "addRemove" benchmark measures how many times per second the chains can be built and destroyed,
+ * and the "invoke" benchmark measures the cost of a method call going through an adapter and all aspects.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AspectAdapterBenchmark {
+    /**
+     * Number of aspects applied on each service.
+     */
+    @Param({ "0", "1", "5" })
+    int aspects;
+
+    /**
+     * Number of adapted services.
+     */
+    @Param({ "10", "100" })
+    int services;
+
+    private EmbeddedFramework m_framework;
+    private DependencyManager m_dm;
+    private final List<Component> m_components = new ArrayList<>();
+    private Greeter m_greeter;
+
+    public interface Hello {
+        String hello();
+    }
+
+    public interface Greeter {
+        String greet();
+    }
+
+    public static class HelloImpl implements Hello {
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    public static class HelloAspect implements Hello {
+        volatile Hello m_hello;
+
+        public String hello() {
+            return m_hello.hello();
+        }
+    }
+
+    public static class GreeterImpl implements Greeter {
+        volatile Hello m_hello;
+
+        public String greet() {
+            return m_hello.hello();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        m_framework = new EmbeddedFramework(Collections.emptyMap());
+        m_dm = new DependencyManager(m_framework.getBundleContext());
+
+        // Aspects and adapters are added first, so the services are then adapted only once.
+        for (int i = 0; i < aspects; i++) {
+            m_components.add(m_dm.createAspectService(Hello.class, null, i + 1, "m_hello").setImplementation(HelloAspect.class));
+        }
+        m_components.add(m_dm.createAdapterService(Hello.class, null, "m_hello")
+            .setInterface(Greeter.class.getName(), null)
+            .setImplementation(GreeterImpl.class));
+        for (int i = 0; i < services; i++) {
+            Hashtable<String, Object> props = new Hashtable<>();
+            props.put("id", String.valueOf(i));
+            m_components.add(m_dm.createComponent().setInterface(Hello.class.getName(), props).setImplementation(HelloImpl.class));
+        }
+
+        // Build the chains once, in order to check them and to keep one adapter for the invoke benchmark
+        addAll();
+        BundleContext context = m_framework.getBundleContext();
+        ServiceReference<?>[] refs = context.getServiceReferences(Greeter.class.getName(), null);
+        if (refs == null || refs.length != services) {
+            throw new IllegalStateException("Unexpected number of adapters: " + (refs == null ? 0 : refs.length));
+        }
+        m_greeter = (Greeter) context.getService(refs[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        m_dm.clear();
+        m_framework.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void addRemove() {
+        removeAll();
+        addAll();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String invoke() {
+        return m_greeter.greet();
+    }
+
+    private void addAll() {
+        m_components.forEach(m_dm::add);
+    }
+
+    private void removeAll() {
+        m_components.forEach(m_dm::remove);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import static org.apache.felix.dm.benchmark.scenario.Artist.ALBUMS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ARTISTS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.TRACKS;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.benchmark.scenario.Album;
+import org.apache.felix.dm.benchmark.scenario.Artist;
+import org.apache.felix.dm.benchmark.scenario.Helper;
+import org.apache.felix.dm.benchmark.scenario.Track;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+
+/**
+ * ScenarioController used by the JMH benchmarks: it starts or stops a scenario bundle and waits until
+ * all the Artist/Album/Track components have been started or stopped.
+ *
+ * Unlike the controller bundle, failures are reported with an exception, so a broken scenario makes
+ * the benchmark run fail instead of hanging.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class BenchmarkController implements ScenarioController {
+    /**
+     * Number of components created by a scenario bundle.
+     */
+    public final static int COMPONENTS = ARTISTS + (ARTISTS * (ALBUMS + (ALBUMS * TRACKS)));
+
+    /**
+     * Max time to wait for the scenario components.
+     */
+    private final static long TIMEOUT = 60;
+
+    private volatile CountDownLatch m_startLatch = new CountDownLatch(0);
+    private volatile CountDownLatch m_stopLatch = new CountDownLatch(0);
+
+    /**
+     * Starts a scenario bundle and waits for all its components to be started.
+     */
+    public void start(Bundle bundle) throws BundleException, InterruptedException {
+        m_startLatch = new CountDownLatch(COMPONENTS);
+        bundle.start();
+        await(m_startLatch, "start");
+    }
+
+    /**
+     * Stops a scenario bundle and waits for all its components to be stopped.
+     */
+    public void stop(Bundle bundle) throws BundleException, InterruptedException {
+        m_stopLatch = new CountDownLatch(COMPONENTS);
+        bundle.stop();
+        await(m_stopLatch, "stop");
+    }
+
+    @Override
+    public void artistAdded(Artist artist) {
+        int size = artist.getAlbums().size();
+        if (size != ALBUMS) {
+            throw new IllegalStateException("Artist has not created expected number of albums:" + size);
+        }
+        artist.play();
+        m_startLatch.countDown();
+    }
+
+    @Override
+    public void artistRemoved(Artist artist) {
+        m_stopLatch.countDown();
+    }
+
+    @Override
+    public void albumAdded(Album album) {
+        int size = album.getMusicTracks().size();
+        if (size != TRACKS) {
+            throw new IllegalStateException("Album does not contain expected number of music tracks:" + size);
+        }
+        m_startLatch.countDown();
+    }
+
+    @Override
+    public void albumRemoved(Album album) {
+        m_stopLatch.countDown();
+    }
+
+    @Override
+    public void trackAdded(Track track) {
+        m_startLatch.countDown();
+    }
+
+    @Override
+    public void trackRemoved(Track track) {
+        m_stopLatch.countDown();
+    }
+
+    private void await(CountDownLatch latch, String operation) throws InterruptedException {
+        if (! latch.await(TIMEOUT, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Could not " + operation + " components timely: " + latch.getCount() + " remaining");
+        }
+        // Make sure the threadpool used by parallel scenarios has finished to (un)register all components
+        if (! Helper.getThreadPool().awaitQuiescence(TIMEOUT, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Thread pool still active after " + operation);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.stream.Stream;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.launch.FrameworkFactory;
+
+/**
+ * An OSGi framework launched inside the benchmark JVM.
+ *
+ * The system bundle exports the scenario and controller packages from the benchmark classpath, so the
+ * scenario bundles and the benchmarks share the same ScenarioController and Helper classes. The bundles
+ * which can be installed are looked up in the jar files listed by the {@link #BUNDLES} system property
+ * (the "jmh" gradle task sets it to the bundles generated by the workspace).
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class EmbeddedFramework {
+    /**
+     * System property listing the bundle jars that can be installed, separated by the platform path separator.
+     */
+    public final static String BUNDLES = "dm.benchmark.bundles";
+
+    /**
+     * Packages exported by the system bundle.
+     */
+    private final static String SYSTEM_PACKAGES_EXTRA =
+        "org.apache.felix.dm.benchmark.controller;version=1.0.0," +
+        "org.apache.felix.dm.benchmark.scenario;version=1.0.0," +
+        "org.apache.felix.dm.benchmark.scenario.impl;version=1.0.0," +
+        "org.osgi.service.cm;version=1.5.0," +
+        "org.osgi.service.log;version=1.3.0," +
+        "org.osgi.service.metatype;version=1.3.0";
+
+    private final Framework m_framework;
+    private final File m_storage;
+
+    /**
+     * Launches a new framework.
+     * @param properties some additional framework properties (may be empty)
+     */
+    public EmbeddedFramework(Map<String, String> properties) throws IOException, BundleException {
+        m_storage = Files.createTempDirectory("dm-benchmark").toFile();
+        Map<String, String> config = new HashMap<>();
+        config.put(Constants.FRAMEWORK_STORAGE, m_storage.getAbsolutePath());
+        config.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        config.put(Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA, SYSTEM_PACKAGES_EXTRA);
+        config.put(Constants.FRAMEWORK_BOOTDELEGATION, "sun.*,com.sun.*");
+        config.putAll(properties);
+
+        FrameworkFactory factory = ServiceLoader.load(FrameworkFactory.class).iterator().next();
+        m_framework = factory.newFramework(config);
+        m_framework.start();
+    }
+
+    /**
+     * Returns the system bundle context.
+     */
+    public BundleContext getBundleContext() {
+        return m_framework.getBundleContext();
+    }
+
+    /**
+     * Installs one of the bundles listed in the {@link #BUNDLES} system property.
+     * @param symbolicName the bundle symbolic name, which is also the name of the jar file without its extension
+     */
+    public Bundle install(String symbolicName) throws BundleException {
+        String bundles = System.getProperty(BUNDLES, "");
+        File jar = Stream.of(bundles.split(File.pathSeparator))
+            .map(File::new)
+            .filter(file -> file.getName().equals(symbolicName + ".jar"))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Bundle " + symbolicName + " not found in " + BUNDLES + " system property: " + bundles));
+        return getBundleContext().installBundle(jar.toURI().toString());
+    }
+
+    /**
+     * Stops the framework and removes its storage directory.
+     */
+    public void stop() throws BundleException, InterruptedException {
+        m_framework.stop();
+        m_framework.waitForStop(0);
+        delete(m_storage);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            Stream.of(files).forEach(EmbeddedFramework::delete);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.benchmark.scenario.Track;
+import org.apache.felix.dm.benchmark.scenario.impl.TrackImpl;
+import org.apache.felix.dm.impl.index.ServiceRegistryCache;
+import org.apache.felix.dm.impl.index.multiproperty.MultiPropertyFilterIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Looks up services by "id" property, either from the framework service registry or from a
+ * ServiceRegistryCache using an "objectClass,id" filter index.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterIndexBenchmark {
+    /**
+     * Number of registered services.
+     */
+    @Param({ "100", "1000", "10000" })
+    int services;
+
+    /**
+     * Tells if lookups are done with a filter index, or on the framework registry.
+     */
+    @Param({ "false", "true" })
+    boolean index;
+
+    private EmbeddedFramework m_framework;
+    private ServiceRegistryCache m_cache;
+    private BundleContext m_context;
+    private String[] m_filters;
+    private int m_next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        m_framework = new EmbeddedFramework(Collections.emptyMap());
+        BundleContext context = m_framework.getBundleContext();
+        m_context = context;
+        if (index) {
+            m_cache = new ServiceRegistryCache(context);
+            m_cache.open();
+            m_cache.addFilterIndex(new MultiPropertyFilterIndex("objectClass,id"));
+            m_context = m_cache.createBundleContextInterceptor(context);
+        }
+
+        m_filters = new String[services];
+        for (int i = 0; i < services; i++) {
+            Hashtable<String, Object> props = new Hashtable<>();
+            props.put("id", String.valueOf(i));
+            context.registerService(Track.class.getName(), new TrackImpl(null), props);
+            m_filters[i] = "(id=" + i + ")";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (m_cache != null) {
+            m_cache.close();
+        }
+        m_framework.stop();
+    }
+
+    @Benchmark
+    public ServiceReference<?>[] lookup() throws Exception {
+        int next = m_next;
+        m_next = (next + 1) % services;
+        ServiceReference<?>[] refs = m_context.getServiceReferences(Track.class.getName(), m_filters[next]);
+        if (refs == null || refs.length != 1) {
+            throw new IllegalStateException("Service not found: " + m_filters[next]);
+        }
+        return refs;
+    }
+}
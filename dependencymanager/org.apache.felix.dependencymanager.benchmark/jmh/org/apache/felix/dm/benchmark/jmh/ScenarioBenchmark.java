@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.DependencyManager;
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.impl.ForkJoinExecutorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+
+/**
+ * Starts and stops the Artist/Album/Track scenario bundles in an embedded framework.
+ *
+ * The "startStop" benchmark measures how many times per second the whole component graph can be
+ * created and destroyed. The "startup" benchmark measures the time needed to create the graph from
+ * a cold bundle start. Both are run with and without the DM filter indices, and with and without the
+ * DM built-in thread pool (which is overridden by the thread pool of the parallel scenario).
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1024m", "-Xmx1024m" })
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScenarioBenchmark {
+    /**
+     * The scenario bundle (without the "org.apache.felix.dependencymanager.benchmark." prefix).
+     */
+    @Param({ "dependencymanager", "dependencymanager.parallel" })
+    String scenario;
+
+    /**
+     * Tells if the DM filter indices are enabled.
+     */
+    @Param({ "false", "true" })
+    boolean index;
+
+    /**
+     * Tells if the DM built-in thread pool is enabled.
+     */
+    @Param({ "false", "true" })
+    boolean threadpool;
+
+    private EmbeddedFramework m_framework;
+    private Bundle m_bundle;
+    private final BenchmarkController m_controller = new BenchmarkController();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        if (index) {
+            properties.put(DependencyManager.SERVICEREGISTRY_CACHE_INDICES, "objectClass,id");
+        }
+        if (threadpool) {
+            properties.put(ForkJoinExecutorFactory.THREADPOOL, "true");
+        }
+        m_framework = new EmbeddedFramework(properties);
+        m_framework.install("org.apache.felix.dependencymanager").start();
+        m_framework.getBundleContext().registerService(ScenarioController.class.getName(), m_controller, null);
+        m_bundle = m_framework.install("org.apache.felix.dependencymanager.benchmark." + scenario);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        m_framework.stop();
+    }
+
+    /**
+     * Stops the scenario bundle if the benchmark has left it started.
+     */
+    @TearDown(Level.Invocation)
+    public void stopScenario() throws Exception {
+        if (m_bundle.getState() == Bundle.ACTIVE) {
+            m_controller.stop(m_bundle);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void startStop() throws Exception {
+        m_controller.start(m_bundle);
+        m_controller.stop(m_bundle);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 20, batchSize = 1)
+    @Measurement(iterations = 50, batchSize = 1)
+    public void startup() throws Exception {
+        m_controller.start(m_bundle);
+    }
+}
@@ -36,6 +36,8 @@ import org.apache.felix.dm.diagnostics.DependencyGraph;
 import org.apache.felix.dm.diagnostics.DependencyGraph.ComponentState;
 import org.apache.felix.dm.diagnostics.DependencyGraph.DependencyState;
 import org.apache.felix.dm.diagnostics.MissingDependency;
+import org.apache.felix.dm.diagnostics.ServiceCacheStatistics;
+import org.apache.felix.dm.diagnostics.ServiceCacheStatistics.IndexStatistics;
 import org.apache.felix.service.command.CommandSession;
 import org.apache.felix.service.command.Descriptor;
 import org.apache.felix.service.command.Parameter;
@@ -83,6 +85,11 @@ public class DMCommand {
      */
     private static final String BUNDLE = "bundle";
 
+    /**
+     * Max number of filter shapes which are not indexed, displayed by the stats option
+     */
+    private static final int MAX_FILTER_SHAPES = 10;
+
     /**
      * Name of a specific gogo shell variable, which may be used to configure "compact" mode.
      * Example: g! dependencymanager.compact=true
@@ -309,10 +316,34 @@ public class DMCommand {
             if (!nodeps) {
                 System.out.println(" - Dependencies: " + numberOfDependencies);
             }
+            showServiceCacheStatistics();
         }
 
         }
 
+    /**
+     * Displays the statistics of the service registry cache, if it is enabled.
+     */
+    private void showServiceCacheStatistics() {
+        ServiceCacheStatistics cacheStats = ServiceCacheStatistics.getStatistics();
+        if (cacheStats == null) {
+            return;
+        }
+        System.out.println(" - Service registry cache lookups: " + cacheStats.getLookups() + ", hits: " 
+            + cacheStats.getHits() + String.format(" (%.1f%%)", cacheStats.getHitRate() * 100));
+        for (IndexStatistics index : cacheStats.getIndices()) {
+            System.out.println("   - index " + index.getName() + (index.isLearned() ? " (learned)" : "") 
+                + ": " + index.getHits() + " hits");
+        }
+        int shapes = 0;
+        for (Map.Entry<String, Long> shape : cacheStats.getFilterShapes().entrySet()) {
+            if (shapes ++ == MAX_FILTER_SHAPES) {
+                break;
+            }
+            System.out.println("   - not indexed " + shape.getKey() + ": " + shape.getValue() + " lookups");
+        }
+    }
+
     /**
      * Displays components callbacks (init/start/stop/destroy) elapsed time.
      * The components are sorted (the most time consuming components are displayed first).
@@ -94,7 +94,18 @@ import java.util.concurrent.Executor;
  * prefix, in order to indicate that those components must not wait for a ComponentExecutorFactory service
  * (since they are part of the ComponentExecutorFactory implementation !).
  * <p>
- * 
+ *
+ * <h3>Using the built-in ComponentExecutorFactory</h3>
+ *
+ * If you don't need to configure your own threadpool, you can simply set the
+ * "org.apache.felix.dependencymanager.threadpool" OSGi system property: Dependency Manager will then use
+ * a built-in ComponentExecutorFactory based on a shared work-stealing <code>ForkJoinPool</code>, and each
+ * Component <code>Serial Queue</code> is executed in that pool. The property value is the number of threads,
+ * or "true" for one thread per available processor. The built-in factory is replaced by any
+ * ComponentExecutorFactory service registered in the OSGi registry, and it can be combined with the
+ * "org.apache.felix.dependencymanager.parallel" property described above.
+ * <p>
+ *
  * <h3>Examples for the usage of the "org.apache.felix.dependencymanager.parallel" property:</h3>
  * 
  * <blockquote><pre>
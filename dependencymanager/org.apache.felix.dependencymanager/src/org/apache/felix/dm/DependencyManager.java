@@ -86,26 +86,28 @@ public class DependencyManager {
 	            }
 	            BundleContext bundleContext = bundle.getBundleContext();
 	            String index = bundleContext.getProperty(SERVICEREGISTRY_CACHE_INDICES);
-	            if (index != null) {
+	            int learningThreshold = ServiceRegistryCache.getLearningThreshold(bundleContext.getProperty(ServiceRegistryCache.AUTO_INDEX));
+	            if (index != null || learningThreshold > 0) {
 	            	m_serviceRegistryCache = new ServiceRegistryCache(bundleContext);
 	            	m_serviceRegistryCache.open(); // TODO close it somewhere
-	            	String[] props = index.split(";");
+	            	m_serviceRegistryCache.setLearningThreshold(learningThreshold);
+	            	String[] props = index != null ? index.split(";") : new String[0];
 	            	for (int i = 0; i < props.length; i++) {
 	            		if (props[i].equals("*aspect*")) {
-	            			m_serviceRegistryCache.addFilterIndex(new AspectFilterIndex());
+	            			m_serviceRegistryCache.addFilterIndex(new AspectFilterIndex(), props[i]);
 	            		}
 	            		else if (props[i].equals("*adapter*")) {
-	            			m_serviceRegistryCache.addFilterIndex(new AdapterFilterIndex());
+	            			m_serviceRegistryCache.addFilterIndex(new AdapterFilterIndex(), props[i]);
 	            		}
 	            		else {
-	            			m_serviceRegistryCache.addFilterIndex(new MultiPropertyFilterIndex(props[i]));
+	            			m_serviceRegistryCache.addFilterIndex(new MultiPropertyFilterIndex(props[i]), props[i]);
 	            		}
 	            	}
 	            }
 	        }
         }
-        catch (BundleException e) {
-        	// if we cannot start ourselves, we cannot use the indices
+        catch (BundleException | IllegalArgumentException e) {
+        	// if we cannot start ourselves, or if the configuration is invalid, we cannot use the indices
         	e.printStackTrace();
         }
     }
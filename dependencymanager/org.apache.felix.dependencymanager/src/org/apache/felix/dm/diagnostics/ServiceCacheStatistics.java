@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.diagnostics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.dm.impl.index.ServiceRegistryCache;
+
+/**
+ * A snapshot of the statistics of the service registry cache, which is used by the dependency manager
+ * to look up services using filter indices. The cache is enabled using the
+ * "org.apache.felix.dependencymanager.filterindex" or "org.apache.felix.dependencymanager.filterindex.auto"
+ * OSGi system properties.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ *
+ */
+public class ServiceCacheStatistics {
+
+	private final long lookups;
+	private final long hits;
+	private final List<IndexStatistics> indices;
+	private final Map<String, Long> filterShapes;
+
+	public ServiceCacheStatistics(long lookups, long hits, List<IndexStatistics> indices, Map<String, Long> filterShapes) {
+		this.lookups = lookups;
+		this.hits = hits;
+		this.indices = Collections.unmodifiableList(indices);
+		this.filterShapes = Collections.unmodifiableMap(filterShapes);
+	}
+
+	/**
+	 * Returns the current statistics of the service registry cache.
+	 * @return the statistics, or null if the service registry cache is not enabled
+	 */
+	public static ServiceCacheStatistics getStatistics() {
+		ServiceRegistryCache cache = ServiceRegistryCache.getInstance();
+		return cache != null ? cache.getStatistics() : null;
+	}
+
+	/**
+	 * Returns the number of service lookups and service listener registrations handled by the cache.
+	 */
+	public long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * Returns the number of lookups which have been served by a filter index.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the ratio of lookups served by a filter index (between 0 and 1).
+	 */
+	public double getHitRate() {
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Returns the statistics of each filter index.
+	 */
+	public List<IndexStatistics> getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Returns the filter shapes which have been looked up but are not indexed yet, with their number of lookups.
+	 * A filter shape is the list of the properties used by a filter (for example "id,objectclass").
+	 */
+	public Map<String, Long> getFilterShapes() {
+		return filterShapes;
+	}
+
+	@Override
+	public String toString() {
+		return "Service cache statistics: "
+				+ "lookups = " + lookups + " "
+				+ "hits = " + hits + " "
+				+ "indices = " + indices;
+	}
+
+	/**
+	 * The statistics of a given filter index.
+	 */
+	public static class IndexStatistics {
+
+		private final String name;
+		private final boolean learned;
+		private final long hits;
+
+		public IndexStatistics(String name, boolean learned, long hits) {
+			this.name = name;
+			this.learned = learned;
+			this.hits = hits;
+		}
+
+		/**
+		 * Returns the index configuration (for example "objectClass,id", or "*aspect*").
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Tells if the index has been built on demand, for a frequently used filter shape.
+		 */
+		public boolean isLearned() {
+			return learned;
+		}
+
+		/**
+		 * Returns the number of lookups served by this index.
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		@Override
+		public String toString() {
+			return name + (learned ? " (learned)" : "") + ": " + hits + " hits";
+		}
+	}
+}
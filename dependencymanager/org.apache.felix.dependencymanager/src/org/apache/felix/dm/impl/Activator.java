@@ -19,6 +19,7 @@
 package org.apache.felix.dm.impl;
 
 import org.apache.felix.dm.ComponentExecutorFactory;
+import org.apache.felix.dm.Logger;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
@@ -28,24 +29,44 @@ import org.osgi.util.tracker.ServiceTrackerCustomizer;
 
 /**
  * DependencyManager Activator used to track a ComponentExecutorFactory service optionally registered by 
- * a management agent bundle.
+ * a management agent bundle. If the "org.apache.felix.dependencymanager.threadpool" OSGi system property is set,
+ * a built-in ComponentExecutorFactory is used until such a service is registered.
  * 
  * @see {@link ComponentExecutorFactory}
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
 public class Activator implements BundleActivator, ServiceTrackerCustomizer<ComponentExecutorFactory, ComponentExecutorFactory> {
     private BundleContext m_context;
+    private ServiceTracker<ComponentExecutorFactory, ComponentExecutorFactory> m_tracker;
+    private volatile ForkJoinExecutorFactory m_defaultFactory;
     
 	@Override
 	public void start(BundleContext context) throws Exception {
 		m_context = context;
+		try {
+			int parallelism = ForkJoinExecutorFactory.getParallelism(context.getProperty(ForkJoinExecutorFactory.THREADPOOL));
+			if (parallelism > 0) {
+				m_defaultFactory = new ForkJoinExecutorFactory(parallelism);
+				ComponentScheduler.instance().bind(m_defaultFactory);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			new Logger(context).log(Logger.LOG_ERROR, "Built-in thread pool disabled", e);
+		}
         Filter filter = context.createFilter("(objectClass=" + ComponentExecutorFactory.class.getName() + ")");
-        ServiceTracker<ComponentExecutorFactory, ComponentExecutorFactory> tracker = new ServiceTracker<>(context, filter, this);
-        tracker.open();
+        m_tracker = new ServiceTracker<>(context, filter, this);
+        m_tracker.open();
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		ForkJoinExecutorFactory factory = m_defaultFactory;
+		if (factory != null) {
+			m_defaultFactory = null;
+			// Components of other bundles may still use the pool: they then run their tasks in the caller thread.
+			ComponentScheduler.instance().unbind(factory);
+			factory.shutdown();
+		}
 	}
 
 	@Override
@@ -61,6 +82,17 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer<Comp
 
 	@Override
 	public void removedService(ServiceReference<ComponentExecutorFactory> reference, ComponentExecutorFactory factory) {
-		ComponentScheduler.instance().unbind(factory);
+		// Keep using another registered factory, if any, else fall back to our built-in thread pool, if any.
+		ComponentExecutorFactory remaining = m_tracker.getService();
+		ForkJoinExecutorFactory defaultFactory = m_defaultFactory;
+		if (remaining != null) {
+			ComponentScheduler.instance().bind(remaining);
+		}
+		else if (defaultFactory != null) {
+			ComponentScheduler.instance().bind(defaultFactory);
+		}
+		else {
+			ComponentScheduler.instance().unbind(factory);
+		}
 	}
 }
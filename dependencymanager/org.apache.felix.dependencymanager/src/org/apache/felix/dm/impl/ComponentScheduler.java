@@ -47,7 +47,9 @@ public class ComponentScheduler {
     }
 
     protected void bind(final ComponentExecutorFactory componentExecutorFactory) {
-        m_componentExecutorFactory = componentExecutorFactory;
+        synchronized (this) {
+            m_componentExecutorFactory = componentExecutorFactory;
+        }
         m_serial.execute(new Runnable() {
             @Override
             public void run() {
@@ -60,8 +62,11 @@ public class ComponentScheduler {
         });
     }
 
-    protected void unbind(ComponentExecutorFactory threadPool) {
-        m_componentExecutorFactory = null;
+    protected synchronized void unbind(ComponentExecutorFactory threadPool) {
+        // Another factory may have been bound in the meantime
+        if (m_componentExecutorFactory == threadPool) {
+            m_componentExecutorFactory = null;
+        }
     }
 
     public void add(final Component c) {
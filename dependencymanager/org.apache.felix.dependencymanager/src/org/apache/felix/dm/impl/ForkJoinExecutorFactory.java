@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.felix.dm.Component;
+import org.apache.felix.dm.ComponentExecutorFactory;
+
+/**
+ * Built-in ComponentExecutorFactory, used when the "org.apache.felix.dependencymanager.threadpool" OSGi
+ * system property is set.
+ *
+ * All components share a work-stealing ForkJoinPool. Each component keeps its own serial queue
+ * (see {@link DispatchExecutor}), so a component is still never called concurrently, while independent
+ * components are activated in parallel. Tasks scheduled from a pool thread (for example when a component
+ * registers a service which is a dependency of another component) are pushed to the local queue of that
+ * thread, and idle threads steal them.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class ForkJoinExecutorFactory implements ComponentExecutorFactory {
+    /**
+     * The OSGi system property used to enable the built-in thread pool. Its value is the number of threads, or
+     * "true" for one thread per available processor ("false" or "0" disable the thread pool).
+     */
+    public final static String THREADPOOL = "org.apache.felix.dependencymanager.threadpool";
+
+    private final ForkJoinPool m_pool;
+
+    private final Executor m_executor = this::execute;
+
+    /**
+     * Creates a new factory.
+     * @param parallelism the number of threads of the pool
+     */
+    public ForkJoinExecutorFactory(int parallelism) {
+        // Component queues are never joined: use the FIFO (async) mode, which is meant for event-style tasks.
+        m_pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("DependencyManager-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+    }
+
+    /**
+     * Parses the value of the {@link #THREADPOOL} property.
+     * @param value the property value, may be null
+     * @return the number of threads of the pool, or 0 if the built-in thread pool must not be used
+     * @throws IllegalArgumentException if the value is invalid
+     */
+    public static int getParallelism(String value) {
+        return PropertyUtil.getIntOrBoolean(THREADPOOL, value, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public Executor getExecutorFor(Component component) {
+        return m_executor;
+    }
+
+    private void execute(Runnable task) {
+        try {
+            m_pool.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            // The pool has been shut down, but components may still use it: run the task in the caller thread.
+            task.run();
+        }
+    }
+
+    /**
+     * Returns the thread pool shared by all components.
+     */
+    public ForkJoinPool getPool() {
+        return m_pool;
+    }
+
+    /**
+     * Stops the thread pool. Tasks already scheduled are still executed, and tasks scheduled afterwards are
+     * executed in the thread scheduling them.
+     */
+    public void shutdown() {
+        m_pool.shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl;
+
+/**
+ * OSGi system property utilities.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class PropertyUtil {
+    /**
+     * Parses the value of a property which is either a boolean or a non negative number.
+     * @param name the property name, used in error messages
+     * @param value the property value, may be null
+     * @param trueValue the number returned when the value is "true"
+     * @return the number, or 0 if the value is missing or "false"
+     * @throws IllegalArgumentException if the value is invalid
+     */
+    public static int getIntOrBoolean(String name, String value, int trueValue) {
+        if (value == null || value.trim().isEmpty() || value.trim().equalsIgnoreCase("false")) {
+            return 0;
+        }
+        value = value.trim();
+        if (value.equalsIgnoreCase("true")) {
+            return trueValue;
+        }
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 0) {
+                return n;
+            }
+        }
+        catch (NumberFormatException e) {
+            // invalid value
+        }
+        throw new IllegalArgumentException("Invalid " + name + " property value: " + value);
+    }
+}
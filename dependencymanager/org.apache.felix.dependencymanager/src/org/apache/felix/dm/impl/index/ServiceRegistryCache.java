@@ -18,22 +18,71 @@
  */
 package org.apache.felix.dm.impl.index;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.felix.dm.FilterIndex;
+import org.apache.felix.dm.diagnostics.ServiceCacheStatistics;
+import org.apache.felix.dm.diagnostics.ServiceCacheStatistics.IndexStatistics;
+import org.apache.felix.dm.impl.PropertyUtil;
+import org.apache.felix.dm.impl.index.multiproperty.Filter;
+import org.apache.felix.dm.impl.index.multiproperty.MultiPropertyFilterIndex;
+import org.apache.felix.dm.impl.index.multiproperty.Property;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceListener;
 
 /**
+ * Service registry cache, which serves service lookups and service listener registrations using filter indices.
+ * 
+ * Besides the filter indices configured using the "org.apache.felix.dependencymanager.filterindex" property, the
+ * cache can learn the filter shapes (the sorted list of the properties used by a filter) which are frequently
+ * looked up without being indexed, and then build a {@link MultiPropertyFilterIndex} for them on demand. Only
+ * simple conjunctions of equality tests are learned, and like for configured indices, property values are
+ * compared using their string representation.
+ * 
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
 public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*/ {
+    /**
+     * The OSGi system property used to enable the learning of filter indices. Its value is the number of lookups
+     * of a given filter shape after which an index is built, or "true" for the default threshold ("false" or "0"
+     * disable the learning).
+     */
+    public static final String AUTO_INDEX = "org.apache.felix.dependencymanager.filterindex.auto";
+    
+    /**
+     * Default number of lookups of a filter shape after which an index is built for it.
+     */
+    public static final int DEFAULT_LEARNING_THRESHOLD = 50;
+    
+    /**
+     * Maximum number of filter shapes which are counted, and maximum number of learned indices.
+     */
+    private static final int MAX_FILTER_SHAPES = 1024;
+    private static final int MAX_LEARNED_INDICES = 16;
+    
+    private static volatile ServiceRegistryCache m_instance;
+    
 	private final List<FilterIndex> m_filterIndexList = new CopyOnWriteArrayList<>();
+	private final Map<FilterIndex, IndexEntry> m_indexEntries = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> m_filterShapes = new ConcurrentHashMap<>();
+	private final Set<String> m_ignoredFilterShapes = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean m_learning = new AtomicBoolean();
+	private final LongAdder m_lookups = new LongAdder();
+	private final LongAdder m_hits = new LongAdder();
+	private volatile int m_learningThreshold;
+	private int m_learnedIndices;
     private final BundleContext m_context;
     private final FilterIndexBundleContext m_filterIndexBundleContext;
 	private final Map<BundleContext, BundleContextInterceptor> m_bundleContextInterceptorMap = new HashMap<>();
@@ -45,22 +94,66 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
         m_filterIndexBundleContext = new FilterIndexBundleContext(m_context);
     }
     
+    /**
+     * Returns the service registry cache used by the dependency manager, or null if the cache is not enabled.
+     */
+    public static ServiceRegistryCache getInstance() {
+        return m_instance;
+    }
+    
+    /**
+     * Parses the value of the {@link #AUTO_INDEX} property.
+     * @param value the property value, may be null
+     * @return the learning threshold, or 0 if filter indices must not be learned
+     * @throws IllegalArgumentException if the value is invalid
+     */
+    public static int getLearningThreshold(String value) {
+        return PropertyUtil.getIntOrBoolean(AUTO_INDEX, value, DEFAULT_LEARNING_THRESHOLD);
+    }
+    
     public void open() {
         m_context.addServiceListener(this);
+        m_instance = this;
     }
     
     public void close() {
         m_context.removeServiceListener(this);
+        if (m_instance == this) {
+            m_instance = null;
+        }
+    }
+    
+    /**
+     * Sets the number of lookups of a given filter shape after which a filter index is built for it.
+     * @param threshold the learning threshold, or 0 if filter indices must not be learned
+     */
+    public void setLearningThreshold(int threshold) {
+        m_learningThreshold = threshold;
     }
     
     public void addFilterIndex(FilterIndex index) {
-        m_filterIndexList.add(index);
+        addFilterIndex(index, index.getClass().getSimpleName());
+    }
+    
+    /**
+     * Adds a filter index.
+     * @param index the filter index
+     * @param name the name of the index, as displayed in the cache statistics
+     */
+    public void addFilterIndex(FilterIndex index, String name) {
+        addFilterIndex(index, name, false);
+    }
+    
+    private void addFilterIndex(FilterIndex index, String name, boolean learned) {
+        m_indexEntries.put(index, new IndexEntry(name, learned));
         index.open(m_filterIndexBundleContext);
+        m_filterIndexList.add(index);
     }
     
     public void removeFilterIndex(FilterIndex index) {
         index.close();
         m_filterIndexList.remove(index);
+        m_indexEntries.remove(index);
     }
 
     public void serviceChanged(ServiceEvent event) {
@@ -92,15 +185,145 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
     }
 
     public FilterIndex hasFilterIndexFor(String clazz, String filter) {
+        m_lookups.increment();
         Iterator<FilterIndex> iterator = m_filterIndexList.iterator();
         while (iterator.hasNext()) {
             FilterIndex filterIndex = iterator.next();
             if (filterIndex.isApplicable(clazz, filter)) {
+                hit(filterIndex);
+                return filterIndex;
+            }
+        }
+        if (m_learningThreshold > 0) {
+            FilterIndex filterIndex = learn(clazz, filter);
+            if (filterIndex != null) {
+                hit(filterIndex);
                 return filterIndex;
             }
         }
         return null;
     }
+    
+    private void hit(FilterIndex filterIndex) {
+        m_hits.increment();
+        IndexEntry entry = m_indexEntries.get(filterIndex);
+        if (entry != null) {
+            entry.m_hits.increment();
+        }
+    }
+    
+    /**
+     * Counts a lookup which has not been served by any filter index, and builds a new index once the shape of
+     * the filter has been looked up often enough.
+     * @return the new filter index, or null
+     */
+    private FilterIndex learn(String clazz, String filter) {
+        String shape = getFilterShape(clazz, filter);
+        if (shape == null || m_ignoredFilterShapes.contains(shape)) {
+            return null;
+        }
+        LongAdder counter = m_filterShapes.get(shape);
+        if (counter == null) {
+            if (m_filterShapes.size() >= MAX_FILTER_SHAPES) {
+                return null;
+            }
+            counter = m_filterShapes.computeIfAbsent(shape, k -> new LongAdder());
+        }
+        counter.increment();
+        if (counter.sum() < m_learningThreshold) {
+            return null;
+        }
+        // only one thread builds an index at a time, others will use the framework registry meanwhile
+        if (!m_learning.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            if (m_learnedIndices >= MAX_LEARNED_INDICES) {
+                m_filterShapes.clear();
+                m_learningThreshold = 0;
+                return null;
+            }
+            MultiPropertyFilterIndex filterIndex = new MultiPropertyFilterIndex(shape);
+            m_filterShapes.remove(shape);
+            if (!filterIndex.isApplicable(clazz, filter)) {
+                m_ignoredFilterShapes.add(shape);
+                return null;
+            }
+            addFilterIndex(filterIndex, shape, true);
+            m_learnedIndices++;
+            return filterIndex;
+        }
+        finally {
+            m_learning.set(false);
+        }
+    }
+    
+    /**
+     * Returns the shape of a filter (its sorted list of property keys, for example "id,objectclass"), or null
+     * if the filter can't be served by a {@link MultiPropertyFilterIndex}.
+     */
+    static String getFilterShape(String clazz, String filterString) {
+        if (filterString == null) {
+            if (clazz == null) {
+                return null;
+            }
+            filterString = "(objectClass=" + clazz + ")";
+        }
+        else if (clazz != null && !filterString.startsWith("(&(objectClass=")) {
+            filterString = "(&(objectClass=" + clazz + ")" + filterString + ")";
+        }
+        Filter filter = Filter.parse(filterString);
+        if (!filter.isValid() || filter.getPropertyKeys().isEmpty()) {
+            return null;
+        }
+        StringBuilder shape = new StringBuilder();
+        for (String key : new TreeSet<>(filter.getPropertyKeys())) {
+            Property property = filter.getProperty(key);
+            if (property.isNegate() || property.isWildcard() || !isSimpleKey(key)) {
+                return null;
+            }
+            for (String value : property.getValues()) {
+                // substrings, escaped characters and presence tests are not supported by the index
+                if (value.indexOf('*') != -1 || value.indexOf('\\') != -1) {
+                    return null;
+                }
+            }
+            if (shape.length() > 0) {
+                shape.append(",");
+            }
+            shape.append(key);
+        }
+        return shape.toString();
+    }
+    
+    private static boolean isSimpleKey(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            // "<", ">" and "~" come from ordering and approximate tests, which are not supported by the index
+            if (c == '<' || c == '>' || c == '~' || c == '!' || c == ',' || c == '#' || Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return key.length() > 0;
+    }
+    
+    /**
+     * Returns a snapshot of the cache statistics.
+     */
+    public ServiceCacheStatistics getStatistics() {
+        List<IndexStatistics> indices = new ArrayList<>();
+        for (FilterIndex filterIndex : m_filterIndexList) {
+            IndexEntry entry = m_indexEntries.get(filterIndex);
+            if (entry != null) {
+                indices.add(new IndexStatistics(entry.m_name, entry.m_learned, entry.m_hits.sum()));
+            }
+        }
+        Map<String, Long> shapes = new LinkedHashMap<>();
+        m_filterShapes.entrySet().stream()
+            .sorted((e1, e2) -> Long.compare(e2.getValue().sum(), e1.getValue().sum()))
+            .forEach(e -> shapes.put(e.getKey(), e.getValue().sum()));
+        return new ServiceCacheStatistics(m_lookups.sum(), m_hits.sum(), indices, shapes);
+    }
 
     public void serviceChangedForFilterIndices(ServiceEvent event) {
         Iterator<FilterIndex> iterator = m_filterIndexList.iterator();
@@ -122,4 +345,15 @@ public class ServiceRegistryCache implements ServiceListener/*, CommandProvider*
 	public List<FilterIndex> getFilterIndices() {
 		return m_filterIndexList;
 	}
+	
+	private static class IndexEntry {
+	    private final String m_name;
+	    private final boolean m_learned;
+	    private final LongAdder m_hits = new LongAdder();
+	    
+	    IndexEntry(String name, boolean learned) {
+	        m_name = name;
+	        m_learned = learned;
+	    }
+	}
 }
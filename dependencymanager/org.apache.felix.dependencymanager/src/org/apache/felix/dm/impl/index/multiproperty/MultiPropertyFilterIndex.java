@@ -18,6 +18,7 @@
  */
 package org.apache.felix.dm.impl.index.multiproperty;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -168,8 +169,8 @@ public class MultiPropertyFilterIndex implements FilterIndex, ServiceTrackerCust
 			String key = keys[i].toLowerCase();
     		if (m_configProperties.containsKey(key)) {
 				Object valueObject = reference.getProperty(key);
-				if (valueObject instanceof String[]) {
-					String[] values = (String[]) valueObject;
+				if (valueObject instanceof Collection || (valueObject != null && valueObject.getClass().isArray())) {
+					String[] values = toStringArray(valueObject);
 					if (m_configProperties.get(key).isPermute()) {
 						set.addAll(getPermutations(key, values));
 					} else {
@@ -263,6 +264,29 @@ public class MultiPropertyFilterIndex implements FilterIndex, ServiceTrackerCust
 		return results;
 	}
     
+	/**
+	 * Converts a multi value property (an array of any type, or a collection) into an array of strings.
+	 */
+	private String[] toStringArray(Object valueObject) {
+		if (valueObject instanceof String[]) {
+			return (String[]) valueObject;
+		}
+		if (valueObject instanceof Collection) {
+			Collection<?> collection = (Collection<?>) valueObject;
+			String[] values = new String[collection.size()];
+			int i = 0;
+			for (Object value : collection) {
+				values[i ++] = String.valueOf(value);
+			}
+			return values;
+		}
+		String[] values = new String[Array.getLength(valueObject)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = String.valueOf(Array.get(valueObject, i));
+		}
+		return values;
+	}
+    
     protected String toKey(String key, List<String> values) {
     	StringBuilder builder = new StringBuilder();
     	for (int i = 0; i < values.size(); i++) {
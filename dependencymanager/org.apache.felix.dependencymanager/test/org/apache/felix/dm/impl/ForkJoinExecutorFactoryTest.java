@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.felix.dm.Logger;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link ForkJoinExecutorFactory}.
+ */
+public class ForkJoinExecutorFactoryTest {
+    @Test
+    public void testShutdown() throws Exception {
+        ForkJoinExecutorFactory factory = new ForkJoinExecutorFactory(2);
+        Executor executor = factory.getExecutorFor(null);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(latch::countDown);
+        assertTrue("task not executed timely", latch.await(30, TimeUnit.SECONDS));
+
+        factory.shutdown();
+        // components still using the pool run their tasks in the caller thread
+        final Thread[] thread = new Thread[1];
+        executor.execute(() -> thread[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), thread[0]);
+    }
+
+    @Test
+    public void testComponentQueuesAreSerial() throws Exception {
+        ForkJoinExecutorFactory factory = new ForkJoinExecutorFactory(4);
+        try {
+            final int queues = 50;
+            final int tasks = 1000;
+            final CountDownLatch latch = new CountDownLatch(queues * tasks);
+            final AtomicBoolean failed = new AtomicBoolean();
+            List<DispatchExecutor> executors = new ArrayList<>();
+            List<AtomicInteger> counters = new ArrayList<>();
+            for (int i = 0; i < queues; i++) {
+                executors.add(new DispatchExecutor(factory.getExecutorFor(null), new Logger(null)));
+                counters.add(new AtomicInteger());
+            }
+
+            for (int n = 0; n < tasks; n++) {
+                for (int i = 0; i < queues; i++) {
+                    final int expected = n;
+                    final AtomicInteger counter = counters.get(i);
+                    executors.get(i).execute(new Runnable() {
+                        public void run() {
+                            // tasks of a given queue must run one at a time, in FIFO order
+                            if (! counter.compareAndSet(expected, expected + 1)) {
+                                failed.set(true);
+                            }
+                            latch.countDown();
+                        }
+                    });
+                }
+            }
+
+            assertTrue("tasks not executed timely", latch.await(30, TimeUnit.SECONDS));
+            assertFalse("tasks executed out of order", failed.get());
+        }
+        finally {
+            factory.shutdown();
+        }
+    }
+}
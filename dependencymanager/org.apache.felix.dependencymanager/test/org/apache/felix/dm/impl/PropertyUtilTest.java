@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for {@link PropertyUtil}.
+ */
+public class PropertyUtilTest {
+    @Test
+    public void testIntOrBoolean() {
+        assertEquals(0, PropertyUtil.getIntOrBoolean("p", null, 7));
+        assertEquals(0, PropertyUtil.getIntOrBoolean("p", " ", 7));
+        assertEquals(0, PropertyUtil.getIntOrBoolean("p", "false", 7));
+        assertEquals(0, PropertyUtil.getIntOrBoolean("p", "0", 7));
+        assertEquals(4, PropertyUtil.getIntOrBoolean("p", " 4 ", 7));
+        assertEquals(7, PropertyUtil.getIntOrBoolean("p", "TRUE", 7));
+        for (String value : new String[] { "many", "-1" }) {
+            try {
+                PropertyUtil.getIntOrBoolean("p", value, 7);
+                fail("invalid value accepted: " + value);
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals("Invalid p property value: " + value, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl.index;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.felix.dm.FilterIndex;
+import org.apache.felix.dm.diagnostics.ServiceCacheStatistics;
+import org.apache.felix.dm.diagnostics.ServiceCacheStatistics.IndexStatistics;
+import org.apache.felix.dm.impl.index.multiproperty.MultiPropertyFilterIndex;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Filter;
+
+/**
+ * Test cases for the filter index learning of the {@link ServiceRegistryCache}.
+ */
+public class ServiceRegistryCacheTest {
+    @Test
+    public void testFilterShape() {
+        assertEquals("id,objectclass", ServiceRegistryCache.getFilterShape("foo.Bar", "(id=1)"));
+        assertEquals("id,objectclass", ServiceRegistryCache.getFilterShape(null, "(&(objectClass=foo.Bar)(id=1))"));
+        assertEquals("objectclass", ServiceRegistryCache.getFilterShape("foo.Bar", null));
+        assertEquals("a,objectclass", ServiceRegistryCache.getFilterShape("foo.Bar", "(&(a=1)(a=2))"));
+        assertNull(ServiceRegistryCache.getFilterShape(null, null));
+        assertNull(ServiceRegistryCache.getFilterShape("foo.Bar", "(|(id=1)(id=2))"));
+        assertNull(ServiceRegistryCache.getFilterShape("foo.Bar", "(!(id=1))"));
+        assertNull(ServiceRegistryCache.getFilterShape("foo.Bar", "(id=*)"));
+        assertNull(ServiceRegistryCache.getFilterShape("foo.Bar", "(id=1*)"));
+        assertNull(ServiceRegistryCache.getFilterShape("foo.Bar", "(id>=1)"));
+        assertNull(ServiceRegistryCache.getFilterShape("foo.Bar", "(id~=1)"));
+    }
+
+    @Test
+    public void testLearnFilterIndex() throws Exception {
+        ServiceRegistryCache cache = new ServiceRegistryCache(createBundleContext());
+        cache.setLearningThreshold(3);
+        for (int i = 0; i < 2; i++) {
+            assertNull(cache.hasFilterIndexFor("foo.Bar", "(id=" + i + ")"));
+        }
+        // unsupported filters are not counted
+        assertNull(cache.hasFilterIndexFor("foo.Bar", "(|(id=1)(id=2))"));
+        assertEquals(Long.valueOf(2), cache.getStatistics().getFilterShapes().get("id,objectclass"));
+
+        FilterIndex index = cache.hasFilterIndexFor("foo.Bar", "(id=2)");
+        assertTrue(index instanceof MultiPropertyFilterIndex);
+        assertSame(index, cache.hasFilterIndexFor("foo.Bar", "(id=3)"));
+        assertSame(index, cache.hasFilterIndexFor(null, "(&(objectClass=foo.Bar)(id=4))"));
+        assertNull(cache.hasFilterIndexFor("foo.Bar", "(name=x)"));
+
+        ServiceCacheStatistics stats = cache.getStatistics();
+        assertEquals(7, stats.getLookups());
+        assertEquals(3, stats.getHits());
+        assertEquals(1, stats.getIndices().size());
+        IndexStatistics indexStats = stats.getIndices().get(0);
+        assertEquals("id,objectclass", indexStats.getName());
+        assertTrue(indexStats.isLearned());
+        assertEquals(3, indexStats.getHits());
+        assertNull(stats.getFilterShapes().get("id,objectclass"));
+        assertEquals(Long.valueOf(1), stats.getFilterShapes().get("name,objectclass"));
+    }
+
+    @Test
+    public void testLearningDisabled() throws Exception {
+        ServiceRegistryCache cache = new ServiceRegistryCache(createBundleContext());
+        cache.addFilterIndex(new MultiPropertyFilterIndex("objectClass,id"), "objectClass,id");
+        for (int i = 0; i < 100; i++) {
+            assertNull(cache.hasFilterIndexFor("foo.Bar", "(name=" + i + ")"));
+        }
+        assertNotNull(cache.hasFilterIndexFor("foo.Bar", "(id=1)"));
+
+        ServiceCacheStatistics stats = cache.getStatistics();
+        assertEquals(101, stats.getLookups());
+        assertEquals(1, stats.getHits());
+        assertFalse(stats.getIndices().get(0).isLearned());
+        assertTrue(stats.getFilterShapes().isEmpty());
+    }
+
+    private BundleContext createBundleContext() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        when(context.createFilter(anyString())).thenReturn(mock(Filter.class));
+        return context;
+    }
+}
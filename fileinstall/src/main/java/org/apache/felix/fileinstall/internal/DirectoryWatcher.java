@@ -38,7 +38,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
@@ -61,6 +69,7 @@ import org.osgi.framework.Version;
 import org.osgi.framework.startlevel.BundleStartLevel;
 import org.osgi.framework.startlevel.FrameworkStartLevel;
 import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.FrameworkWiring;
 
 /**
  * -DirectoryWatcher-
@@ -107,6 +116,9 @@ public class DirectoryWatcher extends Thread implements BundleListener
     public final static String FRAGMENT_SCOPE = "felix.fileinstall.fragmentRefreshScope";
     public final static String DISABLE_NIO2 = "felix.fileinstall.disableNio2";
     public final static String SUBDIR_MODE = "felix.fileinstall.subdir.mode";
+    public final static String SETTLE = "felix.fileinstall.settle";
+    public final static String RESCAN_INTERVAL = "felix.fileinstall.rescan.interval";
+    public final static String PARALLELISM = "felix.fileinstall.parallelism";
 
     public final static String SCOPE_NONE = "none";
     public final static String SCOPE_MANAGED = "managed";
@@ -136,6 +148,11 @@ public class DirectoryWatcher extends Thread implements BundleListener
     String fragmentScope;
     String optionalScope;
     boolean disableNio2;
+    long settle;
+    long rescanInterval;
+    int parallelism;
+    // Lazily created executor used to transform and start artifacts of a batch concurrently
+    private ExecutorService executor;
 
     // Map of all installed artifacts
     final Map<File, Artifact> currentManagedArtifacts = new HashMap<File, Artifact>();
@@ -184,13 +201,17 @@ public class DirectoryWatcher extends Thread implements BundleListener
         fragmentScope = properties.get(FRAGMENT_SCOPE);
         optionalScope = properties.get(OPTIONAL_SCOPE);
         disableNio2 = getBoolean(properties, DISABLE_NIO2, false);
+        settle = getLong(properties, SETTLE, poll);    // by default, a file must be unchanged for one poll
+        rescanInterval = getLong(properties, RESCAN_INTERVAL, 300000);
+        parallelism = getInt(properties, PARALLELISM, 1);
         this.context.addBundleListener(this);
 
         if (disableNio2) {
             scanner = new Scanner(watchedDirectory, filter, properties.get(SUBDIR_MODE));
         } else {
             try {
-                scanner = new WatcherScanner(context, watchedDirectory, filter, properties.get(SUBDIR_MODE));
+                scanner = new WatcherScanner(context, watchedDirectory, filter, properties.get(SUBDIR_MODE),
+                        settle, rescanInterval);
             } catch (Throwable t) {
                 scanner = new Scanner(watchedDirectory, filter, properties.get(SUBDIR_MODE));
             }
@@ -442,12 +463,7 @@ public class DirectoryWatcher extends Thread implements BundleListener
                         deleteTransformedFile(artifact);
                         artifact.setJaredDirectory(jar);
                         artifact.setJaredUrl(jaredUrl);
-                        if (transformArtifact(artifact)) {
-                            modified.add(artifact);
-                        } else {
-                            deleteJaredDirectory(artifact);
-                            deleted.add(artifact);
-                        }
+                        modified.add(artifact);
                     }
                 }
                 // File has been added
@@ -469,14 +485,22 @@ public class DirectoryWatcher extends Thread implements BundleListener
                     artifact.setJaredUrl(jaredUrl);
                     artifact.setListener(listener);
                     artifact.setChecksum(scanner.getChecksum(file));
-                    if (transformArtifact(artifact)) {
-                        created.add(artifact);
-                    } else {
-                        deleteJaredDirectory(artifact);
-                    }
+                    created.add(artifact);
                 }
             }
         }
+        // Transform all the artifacts of this batch at once
+        List<Artifact> toTransform = new ArrayList<Artifact>(modified);
+        toTransform.addAll(created);
+        Set<Artifact> notTransformed = transformArtifacts(toTransform);
+        for (Artifact artifact : notTransformed) {
+            deleteJaredDirectory(artifact);
+            if (modified.remove(artifact)) {
+                deleted.add(artifact);
+            } else {
+                created.remove(artifact);
+            }
+        }
         // Handle deleted artifacts
         // We do the operations in the following order:
         // uninstall, update, install, refresh & start.
@@ -528,6 +552,48 @@ public class DirectoryWatcher extends Thread implements BundleListener
         return null;
     }
 
+    /**
+     * Transform the given artifacts, concurrently if a parallelism greater
+     * than one has been configured.
+     *
+     * @return the artifacts that could not be transformed
+     */
+    Set<Artifact> transformArtifacts(List<Artifact> artifacts) throws InterruptedException
+    {
+        Set<Artifact> failed = new HashSet<Artifact>();
+        if (parallelism <= 1 || artifacts.size() <= 1)
+        {
+            for (Artifact artifact : artifacts)
+            {
+                if (!transformArtifact(artifact))
+                {
+                    failed.add(artifact);
+                }
+            }
+            return failed;
+        }
+        // Make sure the temporary directory is created once, before transformers use it
+        prepareTempDir();
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (final Artifact artifact : artifacts)
+        {
+            tasks.add(new Callable<Boolean>() {
+                public Boolean call() {
+                    return transformArtifact(artifact);
+                }
+            });
+        }
+        List<Future<Boolean>> results = getExecutor().invokeAll(tasks);
+        for (int i = 0; i < artifacts.size(); i++)
+        {
+            if (!Boolean.TRUE.equals(getResult(results.get(i), artifacts.get(i).getPath())))
+            {
+                failed.add(artifacts.get(i));
+            }
+        }
+        return failed;
+    }
+
     boolean transformArtifact(Artifact artifact)
     {
         if (artifact.getListener() instanceof ArtifactTransformer)
@@ -770,6 +836,14 @@ public class DirectoryWatcher extends Thread implements BundleListener
     {
         this.context.removeBundleListener(this);
         interrupt();
+        synchronized (this)
+        {
+            if (executor != null)
+            {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
         for (Artifact artifact : getArtifacts()) {
             deleteTransformedFile(artifact);
             deleteJaredDirectory(artifact);
@@ -1215,20 +1289,111 @@ public class DirectoryWatcher extends Thread implements BundleListener
 
      /**
       * Starts a bundle and removes it from the Collection when successfully started.
+      * The bundles are resolved together first, then started start level by start level,
+      * bundles sharing the same start level being started concurrently.
       */
     private void startBundles(Collection<Bundle> bundles)
     {
+        if (bundles.isEmpty())
+        {
+            return;
+        }
         // Check if this is the consistent set of bundles which failed previously.
-        boolean logFailures = bundles.equals(consistentlyFailingBundles);
-        for (Iterator<Bundle> b = bundles.iterator(); b.hasNext(); )
+        final boolean logFailures = bundles.equals(consistentlyFailingBundles);
+        // Resolve the whole batch at once rather than once per started bundle
+        FrameworkWiring wiring = systemBundle.adapt(FrameworkWiring.class);
+        if (wiring != null)
+        {
+            wiring.resolveBundles(bundles);
+        }
+        Map<Integer, List<Bundle>> levels = new TreeMap<Integer, List<Bundle>>();
+        for (Bundle bundle : bundles)
+        {
+            BundleStartLevel bsl = bundle.adapt(BundleStartLevel.class);
+            int level = bsl != null ? bsl.getStartLevel() : 0;
+            List<Bundle> list = levels.get(level);
+            if (list == null)
+            {
+                list = new ArrayList<Bundle>();
+                levels.put(level, list);
+            }
+            list.add(bundle);
+        }
+        for (List<Bundle> level : levels.values())
         {
-            if (startBundle(b.next(), logFailures))
+            if (parallelism <= 1 || level.size() <= 1)
+            {
+                for (Bundle bundle : level)
+                {
+                    if (startBundle(bundle, logFailures))
+                    {
+                        bundles.remove(bundle);
+                    }
+                }
+                continue;
+            }
+            List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+            for (final Bundle bundle : level)
+            {
+                tasks.add(new Callable<Boolean>() {
+                    public Boolean call() {
+                        return startBundle(bundle, logFailures);
+                    }
+                });
+            }
+            try
+            {
+                List<Future<Boolean>> results = getExecutor().invokeAll(tasks);
+                for (int i = 0; i < level.size(); i++)
+                {
+                    if (Boolean.TRUE.equals(getResult(results.get(i), level.get(i).getLocation())))
+                    {
+                        bundles.remove(level.get(i));
+                    }
+                }
+            }
+            catch (InterruptedException e)
             {
-                b.remove();
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
 
+    private synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            final String name = getName();
+            executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name + "-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private Boolean getResult(Future<Boolean> future, Object what)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            log(Logger.LOG_WARNING, "Error while processing: " + what, e.getCause());
+        }
+        return Boolean.FALSE;
+    }
+
      /**
       * Start a bundle, if the framework's startlevel allows it.
       * @param bundle the bundle to start.
@@ -181,7 +181,7 @@ public abstract class Watcher implements Closeable {
                 debug("Processing event {} on path {}", kind, child);
 
                 if (kind == OVERFLOW) {
-//                    rescan();
+                    onOverflow(dir);
                     continue;
                 }
 
@@ -250,7 +250,7 @@ public abstract class Watcher implements Closeable {
                     debug("File has been deleted: " + path);
                     processedMap.remove(path);
                     if (isMatchesFile(path)) {
-                        onRemove(file);
+                        onRemove(path);
                         lastModified = System.currentTimeMillis();
                     }
                 }
@@ -321,4 +321,10 @@ public abstract class Watcher implements Closeable {
     protected abstract void warn(String message, Object... args);
     protected abstract void process(Path path);
     protected abstract void onRemove(Path path);
+
+    /**
+     * Called when events for the given directory have been lost.
+     */
+    protected void onOverflow(Path dir) {
+    }
 }
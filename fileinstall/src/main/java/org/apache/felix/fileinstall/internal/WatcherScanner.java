@@ -23,19 +23,39 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.osgi.framework.BundleContext;
 
+/**
+ * A scanner driven by file system events.
+ *
+ * Instead of computing checksums for all files on every scan, only files
+ * reported by the {@link Watcher} are considered.  Each changed file has to
+ * settle, i.e. no further event must have been received for it during the
+ * settle time, before its checksum is computed and the change reported.
+ *
+ * Since events may be lost (for example on overflow, or on file systems
+ * not supporting them), the whole directory is compared against the known
+ * checksums at a long interval as a fallback.
+ */
 public class WatcherScanner extends Scanner {
 
     BundleContext bundleContext;
     PathMatcher fileMatcher;
     Watcher watcher;
 
-    Set<File> changed = new HashSet<File>();
+    // Changed files mapped to the time of the last event received for them
+    final Map<File, Long> changed = new HashMap<File, Long>();
+
+    final long settleTime;
+    final long rescanInterval;
+    long lastFullScan;
+    volatile boolean overflow;
 
     /**
      * Create a scanner for the specified directory and file filter
@@ -45,8 +65,24 @@ public class WatcherScanner extends Scanner {
      * @param subdirMode to use when scanning
      */
     public WatcherScanner(BundleContext bundleContext, File directory, String filterString, String subdirMode) throws IOException {
+        this(bundleContext, directory, filterString, subdirMode, 0, 0);
+    }
+
+    /**
+     * Create a scanner for the specified directory and file filter
+     *
+     * @param directory the directory to scan
+     * @param filterString a filter for file names
+     * @param subdirMode to use when scanning
+     * @param settleTime the time in ms a file must not change before it is reported
+     * @param rescanInterval the interval in ms between full rescans, or 0 to disable them
+     */
+    public WatcherScanner(BundleContext bundleContext, File directory, String filterString, String subdirMode,
+                          long settleTime, long rescanInterval) throws IOException {
         super(directory, filterString, subdirMode);
         this.bundleContext = bundleContext;
+        this.settleTime = settleTime;
+        this.rescanInterval = rescanInterval;
         if (filterString != null) {
             this.fileMatcher = FileSystems.getDefault().getPathMatcher("regex:" + filterString);
         } else {
@@ -57,10 +93,26 @@ public class WatcherScanner extends Scanner {
         this.watcher.setRootDirectory(this.directory);
         this.watcher.init();
         this.watcher.rescan();
+        this.lastFullScan = System.currentTimeMillis();
     }
 
     public Set<File> scan(boolean reportImmediately) {
+        long now = System.currentTimeMillis();
+        if (overflow) {
+            overflow = false;
+            try {
+                // Events have been lost: register all directories again and consider all files
+                watcher.rescan();
+            } catch (IOException e) {
+                Util.log(bundleContext, Util.Logger.LOG_WARNING, "Unable to rescan " + directory, e);
+            }
+            lastFullScan = now;
+        }
         watcher.processEvents();
+        if (rescanInterval > 0 && now - lastFullScan >= rescanInterval) {
+            fullScan(now);
+            lastFullScan = now;
+        }
         synchronized (changed) {
             if (changed.isEmpty()) {
                 return new HashSet<File>();
@@ -70,29 +122,26 @@ public class WatcherScanner extends Scanner {
             if (reportImmediately) {
                 removed.addAll(storedChecksums.keySet());
             }
-            for (Iterator<File> iterator = changed.iterator(); iterator.hasNext(); ) {
-                File file = iterator.next();
-                long lastChecksum = lastChecksums.get(file) != null ? (Long) lastChecksums.get(file) : 0;
-                long storedChecksum = storedChecksums.get(file) != null ? (Long) storedChecksums.get(file) : 0;
-                long newChecksum = checksum(file);
-                lastChecksums.put(file, newChecksum);
+            for (Iterator<Map.Entry<File, Long>> iterator = changed.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<File, Long> entry = iterator.next();
+                File file = entry.getKey();
                 if (file.exists()) {
-                    // Only handle file when it does not change anymore and it has changed since last reported
-                    if ((newChecksum == lastChecksum || reportImmediately)) {
-                        if (newChecksum != storedChecksum) {
-                            storedChecksums.put(file, newChecksum);
-                            files.add(file);
-                        } else {
-                            iterator.remove();
-                        }
-                        if (reportImmediately) {
-                            removed.remove(file);
-                        }
+                    // Only handle the file once it does not change anymore
+                    if (!reportImmediately && now - entry.getValue() < settleTime) {
+                        removed.remove(file);
+                        continue;
                     }
-                } else {
-                    if (!reportImmediately) {
-                        removed.add(file);
+                    long storedChecksum = storedChecksums.get(file) != null ? storedChecksums.get(file) : 0;
+                    long newChecksum = checksum(file);
+                    lastChecksums.put(file, newChecksum);
+                    if (newChecksum != storedChecksum) {
+                        storedChecksums.put(file, newChecksum);
+                        files.add(file);
                     }
+                    iterator.remove();
+                    removed.remove(file);
+                } else if (!reportImmediately) {
+                    removed.add(file);
                 }
             }
             for (File file : removed) {
@@ -108,6 +157,45 @@ public class WatcherScanner extends Scanner {
         }
     }
 
+    /**
+     * Compare the whole directory with the known checksums and mark
+     * any difference as changed, to catch changes missed by the watcher.
+     */
+    void fullScan(long now) {
+        Set<File> found = new HashSet<File>();
+        collect(directory.listFiles(filter), found);
+        synchronized (changed) {
+            for (File file : found) {
+                Long stored = storedChecksums.get(file);
+                if (!changed.containsKey(file) && (stored == null || stored != checksum(file))) {
+                    changed.put(file, now);
+                }
+            }
+            for (File file : storedChecksums.keySet()) {
+                if (!found.contains(file)) {
+                    changed.put(file, now);
+                }
+            }
+        }
+    }
+
+    private void collect(File[] list, Set<File> found) {
+        if (list == null) {
+            return;
+        }
+        for (File file : list) {
+            if (file.isDirectory()) {
+                if (skipSubdir) {
+                    continue;
+                } else if (recurseSubdir) {
+                    collect(file.listFiles(filter), found);
+                    continue;
+                }
+            }
+            found.add(file);
+        }
+    }
+
     public void close() throws IOException {
         watcher.close();
     }
@@ -136,7 +224,7 @@ public class WatcherScanner extends Scanner {
               // Otherwise we recurse by adding the file as-is.
             }
             synchronized (changed) {
-                changed.add(file);
+                changed.put(file, System.currentTimeMillis());
             }
         }
 
@@ -145,6 +233,11 @@ public class WatcherScanner extends Scanner {
             process(path);
         }
 
+        @Override
+        protected void onOverflow(Path dir) {
+            overflow = true;
+        }
+
         @Override
         protected void debug(String message, Object... args) {
             log(Util.Logger.LOG_DEBUG, message, args);
@@ -21,13 +21,17 @@ package org.apache.felix.fileinstall.internal;
 
 import java.io.File;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import junit.framework.TestCase;
 import org.apache.felix.fileinstall.ArtifactListener;
+import org.apache.felix.fileinstall.ArtifactUrlTransformer;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
 import org.junit.Assert;
@@ -215,6 +219,7 @@ public class DirectoryWatcherTest extends TestCase
                 new File(System.getProperty("java.io.tmpdir")).getAbsolutePath()));
         assertEquals("Default START_NEW_BUNDLES parameter correctly read", true, dw.startBundles);
         assertEquals( "Default FILTER parameter correctly read", null, dw.filter );
+        assertEquals( "Default PARALLELISM parameter correctly read", 1, dw.parallelism );
         EasyMock.verify(mockBundleContext);
     }
 
@@ -448,4 +453,52 @@ public class DirectoryWatcherTest extends TestCase
         EasyMock.verify(mockBundleContext, mockBundle,mockServiceReference, mockArtifactListener);
     }
 
+
+
+    public void testTransformArtifactsInParallel() throws Exception
+    {
+        props.put( DirectoryWatcher.PARALLELISM, "4" );
+        mockBundleContext.addBundleListener((BundleListener) org.easymock.EasyMock.anyObject());
+        EasyMock.replay(mockBundleContext, mockBundle, mockSysBundle, mockStartLevel);
+        dw = new DirectoryWatcher( new FileInstall(), props, mockBundleContext );
+
+        ArtifactUrlTransformer transformer = new ArtifactUrlTransformer()
+        {
+            public URL transform(URL artifact)
+            {
+                return artifact.getPath().endsWith("bad.jar") ? null : artifact;
+            }
+
+            public boolean canHandle(File artifact)
+            {
+                return true;
+            }
+        };
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        Artifact bad = null;
+        for (int i = 0; i < 10; i++)
+        {
+            File file = new File("target/load", i == 5 ? "bad.jar" : "good" + i + ".jar");
+            Artifact artifact = new Artifact();
+            artifact.setPath(file);
+            artifact.setJaredUrl(file.toURI().toURL());
+            artifact.setListener(transformer);
+            artifacts.add(artifact);
+            if (i == 5)
+            {
+                bad = artifact;
+            }
+        }
+
+        Set<Artifact> failed = dw.transformArtifacts(artifacts);
+        assertEquals(1, failed.size());
+        assertTrue(failed.contains(bad));
+        for (Artifact artifact : artifacts)
+        {
+            if (artifact != bad)
+            {
+                assertEquals(artifact.getJaredUrl(), artifact.getTransformedUrl());
+            }
+        }
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.fileinstall.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.easymock.EasyMock;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Test class for the WatcherScanner
+ */
+public class WatcherScannerTest extends TestCase
+{
+
+    File dir;
+    WatcherScanner scanner;
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        dir = new File("target/watcher-scanner-" + System.nanoTime());
+        assertTrue(dir.mkdirs());
+    }
+
+    protected void tearDown() throws Exception
+    {
+        if (scanner != null)
+        {
+            scanner.close();
+        }
+        File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        dir.delete();
+        super.tearDown();
+    }
+
+    public void testChangeIsReportedOnceSettled() throws Exception
+    {
+        scanner = createScanner(200, 0);
+        File file = write("a.cfg", "a=b");
+
+        Set<File> files = scanUntilReported(file);
+        assertTrue(files.contains(file));
+        assertTrue(scanner.changed.isEmpty());
+
+        // no further change
+        assertTrue(scanner.scan(false).isEmpty());
+
+        assertTrue(file.delete());
+        files = scanUntilReported(file);
+        assertTrue(files.contains(file));
+        assertFalse(scanner.storedChecksums.containsKey(file));
+    }
+
+    public void testFileIsNotReportedBeforeSettleTime() throws Exception
+    {
+        scanner = createScanner(60000, 0);
+        File file = write("a.cfg", "a=b");
+        scanner.fullScan(System.currentTimeMillis());
+
+        assertTrue(scanner.changed.containsKey(file));
+        assertTrue(scanner.scan(false).isEmpty());
+        assertTrue(scanner.scan(true).contains(file));
+    }
+
+    public void testFullScanFindsMissedChanges() throws Exception
+    {
+        scanner = createScanner(0, 0);
+        File file = write("a.cfg", "a=b");
+        File other = write("b.cfg", "c=d");
+        scanner.fullScan(System.currentTimeMillis());
+        scanner.scan(true);
+        assertTrue(scanner.storedChecksums.containsKey(file));
+        assertTrue(scanner.storedChecksums.containsKey(other));
+        scanner.changed.clear();
+
+        write("a.cfg", "a=changed");
+        assertTrue(other.delete());
+        scanner.fullScan(System.currentTimeMillis());
+
+        assertTrue(scanner.changed.containsKey(file));
+        assertTrue(scanner.changed.containsKey(other));
+        assertEquals(2, scanner.changed.size());
+    }
+
+    private WatcherScanner createScanner(long settle, long rescanInterval) throws IOException
+    {
+        BundleContext context = EasyMock.createNiceMock(BundleContext.class);
+        EasyMock.replay(context);
+        return new WatcherScanner(context, dir, null, null, settle, rescanInterval);
+    }
+
+    private File write(String name, String content) throws IOException
+    {
+        File file = new File(dir, name);
+        FileOutputStream os = new FileOutputStream(file);
+        try
+        {
+            os.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            os.close();
+        }
+        return file.getAbsoluteFile().getCanonicalFile();
+    }
+
+    private Set<File> scanUntilReported(File file) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < end)
+        {
+            Set<File> files = scanner.scan(false);
+            if (files.contains(file))
+            {
+                return files;
+            }
+            Thread.sleep(50);
+        }
+        fail("File " + file + " has not been reported");
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.gogo.runtime.CommandProcessorImpl;
+import org.apache.felix.gogo.runtime.threadio.ThreadIOImpl;
+import org.apache.felix.service.command.CommandSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures CommandSessionImpl.execute of the same script, with and without
+ * the parse cache of the command processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecuteBenchmark
+{
+    private static final String SCRIPT = "a = 1 ; b = (add $a 2) ; c = [$a $b] ; "
+        + "d = [first=$a second=$b] ; add $b 3";
+
+    /** The size of the parse cache, 0 disables it. */
+    @Param({ "0", "256" })
+    public int parseCacheSize;
+
+    private ThreadIOImpl threadIO;
+    private CommandSession session;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        threadIO = new ThreadIOImpl();
+        threadIO.start();
+        CommandProcessorImpl processor = new CommandProcessorImpl(threadIO);
+        processor.setParseCacheSize(parseCacheSize);
+        processor.addCommand("bench", this, "add");
+        session = processor.createSession(new ByteArrayInputStream(new byte[0]),
+            new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        if (!Long.valueOf(6).equals(session.execute(SCRIPT)))
+        {
+            throw new IllegalStateException("Unexpected result of " + SCRIPT);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        session.close();
+        threadIO.stop();
+    }
+
+    @Benchmark
+    public Object execute() throws Exception
+    {
+        return session.execute(SCRIPT);
+    }
+
+    public long add(long a, long b)
+    {
+        return a + b;
+    }
+}
@@ -20,8 +20,6 @@ package org.apache.felix.gogo.runtime;
 
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.file.Path;
@@ -50,6 +48,7 @@ public class Closure implements Function, Evaluate
 
     public static final String LOCATION = ".location";
     public static final String PIPE_EXCEPTION = "pipe-exception";
+    public static final String PIPE_OBJECTS = ".PipeObjects";
     private static final String DEFAULT_LOCK = ".defaultLock";
 
     private static final ThreadLocal<String> location = new ThreadLocal<>();
@@ -80,7 +79,7 @@ public class Closure implements Function, Evaluate
         {
             try
             {
-                this.program = new Parser(source).program();
+                this.program = session.parse(source);
             }
             catch (Exception e)
             {
@@ -232,41 +231,46 @@ public class Closure implements Function, Evaluate
                 Token e = exec.get(exec.size() - 1);
                 Token t = program.subSequence(s.start - program.start, e.start + e.length - program.start);
                 job = session().createJob(t);
+                boolean pipeObjects = Boolean.TRUE.equals(session.get(PIPE_OBJECTS));
+                ObjectPipe objectIn = null;
                 for (int i = 0; i < exec.size(); i++) {
                     Statement ex = (Statement) exec.get(i);
                     Operator op = i < exec.size() - 1 ? (Operator) exec.get(++i) : null;
                     Channel[] nstreams;
                     boolean[] ntoclose;
                     boolean endOfPipe;
+                    ObjectPipe objectOut = null;
                     if (i == exec.size() - 1) {
                         nstreams = streams;
                         ntoclose = toclose;
                         endOfPipe = true;
                     } else if (Token.eq("|", op)) {
-                        PipedInputStream pis = new PipedInputStream();
-                        PipedOutputStream pos = new PipedOutputStream(pis);
+                        PipeChannel pc = new PipeChannel();
                         nstreams = streams.clone();
-                        nstreams[1] = Channels.newChannel(pos);
+                        nstreams[1] = pc.sink();
                         ntoclose = toclose.clone();
                         ntoclose[1] = true;
-                        streams[0] = Channels.newChannel(pis);
+                        streams[0] = pc.source();
                         toclose[0] = true;
                         endOfPipe = false;
+                        if (pipeObjects && isCommand(ex) && isCommand(exec.get(i + 1))) {
+                            objectOut = new ObjectPipe(session);
+                        }
                     } else if (Token.eq("|&", op)) {
-                        PipedInputStream pis = new PipedInputStream();
-                        PipedOutputStream pos = new PipedOutputStream(pis);
+                        PipeChannel pc = new PipeChannel();
                         nstreams = streams.clone();
-                        nstreams[1] = nstreams[2] = Channels.newChannel(pos);
+                        nstreams[1] = nstreams[2] = pc.sink();
                         ntoclose = toclose.clone();
                         ntoclose[1] = ntoclose[2] = true;
-                        streams[0] = Channels.newChannel(pis);
+                        streams[0] = pc.source();
                         toclose[0] = true;
                         endOfPipe = false;
                     } else {
                         throw new IllegalStateException("Unrecognized pipe operator: '" + op + "'");
                     }
-                    Pipe pipe = new Pipe(this, job, ex, nstreams, ntoclose, endOfPipe);
+                    Pipe pipe = new Pipe(this, job, ex, nstreams, ntoclose, endOfPipe, objectIn, objectOut);
                     job.addPipe(pipe);
+                    objectIn = objectOut;
                 }
             } else {
                 job = session().createJob(executable);
@@ -293,6 +297,41 @@ public class Closure implements Function, Evaluate
         return last == null ? null : last.result;
     }
 
+    /**
+     * Tells if the executable is a plain invocation of a command which is
+     * not a closure, and can thus exchange objects with the other stages
+     * of a pipeline.
+     */
+    private boolean isCommand(Executable executable)
+    {
+        if (!(executable instanceof Statement))
+        {
+            return false;
+        }
+        Statement statement = (Statement) executable;
+        List<Token> tokens = statement.tokens();
+        if (tokens.isEmpty() || !statement.redirections().isEmpty()
+            || (tokens.size() > 1 && Token.eq("=", tokens.get(1))))
+        {
+            return false;
+        }
+        String name = tokens.get(0).toString();
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.' && c != ':')
+            {
+                return false;
+            }
+        }
+        Object x = get(name);
+        if (!(x instanceof Function) && name.indexOf(':') < 0)
+        {
+            x = get("*:" + name);
+        }
+        return x instanceof Function && !(x instanceof Closure);
+    }
+
     static Object eval(Object v)
     {
         String s = v.toString();
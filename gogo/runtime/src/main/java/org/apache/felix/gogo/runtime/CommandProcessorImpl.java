@@ -32,6 +32,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
+import org.apache.felix.gogo.runtime.Parser.Program;
 import org.apache.felix.service.command.*;
 import org.apache.felix.service.threadio.ThreadIO;
 
@@ -45,6 +46,21 @@ public class CommandProcessorImpl implements CommandProcessor
     protected final WeakHashMap<CommandSession, Object> sessions = new WeakHashMap<>();
     protected boolean stopped;
 
+    public static final int DEFAULT_PARSE_CACHE_SIZE = 256;
+
+    // Programs parsed from a given source, most recently used last
+    private final Map<String, Program> programs = new LinkedHashMap<String, Program>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String, Program> eldest)
+        {
+            return size() > parseCacheSize;
+        }
+    };
+    private volatile int parseCacheSize = DEFAULT_PARSE_CACHE_SIZE;
+
     public CommandProcessorImpl()
     {
         this(null);
@@ -109,6 +125,47 @@ public class CommandProcessorImpl implements CommandProcessor
         }
     }
 
+    /**
+     * Set the maximum number of parsed programs to keep, 0 disables the cache.
+     */
+    public void setParseCacheSize(int size)
+    {
+        parseCacheSize = size;
+        synchronized (programs)
+        {
+            programs.clear();
+        }
+    }
+
+    /**
+     * Parse the given source into a program.
+     * Parsing only depends on the source text, so the program is shared by
+     * all executions of the same source.
+     */
+    public Program parse(CharSequence source) throws Exception
+    {
+        // Tokens keep their position in an enclosing script, don't share their programs
+        if (parseCacheSize <= 0 || source instanceof Token)
+        {
+            return new Parser(source).program();
+        }
+        String key = source.toString();
+        Program program;
+        synchronized (programs)
+        {
+            program = programs.get(key);
+        }
+        if (program == null)
+        {
+            program = new Parser(key).program();
+            synchronized (programs)
+            {
+                programs.put(key, program);
+            }
+        }
+        return program;
+    }
+
     public void addConverter(Converter c)
     {
         converters.add(c);
@@ -266,6 +323,10 @@ public class CommandProcessorImpl implements CommandProcessor
         {
             cmdMap.remove(target);
         }
+        if (target instanceof CommandProxy)
+        {
+            ((CommandProxy) target).invalidate();
+        }
     }
 
     public void removeCommand(Object target)
@@ -274,6 +335,10 @@ public class CommandProcessorImpl implements CommandProcessor
         {
             cmdMap.remove(target);
         }
+        if (target instanceof CommandProxy)
+        {
+            ((CommandProxy) target).invalidate();
+        }
     }
 
     private String[] getFunctions(Class<?> target)
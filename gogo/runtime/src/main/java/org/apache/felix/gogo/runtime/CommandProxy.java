@@ -31,6 +31,7 @@ public class CommandProxy implements Function
     private ServiceReference reference;
     private String function;
     private Object target;
+    private volatile Class<?> targetClass;
 
     public CommandProxy(BundleContext context, ServiceReference reference, String function)
     {
@@ -66,6 +67,20 @@ public class CommandProxy implements Function
         }
     }
 
+    /**
+     * Drop the methods cached for the current target, because the target
+     * changed or the command is removed.
+     */
+    public void invalidate()
+    {
+        Class<?> cls = targetClass;
+        if (cls != null)
+        {
+            targetClass = null;
+            Reflective.flush(cls);
+        }
+    }
+
     public Object execute(CommandSession session, List<Object> arguments)
         throws Exception
     {
@@ -88,6 +103,13 @@ public class CommandProxy implements Function
             }
             else
             {
+                Class<?> cls = tgt.getClass();
+                if (cls != targetClass)
+                {
+                    // the service behind this proxy changed
+                    invalidate();
+                    targetClass = cls;
+                }
                 return Reflective.invoke(session, tgt, function, arguments);
             }
         }
@@ -151,6 +151,11 @@ public class CommandSessionImpl implements CommandSession, Converter
         }
     }
 
+    Parser.Program parse(CharSequence source) throws Exception
+    {
+        return processor.parse(source);
+    }
+
     public Object execute(CharSequence commandline) throws Exception
     {
         assert processor != null;
@@ -793,36 +798,51 @@ public class CommandSessionImpl implements CommandSession, Converter
             {
                 thread.setName("job controller " + id);
 
-                List<Callable<Result>> wrapped = new ArrayList<Callable<Result>>(pipes);
-                List<Future<Result>> results = executor.invokeAll(wrapped);
-
-                // Get pipe exceptions
-                Exception pipeException = null;
-                for (int i = 0; i < results.size() - 1; i++)
+                // The last stage of the pipe is run by this thread, so that a
+                // job only hands off to other threads for the preceding stages
+                List<Future<Result>> results = new ArrayList<>();
+                try
                 {
-                    Future<Result> future = results.get(i);
-                    Throwable e;
-                    try
-                    {
-                        Result r = future.get();
-                        e = r.exception;
-                    }
-                    catch (ExecutionException ee)
+                    for (int i = 0; i < pipes.size() - 1; i++)
                     {
-                        e = ee.getCause();
+                        results.add(executor.submit(pipes.get(i)));
                     }
-                    if (e != null)
+                    Result last = pipes.get(pipes.size() - 1).call();
+
+                    // Get pipe exceptions
+                    Exception pipeException = null;
+                    for (Future<Result> future : results)
                     {
-                        if (pipeException == null)
+                        Throwable e;
+                        try
                         {
-                            pipeException = new Exception("Exception caught during pipe execution");
+                            Result r = future.get();
+                            e = r.exception;
+                        }
+                        catch (ExecutionException ee)
+                        {
+                            e = ee.getCause();
+                        }
+                        if (e != null)
+                        {
+                            if (pipeException == null)
+                            {
+                                pipeException = new Exception("Exception caught during pipe execution");
+                            }
+                            pipeException.addSuppressed(e);
                         }
-                        pipeException.addSuppressed(e);
                     }
-                }
-                put(Closure.PIPE_EXCEPTION, pipeException);
+                    put(Closure.PIPE_EXCEPTION, pipeException);
 
-                result = results.get(results.size() - 1).get();
+                    result = last;
+                }
+                finally
+                {
+                    for (Future<Result> future : results)
+                    {
+                        future.cancel(true);
+                    }
+                }
             }
             finally
             {
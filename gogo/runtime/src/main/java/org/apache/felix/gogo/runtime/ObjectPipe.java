@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.felix.service.command.Converter;
+
+/**
+ * An in-memory pipe passing the result of a command to the next command of an
+ * object pipeline, backed by a bounded queue. Collections, object arrays and
+ * iterators are passed element by element, an iterator being consumed only
+ * as fast as the next stage takes its elements.
+ * <p>
+ * The next stage either takes the objects as they are, or reads them from its
+ * standard input, in which case they are formatted as they would have been
+ * printed by the previous stage.
+ */
+class ObjectPipe
+{
+    static final int DEFAULT_CAPACITY = 256;
+
+    // Markers used to format the objects as the previous stage would have printed its result
+    private static final Object NULL = new Object();
+    private static final Object SINGLE = new Object();
+    private static final Object END_OF_SEQUENCE = new Object();
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final CommandSessionImpl session;
+    private final int capacity;
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private boolean producerClosed;
+    private boolean consumerClosed;
+
+    ObjectPipe(CommandSessionImpl session)
+    {
+        this(session, DEFAULT_CAPACITY);
+    }
+
+    ObjectPipe(CommandSessionImpl session, int capacity)
+    {
+        this.session = session;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Pass the result of a command to the next stage, blocking while the
+     * queue is full. Nothing is passed once the next stage has finished.
+     * @param result the result of the command, possibly null
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    void publish(Object result) throws InterruptedIOException
+    {
+        if (result == null)
+        {
+            return;
+        }
+        Iterator<?> elements = null;
+        if (result instanceof Collection)
+        {
+            elements = ((Collection<?>) result).iterator();
+        }
+        else if (result instanceof Object[])
+        {
+            elements = Arrays.asList((Object[]) result).iterator();
+        }
+        else if (result instanceof Iterator)
+        {
+            elements = (Iterator<?>) result;
+        }
+
+        if (elements == null)
+        {
+            if (put(SINGLE))
+            {
+                put(result);
+            }
+            return;
+        }
+        while (elements.hasNext())
+        {
+            if (!put(elements.next()))
+            {
+                return;
+            }
+        }
+        put(END_OF_SEQUENCE);
+    }
+
+    /**
+     * Signal that the previous stage has finished.
+     */
+    synchronized void close()
+    {
+        producerClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * Signal that the next stage has finished, releasing the previous stage
+     * if it is waiting for room in the queue.
+     */
+    synchronized void discard()
+    {
+        consumerClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return the objects passed by the previous stage, without the
+     * formatting markers
+     */
+    Iterator<Object> objects()
+    {
+        return new Iterator<Object>()
+        {
+            private Object next;
+
+            public boolean hasNext()
+            {
+                try
+                {
+                    while (next == null)
+                    {
+                        Object o = take();
+                        if (o == null)
+                        {
+                            return false;
+                        }
+                        if (o != SINGLE && o != END_OF_SEQUENCE)
+                        {
+                            next = o;
+                        }
+                    }
+                    return true;
+                }
+                catch (InterruptedIOException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            public Object next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                Object o = next;
+                next = null;
+                return o == NULL ? null : o;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return a channel reading the formatted objects, which ends the pipe
+     * when closed
+     */
+    ReadableByteChannel formatted()
+    {
+        return new ReadableByteChannel()
+        {
+            private ByteBuffer pending = ByteBuffer.allocate(0);
+            private boolean single;
+            private boolean open = true;
+
+            public int read(ByteBuffer dst) throws IOException
+            {
+                if (!open)
+                {
+                    throw new ClosedChannelException();
+                }
+                if (!dst.hasRemaining())
+                {
+                    return 0;
+                }
+                while (!pending.hasRemaining())
+                {
+                    Object o = take();
+                    if (o == null)
+                    {
+                        return -1;
+                    }
+                    if (o == SINGLE)
+                    {
+                        single = true;
+                    }
+                    else if (Boolean.FALSE.equals(session.get(".FormatPipe")))
+                    {
+                        single = false;
+                    }
+                    else if (o == END_OF_SEQUENCE)
+                    {
+                        pending = ByteBuffer.wrap(LINE_SEPARATOR.getBytes());
+                    }
+                    else
+                    {
+                        // Same output as println of the whole result inspected
+                        Object value = o == NULL ? null : o;
+                        String s = single ? session.format(value, Converter.INSPECT) + LINE_SEPARATOR
+                            : session.format(value, Converter.LINE) + "\n";
+                        single = false;
+                        pending = ByteBuffer.wrap(s.getBytes());
+                    }
+                }
+                int n = Math.min(pending.remaining(), dst.remaining());
+                ByteBuffer slice = pending.duplicate();
+                slice.limit(slice.position() + n);
+                dst.put(slice);
+                pending.position(pending.position() + n);
+                return n;
+            }
+
+            public boolean isOpen()
+            {
+                return open;
+            }
+
+            public void close()
+            {
+                open = false;
+                discard();
+            }
+        };
+    }
+
+    private synchronized boolean put(Object o) throws InterruptedIOException
+    {
+        while (queue.size() >= capacity && !consumerClosed)
+        {
+            await();
+        }
+        if (consumerClosed)
+        {
+            return false;
+        }
+        queue.add(o == null ? NULL : o);
+        notifyAll();
+        return true;
+    }
+
+    private synchronized Object take() throws InterruptedIOException
+    {
+        while (queue.isEmpty())
+        {
+            if (producerClosed || consumerClosed)
+            {
+                return null;
+            }
+            await();
+        }
+        Object o = queue.poll();
+        notifyAll();
+        return o;
+    }
+
+    private void await() throws InterruptedIOException
+    {
+        try
+        {
+            wait();
+        }
+        catch (InterruptedException e)
+        {
+            throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -119,13 +120,22 @@ public class Pipe implements Callable<Result>, Process
     final Channel[] streams;
     final boolean[] toclose;
     final boolean endOfPipe;
+    final ObjectPipe objectIn;
+    final ObjectPipe objectOut;
     int error;
 
     InputStream in;
     PrintStream out;
     PrintStream err;
+    Channel textIn;
 
     public Pipe(Closure closure, JobImpl job, Statement statement, Channel[] streams, boolean[] toclose, boolean endOfPipe)
+    {
+        this(closure, job, statement, streams, toclose, endOfPipe, null, null);
+    }
+
+    Pipe(Closure closure, JobImpl job, Statement statement, Channel[] streams, boolean[] toclose, boolean endOfPipe,
+         ObjectPipe objectIn, ObjectPipe objectOut)
     {
         this.closure = closure;
         this.job = job;
@@ -133,6 +143,8 @@ public class Pipe implements Callable<Result>, Process
         this.streams = streams;
         this.toclose = toclose;
         this.endOfPipe = endOfPipe;
+        this.objectIn = objectIn;
+        this.objectOut = objectOut;
     }
 
     public String toString()
@@ -220,6 +232,26 @@ public class Pipe implements Callable<Result>, Process
         this.error = error;
     }
 
+    /**
+     * Returns the objects passed by the previous stage of an object pipeline,
+     * which is used when the ".PipeObjects" session variable is true and
+     * both stages are commands. The result of the previous stage is then
+     * passed without being formatted, collections, arrays and iterators
+     * element by element. Once this method is called, the text printed by
+     * the previous stage is no longer read.
+     *
+     * @return the objects, or null if this stage is not fed by an object pipeline
+     */
+    public Iterator<Object> objects() throws IOException {
+        if (objectIn == null) {
+            return null;
+        }
+        if (textIn != null) {
+            textIn.close();
+        }
+        return objectIn.objects();
+    }
+
     @Override
     public Result call() throws Exception {
         Thread thread = Thread.currentThread();
@@ -379,6 +411,13 @@ public class Pipe implements Callable<Result>, Process
                 }
             }
 
+            if (objectIn != null)
+            {
+                // Objects not taken by the command are read as text after the printed output
+                textIn = streams[0];
+                setStream(objectIn.formatted(), 0, READ);
+            }
+
             for (int i = 0; i < streams.length; i++) {
                 streams[i] = wrap(streams[i]);
             }
@@ -421,8 +460,15 @@ public class Pipe implements Callable<Result>, Process
                 {
                     return new Result(error);
                 }
+                if (objectOut != null)
+                {
+                    // End the printed output so that the next stage can go on with the objects
+                    out.flush();
+                    streams[1].close();
+                    objectOut.publish(result);
+                }
                 // We don't print the result if we're at the end of the pipe
-                if (result != null && !endOfPipe && !Boolean.FALSE.equals(closure.session().get(".FormatPipe")))
+                else if (result != null && !endOfPipe && !Boolean.FALSE.equals(closure.session().get(".FormatPipe")))
                 {
                     out.println(closure.session().format(result, Converter.INSPECT));
                 }
@@ -464,6 +510,14 @@ public class Pipe implements Callable<Result>, Process
             {
                 threadIo.close();
             }
+            if (objectOut != null)
+            {
+                objectOut.close();
+            }
+            if (objectIn != null)
+            {
+                objectIn.discard();
+            }
 
             try
             {
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An in-memory pipe between two stages of a pipeline, backed by a bounded
+ * ring buffer. Unlike {@link java.io.PipedInputStream}, waiting readers and
+ * writers are notified as soon as data or space is available instead of
+ * polling, and whole buffers are transferred at once.
+ */
+class PipeChannel
+{
+    static final int DEFAULT_SIZE = 64 * 1024;
+
+    private final byte[] buffer;
+    private int head;
+    private int count;
+    private boolean sourceClosed;
+    private boolean sinkClosed;
+
+    private final ReadableByteChannel source = new ReadableByteChannel()
+    {
+        public int read(ByteBuffer dst) throws IOException
+        {
+            return PipeChannel.this.read(dst);
+        }
+
+        public boolean isOpen()
+        {
+            synchronized (PipeChannel.this)
+            {
+                return !sourceClosed;
+            }
+        }
+
+        public void close()
+        {
+            synchronized (PipeChannel.this)
+            {
+                sourceClosed = true;
+                PipeChannel.this.notifyAll();
+            }
+        }
+    };
+
+    private final WritableByteChannel sink = new WritableByteChannel()
+    {
+        public int write(ByteBuffer src) throws IOException
+        {
+            return PipeChannel.this.write(src);
+        }
+
+        public boolean isOpen()
+        {
+            synchronized (PipeChannel.this)
+            {
+                return !sinkClosed;
+            }
+        }
+
+        public void close()
+        {
+            synchronized (PipeChannel.this)
+            {
+                sinkClosed = true;
+                PipeChannel.this.notifyAll();
+            }
+        }
+    };
+
+    PipeChannel()
+    {
+        this(DEFAULT_SIZE);
+    }
+
+    PipeChannel(int size)
+    {
+        buffer = new byte[size];
+    }
+
+    /**
+     * @return the reading end of the pipe
+     */
+    ReadableByteChannel source()
+    {
+        return source;
+    }
+
+    /**
+     * @return the writing end of the pipe
+     */
+    WritableByteChannel sink()
+    {
+        return sink;
+    }
+
+    private synchronized int read(ByteBuffer dst) throws IOException
+    {
+        if (sourceClosed)
+        {
+            throw new ClosedChannelException();
+        }
+        if (!dst.hasRemaining())
+        {
+            return 0;
+        }
+        while (count == 0)
+        {
+            if (sinkClosed)
+            {
+                return -1;
+            }
+            await();
+            if (sourceClosed)
+            {
+                throw new ClosedChannelException();
+            }
+        }
+        int total = 0;
+        while (count > 0 && dst.hasRemaining())
+        {
+            int n = Math.min(Math.min(count, buffer.length - head), dst.remaining());
+            dst.put(buffer, head, n);
+            head = (head + n) % buffer.length;
+            count -= n;
+            total += n;
+        }
+        notifyAll();
+        return total;
+    }
+
+    private synchronized int write(ByteBuffer src) throws IOException
+    {
+        int total = 0;
+        while (src.hasRemaining())
+        {
+            if (sinkClosed)
+            {
+                throw new ClosedChannelException();
+            }
+            if (sourceClosed)
+            {
+                throw new IOException("Pipe closed");
+            }
+            if (count == buffer.length)
+            {
+                await();
+                continue;
+            }
+            int tail = (head + count) % buffer.length;
+            int n = Math.min(Math.min(buffer.length - count, buffer.length - tail), src.remaining());
+            src.get(buffer, tail, n);
+            count += n;
+            total += n;
+            notifyAll();
+        }
+        return total;
+    }
+
+    private void await() throws InterruptedIOException
+    {
+        try
+        {
+            wait();
+        }
+        catch (InterruptedException e)
+        {
+            throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+        }
+    }
+
+}
@@ -19,9 +19,13 @@
 package org.apache.felix.gogo.runtime;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,6 +33,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.felix.service.command.CommandSession;
 import org.apache.felix.service.command.Parameter;
@@ -47,6 +53,23 @@ public final class Reflective
                 "finally", "long", "strictfp", "volatile", "const", "float", "native",
                 "super", "while" }));
 
+    // Upper bound on the number of argument signatures remembered per method name
+    private static final int MAX_SELECTIONS = 64;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * The methods that can be invoked for a command name, per class.
+     */
+    private static final ClassValue<ConcurrentMap<String, Dispatch>> DISPATCH = new ClassValue<ConcurrentMap<String, Dispatch>>()
+    {
+        @Override
+        protected ConcurrentMap<String, Dispatch> computeValue(Class<?> type)
+        {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     /**
      * invokes the named method on the given target using the supplied args,
      * which are converted if necessary.
@@ -56,94 +79,65 @@ public final class Reflective
     public static Object invoke(CommandSession session, Object target, String name,
         List<Object> args) throws Exception
     {
-        Method[] methods = target.getClass().getMethods();
         name = name.toLowerCase();
-
-        String org = name;
-        String get = "get" + name;
-        String is = "is" + name;
-        String set = "set" + name;
-
-        if (KEYWORDS.contains(name))
-        {
-            name = "_" + name;
-        }
-
-        if (target instanceof Class<?>)
-        {
-            Method[] staticMethods = ((Class<?>) target).getMethods();
-            for (Method m : staticMethods)
+        Dispatch dispatch = getDispatch(target, name);
+
+        // The method selected the last time the same types of arguments were
+        // passed is tried first. Coercion depends on the argument values, so
+        // it is only used right away if no coercion is needed at all, which
+        // no other method can improve on.
+        List<Class<?>> signature = getSignature(args);
+        Selection selection = dispatch.selections.get(signature);
+        if (selection != null)
+        {
+            Object[] parms = new Object[selection.types.length];
+            int match = coerce(session, target, selection.method, selection.types, parms,
+                selection.arguments(name, args));
+            if (match == 0)
             {
-                String mname = m.getName().toLowerCase();
-                if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                    || mname.equals(is) || mname.equals(MAIN))
-                {
-                    methods = staticMethods;
-                    break;
-                }
+                return selection.invoke(target, parms);
             }
         }
 
-        Method bestMethod = null;
+        Selection best = null;
         Object[] bestArgs = null;
         int lowestMatch = Integer.MAX_VALUE;
         ArrayList<Class<?>[]> possibleTypes = new ArrayList<>();
 
-        for (Method m : methods)
+        for (Method m : dispatch.candidates)
         {
-            String mname = m.getName().toLowerCase();
-            if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                || mname.equals(is) || mname.equals(MAIN))
-            {
-                Class<?>[] types = m.getParameterTypes();
-                ArrayList<Object> xargs = new ArrayList<>(args);
+            Selection candidate = dispatch.getSelection(m);
+            Object[] parms = new Object[candidate.types.length];
+            int match = coerce(session, target, m, candidate.types, parms,
+                candidate.arguments(name, args));
 
-                // pass command name as argv[0] to main, so it can handle
-                // multiple commands
-                if (mname.equals(MAIN))
-                {
-                    xargs.add(0, org);
-                }
-
-                Object[] parms = new Object[types.length];
-                int match = coerce(session, target, m, types, parms, xargs);
-
-                if (match < 0)
+            if (match < 0)
+            {
+                // coerce failed
+                possibleTypes.add(candidate.types);
+            }
+            else
+            {
+                if (match < lowestMatch)
                 {
-                    // coerce failed
-                    possibleTypes.add(types);
+                    lowestMatch = match;
+                    best = candidate;
+                    bestArgs = parms;
                 }
-                else
-                {
-                    if (match < lowestMatch)
-                    {
-                        lowestMatch = match;
-                        bestMethod = m;
-                        bestArgs = parms;
-                    }
 
-                    if (match == 0)
-                        break; // can't get better score
-                }
+                if (match == 0)
+                    break; // can't get better score
             }
         }
 
-        if (bestMethod != null)
+        if (best != null)
         {
-            bestMethod.setAccessible(true);
-            try
-            {
-                return bestMethod.invoke(target, bestArgs);
-            }
-            catch (InvocationTargetException e)
+            if (dispatch.selections.size() >= MAX_SELECTIONS)
             {
-                Throwable cause = e.getCause();
-                if (cause instanceof Exception)
-                {
-                    throw (Exception) cause;
-                }
-                throw e;
+                dispatch.selections.clear();
             }
+            dispatch.selections.put(signature, best);
+            return best.invoke(target, bestArgs);
         }
         else
         {
@@ -175,7 +169,207 @@ public final class Reflective
             }
 
             throw new IllegalArgumentException(String.format(
-                "Cannot coerce %s(%s) to any of %s", name, params, list));
+                "Cannot coerce %s(%s) to any of %s", KEYWORDS.contains(name) ? "_" + name : name, params, list));
+        }
+    }
+
+    /**
+     * Forget the methods selected for the given class, e.g. because the
+     * target of a command is no longer used.
+     */
+    public static void flush(Class<?> type)
+    {
+        DISPATCH.remove(type);
+    }
+
+    private static Dispatch getDispatch(Object target, String name)
+    {
+        if (target instanceof Class<?>)
+        {
+            // static methods of the class, if there are any with this name
+            Dispatch dispatch = getDispatch((Class<?>) target, name);
+            if (dispatch.candidates.length > 0)
+            {
+                return dispatch;
+            }
+        }
+        return getDispatch(target.getClass(), name);
+    }
+
+    private static Dispatch getDispatch(Class<?> type, String name)
+    {
+        ConcurrentMap<String, Dispatch> dispatches = DISPATCH.get(type);
+        Dispatch dispatch = dispatches.get(name);
+        if (dispatch == null)
+        {
+            dispatch = new Dispatch(type, name);
+            Dispatch prev = dispatches.putIfAbsent(name, dispatch);
+            if (prev != null)
+            {
+                dispatch = prev;
+            }
+        }
+        return dispatch;
+    }
+
+    private static List<Class<?>> getSignature(List<Object> args)
+    {
+        List<Class<?>> signature = new ArrayList<>(args.size());
+        for (Object arg : args)
+        {
+            signature.add(arg == null ? null : arg.getClass());
+        }
+        return signature;
+    }
+
+    /**
+     * The methods of a class matching a command name, in the order in which
+     * they are tried, and the method selected per argument signature.
+     */
+    private static final class Dispatch
+    {
+        final Method[] candidates;
+        final ConcurrentMap<List<Class<?>>, Selection> selections = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Method, Selection> byMethod = new ConcurrentHashMap<>();
+
+        Dispatch(Class<?> type, String org)
+        {
+            String name = KEYWORDS.contains(org) ? "_" + org : org;
+            String get = "get" + org;
+            String is = "is" + org;
+            String set = "set" + org;
+
+            List<Method> methods = new ArrayList<>();
+            for (Method m : type.getMethods())
+            {
+                String mname = m.getName().toLowerCase();
+                if (mname.equals(name) || mname.equals(get) || mname.equals(set)
+                    || mname.equals(is) || mname.equals(MAIN))
+                {
+                    methods.add(m);
+                }
+            }
+            candidates = methods.toArray(new Method[methods.size()]);
+        }
+
+        Selection getSelection(Method m)
+        {
+            Selection selection = byMethod.get(m);
+            if (selection == null)
+            {
+                selection = new Selection(m);
+                Selection prev = byMethod.putIfAbsent(m, selection);
+                if (prev != null)
+                {
+                    selection = prev;
+                }
+            }
+            return selection;
+        }
+    }
+
+    /**
+     * A method together with the method handle used to invoke it. The
+     * handle spreads an argument array over the parameters of the method.
+     */
+    private static final class Selection
+    {
+        final Method method;
+        final Class<?>[] types;
+        final boolean main;
+        private final MethodHandle handle;
+
+        Selection(Method method)
+        {
+            this.method = method;
+            this.types = method.getParameterTypes();
+            this.main = method.getName().toLowerCase().equals(MAIN);
+            this.handle = createHandle(method);
+        }
+
+        List<Object> arguments(String name, List<Object> args)
+        {
+            ArrayList<Object> xargs = new ArrayList<>(args);
+
+            // pass command name as argv[0] to main, so it can handle
+            // multiple commands
+            if (main)
+            {
+                xargs.add(0, name);
+            }
+            return xargs;
+        }
+
+        Object invoke(Object target, Object[] args) throws Exception
+        {
+            if (handle == null || !canInvokeExact(target, args))
+            {
+                // let reflection report the problem
+                method.setAccessible(true);
+                try
+                {
+                    return method.invoke(target, args);
+                }
+                catch (InvocationTargetException e)
+                {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception)
+                    {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+
+            try
+            {
+                return (Object) handle.invokeExact(target, args);
+            }
+            catch (Exception e)
+            {
+                throw e;
+            }
+            catch (Throwable t)
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        private boolean canInvokeExact(Object target, Object[] args)
+        {
+            if (!Modifier.isStatic(method.getModifiers())
+                && !method.getDeclaringClass().isInstance(target))
+            {
+                return false;
+            }
+            for (int i = 0; i < types.length; i++)
+            {
+                if (args[i] == null && types[i].isPrimitive())
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static MethodHandle createHandle(Method method)
+        {
+            try
+            {
+                method.setAccessible(true);
+                int n = method.getParameterTypes().length;
+                MethodHandle mh = LOOKUP.unreflect(method).asFixedArity();
+                if (Modifier.isStatic(method.getModifiers()))
+                {
+                    mh = mh.asType(MethodType.genericMethodType(n)).asSpreader(Object[].class, n);
+                    return MethodHandles.dropArguments(mh, 0, Object.class);
+                }
+                return mh.asType(MethodType.genericMethodType(n + 1)).asSpreader(Object[].class, n);
+            }
+            catch (IllegalAccessException | SecurityException e)
+            {
+                return null;
+            }
         }
     }
 
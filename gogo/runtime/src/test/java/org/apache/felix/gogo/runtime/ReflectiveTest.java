@@ -60,6 +60,17 @@ public class ReflectiveTest {
                 Collections.<Object>singletonList(conv));
     }
 
+    @Test
+    public void testCachedDispatch() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(5, invoke("test5", Arrays.<Object>asList("5")));
+            assertEquals(new Object[] { "abc" }, invoke("test5", Arrays.<Object>asList("abc")));
+            Assert.assertEquals(6, invoke("test5", Arrays.<Object>asList("6")));
+            Assert.assertEquals("plain", invoke("test5", Arrays.<Object>asList(Arrays.asList("plain"))));
+            Reflective.flush(Target.class);
+        }
+    }
+
     static class Target {
         public Object test1(CommandSession session, Object[] argv) {
             return argv;
@@ -76,6 +87,18 @@ public class ReflectiveTest {
         public Object test4(CommandSession session, List<String> argv) {
             return argv;
         }
+
+        public Object test5(int i) {
+            return i;
+        }
+
+        public Object test5(List<?> l) {
+            return l.get(0);
+        }
+
+        public Object test5(Object[] argv) {
+            return argv;
+        }
     }
 
     static Object invoke(String method, List<Object> args) throws Exception {
@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -38,6 +39,8 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 public class TestParser extends AbstractParserTest
@@ -56,6 +59,23 @@ public class TestParser extends AbstractParserTest
         assertEquals("a", c.execute("((echo a)) | capture"));
     }
 
+    @Test
+    public void testParseCache() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("echo", this);
+        c.addCommand("capture", this);
+
+        Program p1 = c.parse("echo a | capture");
+        assertSame(p1, c.parse(new StringBuilder("echo a | capture")));
+        assertEquals("a", c.execute("echo a | capture"));
+        assertEquals("a", c.execute("echo a | capture"));
+
+        c.setParseCacheSize(0);
+        assertNotSame(p1, c.parse("echo a | capture"));
+        assertEquals("a", c.execute("echo a | capture"));
+    }
+
     @Test
     public void testUnknownCommand() throws Exception
     {
@@ -138,6 +158,117 @@ public class TestParser extends AbstractParserTest
         assertEquals("defghi", c.execute("(echoout abc; echoout def; echoout ghi)|grep 'def|ghi'|capture"));
     }
 
+    @Test
+    public void testLargePipe() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("produce", this);
+        c.addCommand("capture", this);
+        c.addCommand("grep", this);
+        c.addCommand("first", this);
+
+        // more than fits in the buffer between two stages
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+        {
+            expected.append("line ").append(i);
+        }
+        assertEquals(expected.toString(), c.execute("produce 20000 | grep line | capture"));
+
+        // the producer must not block when the consumer stops reading
+        assertEquals("line 0", c.execute("produce 100000 | first"));
+    }
+
+    public void produce(int n)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            System.out.println("line " + i);
+        }
+    }
+
+    public String first() throws IOException
+    {
+        return new BufferedReader(new InputStreamReader(System.in)).readLine();
+    }
+
+    @Test
+    public void testObjectPipe() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("numbers", this);
+        c.addCommand("count", this);
+        c.addCommand("sum", this);
+        c.addCommand("capture", this);
+        c.addCommand("echo", this);
+        c.addCommand("first", this);
+
+        // without the object mode, the result of a stage is printed
+        assertEquals(-1L, c.execute("numbers 10 | sum"));
+        String text = (String) c.execute("numbers 3 | capture");
+        assertEquals("012", text);
+
+        c.set(Closure.PIPE_OBJECTS, true);
+        assertEquals(45L, c.execute("numbers 10 | sum"));
+        // objects not taken by the next stage are read as text
+        assertEquals(text, c.execute("numbers 3 | capture"));
+        assertEquals("hello", c.execute("echo hello | capture"));
+        // iterators are streamed through the bounded queue
+        assertEquals(4999950000L, c.execute("count 100000 | sum"));
+        // the producer must not block when the consumer stops reading
+        assertEquals("0", c.execute("count 1000000 | first"));
+        // a closure is not a command, so its result is printed
+        assertEquals(-1L, c.execute("{ numbers 10 } | sum"));
+    }
+
+    public List<Integer> numbers(int n)
+    {
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+        {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+
+    public Iterator<Long> count(final long n)
+    {
+        return new Iterator<Long>()
+        {
+            long i = 0;
+
+            public boolean hasNext()
+            {
+                return i < n;
+            }
+
+            public Long next()
+            {
+                return i++;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public long sum() throws IOException
+    {
+        Iterator<Object> objects = Pipe.getCurrentPipe().objects();
+        if (objects == null)
+        {
+            return -1;
+        }
+        long sum = 0;
+        while (objects.hasNext())
+        {
+            sum += ((Number) objects.next()).longValue();
+        }
+        return sum;
+    }
+
     @Test
     public void testAssignment() throws Exception
     {
@@ -18,6 +18,7 @@ package org.apache.felix.http.base.internal;
 
 import java.util.Hashtable;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.servlet.Servlet;
 import javax.servlet.ServletContext;
@@ -25,6 +26,7 @@ import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionIdListener;
 import javax.servlet.http.HttpSessionListener;
 
+import org.apache.felix.http.base.internal.console.StatisticsProvider;
 import org.apache.felix.http.base.internal.dispatch.Dispatcher;
 import org.apache.felix.http.base.internal.dispatch.DispatcherServlet;
 import org.apache.felix.http.base.internal.handler.HttpSessionWrapper;
@@ -107,6 +109,15 @@ public final class HttpServiceController
         };
     }
 
+    /**
+     * Set the provider of the container statistics, shown in the web console plugin.
+     * @param provider The provider or {@code null} to remove it.
+     */
+    public void setStatisticsProvider(@CheckForNull final StatisticsProvider provider)
+    {
+        this.whiteboardManager.setStatisticsProvider(provider);
+    }
+
     /**
      * Start the http and http whiteboard service in the provided context.
      * @param containerContext The container context.
@@ -76,6 +76,8 @@ public class HttpServicePlugin extends HttpServlet
 
     private volatile ServiceRegistration<Servlet> serviceReg;
 
+    private volatile StatisticsProvider statisticsProvider;
+
     public HttpServicePlugin(final BundleContext context, final HttpServiceRuntime runtime)
     {
         this.runtime = runtime;
@@ -93,6 +95,15 @@ public class HttpServicePlugin extends HttpServlet
         this.serviceReg = context.registerService(Servlet.class, this, props);
     }
 
+    /**
+     * Set the provider of the container statistics shown by this plugin.
+     * @param provider The provider or {@code null} to remove it.
+     */
+    public void setStatisticsProvider(final StatisticsProvider provider)
+    {
+        this.statisticsProvider = provider;
+    }
+
     /** Escape xml text */
     private static String escapeXml(final String input) {
         if (input == null) {
@@ -220,6 +231,12 @@ public class HttpServicePlugin extends HttpServlet
 
         printRuntimeDetails(pw, dto.serviceDTO);
 
+        final StatisticsProvider provider = this.statisticsProvider;
+        if ( provider != null )
+        {
+            printStatistics(pw, provider.getStatistics());
+        }
+
         for(final ServletContextDTO ctxDto : dto.servletContextDTOs )
         {
             printContextDetails(pw, ctxDto);
@@ -360,6 +377,23 @@ public class HttpServicePlugin extends HttpServlet
         pw.println("<br/>");
     }
 
+    private void printStatistics(final PrintWriter pw, final Map<String, Object> statistics)
+    {
+        pw.println("<p class=\"statline ui-state-highlight\">${Statistics}</p>");
+        pw.println("<table class=\"nicetable\">");
+        pw.println("<thead><tr>");
+        pw.println("<th class=\"header\">${Name}</th>");
+        pw.println("<th class=\"header\">${Value}</th>");
+        pw.println("</tr></thead>");
+        boolean odd = true;
+        for(final Map.Entry<String, Object> stat : statistics.entrySet())
+        {
+            odd = printRow(pw, odd, stat.getKey(), getValueAsString(stat.getValue()));
+        }
+        pw.println("</table>");
+        pw.println("<br/>");
+    }
+
     private boolean printRow(final PrintWriter pw, final boolean odd, final String...columns)
     {
         pw.print("<tr class=\"");
@@ -19,8 +19,12 @@ package org.apache.felix.http.base.internal.registry;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -40,9 +44,225 @@ import org.osgi.service.http.runtime.dto.ServletContextDTO;
  */
 public final class FilterRegistry
 {
+    private static final FilterHandler[] EMPTY_FILTER_HANDLER = new FilterHandler[0];
+
+    /** Maximum number of filter chains kept in the cache. */
+    private static final int MAX_CACHED_CHAINS = 1024;
+
     /** List of all filter registrations. These are sorted by the status objects. */
     private volatile List<FilterRegistrationStatus> filters = Collections.emptyList();
 
+    /**
+     * Cache of resolved filter chains. A new cache is created whenever the
+     * filters change, it holds the filter list it has been created for.
+     */
+    private volatile FilterChainCache chainCache = new FilterChainCache(this.filters);
+
+    /**
+     * Key for the filter chain cache. The filters matching a request only
+     * depend on the name of the servlet, the dispatcher type and the path class
+     * of the uri.
+     */
+    private static final class FilterChainKey
+    {
+        private final String servletName;
+        private final DispatcherType dispatcherType;
+        private final String path;
+        private final long flags;
+        private final int hashCode;
+
+        public FilterChainKey(@CheckForNull final String servletName,
+                @Nonnull final DispatcherType dispatcherType,
+                @CheckForNull final String path,
+                final long flags)
+        {
+            this.servletName = servletName;
+            this.dispatcherType = dispatcherType;
+            this.path = path;
+            this.flags = flags;
+            int hash = 31 * dispatcherType.hashCode() + (int) (flags ^ (flags >>> 32));
+            if ( path != null )
+            {
+                hash = 31 * hash + path.hashCode();
+            }
+            if ( servletName != null )
+            {
+                hash = 31 * hash + servletName.hashCode();
+            }
+            this.hashCode = hash;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !(obj instanceof FilterChainKey) )
+            {
+                return false;
+            }
+            final FilterChainKey other = (FilterChainKey) obj;
+            return this.dispatcherType == other.dispatcherType
+                    && this.flags == other.flags
+                    && (this.path == null ? other.path == null : this.path.equals(other.path))
+                    && (this.servletName == null ? other.servletName == null : this.servletName.equals(other.servletName));
+        }
+    }
+
+    /**
+     * The filter chains resolved for a filter list.
+     *
+     * Without regex patterns, the filters matching a uri only depend on its path
+     * class: the longest exact or path pattern of the filters matching the uri
+     * (and whether the uri is equal to it), the extension patterns it ends with and
+     * whether it is the root. All uris of a class share a single cache entry, for
+     * example all the uris below a path pattern. If a filter uses a regex, the uri
+     * itself is used as key.
+     */
+    private static final class FilterChainCache
+    {
+        private static final long EXACT = 1;
+        private static final long ROOT = 2;
+        private static final int FIRST_EXTENSION = 2;
+
+        private final List<FilterRegistrationStatus> filters;
+
+        private final ConcurrentMap<FilterChainKey, FilterHandler[]> chains = new ConcurrentHashMap<FilterChainKey, FilterHandler[]>();
+
+        /** The exact paths and path prefixes of the filters, {@code null} if the uri is the key. */
+        private final Set<String> paths;
+
+        private final String[] extensions;
+
+        private final boolean root;
+
+        public FilterChainCache(@Nonnull final List<FilterRegistrationStatus> filters)
+        {
+            this.filters = filters;
+
+            Set<String> paths = new HashSet<String>();
+            final List<String> extensions = new ArrayList<String>();
+            boolean root = false;
+            boolean regex = false;
+            for(final FilterRegistrationStatus status : filters)
+            {
+                if ( status.getResult() != -1 )
+                {
+                    break;
+                }
+                for(final PathResolver resolver : status.getResolvers())
+                {
+                    if ( resolver instanceof PathResolverFactory.ExactMatcher )
+                    {
+                        paths.add(resolver.getPattern());
+                    }
+                    else if ( resolver instanceof PathResolverFactory.PathMatcher )
+                    {
+                        paths.add(resolver.getPattern().substring(0, resolver.getPattern().length() - 2));
+                    }
+                    else if ( resolver instanceof PathResolverFactory.ExtensionMatcher )
+                    {
+                        final String extension = resolver.getPattern().substring(1);
+                        if ( !extensions.contains(extension) )
+                        {
+                            extensions.add(extension);
+                        }
+                    }
+                    else if ( resolver instanceof PathResolverFactory.RootMatcher )
+                    {
+                        root = true;
+                    }
+                    else if ( !(resolver instanceof PathResolverFactory.DefaultMatcher) )
+                    {
+                        // regular expressions can depend on the whole uri
+                        regex = true;
+                    }
+                }
+            }
+            if ( regex || extensions.size() > Long.SIZE - FIRST_EXTENSION )
+            {
+                paths = null;
+            }
+            this.paths = paths;
+            this.extensions = extensions.toArray(new String[extensions.size()]);
+            this.root = root;
+        }
+
+        public @Nonnull List<FilterRegistrationStatus> getFilters()
+        {
+            return this.filters;
+        }
+
+        public @Nonnull FilterChainKey createKey(@CheckForNull final String servletName,
+                @Nonnull final DispatcherType dispatcherType,
+                @Nonnull final String requestURI)
+        {
+            if ( this.paths == null )
+            {
+                return new FilterChainKey(servletName, dispatcherType, requestURI, 0);
+            }
+
+            // the longest pattern path matching the uri, the shorter ones match the uri iff they match this one
+            String path = requestURI;
+            while ( !this.paths.contains(path) )
+            {
+                final int pos = path.lastIndexOf('/');
+                if ( pos == -1 )
+                {
+                    path = null;
+                    break;
+                }
+                path = path.substring(0, pos);
+            }
+
+            long flags = 0;
+            if ( path != null && path.length() == requestURI.length() )
+            {
+                flags |= EXACT;
+            }
+            if ( this.root && (requestURI.length() == 0 || requestURI.equals("/")) )
+            {
+                flags |= ROOT;
+            }
+            for(int i = 0; i < this.extensions.length; i++)
+            {
+                if ( requestURI.endsWith(this.extensions[i]) )
+                {
+                    flags |= 1L << (FIRST_EXTENSION + i);
+                }
+            }
+            return new FilterChainKey(servletName, dispatcherType, path, flags);
+        }
+
+        public @CheckForNull FilterHandler[] get(@Nonnull final FilterChainKey key)
+        {
+            return this.chains.get(key);
+        }
+
+        public void put(@Nonnull final FilterChainKey key, @Nonnull final FilterHandler[] chain)
+        {
+            if ( this.chains.size() >= MAX_CACHED_CHAINS )
+            {
+                // make room by evicting a single entry, flushing the cache would make all requests miss
+                final Iterator<FilterChainKey> i = this.chains.keySet().iterator();
+                if ( i.hasNext() )
+                {
+                    i.next();
+                    i.remove();
+                }
+            }
+            this.chains.put(key, chain);
+        }
+    }
+
     /**
      * The status object keeps track of the registration status of a filter and holds
      * the resolvers to match against a uri.
@@ -126,6 +346,7 @@ public final class FilterRegistry
         Collections.sort(newList);
 
         this.filters = newList;
+        this.invalidateChains();
     }
 
     /**
@@ -151,6 +372,7 @@ public final class FilterRegistry
         if ( found != null )
         {
             this.filters = newList;
+            this.invalidateChains();
 
             if ( found.getResult() == -1 && destroy )
             {
@@ -162,11 +384,21 @@ public final class FilterRegistry
     public synchronized void cleanup()
     {
         this.filters = Collections.emptyList();
+        this.invalidateChains();
+    }
+
+    /**
+     * Drop all cached filter chains. Must be called after the filter list changed.
+     */
+    private void invalidateChains()
+    {
+        this.chainCache = new FilterChainCache(this.filters);
     }
 
     /**
      * Get all filters handling the request.
-     * Filters are applied to the url and/or the servlet
+     * Filters are applied to the url and/or the servlet.
+     * The resolved chains are cached, the returned array must not be modified.
      * @param handler Optional servlet handler
      * @param dispatcherType The dispatcher type
      * @param requestURI The request uri
@@ -175,9 +407,33 @@ public final class FilterRegistry
     public @Nonnull FilterHandler[] getFilterHandlers(@CheckForNull final ServletHandler handler,
             @Nonnull final DispatcherType dispatcherType,
             @Nonnull final String requestURI)
+    {
+        final FilterChainCache cache = this.chainCache;
+        final List<FilterRegistrationStatus> allFilters = cache.getFilters();
+        if ( allFilters.isEmpty() )
+        {
+            return EMPTY_FILTER_HANDLER;
+        }
+
+        // check for servlet name if it's not a resource
+        final String servletName = (handler != null && !handler.getServletInfo().isResource()) ? handler.getName() : null;
+
+        final FilterChainKey key = cache.createKey(servletName, dispatcherType, requestURI);
+        FilterHandler[] chain = cache.get(key);
+        if ( chain == null )
+        {
+            chain = resolveFilterHandlers(allFilters, servletName, dispatcherType, requestURI);
+            cache.put(key, chain);
+        }
+        return chain;
+    }
+
+    private @Nonnull FilterHandler[] resolveFilterHandlers(@Nonnull final List<FilterRegistrationStatus> allFilters,
+            @CheckForNull final String servletName,
+            @Nonnull final DispatcherType dispatcherType,
+            @Nonnull final String requestURI)
     {
         final List<FilterHandler> result = new ArrayList<FilterHandler>();
-        final List<FilterRegistrationStatus> allFilters = this.filters;
 
         for(final FilterRegistrationStatus status : allFilters)
         {
@@ -198,8 +454,6 @@ public final class FilterRegistry
                         break;
                     }
                 }
-                // check for servlet name if it's not a resource
-                final String servletName = (handler != null && !handler.getServletInfo().isResource()) ? handler.getName() : null;
                 if ( !added && servletName != null && status.getHandler().getFilterInfo().getServletNames() != null )
                 {
                     for(final String name : status.getHandler().getFilterInfo().getServletNames())
@@ -216,6 +470,10 @@ public final class FilterRegistry
             }
         }
 
+        if ( result.isEmpty() )
+        {
+            return EMPTY_FILTER_HANDLER;
+        }
         return result.toArray(new FilterHandler[result.size()]);
     }
 
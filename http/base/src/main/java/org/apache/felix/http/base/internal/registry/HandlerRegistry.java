@@ -44,6 +44,91 @@ public final class HandlerRegistry
     /** Current list of context registrations. */
     private volatile List<PerContextHandlerRegistry> registrations = Collections.emptyList();
 
+    /** Compiled form of the context registrations, rebuilt whenever they change. */
+    private volatile ContextPathIndex contextIndex = ContextPathIndex.EMPTY;
+
+    /**
+     * Immutable index of the context registrations by context path.
+     * Walking a request URI through the trie yields all contexts whose
+     * path matches the request in O(path length).
+     */
+    private static final class ContextPathIndex
+    {
+        static final ContextPathIndex EMPTY = new ContextPathIndex(Collections.<PerContextHandlerRegistry>emptyList());
+
+        private final PathTrie<PerContextHandlerRegistry[]> paths = new PathTrie<PerContextHandlerRegistry[]>();
+
+        /** Contexts registered for the root path, these match every request. */
+        private final PerContextHandlerRegistry[] rootContexts;
+
+        /** The maximum number of distinct context paths matching a single request. */
+        private final int maxDepth;
+
+        ContextPathIndex(final List<PerContextHandlerRegistry> registrations)
+        {
+            final List<PerContextHandlerRegistry> roots = new ArrayList<PerContextHandlerRegistry>();
+            int depth = 0;
+            for(final PerContextHandlerRegistry r : registrations)
+            {
+                if ( r.getPath().equals("/") )
+                {
+                    roots.add(r);
+                }
+                else
+                {
+                    final PathTrie.Node<PerContextHandlerRegistry[]> node = this.paths.getOrCreate(r.getPath());
+                    if ( node.exact == null )
+                    {
+                        node.exact = new PerContextHandlerRegistry[] {r};
+                        depth++;
+                    }
+                    else
+                    {
+                        final PerContextHandlerRegistry[] regs = new PerContextHandlerRegistry[node.exact.length + 1];
+                        System.arraycopy(node.exact, 0, regs, 0, node.exact.length);
+                        regs[node.exact.length] = r;
+                        node.exact = regs;
+                    }
+                }
+            }
+            this.rootContexts = roots.toArray(new PerContextHandlerRegistry[roots.size()]);
+            this.maxDepth = depth;
+        }
+
+        /**
+         * Get all contexts matching the request uri, in the order of the
+         * sorted registration list: longest context path first.
+         * @param requestURI The request uri
+         * @return The matching contexts
+         */
+        List<PerContextHandlerRegistry> getMatching(@Nonnull final String requestURI)
+        {
+            final List<PerContextHandlerRegistry[]> found = new ArrayList<PerContextHandlerRegistry[]>(this.maxDepth + 1);
+            final int length = requestURI.length();
+            PathTrie.Node<PerContextHandlerRegistry[]> node = this.paths.getRoot();
+            for(int i = 0; node != null; i++)
+            {
+                if ( node.exact != null && (i == length || requestURI.charAt(i) == '/') )
+                {
+                    found.add(node.exact);
+                }
+                if ( i == length )
+                {
+                    break;
+                }
+                node = node.child(requestURI.charAt(i));
+            }
+
+            final List<PerContextHandlerRegistry> result = new ArrayList<PerContextHandlerRegistry>();
+            for(int i = found.size() - 1; i >= 0; i--)
+            {
+                Collections.addAll(result, found.get(i));
+            }
+            Collections.addAll(result, this.rootContexts);
+            return result;
+        }
+    }
+
     /**
      * Register default context registry for Http Service
      */
@@ -72,6 +157,7 @@ public final class HandlerRegistry
         {
             list = new ArrayList<PerContextHandlerRegistry>(this.registrations);
             this.registrations = Collections.emptyList();
+            this.contextIndex = ContextPathIndex.EMPTY;
 
         }
 
@@ -98,6 +184,7 @@ public final class HandlerRegistry
                 {
                     i.remove();
                     this.registrations = updatedList;
+                    this.contextIndex = new ContextPathIndex(updatedList);
                     break;
                 }
             }
@@ -117,6 +204,7 @@ public final class HandlerRegistry
             Collections.sort(updatedList);
 
             this.registrations = updatedList;
+            this.contextIndex = new ContextPathIndex(updatedList);
         }
     }
 
@@ -187,7 +275,7 @@ public final class HandlerRegistry
 
     public PathResolution resolveServlet(@Nonnull final String requestURI)
     {
-        final List<PerContextHandlerRegistry> regs = this.registrations;
+        final List<PerContextHandlerRegistry> regs = this.contextIndex.getMatching(requestURI);
         for(final PerContextHandlerRegistry r : regs)
         {
             final String path = r.isMatching(requestURI);
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.DefaultMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExactAndPathMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExactMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExtensionMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.PathMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.RootMatcher;
+
+/**
+ * Immutable, compiled form of a sorted list of path resolvers.
+ *
+ * The result of {@link #resolve(String)} is the same as trying each resolver
+ * of the sorted list in order and returning the first match. Instead of
+ * doing so, exact and path patterns are stored in a {@link PathTrie} and
+ * extension patterns in a map, so a request URI is resolved by walking it
+ * once. Of all candidates found, the one coming first in the sorted list
+ * wins. Resolvers of unknown type (like regex matchers) are tried one by one.
+ */
+final class PathResolverIndex
+{
+    public static final PathResolverIndex EMPTY = new PathResolverIndex(Collections.<PathResolver>emptyList());
+
+    /** A resolver together with its position in the sorted list. */
+    private static final class Entry
+    {
+        final PathResolver resolver;
+
+        final int index;
+
+        Entry(final PathResolver resolver, final int index)
+        {
+            this.resolver = resolver;
+            this.index = index;
+        }
+    }
+
+    private final PathTrie<Entry> paths = new PathTrie<Entry>();
+
+    private final Map<String, Entry> extensions = new HashMap<String, Entry>();
+
+    private final List<Entry> others = new ArrayList<Entry>();
+
+    private final Entry defaultEntry;
+
+    private final int maxExtensionLength;
+
+    /**
+     * Create the index.
+     * @param resolvers The sorted list of resolvers
+     */
+    PathResolverIndex(@Nonnull final List<PathResolver> resolvers)
+    {
+        Entry defEntry = null;
+        int maxExtLength = 0;
+        int index = 0;
+        for(final PathResolver resolver : resolvers)
+        {
+            final Entry entry = new Entry(resolver, index++);
+            final String pattern = resolver.getPattern();
+            if ( resolver instanceof ExactMatcher )
+            {
+                putExact(pattern, entry);
+            }
+            else if ( resolver instanceof ExactAndPathMatcher )
+            {
+                putExact(pattern, entry);
+                putPrefix(pattern, entry);
+            }
+            else if ( resolver instanceof PathMatcher )
+            {
+                final String path = pattern.substring(0, pattern.length() - 2);
+                putExact(path, entry);
+                putPrefix(path, entry);
+            }
+            else if ( resolver instanceof ExtensionMatcher )
+            {
+                final String extension = pattern.substring(1);
+                if ( !this.extensions.containsKey(extension) )
+                {
+                    this.extensions.put(extension, entry);
+                }
+                maxExtLength = Math.max(maxExtLength, extension.length());
+            }
+            else if ( resolver instanceof RootMatcher )
+            {
+                putExact("", entry);
+                putExact("/", entry);
+            }
+            else if ( resolver instanceof DefaultMatcher )
+            {
+                if ( defEntry == null )
+                {
+                    defEntry = entry;
+                }
+            }
+            else
+            {
+                this.others.add(entry);
+            }
+        }
+        this.defaultEntry = defEntry;
+        this.maxExtensionLength = maxExtLength;
+    }
+
+    private void putExact(final String path, final Entry entry)
+    {
+        final PathTrie.Node<Entry> node = this.paths.getOrCreate(path);
+        if ( node.exact == null )
+        {
+            node.exact = entry;
+        }
+    }
+
+    private void putPrefix(final String path, final Entry entry)
+    {
+        final PathTrie.Node<Entry> node = this.paths.getOrCreate(path);
+        if ( node.prefix == null )
+        {
+            node.prefix = entry;
+        }
+    }
+
+    private static Entry best(final Entry current, final Entry candidate)
+    {
+        if ( candidate != null && (current == null || candidate.index < current.index) )
+        {
+            return candidate;
+        }
+        return current;
+    }
+
+    /**
+     * Find the first resolver of the sorted list matching the request uri.
+     * @param uri The request uri
+     * @return The matching resolver or {@code null}
+     */
+    public @CheckForNull PathResolver find(@Nonnull final String uri)
+    {
+        Entry found = this.defaultEntry;
+
+        // exact and path patterns
+        final int length = uri.length();
+        PathTrie.Node<Entry> node = this.paths.getRoot();
+        for(int i = 0; node != null; i++)
+        {
+            if ( i == length )
+            {
+                found = best(found, node.exact);
+                break;
+            }
+            final char c = uri.charAt(i);
+            if ( c == '/' )
+            {
+                found = best(found, node.prefix);
+            }
+            node = node.child(c);
+        }
+
+        // extension patterns
+        if ( !this.extensions.isEmpty() )
+        {
+            for(int i = Math.max(0, length - this.maxExtensionLength); i < length; i++)
+            {
+                if ( uri.charAt(i) == '.' )
+                {
+                    found = best(found, this.extensions.get(uri.substring(i)));
+                }
+            }
+        }
+
+        // anything else is tried in order, as long as it would win
+        for(final Entry entry : this.others)
+        {
+            if ( found != null && found.index < entry.index )
+            {
+                break;
+            }
+            if ( entry.resolver.resolve(uri) != null )
+            {
+                found = entry;
+                break;
+            }
+        }
+
+        return found == null ? null : found.resolver;
+    }
+}
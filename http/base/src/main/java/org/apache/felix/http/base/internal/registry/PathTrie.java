@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.Arrays;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A character trie over request paths. A trie is built once by a single
+ * thread and is never modified after it has been published, so lookups
+ * need no synchronization.
+ *
+ * Each node can carry a value for the exact path it represents and a value
+ * for the path used as a prefix followed by a slash. Walking a request URI
+ * through the trie visits every such candidate in O(path length).
+ */
+final class PathTrie<V>
+{
+    static final class Node<V>
+    {
+        private char[] keys = new char[0];
+
+        private Node<V>[] children = newArray(0);
+
+        /** Value for a request path which is equal to the path of this node. */
+        V exact;
+
+        /** Value for a request path which starts with the path of this node followed by a slash. */
+        V prefix;
+
+        /**
+         * Get the child for the next character.
+         * @param c The character
+         * @return The child node or {@code null}
+         */
+        @CheckForNull Node<V> child(final char c)
+        {
+            final int index = Arrays.binarySearch(this.keys, c);
+            return index < 0 ? null : this.children[index];
+        }
+
+        private @Nonnull Node<V> getOrCreateChild(final char c)
+        {
+            final int index = Arrays.binarySearch(this.keys, c);
+            if ( index >= 0 )
+            {
+                return this.children[index];
+            }
+            final int pos = -index - 1;
+            final char[] newKeys = new char[this.keys.length + 1];
+            final Node<V>[] newChildren = newArray(this.children.length + 1);
+            System.arraycopy(this.keys, 0, newKeys, 0, pos);
+            System.arraycopy(this.children, 0, newChildren, 0, pos);
+            System.arraycopy(this.keys, pos, newKeys, pos + 1, this.keys.length - pos);
+            System.arraycopy(this.children, pos, newChildren, pos + 1, this.children.length - pos);
+
+            final Node<V> child = new Node<V>();
+            newKeys[pos] = c;
+            newChildren[pos] = child;
+            this.keys = newKeys;
+            this.children = newChildren;
+
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newArray(final int size)
+        {
+            return new Node[size];
+        }
+    }
+
+    private final Node<V> root = new Node<V>();
+
+    /**
+     * The root node, representing the empty path.
+     */
+    @Nonnull Node<V> getRoot()
+    {
+        return this.root;
+    }
+
+    /**
+     * Get the node for a path, creating it if necessary.
+     * This method must only be used while the trie is built.
+     * @param path The path
+     * @return The node
+     */
+    @Nonnull Node<V> getOrCreate(@Nonnull final String path)
+    {
+        Node<V> node = this.root;
+        for(int i = 0; i < path.length(); i++)
+        {
+            node = node.getOrCreateChild(path.charAt(i));
+        }
+        return node;
+    }
+}
@@ -94,6 +94,15 @@ public final class PerContextHandlerRegistry implements Comparable<PerContextHan
         return this.serviceId;
     }
 
+    /**
+     * Get the context path
+     * @return The context path
+     */
+    public @Nonnull String getPath()
+    {
+        return this.path;
+    }
+
     public void removeAll()
     {
         this.errorPageRegistry.cleanup();
@@ -53,6 +53,9 @@ public final class ServletRegistry
 
     private volatile List<PathResolver> activeResolvers = Collections.emptyList();
 
+    /** Compiled form of the active resolvers, rebuilt whenever they change. */
+    private volatile PathResolverIndex resolverIndex = PathResolverIndex.EMPTY;
+
     private final Map<String, List<ServletHandler>> inactiveServletMappings = new HashMap<String, List<ServletHandler>>();
 
     private final Map<String, List<ServletHandler>> servletsByName = new ConcurrentHashMap<String, List<ServletHandler>>();
@@ -73,8 +76,8 @@ public final class ServletRegistry
      */
     public PathResolution resolve(@Nonnull final String relativeRequestURI)
     {
-        final List<PathResolver> resolvers = this.activeResolvers;
-        for(final PathResolver entry : resolvers)
+        final PathResolver entry = this.resolverIndex.find(relativeRequestURI);
+        if ( entry != null )
         {
             final PathResolution pr = entry.resolve(relativeRequestURI);
             if ( pr != null )
@@ -174,6 +177,7 @@ public final class ServletRegistry
             }
             Collections.sort(resolvers);
             this.activeResolvers = resolvers;
+            this.resolverIndex = new PathResolverIndex(resolvers);
             this.mapping = newMap;
         }
         else if ( !handler.getServletInfo().isResource() && handler.getServletInfo().getName() != null )
@@ -340,6 +344,7 @@ public final class ServletRegistry
 
             Collections.sort(resolvers);
             this.activeResolvers = resolvers;
+            this.resolverIndex = new PathResolverIndex(resolvers);
             this.mapping = newMap;
 
             if ( cleanupHandler != null )
@@ -367,6 +372,7 @@ public final class ServletRegistry
     public synchronized void cleanup()
     {
         this.activeResolvers = Collections.emptyList();
+        this.resolverIndex = PathResolverIndex.EMPTY;
         this.inactiveServletMappings.clear();
         this.servletsByName.clear();
         this.mapping = Collections.emptyMap();
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.apache.felix.http.base.internal.service.HttpServiceFactory;
+import org.apache.felix.http.base.internal.service.ResourceCache;
 import org.apache.felix.http.base.internal.util.PatternUtil;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.http.context.ServletContextHelper;
@@ -47,12 +48,21 @@ public final class ServletContextHelperInfo extends AbstractInfo<ServletContextH
      */
     private final Map<String, String> initParams;
 
+    /** The maximum size of the resource cache, caching is disabled if not positive. */
+    private final long resourceCacheSize;
+
+    /** Whether gzip variants of cached resources are kept. */
+    private final boolean resourceCacheGzip;
+
     public ServletContextHelperInfo(final ServiceReference<ServletContextHelper> ref)
     {
         super(ref);
         this.name = this.getStringProperty(ref, HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME);
         this.path = this.getStringProperty(ref, HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_PATH);
         this.initParams = getInitParams(ref, CONTEXT_INIT_PREFIX);
+        this.resourceCacheSize = getLongProperty(ref, ResourceCache.PROP_CACHE_SIZE);
+        this.resourceCacheGzip = ref.getProperty(ResourceCache.PROP_CACHE_GZIP) == null
+                || getBooleanProperty(ref, ResourceCache.PROP_CACHE_GZIP);
     }
 
     public ServletContextHelperInfo(final int serviceRanking,
@@ -65,6 +75,8 @@ public final class ServletContextHelperInfo extends AbstractInfo<ServletContextH
         this.name = name;
         this.path = path;
         this.initParams = initParams == null ? Collections.<String, String>emptyMap(): Collections.unmodifiableMap(initParams);
+        this.resourceCacheSize = 0;
+        this.resourceCacheGzip = false;
     }
 
     private boolean isValidPath()
@@ -111,4 +123,14 @@ public final class ServletContextHelperInfo extends AbstractInfo<ServletContextH
     {
         return initParams;
     }
+
+    public long getResourceCacheSize()
+    {
+        return resourceCacheSize;
+    }
+
+    public boolean isResourceCacheGzip()
+    {
+        return resourceCacheGzip;
+    }
 }
@@ -22,6 +22,7 @@ import javax.annotation.Nonnull;
 import javax.servlet.ServletContext;
 
 import org.apache.felix.http.api.ExtHttpService;
+import org.apache.felix.http.base.internal.logger.SystemLogger;
 import org.apache.felix.http.base.internal.registry.HandlerRegistry;
 import org.apache.felix.http.base.internal.service.listener.AbstractListenerManager;
 import org.osgi.framework.Bundle;
@@ -74,6 +75,7 @@ public final class HttpServiceFactory
     private final HandlerRegistry handlerRegistry;
     private volatile SharedHttpServiceImpl sharedHttpService;
     private volatile AbstractListenerManager listenerManager;
+    private volatile ResourceCache resourceCache;
 
 
     public HttpServiceFactory(final BundleContext bundleContext,
@@ -104,6 +106,9 @@ public final class HttpServiceFactory
         this.listenerManager.open();
 
         this.sharedHttpService = new SharedHttpServiceImpl(handlerRegistry);
+        final String cacheGzip = this.bundleContext.getProperty(ResourceCache.PROP_CACHE_GZIP);
+        this.resourceCache = ResourceCache.create(getLong(ResourceCache.PROP_CACHE_SIZE),
+                cacheGzip == null || Boolean.valueOf(cacheGzip));
 
         final String[] ifaces = new String[] { HttpService.class.getName(), ExtHttpService.class.getName() };
         this.active = true;
@@ -122,6 +127,7 @@ public final class HttpServiceFactory
 
         this.context = null;
         this.sharedHttpService = null;
+        this.resourceCache = null;
 
         if ( this.listenerManager != null )
         {
@@ -141,6 +147,7 @@ public final class HttpServiceFactory
             // a race condition where the service might be stopped while this method is executing.
             final SharedHttpServiceImpl sharedHttpSvc = this.sharedHttpService;
             final ServletContext servletCtx = this.context;
+            final ResourceCache cache = this.resourceCache;
 
             final boolean sharedCtxAttrs = this.sharedContextAttributes;
 
@@ -149,7 +156,8 @@ public final class HttpServiceFactory
                 return new PerBundleHttpServiceImpl(bundle,
                         sharedHttpSvc,
                         servletCtx,
-                        sharedCtxAttrs);
+                        sharedCtxAttrs,
+                        cache);
             }
         }
         return null;
@@ -175,4 +183,21 @@ public final class HttpServiceFactory
         String prop = this.bundleContext.getProperty(property);
         return (prop != null) ? Boolean.valueOf(prop).booleanValue() : false;
     }
+
+    private long getLong(final String property)
+    {
+        String prop = this.bundleContext.getProperty(property);
+        if (prop != null)
+        {
+            try
+            {
+                return Long.parseLong(prop.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                SystemLogger.warning("Invalid value for " + property + ": " + prop, null);
+            }
+        }
+        return 0;
+    }
 }
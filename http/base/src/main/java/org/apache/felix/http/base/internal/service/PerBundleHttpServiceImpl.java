@@ -53,11 +53,13 @@ public final class PerBundleHttpServiceImpl implements ExtHttpService
     private final Set<FilterHandler> localFilters = new HashSet<FilterHandler>();
     private final ServletContextManager contextManager;
     private final SharedHttpServiceImpl sharedHttpService;
+    private final ResourceCache resourceCache;
 
     public PerBundleHttpServiceImpl(final Bundle bundle,
             final SharedHttpServiceImpl sharedHttpService,
             final ServletContext context,
-            final boolean sharedContextAttributes)
+            final boolean sharedContextAttributes,
+            final ResourceCache resourceCache)
     {
         if (bundle == null)
         {
@@ -74,6 +76,7 @@ public final class PerBundleHttpServiceImpl implements ExtHttpService
         		sharedContextAttributes,
         		sharedHttpService.getHandlerRegistry().getRegistry(HttpServiceFactory.HTTP_SERVICE_CONTEXT_SERVICE_ID));
         this.sharedHttpService = sharedHttpService;
+        this.resourceCache = resourceCache;
     }
 
     @Override
@@ -150,7 +153,7 @@ public final class PerBundleHttpServiceImpl implements ExtHttpService
         }
         try
         {
-            final Servlet servlet = new ResourceServlet(name);
+            final Servlet servlet = new ResourceServlet(name, this.resourceCache);
             registerServlet(alias, servlet, null, context);
         }
         catch (ServletException e)
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A bounded cache for the content of registered resources. Entries are
+ * evicted in least recently used order once the total size of the cached
+ * content exceeds the configured maximum. Each entry holds the resource
+ * content, an optional pre-compressed gzip variant and a strong entity tag
+ * derived from the last modification time of the resource.
+ */
+public final class ResourceCache
+{
+    /**
+     * Property for the maximum number of bytes held by a resource cache.
+     * Used as a service property of a servlet context helper or as a framework
+     * property for the http service. A value of zero or less disables caching.
+     */
+    public static final String PROP_CACHE_SIZE = "org.apache.felix.http.resource.cache.size";
+
+    /**
+     * Property controlling whether gzip variants of cached resources are
+     * kept. Enabled by default.
+     */
+    public static final String PROP_CACHE_GZIP = "org.apache.felix.http.resource.cache.gzip";
+
+    /** Only keep a gzip variant if it saves at least this percentage. */
+    private static final int MIN_GZIP_SAVING = 10;
+
+    public static final class Entry
+    {
+        private final long lastModified;
+
+        private final byte[] content;
+
+        private final byte[] gzipContent;
+
+        private final String etag;
+
+        Entry(final long lastModified, final byte[] content, final byte[] gzipContent)
+        {
+            this.lastModified = lastModified;
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.etag = "\"" + Long.toHexString(lastModified) + '-' + Integer.toHexString(content.length) + "\"";
+        }
+
+        public long getLastModified()
+        {
+            return this.lastModified;
+        }
+
+        public @Nonnull byte[] getContent()
+        {
+            return this.content;
+        }
+
+        public @CheckForNull byte[] getGzipContent()
+        {
+            return this.gzipContent;
+        }
+
+        /**
+         * The entity tag of the uncompressed content.
+         */
+        public @Nonnull String getETag()
+        {
+            return this.etag;
+        }
+
+        /**
+         * The entity tag of the gzip variant.
+         */
+        public @Nonnull String getGzipETag()
+        {
+            return this.etag.substring(0, this.etag.length() - 1).concat("-gzip\"");
+        }
+
+        int getSize()
+        {
+            return this.content.length + (this.gzipContent == null ? 0 : this.gzipContent.length);
+        }
+    }
+
+    private final long maxSize;
+
+    private final boolean gzip;
+
+    /** Entries in access order, guarded by itself. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long size;
+
+    public ResourceCache(final long maxSize, final boolean gzip)
+    {
+        this.maxSize = maxSize;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Create a cache as configured by the given property values.
+     * @return The cache or {@code null} if caching is disabled.
+     */
+    public static @CheckForNull ResourceCache create(final long maxSize, final boolean gzip)
+    {
+        if ( maxSize <= 0 )
+        {
+            return null;
+        }
+        return new ResourceCache(maxSize, gzip);
+    }
+
+    /**
+     * Check whether content of the given length may be cached at all.
+     */
+    public boolean isCacheable(final long length)
+    {
+        return length >= 0 && length <= this.maxSize;
+    }
+
+    /**
+     * Get a cached entry.
+     * @param key The key of the resource
+     * @param lastModified The current last modification time of the resource
+     * @return The entry or {@code null} if there is no entry or it is stale
+     */
+    public @CheckForNull Entry get(@Nonnull final String key, final long lastModified)
+    {
+        synchronized ( this.entries )
+        {
+            final Entry entry = this.entries.get(key);
+            if ( entry != null && entry.getLastModified() != lastModified )
+            {
+                this.entries.remove(key);
+                this.size -= entry.getSize();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Add content to the cache, evicting least recently used entries
+     * if required. The gzip variant is not kept if the content and the
+     * variant do not fit in the cache together.
+     * @param key The key of the resource
+     * @param lastModified The last modification time of the resource
+     * @param content The content
+     * @return The new entry
+     */
+    public @Nonnull Entry put(@Nonnull final String key, final long lastModified, @Nonnull final byte[] content)
+    {
+        if ( content.length > this.maxSize )
+        {
+            return new Entry(lastModified, content, null);
+        }
+        byte[] gzipContent = this.gzip ? compress(content) : null;
+        if ( gzipContent != null && content.length + (long) gzipContent.length > this.maxSize )
+        {
+            // keep the content rather than reading and compressing it again on every request
+            gzipContent = null;
+        }
+        final Entry entry = new Entry(lastModified, content, gzipContent);
+        synchronized ( this.entries )
+        {
+            final Entry old = this.entries.put(key, entry);
+            if ( old != null )
+            {
+                this.size -= old.getSize();
+            }
+            this.size += entry.getSize();
+
+            final Iterator<Entry> i = this.entries.values().iterator();
+            while ( this.size > this.maxSize && i.hasNext() )
+            {
+                final Entry eldest = i.next();
+                if ( eldest != entry )
+                {
+                    i.remove();
+                    this.size -= eldest.getSize();
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Drop all entries.
+     */
+    public void clear()
+    {
+        synchronized ( this.entries )
+        {
+            this.entries.clear();
+            this.size = 0;
+        }
+    }
+
+    /**
+     * @return The number of bytes currently held by the cache.
+     */
+    public long getSize()
+    {
+        synchronized ( this.entries )
+        {
+            return this.size;
+        }
+    }
+
+    private static byte[] compress(final byte[] content)
+    {
+        if ( content.length == 0 )
+        {
+            return null;
+        }
+        try
+        {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream(content.length / 2 + 32);
+            final GZIPOutputStream gos = new GZIPOutputStream(bos);
+            gos.write(content);
+            gos.close();
+            if ( bos.size() * 100L <= content.length * (100L - MIN_GZIP_SAVING) )
+            {
+                return bos.toByteArray();
+            }
+        }
+        catch ( final IOException ignore )
+        {
+            // not possible with an in memory stream
+        }
+        return null;
+    }
+}
@@ -16,12 +16,14 @@
  */
 package org.apache.felix.http.base.internal.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Enumeration;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -38,9 +40,18 @@ public final class ResourceServlet extends HttpServlet
     /** The path of the resource registration. */
     private final String prefix;
 
+    /** The optional cache for the resource content. */
+    private final ResourceCache cache;
+
     public ResourceServlet(final String prefix)
+    {
+        this(prefix, null);
+    }
+
+    public ResourceServlet(final String prefix, final ResourceCache cache)
     {
         this.prefix = prefix;
+        this.cache = cache;
     }
 
     @Override
@@ -78,7 +89,26 @@ public final class ResourceServlet extends HttpServlet
             res.setDateHeader("Last-Modified", lastModified);
         }
 
-        if (!resourceModified(lastModified, req.getDateHeader("If-Modified-Since")))
+        // without a modification time a cached entry could not be validated
+        final boolean useCache = this.cache != null && lastModified != 0;
+        ResourceCache.Entry entry = useCache ? this.cache.get(url.toExternalForm(), lastModified) : null;
+        if (entry == null && req.getHeader("If-None-Match") == null
+                && !resourceModified(lastModified, req.getDateHeader("If-Modified-Since")))
+        {
+            // answer a conditional request without reading the resource
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (entry == null && useCache)
+        {
+            entry = loadCacheEntry(url, lastModified);
+        }
+
+        if (entry != null)
+        {
+            handleCached(req, res, entry);
+        }
+        else if (!resourceModified(lastModified, req.getDateHeader("If-Modified-Since")))
         {
             res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
         }
@@ -88,6 +118,116 @@ public final class ResourceServlet extends HttpServlet
         }
     }
 
+    private ResourceCache.Entry loadCacheEntry(final URL url, final long lastModified) throws IOException
+    {
+        final String key = url.toExternalForm();
+        final URLConnection conn = url.openConnection();
+        if (!this.cache.isCacheable(getContentLength(conn)))
+        {
+            return null;
+        }
+        final InputStream is = conn.getInputStream();
+        try
+        {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf, 0, buf.length)) >= 0)
+            {
+                bos.write(buf, 0, n);
+            }
+            return this.cache.put(key, lastModified, bos.toByteArray());
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+
+    private void handleCached(final HttpServletRequest req,
+            final HttpServletResponse res, final ResourceCache.Entry entry)
+    throws IOException
+    {
+        final byte[] gzipContent = entry.getGzipContent();
+        final boolean useGzip = gzipContent != null && acceptsGzip(req);
+        final String etag = useGzip ? entry.getGzipETag() : entry.getETag();
+        res.setHeader("ETag", etag);
+        if (gzipContent != null)
+        {
+            res.setHeader("Vary", "Accept-Encoding");
+        }
+
+        // If-None-Match takes precedence over If-Modified-Since
+        final String ifNoneMatch = req.getHeader("If-None-Match");
+        final boolean notModified;
+        if (ifNoneMatch != null)
+        {
+            notModified = matches(ifNoneMatch, entry);
+        }
+        else
+        {
+            notModified = !resourceModified(entry.getLastModified(), req.getDateHeader("If-Modified-Since"));
+        }
+
+        if (notModified)
+        {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        else
+        {
+            final byte[] content = useGzip ? gzipContent : entry.getContent();
+            if (useGzip)
+            {
+                res.setHeader("Content-Encoding", "gzip");
+            }
+            res.setContentLength(content.length);
+            final OutputStream os = res.getOutputStream();
+            try
+            {
+                os.write(content);
+            }
+            finally
+            {
+                os.close();
+            }
+        }
+    }
+
+    private boolean acceptsGzip(final HttpServletRequest req)
+    {
+        final Enumeration<String> values = req.getHeaders("Accept-Encoding");
+        while (values != null && values.hasMoreElements())
+        {
+            for (final String value : values.nextElement().split(","))
+            {
+                final String[] parts = value.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip"))
+                {
+                    // an explicit quality of zero rejects the encoding
+                    return !(parts.length > 1 && parts[1].trim().matches("q\\s*=\\s*0(\\.0*)?"));
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(final String ifNoneMatch, final ResourceCache.Entry entry)
+    {
+        for (String tag : ifNoneMatch.split(","))
+        {
+            tag = tag.trim();
+            if (tag.startsWith("W/"))
+            {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(entry.getETag()) || tag.equals(entry.getGzipETag()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private long getLastModified(final URL url)
     {
         long lastModified = 0;
@@ -27,6 +27,7 @@ import org.apache.felix.http.base.internal.context.ExtServletContext;
 import org.apache.felix.http.base.internal.registry.HandlerRegistry;
 import org.apache.felix.http.base.internal.registry.PerContextHandlerRegistry;
 import org.apache.felix.http.base.internal.runtime.ServletContextHelperInfo;
+import org.apache.felix.http.base.internal.service.ResourceCache;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceObjects;
@@ -56,6 +57,9 @@ public class WhiteboardContextHandler implements Comparable<WhiteboardContextHan
     /** The shared part of the servlet context. */
     private volatile ServletContext sharedContext;
 
+    /** The cache for resources registered with this context, if enabled. */
+    private volatile ResourceCache resourceCache;
+
     public WhiteboardContextHandler(@Nonnull final ServletContextHelperInfo info,
             @Nonnull final ServletContext webContext,
             @Nonnull final Bundle httpBundle)
@@ -101,6 +105,7 @@ public class WhiteboardContextHandler implements Comparable<WhiteboardContextHan
         }
         else
         {
+            this.resourceCache = ResourceCache.create(info.getResourceCacheSize(), info.isResourceCacheGzip());
             registry.add(this.registry);
         }
         return activate;
@@ -114,6 +119,7 @@ public class WhiteboardContextHandler implements Comparable<WhiteboardContextHan
         registry.remove(this.info);
         this.registry = null;
         this.sharedContext = null;
+        this.resourceCache = null;
         this.ungetServletContext(httpBundle);
         this.perBundleContextMap.clear();
     }
@@ -123,6 +129,11 @@ public class WhiteboardContextHandler implements Comparable<WhiteboardContextHan
         return sharedContext;
     }
 
+    public @CheckForNull ResourceCache getResourceCache()
+    {
+        return resourceCache;
+    }
+
     public @CheckForNull ExtServletContext getServletContext(@CheckForNull final Bundle bundle)
     {
         if ( bundle == null )
@@ -48,6 +48,7 @@ import javax.servlet.http.HttpSession;
 import javax.servlet.http.HttpSessionEvent;
 
 import org.apache.felix.http.base.internal.console.HttpServicePlugin;
+import org.apache.felix.http.base.internal.console.StatisticsProvider;
 import org.apache.felix.http.base.internal.context.ExtServletContext;
 import org.apache.felix.http.base.internal.handler.FilterHandler;
 import org.apache.felix.http.base.internal.handler.HttpServiceServletHandler;
@@ -149,6 +150,15 @@ public final class WhiteboardManager
         this.plugin = new HttpServicePlugin(bundleContext, this.serviceRuntime);
     }
 
+    /**
+     * Set the provider of the container statistics shown in the web console.
+     * @param provider The provider or {@code null}
+     */
+    public void setStatisticsProvider(final StatisticsProvider provider)
+    {
+        this.plugin.setStatisticsProvider(provider);
+    }
+
     /**
      * Start the whiteboard manager
      * @param containerContext The servlet context
@@ -792,7 +802,7 @@ public final class WhiteboardManager
                             handler.getContextInfo().getServiceId(),
                             servletContext,
                             servletInfo,
-                            new ResourceServlet(servletInfo.getPrefix()));
+                            new ResourceServlet(servletInfo.getPrefix(), handler.getResourceCache()));
                     handler.getRegistry().registerServlet(servleHandler);
                 }
             }
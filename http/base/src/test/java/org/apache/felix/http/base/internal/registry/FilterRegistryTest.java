@@ -19,18 +19,25 @@ package org.apache.felix.http.base.internal.registry;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.EventListener;
 
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
 import javax.servlet.ServletContextListener;
 import javax.servlet.ServletException;
 
 import org.apache.felix.http.base.internal.context.ExtServletContext;
+import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HttpServiceFilterHandler;
 import org.apache.felix.http.base.internal.handler.ListenerHandler;
 import org.apache.felix.http.base.internal.handler.WhiteboardListenerHandler;
+import org.apache.felix.http.base.internal.runtime.FilterInfo;
 import org.apache.felix.http.base.internal.runtime.ListenerInfo;
 import org.apache.felix.http.base.internal.runtime.dto.FailedDTOHolder;
 import org.junit.Test;
@@ -42,6 +49,7 @@ import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceObjects;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.http.runtime.dto.ServletContextDTO;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
 
 public class FilterRegistryTest {
 
@@ -89,6 +97,124 @@ public class FilterRegistryTest {
         assertEmpty(dto, holder);
     }
 
+    @Test public void testFilterChainCache()
+    {
+        final FilterRegistry reg = new FilterRegistry();
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar").length);
+
+        final FilterHandler h1 = createFilterHandler("f1", "/foo/.*", 10);
+        reg.addFilter(h1);
+
+        final FilterHandler[] chain = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar");
+        assertEquals(1, chain.length);
+        assertSame(h1, chain[0]);
+        // the resolved chain is reused
+        assertSame(chain, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar"));
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/bar").length);
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.FORWARD, "/foo/bar").length);
+
+        // adding a filter invalidates the cache
+        final FilterHandler h2 = createFilterHandler("f2", "/.*", 5);
+        reg.addFilter(h2);
+        final FilterHandler[] chain2 = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar");
+        assertEquals(2, chain2.length);
+        assertSame(h1, chain2[0]);
+        assertSame(h2, chain2[1]);
+        assertEquals(1, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/bar").length);
+
+        // removing a filter invalidates the cache
+        reg.removeFilter(h1.getFilterInfo(), false);
+        final FilterHandler[] chain3 = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar");
+        assertEquals(1, chain3.length);
+        assertSame(h2, chain3[0]);
+
+        reg.cleanup();
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar").length);
+    }
+
+    @Test public void testFilterChainCachePerPathClass()
+    {
+        final FilterRegistry reg = new FilterRegistry();
+        final FilterHandler h1 = createPatternFilterHandler(1L, 30, "/foo/*");
+        final FilterHandler h2 = createPatternFilterHandler(2L, 20, "*.jsp");
+        final FilterHandler h3 = createPatternFilterHandler(3L, 10, "/foo/bar");
+        reg.addFilter(h1);
+        reg.addFilter(h2);
+        reg.addFilter(h3);
+
+        final FilterHandler[] chain = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/1");
+        assertEquals(1, chain.length);
+        assertSame(h1, chain[0]);
+        // all uris below the path pattern share the chain, far more than the cache could hold
+        for (int i = 2; i < 5000; i++)
+        {
+            assertSame(chain, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/" + i));
+        }
+        final FilterHandler[] below = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar/x");
+        assertEquals(1, below.length);
+        assertSame(below, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar/y"));
+        assertEquals(1, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo").length);
+
+        final FilterHandler[] exact = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar");
+        assertEquals(2, exact.length);
+        assertSame(h1, exact[0]);
+        assertSame(h3, exact[1]);
+
+        final FilterHandler[] extension = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/x.jsp");
+        assertEquals(2, extension.length);
+        assertSame(h1, extension[0]);
+        assertSame(h2, extension[1]);
+        assertSame(extension, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/y.jsp"));
+
+        assertEquals(1, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/x.jsp").length);
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foobar").length);
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/other/1").length);
+    }
+
+    @Test public void testFilterChainCacheRegexAndPath()
+    {
+        final FilterRegistry reg = new FilterRegistry();
+        final FilterHandler h1 = createFilterHandler("f1", "/foo/.*", 30);
+        final FilterHandler h2 = createPatternFilterHandler(2L, 20, "/foo/*");
+        reg.addFilter(h1);
+        reg.addFilter(h2);
+
+        final FilterHandler[] chain = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar");
+        assertEquals(2, chain.length);
+        assertSame(h1, chain[0]);
+        assertSame(h2, chain[1]);
+        assertEquals(1, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo").length);
+
+        final FilterHandler h3 = createPatternFilterHandler(3L, 10, "/bar");
+        reg.addFilter(h3);
+        assertEquals(1, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/bar").length);
+        assertEquals(2, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar").length);
+
+        reg.removeFilter(h1.getFilterInfo(), false);
+        final FilterHandler[] chain2 = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/bar");
+        assertEquals(1, chain2.length);
+        assertSame(h2, chain2[0]);
+        reg.removeFilter(h3.getFilterInfo(), false);
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/bar").length);
+    }
+
+    private static FilterHandler createPatternFilterHandler(final long id, final int ranking, final String pattern)
+    {
+        final ServiceReference<Filter> ref = mock(ServiceReference.class);
+        when(ref.getProperty(Constants.SERVICE_ID)).thenReturn(id);
+        when(ref.getProperty(Constants.SERVICE_RANKING)).thenReturn(ranking);
+        when(ref.getProperty(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN)).thenReturn(pattern);
+        when(ref.getPropertyKeys()).thenReturn(new String[0]);
+        final FilterInfo info = new FilterInfo(ref);
+        return new HttpServiceFilterHandler(mock(ExtServletContext.class), info, mock(Filter.class));
+    }
+
+    private static FilterHandler createFilterHandler(final String name, final String regex, final int ranking)
+    {
+        final FilterInfo info = new FilterInfo(name, regex, ranking, Collections.<String, String>emptyMap());
+        return new HttpServiceFilterHandler(mock(ExtServletContext.class), info, mock(Filter.class));
+    }
+
     private static ListenerInfo createListenerInfo(final long id, final int ranking, final Class<? extends EventListener> type) throws InvalidSyntaxException
     {
         final String[] typeNames = new String[1];
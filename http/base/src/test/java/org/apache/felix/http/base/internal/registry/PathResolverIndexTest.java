@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PathResolverIndexTest {
+
+    private static final String[] URIS = {
+        "", "/", "/foo", "/foo/", "/foo/bar", "/foo/bar/baz", "/foobar", "/foo.jsp",
+        "/foo/bar.jsp", "/foo/bar.tar.gz", "/bar.gz", "/other", "/other/x", "/x", "/x/y",
+        "/a/b/c/d.html", "/a/b", "/a/bc", ".jsp", "jsp", "/foo/bar/", "/regex/123"
+    };
+
+    private static PathResolver findLinear(final List<PathResolver> resolvers, final String uri)
+    {
+        for(final PathResolver resolver : resolvers)
+        {
+            if ( resolver.resolve(uri) != null )
+            {
+                return resolver;
+            }
+        }
+        return null;
+    }
+
+    private static List<PathResolver> createResolvers(final String... patterns)
+    {
+        final List<PathResolver> resolvers = new ArrayList<PathResolver>();
+        for(final String pattern : patterns)
+        {
+            resolvers.add(PathResolverFactory.createPatternMatcher(null, pattern));
+        }
+        return resolvers;
+    }
+
+    private void assertSameAsLinear(final List<PathResolver> resolvers)
+    {
+        Collections.sort(resolvers);
+        final PathResolverIndex index = new PathResolverIndex(resolvers);
+        for(final String uri : URIS)
+        {
+            assertSame(uri, findLinear(resolvers, uri), index.find(uri));
+        }
+    }
+
+    @Test public void testEmpty()
+    {
+        for(final String uri : URIS)
+        {
+            assertNull(PathResolverIndex.EMPTY.find(uri));
+        }
+    }
+
+    @Test public void testExactAndPathPatterns()
+    {
+        assertSameAsLinear(createResolvers("/foo", "/foo/*", "/foo/bar", "/foo/bar/*", "/other", "/*"));
+    }
+
+    @Test public void testExtensionPatterns()
+    {
+        assertSameAsLinear(createResolvers("*.jsp", "*.gz", "*.tar.gz", "/foo/bar/*"));
+    }
+
+    @Test public void testRootAndDefaultPatterns()
+    {
+        assertSameAsLinear(createResolvers("", "/", "/foo", "*.html"));
+        assertSameAsLinear(createResolvers("/"));
+        assertSameAsLinear(createResolvers(""));
+    }
+
+    @Test public void testMixedPatterns()
+    {
+        final List<PathResolver> resolvers = createResolvers("/", "", "/foo", "/foo/*", "/a/*", "/a/b/*",
+                "*.jsp", "*.html", "/foo/bar.jsp", "/x");
+        resolvers.add(new PathResolverFactory.ExactAndPathMatcher(null, "/a"));
+        resolvers.add(new PathResolverFactory.ExactAndPathMatcher(null, "/foo/bar"));
+        resolvers.add(PathResolverFactory.createRegexMatcher("/regex/[0-9]+"));
+        assertSameAsLinear(resolvers);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class ResourceCacheTest
+{
+    @Test
+    public void testDisabled()
+    {
+        assertNull(ResourceCache.create(0, true));
+        assertNull(ResourceCache.create(-1, true));
+        assertNotNull(ResourceCache.create(1024, true));
+    }
+
+    @Test
+    public void testGetAndInvalidate()
+    {
+        final ResourceCache cache = new ResourceCache(1024, false);
+        final ResourceCache.Entry entry = cache.put("a", 10, new byte[] {1, 2, 3});
+
+        assertSame(entry, cache.get("a", 10));
+        assertEquals(3, cache.getSize());
+
+        // a changed modification time makes the entry stale
+        assertNull(cache.get("a", 11));
+        assertNull(cache.get("a", 10));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction()
+    {
+        final ResourceCache cache = new ResourceCache(100, false);
+        cache.put("a", 1, new byte[40]);
+        cache.put("b", 1, new byte[40]);
+        // touch a, so b is evicted first
+        assertNotNull(cache.get("a", 1));
+        cache.put("c", 1, new byte[40]);
+
+        assertNotNull(cache.get("a", 1));
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("c", 1));
+        assertEquals(80, cache.getSize());
+
+        // too large to be cached at all
+        assertFalse(cache.isCacheable(101));
+        cache.put("d", 1, new byte[101]);
+        assertNull(cache.get("d", 1));
+        assertEquals(80, cache.getSize());
+    }
+
+    @Test
+    public void testETag()
+    {
+        final ResourceCache cache = new ResourceCache(1024, false);
+        final ResourceCache.Entry e1 = cache.put("a", 1000, new byte[10]);
+        final ResourceCache.Entry e2 = cache.put("b", 2000, new byte[10]);
+
+        assertTrue(e1.getETag().startsWith("\"") && e1.getETag().endsWith("\""));
+        assertFalse(e1.getETag().equals(e2.getETag()));
+        assertFalse(e1.getETag().equals(e1.getGzipETag()));
+    }
+
+    @Test
+    public void testGzip() throws IOException
+    {
+        final ResourceCache cache = new ResourceCache(100000, true);
+        final byte[] content = new byte[10000];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) ('a' + i % 4);
+        }
+        final ResourceCache.Entry entry = cache.put("a", 1, content);
+
+        assertNotNull(entry.getGzipContent());
+        assertTrue(entry.getGzipContent().length < content.length);
+        assertArrayEquals(content, gunzip(entry.getGzipContent()));
+
+        // content that does not compress is not kept twice
+        final ResourceCache.Entry small = cache.put("b", 1, new byte[] {1});
+        assertNull(small.getGzipContent());
+    }
+
+    @Test
+    public void testGzipVariantExceedingMaxSize()
+    {
+        final byte[] content = new byte[10000];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) ('a' + i % 4);
+        }
+        // the content fits, but not together with its gzip variant
+        final ResourceCache cache = new ResourceCache(content.length, true);
+        assertTrue(cache.isCacheable(content.length));
+        final ResourceCache.Entry entry = cache.put("a", 1, content);
+
+        assertNull(entry.getGzipContent());
+        assertSame(entry, cache.get("a", 1));
+        assertEquals(content.length, cache.getSize());
+    }
+
+    private static byte[] gunzip(final byte[] data) throws IOException
+    {
+        final InputStream is = new GZIPInputStream(new ByteArrayInputStream(data));
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final byte[] buf = new byte[1024];
+        int n;
+        while ((n = is.read(buf)) >= 0)
+        {
+            bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+}
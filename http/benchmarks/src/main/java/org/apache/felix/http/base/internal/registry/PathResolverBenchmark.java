@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the resolution of request URIs against the servlet patterns of a
+ * context, with the compiled {@link PathResolverIndex} and with the linear
+ * scan of the sorted resolvers it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathResolverBenchmark
+{
+    /** The number of servlet patterns. */
+    @Param({"20", "2000"})
+    public int patterns;
+
+    private List<PathResolver> resolvers;
+
+    private PathResolverIndex index;
+
+    private String[] uris;
+
+    @Setup
+    public void setUp()
+    {
+        this.resolvers = new ArrayList<PathResolver>();
+        for(int i = 0; i < this.patterns; i++)
+        {
+            final String pattern;
+            switch ( i % 3 )
+            {
+                case 0 : pattern = "/app" + i + "/page"; break;
+                case 1 : pattern = "/app" + i + "/*"; break;
+                default : pattern = "*.ext" + i;
+            }
+            this.resolvers.add(PathResolverFactory.createPatternMatcher(null, pattern));
+        }
+        Collections.sort(this.resolvers);
+        this.index = new PathResolverIndex(this.resolvers);
+
+        // one URI for the last pattern of each kind, and one matching no pattern
+        final int[] last = new int[3];
+        for(int i = 0; i < this.patterns; i++)
+        {
+            last[i % 3] = i;
+        }
+        this.uris = new String[] {
+            "/app" + last[0] + "/page",
+            "/app" + last[1] + "/some/deep/path",
+            "/static/file.ext" + last[2],
+            "/unknown/path"
+        };
+    }
+
+    @Benchmark
+    public void index(final Blackhole blackhole)
+    {
+        for(final String uri : this.uris)
+        {
+            blackhole.consume(this.index.find(uri));
+        }
+    }
+
+    @Benchmark
+    public void linear(final Blackhole blackhole)
+    {
+        for(final String uri : this.uris)
+        {
+            PathResolver found = null;
+            for(final PathResolver resolver : this.resolvers)
+            {
+                if ( resolver.resolve(uri) != null )
+                {
+                    found = resolver;
+                    break;
+                }
+            }
+            blackhole.consume(found);
+        }
+    }
+}
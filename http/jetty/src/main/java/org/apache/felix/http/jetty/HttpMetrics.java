@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.http.jetty;
+
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The <code>HttpMetrics</code> service provides request, latency and
+ * connection statistics of the Jetty server. It is registered while the
+ * server is running if statistics are enabled through the
+ * {@code org.apache.felix.http.jetty.statistics.enable} property.
+ * <p>
+ * All values are collected since the server was started or since the last
+ * call to {@link #reset()}.
+ *
+ * @since 2.2
+ */
+@ProviderType
+public interface HttpMetrics
+{
+    /**
+     * @return The number of requests handled.
+     */
+    int getRequests();
+
+    /**
+     * @return The number of requests currently being handled.
+     */
+    int getRequestsActive();
+
+    /**
+     * @return The maximum number of requests handled concurrently.
+     */
+    int getRequestsActiveMax();
+
+    /**
+     * @return The mean time in milliseconds to handle a request.
+     */
+    double getRequestTimeMean();
+
+    /**
+     * @return The maximum time in milliseconds to handle a request.
+     */
+    long getRequestTimeMax();
+
+    /**
+     * @return The standard deviation of the time to handle a request.
+     */
+    double getRequestTimeStdDev();
+
+    /**
+     * Get the number of responses with a status code of the given class.
+     *
+     * @param statusClass The class of status codes, from 1 for 1xx to 5 for 5xx.
+     * @return The number of responses, or {@code 0} for an unknown class.
+     */
+    int getResponses(int statusClass);
+
+    /**
+     * @return The number of connections accepted.
+     */
+    int getConnections();
+
+    /**
+     * @return The number of connections currently open.
+     */
+    int getConnectionsOpen();
+
+    /**
+     * @return The maximum number of connections open at the same time.
+     */
+    int getConnectionsOpenMax();
+
+    /**
+     * @return The number of jobs waiting for a thread of the server thread pool.
+     */
+    int getQueueSize();
+
+    /**
+     * Reset all statistics.
+     */
+    void reset();
+}
@@ -149,6 +149,20 @@ class ConfigMetaTypeProvider implements MetaTypeProvider
                 false,
                 bundle.getBundleContext().getProperty(JettyConfig.FELIX_HTTP_MBEANS)));
 
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_STATISTICS_ENABLE,
+                "Request Statistics",
+                "Whether to collect request, latency and connection statistics. If enabled the statistics are " +
+                    "registered as an HttpMetrics service and shown in the web console. The default is false.",
+                false,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_STATISTICS_ENABLE)));
+
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_HTTP2_ENABLE,
+                "Enable HTTP/2",
+                "Whether to accept HTTP/2 over cleartext (h2c) on the HTTP connector, either through an " +
+                    "upgrade or with prior knowledge. The default is false.",
+                false,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_HTTP2_ENABLE)));
+
         adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_SESSION_TIMEOUT,
                 "Session Timeout",
                 "Default lifetime of an HTTP session specified in a whole number of minutes. If the timeout is 0 or less, sessions will by default never timeout. The default is 0.",
@@ -161,6 +175,24 @@ class ConfigMetaTypeProvider implements MetaTypeProvider
                 -1,
                 bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_THREADPOOL_MAX)));
 
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_THREADPOOL_MIN,
+                "Thread Pool Min",
+                "Minimum number of jetty threads kept alive. Using the default -1 uses Jetty's default (8).",
+                -1,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_THREADPOOL_MIN)));
+
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_THREADPOOL_IDLE_TIMEOUT,
+                "Thread Pool Idle Timeout",
+                "Time in milliseconds after which idle threads above the minimum are stopped. Using the default -1 uses Jetty's default (60000).",
+                -1,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_THREADPOOL_IDLE_TIMEOUT)));
+
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_THREADPOOL_QUEUE_CAPACITY,
+                "Thread Pool Queue Capacity",
+                "Maximum number of jobs waiting for a jetty thread. Using the default -1 uses an unbounded queue.",
+                -1,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_THREADPOOL_QUEUE_CAPACITY)));
+
         adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_ACCEPTORS,
                 "Acceptors",
                 "Number of acceptor threads to use, or -1 for a default value. Acceptors accept new TCP/IP connections. If 0, then the selector threads are used to accept connections.",
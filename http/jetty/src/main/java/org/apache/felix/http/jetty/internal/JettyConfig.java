@@ -83,6 +83,21 @@ public final class JettyConfig
     /** Felix specific property to control the maximum size of the jetty thread pool */
     public static final String FELIX_JETTY_THREADPOOL_MAX = "org.apache.felix.http.jetty.threadpool.max";
 
+    /** Felix specific property to control the minimum size of the jetty thread pool */
+    public static final String FELIX_JETTY_THREADPOOL_MIN = "org.apache.felix.http.jetty.threadpool.min";
+
+    /** Felix specific property to control the time in milliseconds after which idle jetty threads are stopped */
+    public static final String FELIX_JETTY_THREADPOOL_IDLE_TIMEOUT = "org.apache.felix.http.jetty.threadpool.idleTimeout";
+
+    /** Felix specific property to bound the number of jobs queued for the jetty thread pool. Default is unbounded */
+    public static final String FELIX_JETTY_THREADPOOL_QUEUE_CAPACITY = "org.apache.felix.http.jetty.threadpool.queueCapacity";
+
+    /** Felix specific property to enable HTTP/2 over cleartext (h2c) on the HTTP connector. Valid values are "true", "false". Default is false */
+    public static final String FELIX_JETTY_HTTP2_ENABLE = "org.apache.felix.http.jetty.http2.enable";
+
+    /** Felix specific property to enable request and connection statistics. Valid values are "true", "false". Default is false */
+    public static final String FELIX_JETTY_STATISTICS_ENABLE = "org.apache.felix.http.jetty.statistics.enable";
+
     /** Felix specific property to control the number of jetty acceptor threads */
     public static final String FELIX_JETTY_ACCEPTORS = "org.apache.felix.http.jetty.acceptors";
 
@@ -326,6 +341,31 @@ public final class JettyConfig
         return getIntProperty(FELIX_JETTY_THREADPOOL_MAX, -1);
     }
 
+    public int getThreadPoolMin()
+    {
+        return getIntProperty(FELIX_JETTY_THREADPOOL_MIN, -1);
+    }
+
+    public int getThreadPoolIdleTimeout()
+    {
+        return getIntProperty(FELIX_JETTY_THREADPOOL_IDLE_TIMEOUT, -1);
+    }
+
+    public int getThreadPoolQueueCapacity()
+    {
+        return getIntProperty(FELIX_JETTY_THREADPOOL_QUEUE_CAPACITY, -1);
+    }
+
+    public boolean isUseHttp2()
+    {
+        return getBooleanProperty(FELIX_JETTY_HTTP2_ENABLE, false);
+    }
+
+    public boolean isStatisticsEnabled()
+    {
+        return getBooleanProperty(FELIX_JETTY_STATISTICS_ENABLE, false);
+    }
+
     public int getAcceptors()
     {
         return getIntProperty(FELIX_JETTY_ACCEPTORS, -1);
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.felix.http.base.internal.console.StatisticsProvider;
+import org.apache.felix.http.jetty.HttpMetrics;
+import org.eclipse.jetty.server.ConnectorStatistics;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Collects the statistics of the request handler and the connectors of a
+ * Jetty server.
+ */
+final class JettyMetrics implements HttpMetrics, StatisticsProvider
+{
+    private final StatisticsHandler handler;
+
+    private final ThreadPool threadPool;
+
+    private final List<ConnectorStatistics> connectors = new CopyOnWriteArrayList<ConnectorStatistics>();
+
+    JettyMetrics(final StatisticsHandler handler, final ThreadPool threadPool)
+    {
+        this.handler = handler;
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * Add the statistics of a connector.
+     */
+    void addConnector(final ConnectorStatistics statistics)
+    {
+        this.connectors.add(statistics);
+    }
+
+    @Override
+    public int getRequests()
+    {
+        return this.handler.getRequests();
+    }
+
+    @Override
+    public int getRequestsActive()
+    {
+        return this.handler.getRequestsActive();
+    }
+
+    @Override
+    public int getRequestsActiveMax()
+    {
+        return this.handler.getRequestsActiveMax();
+    }
+
+    @Override
+    public double getRequestTimeMean()
+    {
+        return this.handler.getRequestTimeMean();
+    }
+
+    @Override
+    public long getRequestTimeMax()
+    {
+        return this.handler.getRequestTimeMax();
+    }
+
+    @Override
+    public double getRequestTimeStdDev()
+    {
+        return this.handler.getRequestTimeStdDev();
+    }
+
+    @Override
+    public int getResponses(final int statusClass)
+    {
+        switch (statusClass)
+        {
+            case 1: return this.handler.getResponses1xx();
+            case 2: return this.handler.getResponses2xx();
+            case 3: return this.handler.getResponses3xx();
+            case 4: return this.handler.getResponses4xx();
+            case 5: return this.handler.getResponses5xx();
+            default: return 0;
+        }
+    }
+
+    @Override
+    public int getConnections()
+    {
+        int result = 0;
+        for (final ConnectorStatistics stats : this.connectors)
+        {
+            result += stats.getConnections();
+        }
+        return result;
+    }
+
+    @Override
+    public int getConnectionsOpen()
+    {
+        int result = 0;
+        for (final ConnectorStatistics stats : this.connectors)
+        {
+            result += stats.getConnectionsOpen();
+        }
+        return result;
+    }
+
+    @Override
+    public int getConnectionsOpenMax()
+    {
+        int result = 0;
+        for (final ConnectorStatistics stats : this.connectors)
+        {
+            result += stats.getConnectionsOpenMax();
+        }
+        return result;
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        if (this.threadPool instanceof QueuedThreadPool)
+        {
+            return ((QueuedThreadPool) this.threadPool).getQueueSize();
+        }
+        return 0;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.handler.statsReset();
+        for (final ConnectorStatistics stats : this.connectors)
+        {
+            stats.reset();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatistics()
+    {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("Requests", getRequests());
+        result.put("Requests Active", getRequestsActive());
+        result.put("Requests Active Max", getRequestsActiveMax());
+        result.put("Request Time Mean (ms)", getRequestTimeMean());
+        result.put("Request Time Max (ms)", getRequestTimeMax());
+        result.put("Request Time Std Dev (ms)", getRequestTimeStdDev());
+        for (int i = 1; i <= 5; i++)
+        {
+            result.put("Responses " + i + "xx", getResponses(i));
+        }
+        result.put("Connections", getConnections());
+        result.put("Connections Open", getConnectionsOpen());
+        result.put("Connections Open Max", getConnectionsOpenMax());
+        if (this.threadPool instanceof QueuedThreadPool)
+        {
+            final QueuedThreadPool pool = (QueuedThreadPool) this.threadPool;
+            result.put("Threads", pool.getThreads());
+            result.put("Threads Idle", pool.getIdleThreads());
+            result.put("Queue Size", pool.getQueueSize());
+        }
+        return result;
+    }
+}
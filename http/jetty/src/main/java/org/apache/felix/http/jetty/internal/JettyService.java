@@ -41,7 +41,9 @@ import javax.servlet.SessionTrackingMode;
 
 import org.apache.felix.http.base.internal.HttpServiceController;
 import org.apache.felix.http.base.internal.logger.SystemLogger;
+import org.apache.felix.http.jetty.HttpMetrics;
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
 import org.eclipse.jetty.security.HashLoginService;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.ConnectorStatistics;
@@ -56,6 +58,7 @@ import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.BlockingArrayQueue;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -103,6 +106,8 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
     private volatile LoadBalancerCustomizerFactoryTracker loadBalancerCustomizerTracker;
     private volatile CustomizerWrapper customizerWrapper;
     private volatile EventAdmin eventAdmin;
+    private volatile JettyMetrics metrics;
+    private volatile ServiceRegistration<HttpMetrics> metricsReg;
     private boolean registerManagedService = true;
 
     public JettyService(final BundleContext context,
@@ -288,6 +293,14 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
     {
         if (this.server != null)
         {
+            if (this.metricsReg != null)
+            {
+                this.metricsReg.unregister();
+                this.metricsReg = null;
+            }
+            this.controller.setStatisticsProvider(null);
+            this.metrics = null;
+
             this.controller.getEventDispatcher().setActive(false);
             this.controller.unregister();
 
@@ -328,9 +341,9 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         {
             final String version = fixJettyVersion();
 
-            final int threadPoolMax = this.config.getThreadPoolMax();
-            if (threadPoolMax >= 0) {
-                this.server = new Server( new QueuedThreadPool(threadPoolMax) );
+            final ThreadPool configuredPool = createThreadPool();
+            if (configuredPool != null) {
+                this.server = new Server( configuredPool );
             } else {
                 this.server = new Server();
             }
@@ -358,7 +371,17 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
                 context.addBean(new StatisticsHandler());
             }
 
-            this.server.setHandler(this.parent);
+            if (this.config.isStatisticsEnabled())
+            {
+                final StatisticsHandler statisticsHandler = new StatisticsHandler();
+                statisticsHandler.setHandler(this.parent);
+                this.metrics = new JettyMetrics(statisticsHandler, this.server.getThreadPool());
+                this.server.setHandler(statisticsHandler);
+            }
+            else
+            {
+                this.server.setHandler(this.parent);
+            }
             this.server.start();
 
             if (this.config.isProxyLoadBalancerConnection())
@@ -404,6 +427,15 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
 
                 SystemLogger.info(message.toString());
                 this.controller.register(context.getServletContext(), getServiceProperties());
+
+                if (this.metrics != null)
+                {
+                    this.controller.setStatisticsProvider(this.metrics);
+                    final Hashtable<String, Object> props = new Hashtable<String, Object>();
+                    props.put(Constants.SERVICE_DESCRIPTION, "Jetty HTTP Metrics");
+                    props.put(Constants.SERVICE_VENDOR, "Apache Software Foundation");
+                    this.metricsReg = this.context.registerService(HttpMetrics.class, this.metrics, props);
+                }
             }
             else
             {
@@ -417,6 +449,32 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         }
     }
 
+    /**
+     * Create the thread pool as configured.
+     * @return The thread pool or {@code null} to use Jetty's default.
+     */
+    private ThreadPool createThreadPool()
+    {
+        final int maxThreads = this.config.getThreadPoolMax();
+        final int minThreads = this.config.getThreadPoolMin();
+        final int idleTimeout = this.config.getThreadPoolIdleTimeout();
+        final int queueCapacity = this.config.getThreadPoolQueueCapacity();
+        if (maxThreads < 0 && minThreads < 0 && idleTimeout < 0 && queueCapacity <= 0)
+        {
+            return null;
+        }
+
+        final QueuedThreadPool defaults = new QueuedThreadPool();
+        final int max = maxThreads >= 0 ? maxThreads : defaults.getMaxThreads();
+        final int min = Math.min(minThreads >= 0 ? minThreads : defaults.getMinThreads(), max);
+        final int idle = idleTimeout >= 0 ? idleTimeout : defaults.getIdleTimeout();
+        if (queueCapacity > 0)
+        {
+            return new QueuedThreadPool(max, min, idle, new BlockingArrayQueue<Runnable>(queueCapacity));
+        }
+        return new QueuedThreadPool(max, min, idle);
+    }
+
     private String fixJettyVersion()
     {
         // FELIX-4311: report the real version of Jetty...
@@ -438,12 +496,26 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         HttpConnectionFactory connFactory = new HttpConnectionFactory();
         configureHttpConnectionFactory(connFactory);
 
-        ServerConnector connector = new ServerConnector(
-            server,
-            config.getAcceptors(),
-            config.getSelectors(),
-            connFactory
-        );
+        final ServerConnector connector;
+        if (this.config.isUseHttp2())
+        {
+            connector = new ServerConnector(
+                server,
+                config.getAcceptors(),
+                config.getSelectors(),
+                connFactory,
+                new HTTP2CServerConnectionFactory(connFactory.getHttpConfiguration())
+            );
+        }
+        else
+        {
+            connector = new ServerConnector(
+                server,
+                config.getAcceptors(),
+                config.getSelectors(),
+                connFactory
+            );
+        }
 
         configureConnector(connector, this.config.getHttpPort());
 
@@ -557,9 +629,14 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         connector.setHost(this.config.getHost());
         connector.setIdleTimeout(this.config.getHttpTimeout());
 
-        if (this.config.isRegisterMBeans())
+        if (this.config.isRegisterMBeans() || this.metrics != null)
         {
-            connector.addBean(new ConnectorStatistics());
+            final ConnectorStatistics statistics = new ConnectorStatistics();
+            connector.addBean(statistics);
+            if (this.metrics != null)
+            {
+                this.metrics.addConnector(statistics);
+            }
         }
     }
 
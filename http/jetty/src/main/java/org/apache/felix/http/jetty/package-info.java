@@ -16,7 +16,7 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-@Version("2.1")
+@Version("2.2")
 package org.apache.felix.http.jetty;
 
 import org.osgi.annotation.versioning.Version;
\ No newline at end of file
@@ -20,6 +20,7 @@ import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Hashtable;
@@ -125,6 +126,32 @@ public class JettyConfigTest
         assertArrayEquals(expecteds, this.config.getExcludedCipherSuites());
     }
 
+    @Test public void testThreadPoolAndProtocolDefaults()
+    {
+        assertEquals(-1, this.config.getThreadPoolMin());
+        assertEquals(-1, this.config.getThreadPoolIdleTimeout());
+        assertEquals(-1, this.config.getThreadPoolQueueCapacity());
+        assertFalse(this.config.isUseHttp2());
+        assertFalse(this.config.isStatisticsEnabled());
+    }
+
+    @Test public void testThreadPoolAndProtocolSettings()
+    {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put(JettyConfig.FELIX_JETTY_THREADPOOL_MIN, "4");
+        props.put(JettyConfig.FELIX_JETTY_THREADPOOL_IDLE_TIMEOUT, 30000);
+        props.put(JettyConfig.FELIX_JETTY_THREADPOOL_QUEUE_CAPACITY, "1000");
+        props.put(JettyConfig.FELIX_JETTY_HTTP2_ENABLE, "true");
+        props.put(JettyConfig.FELIX_JETTY_STATISTICS_ENABLE, Boolean.TRUE);
+        this.config.update(props);
+
+        assertEquals(4, this.config.getThreadPoolMin());
+        assertEquals(30000, this.config.getThreadPoolIdleTimeout());
+        assertEquals(1000, this.config.getThreadPoolQueueCapacity());
+        assertTrue(this.config.isUseHttp2());
+        assertTrue(this.config.isStatisticsEnabled());
+    }
+
     @Before
     public void setUp()
     {
@@ -23,6 +23,7 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 
 import javax.servlet.ServletException;
 
@@ -40,6 +41,10 @@ import org.apache.felix.httplite.servlet.HttpServletResponseImpl;
  * clients. A given persistent connection is limited in the number of
  * consecutive requests it is allowed to make before having its connection
  * closed as well as after a period of inactivity.
+ * <p>
+ * In NIO mode a persistent connection is handed back to the
+ * {@link ConnectionSelector} after each request, so that it does not hold a
+ * pool thread while waiting for the next one.
 **/
 public class Connection
 {
@@ -59,6 +64,8 @@ public class Connection
     private final int m_requestLimit;
     private final ServiceRegistrationResolver m_resolver;
     private final Logger m_logger;
+    private final SocketChannel m_channel;
+    private final ConnectionSelector m_selector;
 
     /**
      * Constructs a connection with a default inactivity timeout and request limit.
@@ -84,10 +91,34 @@ public class Connection
      * @throws java.io.IOException If any I/O error occurs.
      */
     public Connection(final Socket socket, final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver, final Logger logger) throws IOException
+    {
+        this(socket, timeout, requestLimit, resolver, logger, null, null);
+    }
+
+    /**
+     * Constructs a connection waiting for its requests in the given selector.
+     * @param channel The client socket channel, in blocking mode.
+     * @param timeout The inactivity timeout of the connection in milliseconds.
+     * @param requestLimit The maximum number of consecutive requests.
+     * @param resolver resolves a request URI to a client or servlet registration via the HTTP Service.
+     * @param logger logger instance.
+     * @param selector the selector waiting for the next request.
+     * @throws java.io.IOException If any I/O error occurs.
+     */
+    Connection(final SocketChannel channel, final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver, final Logger logger,
+        final ConnectionSelector selector) throws IOException
+    {
+        this(channel.socket(), timeout, requestLimit, resolver, logger, channel, selector);
+    }
+
+    private Connection(final Socket socket, final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver, final Logger logger,
+        final SocketChannel channel, final ConnectionSelector selector) throws IOException
     {
         m_socket = socket;
         m_resolver = resolver;
         m_logger = logger;
+        m_channel = channel;
+        m_selector = selector;
         m_socket.setSoTimeout(timeout);
         m_socket.setTcpNoDelay(true);
         m_requestLimit = requestLimit;
@@ -143,7 +174,9 @@ public class Connection
      * connection close, the inactivity timeout expires, the maximum request
      * limit was reached, or an I/O error occurred. When this method returns,
      * the associated socket will be closed, regardless of whether or not an
-     * expection was thrown.
+     * expection was thrown. In NIO mode, this method also returns once a request
+     * has been serviced and no further request has been received yet, after
+     * handing the open connection back to the selector.
      * @throws java.net.SocketTimeoutException If the inactivity timeout expired
      *         while trying to read from the socket.
      * @throws java.io.IOException If any I/O error occurs.
@@ -153,138 +186,177 @@ public class Connection
     {
         HttpServletRequestImpl request = m_resolver.getServletRequest(m_socket);
         HttpServletResponseImpl response = m_resolver.getServletResponse(m_os);
+        response.setChannel(m_channel);
 
+        boolean keepAlive = false;
         try
         {
-            // Loop until we close the connection.
-            boolean close = false;
-            while (!close)
+            // Loop until we close the connection, or until the selector has
+            // to wait for the next request.
+            do
             {
-                // Read the next request.
-                try
-                {
-                    request.parseRequestLine(m_is);
-                }
-                catch (IOException e)
-                {
-                    m_logger.log(
-                        Logger.LOG_ERROR,
-                        "Error with request: " + request.toString() + ": "
-                            + e.getMessage());
-                    throw e;
-                }
-                m_requestCount++;
+                keepAlive = processRequest(request, response);
+            }
+            while (keepAlive && ((m_selector == null) || (m_is.available() > 0)));
+        }
+        finally
+        {
+            if (!keepAlive || !m_selector.register(this))
+            {
+                close();
+            }
+        }
+    }
 
-                // Keep track of whether we have failed or not,
-                // because we still want to read the bytes to clear
-                // the input stream so we can service more requests.
-                boolean error = false;
+    /**
+     * Reads and services a single request.
+     * @return whether the connection is to be kept open for further requests.
+    **/
+    private boolean processRequest(final HttpServletRequestImpl request, final HttpServletResponseImpl response)
+        throws IOException, ServletException
+    {
+        boolean close = false;
 
-                m_logger.log(Logger.LOG_DEBUG,
-                    "Processing " + request.getRequestURI() + " (" + (m_requestLimit - m_requestCount)
-                        + " remaining)");
+        // Read the next request.
+        try
+        {
+            request.parseRequestLine(m_is);
+        }
+        catch (IOException e)
+        {
+            m_logger.log(
+                Logger.LOG_ERROR,
+                "Error with request: " + request.toString() + ": "
+                    + e.getMessage());
+            throw e;
+        }
+        m_requestCount++;
+        response.setChunkingAllowed(
+            request.getProtocol().equals(HttpConstants.HTTP11_VERSION));
 
-                // If client is HTTP/1.1, then send continue message.
-                if (request.getProtocol().equals(HttpConstants.HTTP11_VERSION))
-                {
-                    response.sendContinueResponse();
-                }
+        // Keep track of whether we have failed or not,
+        // because we still want to read the bytes to clear
+        // the input stream so we can service more requests.
+        boolean error = false;
 
-                // Read the header lines of the request.
-                request.parseHeader(m_is);
+        m_logger.log(Logger.LOG_DEBUG,
+            "Processing " + request.getRequestURI() + " (" + (m_requestLimit - m_requestCount)
+                + " remaining)");
 
-                // If we have an HTTP/1.0 request without the connection set to
-                // keep-alive or we explicitly have a request to close the connection,
-                // then set close flag to exit the loop rather than trying to read
-                // more requests.
-                String v = request.getHeader(HttpConstants.HEADER_CONNECTION);
-                if ((request.getProtocol().equals(HttpConstants.HTTP10_VERSION) && ((v == null) || (!v.equalsIgnoreCase(HttpConstants.KEEPALIVE_CONNECTION))))
-                    || ((v != null) && v.equalsIgnoreCase(HttpConstants.CLOSE_CONNECTION)))
-                {
-                    close = true;
-                    response.setConnectionType("close");
-                }
-                // If we have serviced the maximum number of requests for
-                // this connection, then set close flag so we exit the loop
-                // and close the connection.
-                else if (m_requestCount >= m_requestLimit)
-                {
-                    close = true;
-                    response.setConnectionType("close");
-                }
+        // If client is HTTP/1.1, then send continue message.
+        if (request.getProtocol().equals(HttpConstants.HTTP11_VERSION))
+        {
+            response.sendContinueResponse();
+        }
 
-                // We do not support OPTIONS method so send
-                // a "not implemented" error in that case.
-                if (!HttpServletRequestImpl.isSupportedMethod(request.getMethod()))
-                {
-                    error = true;
-                    response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
-                    response.sendNotImplementedResponse();
-                }
+        // Read the header lines of the request.
+        request.parseHeader(m_is);
 
-                // Ignore if we have already failed, otherwise send error message
-                // if an HTTP/1.1 client did not include HOST header.
-                if (!error && request.getProtocol().equals(HttpConstants.HTTP11_VERSION)
-                    && (request.getHeader(HttpConstants.HOST_HEADER) == null))
-                {
-                    error = true;
-                    response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
-                    response.sendMissingHostResponse();
-                }
+        // If we have an HTTP/1.0 request without the connection set to
+        // keep-alive or we explicitly have a request to close the connection,
+        // then set close flag to exit the loop rather than trying to read
+        // more requests.
+        String v = request.getHeader(HttpConstants.HEADER_CONNECTION);
+        if ((request.getProtocol().equals(HttpConstants.HTTP10_VERSION) && ((v == null) || (!v.equalsIgnoreCase(HttpConstants.KEEPALIVE_CONNECTION))))
+            || ((v != null) && v.equalsIgnoreCase(HttpConstants.CLOSE_CONNECTION)))
+        {
+            close = true;
+            response.setConnectionType("close");
+        }
+        // If we have serviced the maximum number of requests for
+        // this connection, then set close flag so we exit the loop
+        // and close the connection.
+        else if (m_requestCount >= m_requestLimit)
+        {
+            close = true;
+            response.setConnectionType("close");
+        }
 
-                // Read in the request body.
-                request.parseBody(m_is);
+        // We do not support OPTIONS method so send
+        // a "not implemented" error in that case.
+        if (!HttpServletRequestImpl.isSupportedMethod(request.getMethod()))
+        {
+            error = true;
+            response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+            response.sendNotImplementedResponse();
+        }
 
-                // Only process the request if there was no error.
-                if (!error)
-                {
-                    ServiceRegistrationHandler processor = m_resolver.getProcessor(
-                        request, response, request.getRequestURI());
+        // Ignore if we have already failed, otherwise send error message
+        // if an HTTP/1.1 client did not include HOST header.
+        if (!error && request.getProtocol().equals(HttpConstants.HTTP11_VERSION)
+            && (request.getHeader(HttpConstants.HOST_HEADER) == null))
+        {
+            error = true;
+            response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+            response.sendMissingHostResponse();
+        }
 
-                    if (processor != null)
-                    {
-                        processor.handle(close);
+        // Read in the request body.
+        request.parseBody(m_is);
 
-                        m_logger.log(Logger.LOG_DEBUG, "Processed " + request.toString());
+        // Only process the request if there was no error.
+        if (!error)
+        {
+            ServiceRegistrationHandler processor = m_resolver.getProcessor(
+                request, response, request.getRequestURI());
 
-                        // TODO: Adding next line to make test cases pass, but not sure if it is correct
-                        // and needs further investigation.
-                        close = true;
-                        continue;
-                    }
+            if (processor != null)
+            {
+                processor.handle(close);
 
-                    close = true;
-                    response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
-                    response.sendNotFoundResponse();
-                }
+                m_logger.log(Logger.LOG_DEBUG, "Processed " + request.toString());
+
+                // TODO: Adding next line to make test cases pass, but not sure if it is correct
+                // and needs further investigation.
+                close = true;
+                return !close;
             }
+
+            close = true;
+            response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+            response.sendNotFoundResponse();
         }
-        finally
+
+        return !close;
+    }
+
+    /**
+     * Returns the client socket channel in NIO mode.
+     * @return the client socket channel, or <tt>null</tt>.
+    **/
+    SocketChannel getChannel()
+    {
+        return m_channel;
+    }
+
+    /**
+     * Closes the streams and the socket of the connection.
+    **/
+    void close()
+    {
+        try
         {
-            try
-            {
-                m_is.close();
-            }
-            catch (IOException ex)
-            {
-                m_logger.log(Logger.LOG_ERROR, "Error closing socket input stream.", ex);
-            }
-            try
-            {
-                m_os.close();
-            }
-            catch (IOException ex)
-            {
-                m_logger.log(Logger.LOG_ERROR, "Error closing socket output stream.", ex);
-            }
-            try
-            {
-                m_socket.close();
-            }
-            catch (IOException ex)
-            {
-                m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex);
-            }
+            m_is.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing socket input stream.", ex);
+        }
+        try
+        {
+            m_os.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing socket output stream.", ex);
+        }
+        try
+        {
+            m_socket.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex);
         }
     }
 }
\ No newline at end of file
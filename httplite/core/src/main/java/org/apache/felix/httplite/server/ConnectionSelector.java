@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.felix.httplite.osgi.Logger;
+import org.apache.felix.httplite.osgi.ServiceRegistrationResolver;
+
+/**
+ * This class accepts connections for the server in NIO mode. Accepted
+ * connections are registered with a selector and are only handed to the
+ * thread pool once request data can be read, so connections which are open
+ * but idle do not occupy a pool thread. A persistent connection is registered
+ * again after each request, to wait for the next one in the selector.
+ * Connections which stay idle for longer than the connection timeout are
+ * closed.
+ * <p>
+ * This class requires Java 1.4 and is only loaded if NIO mode is enabled,
+ * the rest of the server still runs on Java 1.3.
+**/
+class ConnectionSelector
+{
+    private final ServerSocketChannel m_serverChannel;
+    private final Selector m_selector;
+    private final ThreadPool m_threadPool;
+    private final int m_connectionTimeout;
+    private final int m_connectionRequestLimit;
+    private final ServiceRegistrationResolver m_resolver;
+    private final Logger m_logger;
+    // Connections to register again, waiting for the selector loop.
+    private final List m_pending = new ArrayList();
+
+    /**
+     * Opens the server channel and the selector.
+     * @param port the port to listen on.
+     * @param bindAddr the address to bind to, or <tt>null</tt> for all addresses.
+     * @param threadPool the thread pool servicing ready connections.
+     * @param connectionTimeout the inactivity timeout of connections in milliseconds.
+     * @param connectionRequestLimit the maximum number of requests per connection.
+     * @param resolver the resolver for servlet and resource registrations.
+     * @param logger the logger.
+     * @throws IOException If the server socket cannot be opened.
+    **/
+    ConnectionSelector(final int port, final InetAddress bindAddr, final ThreadPool threadPool,
+        final int connectionTimeout, final int connectionRequestLimit,
+        final ServiceRegistrationResolver resolver, final Logger logger) throws IOException
+    {
+        m_threadPool = threadPool;
+        m_connectionTimeout = connectionTimeout;
+        m_connectionRequestLimit = connectionRequestLimit;
+        m_resolver = resolver;
+        m_logger = logger;
+
+        m_serverChannel = ServerSocketChannel.open();
+        Selector selector = null;
+        try
+        {
+            m_serverChannel.socket().bind((bindAddr == null)
+                ? new InetSocketAddress(port) : new InetSocketAddress(bindAddr, port));
+            m_serverChannel.configureBlocking(false);
+            selector = Selector.open();
+            m_serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException ex)
+        {
+            closeChannel(m_serverChannel);
+            if (selector != null)
+            {
+                selector.close();
+            }
+            throw ex;
+        }
+        m_selector = selector;
+    }
+
+    /**
+     * Returns the server socket; closing it stops the selector loop.
+     * @return the server socket.
+    **/
+    ServerSocket getServerSocket()
+    {
+        return m_serverChannel.socket();
+    }
+
+    /**
+     * Wakes up the selector loop, which is required after the server socket
+     * has been closed because closing a channel does not interrupt a select.
+    **/
+    void wakeup()
+    {
+        m_selector.wakeup();
+    }
+
+    /**
+     * Registers a connection again once it has serviced a request, to wait
+     * for its next request. This is called from a pool thread, and the
+     * registration itself is done by the selector loop.
+     * @param connection the connection, whose socket is in blocking mode.
+     * @return <tt>false</tt> if the server is stopping, in which case the
+     *         caller has to close the connection.
+    **/
+    boolean register(final Connection connection)
+    {
+        synchronized (m_pending)
+        {
+            if (!m_serverChannel.isOpen())
+            {
+                return false;
+            }
+            m_pending.add(connection);
+        }
+        m_selector.wakeup();
+        return true;
+    }
+
+    /**
+     * The selector loop. This returns once the server socket is closed, after
+     * closing all connections that are still waiting for a request.
+     * @param server the server, used to check whether it is stopping.
+    **/
+    void run(final Server server)
+    {
+        List ready = new ArrayList();
+        try
+        {
+            while (m_serverChannel.isOpen())
+            {
+                registerPending();
+                m_selector.select((m_connectionTimeout > 0) ? m_connectionTimeout : 0);
+
+                Iterator keys = m_selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = (SelectionKey) keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                    }
+                    else if (key.isReadable())
+                    {
+                        // The channel has to be deregistered before it can be
+                        // switched back to blocking mode for the connection.
+                        key.cancel();
+                        ready.add(key);
+                    }
+                }
+
+                if (!ready.isEmpty())
+                {
+                    // Flush the cancelled keys.
+                    m_selector.selectNow();
+                    for (int i = 0; i < ready.size(); i++)
+                    {
+                        SelectionKey key = (SelectionKey) ready.get(i);
+                        dispatch((SocketChannel) key.channel(),
+                            ((Waiting) key.attachment()).m_connection);
+                    }
+                    ready.clear();
+                }
+
+                closeIdleChannels();
+            }
+        }
+        catch (ClosedSelectorException ex)
+        {
+            // Fall through to close everything.
+        }
+        catch (IOException ex)
+        {
+            if (!server.isStopping())
+            {
+                m_logger.log(Logger.LOG_ERROR,
+                    "The call to select() terminated with an exception.", ex);
+            }
+        }
+        close();
+    }
+
+    /**
+     * Accepts a pending connection and registers it with the selector.
+    **/
+    private void accept()
+    {
+        SocketChannel channel = null;
+        try
+        {
+            channel = m_serverChannel.accept();
+            if (channel != null)
+            {
+                channel.configureBlocking(false);
+                channel.register(m_selector, SelectionKey.OP_READ, new Waiting(null));
+                m_logger.log(Logger.LOG_DEBUG, "Accepted a new connection.");
+            }
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error accepting connection.", ex);
+            closeChannel(channel);
+        }
+    }
+
+    /**
+     * Registers the connections which have serviced a request again.
+    **/
+    private void registerPending()
+    {
+        List pending;
+        synchronized (m_pending)
+        {
+            if (m_pending.isEmpty())
+            {
+                return;
+            }
+            pending = new ArrayList(m_pending);
+            m_pending.clear();
+        }
+        for (int i = 0; i < pending.size(); i++)
+        {
+            Connection connection = (Connection) pending.get(i);
+            SocketChannel channel = connection.getChannel();
+            try
+            {
+                channel.configureBlocking(false);
+                channel.register(m_selector, SelectionKey.OP_READ, new Waiting(connection));
+            }
+            catch (IOException ex)
+            {
+                m_logger.log(Logger.LOG_ERROR, "Error registering connection.", ex);
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Hands a connection with a pending request to the thread pool.
+     * @param channel the connection channel.
+     * @param connection the connection, or <tt>null</tt> if it has not
+     *        serviced any request yet.
+    **/
+    private void dispatch(final SocketChannel channel, final Connection connection)
+    {
+        try
+        {
+            channel.configureBlocking(true);
+            // Create connection object and add it to the thread pool
+            // to be serviced.
+            m_threadPool.addConnection((connection != null) ? connection
+                : new Connection(channel, m_connectionTimeout,
+                    m_connectionRequestLimit, m_resolver, m_logger, this));
+        }
+        catch (IOException ex)
+        {
+            // If we have any difficulty creating the connection
+            // then just ignore it, because the socket will be
+            // closed in the connection constructor.
+            m_logger.log(Logger.LOG_ERROR, "Error creating connection.", ex);
+            closeChannel(channel);
+        }
+        catch (IllegalStateException ex)
+        {
+            // The thread pool is no longer active.
+            closeChannel(channel);
+        }
+    }
+
+    /**
+     * Closes all connections which have been waiting for a request for
+     * longer than the connection timeout.
+    **/
+    private void closeIdleChannels()
+    {
+        if (m_connectionTimeout <= 0)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator keys = m_selector.keys().iterator();
+        while (keys.hasNext())
+        {
+            SelectionKey key = (SelectionKey) keys.next();
+            Waiting waiting = (Waiting) key.attachment();
+            if (key.isValid() && (waiting != null)
+                && ((now - waiting.m_since) >= m_connectionTimeout))
+            {
+                m_logger.log(Logger.LOG_INFO, "Connection closed due to inactivity.");
+                key.cancel();
+                closeChannel(key.channel());
+            }
+        }
+    }
+
+    /**
+     * Closes all connections waiting for a request, the selector and the
+     * server channel.
+    **/
+    private void close()
+    {
+        synchronized (m_pending)
+        {
+            for (int i = 0; i < m_pending.size(); i++)
+            {
+                ((Connection) m_pending.get(i)).close();
+            }
+            m_pending.clear();
+        }
+        try
+        {
+            Iterator keys = m_selector.keys().iterator();
+            while (keys.hasNext())
+            {
+                closeChannel(((SelectionKey) keys.next()).channel());
+            }
+            m_selector.close();
+        }
+        catch (ClosedSelectorException ex)
+        {
+            // Already closed.
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing selector.", ex);
+        }
+        closeChannel(m_serverChannel);
+    }
+
+    /**
+     * Closes a channel, logging any error.
+     * @param channel the channel to close, may be <tt>null</tt>.
+    **/
+    private void closeChannel(final Channel channel)
+    {
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException ex)
+            {
+                m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex);
+            }
+        }
+    }
+
+    /**
+     * The attachment of a connection waiting for a request.
+    **/
+    private static class Waiting
+    {
+        // The connection, null if it has not serviced any request yet.
+        final Connection m_connection;
+        // When the connection started waiting, to detect idle connections.
+        final long m_since = System.currentTimeMillis();
+
+        Waiting(final Connection connection)
+        {
+            m_connection = connection;
+        }
+    }
+}
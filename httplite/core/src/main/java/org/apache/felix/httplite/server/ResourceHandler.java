@@ -18,9 +18,11 @@
  */
 package org.apache.felix.httplite.server;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -111,13 +113,43 @@ public class ResourceHandler implements ServiceRegistrationHandler
             	return;
             }
 
-            InputStream inputStream = resource.openStream();
+            File file = getFile(resource);
+            if (file != null)
+            {
+                m_response.setContentType(m_httpContext.getMimeType(resourceName));
+                m_response.writeToOutputStream(file, close);
+                return;
+            }
+
+            URLConnection connection = resource.openConnection();
+            InputStream inputStream = connection.getInputStream();
             m_response.setContentType(m_httpContext.getMimeType(resourceName));
 
+            // A known length lets the content be streamed without buffering.
+            int length = connection.getContentLength();
+            if (length >= 0)
+            {
+                m_response.setContentLength(length);
+            }
+
             m_response.writeToOutputStream(inputStream, close);
         }
     }
 
+    /**
+     * @param resource URL
+     * @return the file of a file URL that needs no decoding, or null.
+     */
+    private static File getFile(final URL resource)
+    {
+        if (!"file".equals(resource.getProtocol()) || (resource.getFile().indexOf('%') >= 0))
+        {
+            return null;
+        }
+        File file = new File(resource.getFile());
+        return file.isFile() ? file : null;
+    }
+
     /**
      * @param path String
      * @return resource name at given path.
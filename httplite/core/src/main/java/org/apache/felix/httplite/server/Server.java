@@ -69,6 +69,11 @@ public class Server
      * The address of the host interface to bind http to. The default is to bind to all interfaces.
      */
     public static final String CONFIG_PROPERTY_HTTP_HOST = "org.apache.felix.http.host"; 
+    /**
+     * Flag to enable the NIO connection mode, in which idle connections wait in a
+     * selector rather than occupying a pool thread. Requires Java 1.4. The default is false.
+     */
+    public static final String CONFIG_PROPERTY_NIO_ENABLE = "org.apache.felix.http.nio";
 
     /**
      * Default HTTP port to listen on.
@@ -101,6 +106,8 @@ public class Server
 
     private Thread m_serverThread;
     private ServerSocket m_serverSocket;
+    private final boolean m_nio;
+    private ConnectionSelector m_connectionSelector;
     private final ThreadPool m_threadPool;
 
     private final int m_connectionTimeout;
@@ -138,6 +145,10 @@ public class Server
      *       connections after which the connection is closed; the default value
      *       is 10000 milliseconds.
      *   </li>
+     *   <li><tt>org.apache.felix.http.nio</tt> - whether accepted connections wait in a
+     *       selector until a request can be read before being handed to the thread
+     *       pool; the default value is false.
+     *   </li>
      * </ul>
      * The configuration properties cannot be changed after construction. The
      * web server is not active until it is started.
@@ -163,6 +174,8 @@ public class Server
             : Integer.parseInt((String) configMap.get(Server.CONFIG_PROPERTY_CONNECTION_TIMEOUT_PROP));
         m_connectionRequestLimit = (configMap.get(Server.CONFIG_PROPERTY_CONNECTION_REQUESTLIMIT_PROP) == null) ? Connection.DEFAULT_CONNECTION_REQUESTLIMIT
             : Integer.parseInt((String) configMap.get(Server.CONFIG_PROPERTY_CONNECTION_REQUESTLIMIT_PROP));
+        m_nio = (configMap.get(Server.CONFIG_PROPERTY_NIO_ENABLE) == null) ? false
+            : Boolean.valueOf((String) configMap.get(Server.CONFIG_PROPERTY_NIO_ENABLE)).booleanValue();
     }
 
     /**
@@ -266,7 +279,13 @@ public class Server
         {
             // If inactive, then create server socket, server thread, and
             // set state to active.
-            if (m_bindAddr == null)
+            if (m_nio)
+            {
+                m_connectionSelector = new ConnectionSelector(m_port, m_bindAddr, m_threadPool,
+                    m_connectionTimeout, m_connectionRequestLimit, m_resolver, m_logger);
+                m_serverSocket = m_connectionSelector.getServerSocket();
+            }
+            else if (m_bindAddr == null)
             {
                 m_serverSocket = new ServerSocket(m_port);
             }
@@ -279,7 +298,14 @@ public class Server
             {
 				public void run()
                 {
-                    acceptConnections();
+                    if (m_connectionSelector != null)
+                    {
+                        selectConnections();
+                    }
+                    else
+                    {
+                        acceptConnections();
+                    }
                 }
             }, "HttpServer");
             m_state = ACTIVE_STATE;
@@ -335,6 +361,10 @@ public class Server
                 catch (IOException ex)
                 {
                 }
+                if (m_connectionSelector != null)
+                {
+                    m_connectionSelector.wakeup();
+                }
             }
         }
 
@@ -397,6 +427,23 @@ public class Server
         shutdown();
     }
 
+    /**
+     * This method is the main server loop in NIO mode, where connections are
+     * accepted by the connection selector. This is only ever called by the
+     * server thread.
+    **/
+    private void selectConnections()
+    {
+        // Start the thread pool.
+        m_threadPool.start();
+
+        m_logger.log(Logger.LOG_DEBUG, "Waiting for connections.");
+        m_connectionSelector.run(this);
+
+        // Shutdown the server.
+        shutdown();
+    }
+
     /**
      * This method shuts down the server; it is only ever called by the
      * server thread.
@@ -427,6 +474,7 @@ public class Server
             // gate and set the state to inactive.
             m_shutdownGate.open();
             m_shutdownGate = null;
+            m_connectionSelector = null;
             m_state = INACTIVE_STATE;
         }
         m_logger.log(Logger.LOG_DEBUG, "Shutdown complete.");
@@ -438,4 +486,11 @@ public class Server
 	public void setStopping() {		
 		m_stopping  = true;
 	}
+
+	/**
+	 * @return true if the server is in a stopping state and socket errors are not logged.
+	 */
+	boolean isStopping() {
+		return m_stopping;
+	}
 }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.servlet;
+
+/**
+ * A small pool of byte arrays used for copying response content, shared by
+ * all connections so that each request does not allocate its own buffers.
+ * The pool is bounded; buffers released into a full pool are discarded.
+ */
+public final class BufferPool
+{
+    /**
+     * Size of the pooled buffers.
+     */
+    public static final int BUFFER_SIZE = 1024 * 8;
+
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private static final byte[][] m_buffers = new byte[MAX_POOLED_BUFFERS][];
+    private static int m_count = 0;
+
+    private BufferPool()
+    {
+    }
+
+    /**
+     * Take a buffer from the pool, or create one if the pool is empty.
+     * @return a buffer of {@link #BUFFER_SIZE} bytes.
+     */
+    public static byte[] acquire()
+    {
+        synchronized (m_buffers)
+        {
+            if (m_count > 0)
+            {
+                byte[] buffer = m_buffers[--m_count];
+                m_buffers[m_count] = null;
+                return buffer;
+            }
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Return a buffer obtained by {@link #acquire()} to the pool.
+     * @param buffer the buffer to return.
+     */
+    public static void release(final byte[] buffer)
+    {
+        if (buffer == null || buffer.length != BUFFER_SIZE)
+        {
+            return;
+        }
+        synchronized (m_buffers)
+        {
+            if (m_count < MAX_POOLED_BUFFERS)
+            {
+                m_buffers[m_count++] = buffer;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes content using the HTTP/1.1 chunked transfer encoding. Content is
+ * collected in a pooled buffer and sent as one chunk whenever the buffer is
+ * full, on {@link #flush()} and on {@link #finish()}, which also writes the
+ * last chunk. The underlying stream is flushed only by {@link #flush()} and
+ * is never closed.
+ */
+public class ChunkedOutputStream extends OutputStream
+{
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+    private final OutputStream m_out;
+    private byte[] m_buffer = BufferPool.acquire();
+    private int m_count = 0;
+    private boolean m_finished = false;
+
+    /**
+     * @param out the stream receiving the encoded content.
+     */
+    public ChunkedOutputStream(final OutputStream out)
+    {
+        m_out = out;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(final int b) throws IOException
+    {
+        checkFinished();
+        if (m_count == m_buffer.length)
+        {
+            writeBuffer();
+        }
+        m_buffer[m_count++] = (byte) b;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(final byte[] b, final int off, final int len) throws IOException
+    {
+        checkFinished();
+        if (len > m_buffer.length - m_count)
+        {
+            writeBuffer();
+            if (len >= m_buffer.length)
+            {
+                // Too large to be buffered, so send it as a chunk of its own.
+                writeChunk(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, m_buffer, m_count, len);
+        m_count += len;
+    }
+
+    /**
+     * Send the buffered content as a chunk and flush the underlying stream.
+     * @throws IOException on I/O error.
+     */
+    public void flush() throws IOException
+    {
+        if (!m_finished)
+        {
+            writeBuffer();
+        }
+        m_out.flush();
+    }
+
+    /**
+     * Send the buffered content and write the last chunk. Further writes
+     * are not allowed.
+     * @throws IOException on I/O error.
+     */
+    public void finish() throws IOException
+    {
+        if (!m_finished)
+        {
+            writeBuffer();
+            m_finished = true;
+            BufferPool.release(m_buffer);
+            m_buffer = null;
+            m_out.write(LAST_CHUNK);
+        }
+    }
+
+    private void checkFinished() throws IOException
+    {
+        if (m_finished)
+        {
+            throw new IOException("Chunked content has already been finished.");
+        }
+    }
+
+    private void writeBuffer() throws IOException
+    {
+        if (m_count > 0)
+        {
+            writeChunk(m_buffer, 0, m_count);
+            m_count = 0;
+        }
+    }
+
+    private void writeChunk(final byte[] b, final int off, final int len) throws IOException
+    {
+        // A zero length chunk would terminate the content.
+        if (len == 0)
+        {
+            return;
+        }
+        m_out.write(Integer.toHexString(len).getBytes());
+        m_out.write(CRLF);
+        m_out.write(b, off, len);
+        m_out.write(CRLF);
+    }
+}
@@ -51,6 +51,14 @@ public class HttpConstants
      * Connection header
      */
     public static final String HEADER_CONNECTION = "Connection";
+    /**
+     * Transfer-Encoding header
+     */
+    public static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
+    /**
+     * Chunked transfer encoding
+     */
+    public static final String CHUNKED_TRANSFER_ENCODING = "chunked";
 
     /**
      * For building HTML error messages, this value is the default start of the html document for error message responses.
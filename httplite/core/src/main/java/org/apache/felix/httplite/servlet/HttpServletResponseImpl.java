@@ -21,12 +21,16 @@ package org.apache.felix.httplite.servlet;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -47,12 +51,15 @@ import javax.servlet.http.HttpServletResponse;
 **/
 public class HttpServletResponseImpl implements HttpServletResponse
 {
-    private static final int COPY_BUFFER_SIZE = 1024 * 4;
+    private static final int COPY_BUFFER_SIZE = BufferPool.BUFFER_SIZE;
 
     private final SimpleDateFormat m_dateFormat;
     private final OutputStream m_out;
+    private WritableByteChannel m_channel;
     private int m_bufferSize = COPY_BUFFER_SIZE;
-    private ByteArrayOutputStream m_buffer;
+    private ResponseBuffer m_buffer;
+    private boolean m_chunkingAllowed = false;
+    private ChunkedOutputStream m_chunkedOutput;
     private final Map m_headers = new HashMap();
     private String m_characterEncoding = "UTF-8";
     //TODO: Make locale static and perhaps global to the service.
@@ -92,6 +99,7 @@ public class HttpServletResponseImpl implements HttpServletResponse
         }
 
         if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH)
+            && !m_headers.containsKey(HttpConstants.HEADER_TRANSFER_ENCODING)
             && m_buffer != null)
         {
             setContentLength(m_buffer.size());
@@ -125,6 +133,102 @@ public class HttpServletResponseImpl implements HttpServletResponse
         }
     }
 
+    /**
+     * Allow the response to be sent with chunked transfer encoding when its
+     * length is not known up front.  Only valid for HTTP/1.1 clients.
+     * @param allowed true if the client understands chunked encoding.
+     */
+    public void setChunkingAllowed(final boolean allowed)
+    {
+        m_chunkingAllowed = allowed;
+    }
+
+    /**
+     * Set the channel of the client socket, which lets file content be
+     * transferred to the client without copying it through the heap.
+     * @param channel the client socket channel in blocking mode.
+     */
+    public void setChannel(final WritableByteChannel channel)
+    {
+        m_channel = channel;
+    }
+
+    /**
+     * Commit the response headers and route all further content directly to
+     * the client, using chunked encoding if no content length is set.
+     * @param force if false, only commit when the length is known or
+     * chunking is allowed; otherwise keep buffering.
+     * @return true if the response has been committed.
+     * @throws IOException on I/O error
+     */
+    private boolean commit(final boolean force) throws IOException
+    {
+        if (m_headersWritten)
+        {
+            return true;
+        }
+        if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH))
+        {
+            if (m_chunkingAllowed)
+            {
+                setHeader(HttpConstants.HEADER_TRANSFER_ENCODING,
+                    HttpConstants.CHUNKED_TRANSFER_ENCODING);
+                m_chunkedOutput = new ChunkedOutputStream(m_out);
+            }
+            else if (!force)
+            {
+                return false;
+            }
+        }
+        writeHeaders(true);
+        return true;
+    }
+
+    /**
+     * @return the stream receiving content once the headers are written.
+     */
+    private OutputStream getContentStream()
+    {
+        if (m_chunkedOutput != null)
+        {
+            return m_chunkedOutput;
+        }
+        return m_out;
+    }
+
+    /**
+     * Finish the response after the servlet has returned: send anything
+     * still buffered and terminate chunked content.
+     * @throws IOException on I/O error
+     */
+    public synchronized void complete() throws IOException
+    {
+        if (m_getOutputStreamCalled)
+        {
+            m_servletOutputStream.flush();
+        }
+        else if (m_getWriterCalled)
+        {
+            m_printWriter.flush();
+        }
+
+        if (!m_headersWritten)
+        {
+            // Everything fits in the buffer, so send it with its length.
+            writeHeaders(true);
+        }
+
+        if (m_buffer != null)
+        {
+            m_buffer.writeTo(getContentStream());
+        }
+        if (m_chunkedOutput != null)
+        {
+            m_chunkedOutput.finish();
+        }
+        m_out.flush();
+    }
+
     /**
      * Copy the contents of the input to the output stream, then close the input stream.
      * @param inputStream input stream
@@ -136,6 +240,24 @@ public class HttpServletResponseImpl implements HttpServletResponse
     {
         InputStream bufferedInput = new BufferedInputStream(inputStream);
 
+        if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH)
+            && !m_headersWritten && m_chunkingAllowed)
+        {
+            // Stream content of unknown length rather than buffering it.
+            try
+            {
+                commit(true);
+                copy(bufferedInput, m_chunkedOutput);
+                m_chunkedOutput.finish();
+                m_out.flush();
+            }
+            finally
+            {
+                bufferedInput.close();
+            }
+            return;
+        }
+
         if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH))
         {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -166,6 +288,54 @@ public class HttpServletResponseImpl implements HttpServletResponse
         }
     }
 
+    /**
+     * Copy the contents of a file to the output stream.  The file is
+     * transferred directly to the client socket channel when there is one.
+     * @param file file
+     * @param close if connection should be closed
+     * @throws IOException on I/O error
+     */
+    public void writeToOutputStream(final File file, final boolean close)
+        throws IOException
+    {
+        FileInputStream input = new FileInputStream(file);
+        long length = file.length();
+
+        // Without a socket channel (blocking mode, possibly on Java 1.3)
+        // the file is copied through the output stream.
+        if ((m_channel == null) || m_headersWritten || (length > Integer.MAX_VALUE))
+        {
+            if (length <= Integer.MAX_VALUE)
+            {
+                setContentLength((int) length);
+            }
+            writeToOutputStream(input, close);
+            return;
+        }
+
+        try
+        {
+            setContentLength((int) length);
+            // Also flushes the headers ahead of the content.
+            writeHeaders(close);
+
+            FileChannel fileChannel = input.getChannel();
+            for (long position = 0; position < length;)
+            {
+                long count = fileChannel.transferTo(position, length - position, m_channel);
+                if (count <= 0)
+                {
+                    throw new IOException("File truncated while sending it: " + file);
+                }
+                position += count;
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
     /**
      * Copy an input stream to an output stream.
      * 
@@ -176,11 +346,17 @@ public class HttpServletResponseImpl implements HttpServletResponse
     public static void copy(final InputStream input, final OutputStream output)
         throws IOException
     {
-
-        byte[] buf = new byte[COPY_BUFFER_SIZE];
-        for (int len = input.read(buf); len >= 0; len = input.read(buf))
+        byte[] buf = BufferPool.acquire();
+        try
         {
-            output.write(buf, 0, len);
+            for (int len = input.read(buf); len >= 0; len = input.read(buf))
+            {
+                output.write(buf, 0, len);
+            }
+        }
+        finally
+        {
+            BufferPool.release(buf);
         }
     }
 
@@ -266,17 +442,14 @@ public class HttpServletResponseImpl implements HttpServletResponse
             m_printWriter.flush();
         }
 
-        if (!m_headersWritten)
-        {
-            writeHeaders(true);
-        }
+        commit(true);
 
         if (m_buffer != null)
         {
-            byte[] content = m_buffer.toByteArray();
-            copy(new ByteArrayInputStream(content), m_out);
-            m_out.flush();
+            m_buffer.writeTo(getContentStream());
         }
+        // Also sends content held by the chunked stream.
+        getContentStream().flush();
     }
 
     /* (non-Javadoc)
@@ -336,7 +509,7 @@ public class HttpServletResponseImpl implements HttpServletResponse
 
         if (m_servletOutputStream == null)
         {
-            m_buffer = new ByteArrayOutputStream(m_bufferSize);
+            m_buffer = new ResponseBuffer();
             m_servletOutputStream = new ServletOutputStreamImpl(m_buffer);
         }
         return m_servletOutputStream;
@@ -355,7 +528,7 @@ public class HttpServletResponseImpl implements HttpServletResponse
 
         if (m_printWriter == null)
         {
-            m_buffer = new ByteArrayOutputStream(m_bufferSize);
+            m_buffer = new ResponseBuffer();
             m_printWriter = new PrintWriter(m_buffer);
         }
 
@@ -379,7 +552,10 @@ public class HttpServletResponseImpl implements HttpServletResponse
         {
             throw new IllegalStateException("Response has already been committed.");
         }
-        m_buffer.reset();
+        if (m_buffer != null)
+        {
+            m_buffer.reset();
+        }
         m_printWriter = null;
         m_servletOutputStream = null;
         m_getOutputStreamCalled = false;
@@ -399,7 +575,10 @@ public class HttpServletResponseImpl implements HttpServletResponse
             throw new IllegalStateException("Response has already been committed.");
         }
 
-        m_buffer.reset();
+        if (m_buffer != null)
+        {
+            m_buffer.reset();
+        }
         m_printWriter = null;
         m_servletOutputStream = null;
         m_getOutputStreamCalled = false;
@@ -785,4 +964,80 @@ public class HttpServletResponseImpl implements HttpServletResponse
         sb.append(value);
         sb.append(HttpConstants.HEADER_DELEMITER);
     }
-}
\ No newline at end of file
+
+    /**
+     * Holds servlet output until either the servlet completes or the
+     * configured buffer size is exceeded.  Once exceeded, the response is
+     * committed and content is written through to the client as it arrives,
+     * so large responses are not held in memory.  Without a content length
+     * this requires chunked encoding; for HTTP/1.0 clients the content is
+     * buffered in full as before.
+     */
+    private class ResponseBuffer extends OutputStream
+    {
+        private final ByteArrayOutputStream m_bytes = new ByteArrayOutputStream(
+            Math.min(m_bufferSize, COPY_BUFFER_SIZE));
+        private OutputStream m_target;
+
+        /* (non-Javadoc)
+         * @see java.io.OutputStream#write(int)
+         */
+        public void write(final int b) throws IOException
+        {
+            if (m_target != null)
+            {
+                m_target.write(b);
+                return;
+            }
+            m_bytes.write(b);
+            overflow();
+        }
+
+        /* (non-Javadoc)
+         * @see java.io.OutputStream#write(byte[], int, int)
+         */
+        public void write(final byte[] b, final int off, final int len) throws IOException
+        {
+            if (m_target != null)
+            {
+                m_target.write(b, off, len);
+                return;
+            }
+            m_bytes.write(b, off, len);
+            overflow();
+        }
+
+        private void overflow() throws IOException
+        {
+            if (m_bytes.size() > m_bufferSize && commit(false))
+            {
+                writeTo(getContentStream());
+            }
+        }
+
+        /**
+         * Send the buffered content and route further writes to the target.
+         * @param target the stream receiving the content.
+         * @throws IOException on I/O error
+         */
+        void writeTo(final OutputStream target) throws IOException
+        {
+            m_target = target;
+            if (m_bytes.size() > 0)
+            {
+                m_bytes.writeTo(target);
+                m_bytes.reset();
+            }
+        }
+
+        int size()
+        {
+            return m_bytes.size();
+        }
+
+        void reset()
+        {
+            m_bytes.reset();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.osgi.test.cases;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Arrays;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.felix.httplite.osgi.test.AbstractHttpliteTestCase;
+import org.apache.felix.httplite.osgi.test.BasicTestingServlet;
+import org.apache.felix.httplite.server.Server;
+import org.osgi.service.http.HttpContext;
+import org.osgi.service.http.HttpService;
+import org.osgi.service.http.NamespaceException;
+
+
+/**
+ * Tests for the NIO connection mode.
+ *
+ */
+public class TestNIOConnections extends AbstractHttpliteTestCase
+{
+
+    protected void setUp() throws Exception
+    {
+        System.setProperty( Server.CONFIG_PROPERTY_NIO_ENABLE, "true" );
+        super.setUp();
+    }
+
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+        System.getProperties().remove( Server.CONFIG_PROPERTY_NIO_ENABLE );
+    }
+
+
+    public void testRequests() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+
+        BasicTestingServlet testServlet = new BasicTestingServlet();
+        httpService.registerServlet( "/test", testServlet, null, null );
+
+        for ( int i = 0; i < 5; ++i )
+        {
+            HttpURLConnection client = getConnection( DEFAULT_BASE_URL + "/test/a", "GET" );
+
+            client.connect();
+            assertTrue( client.getResponseCode() == 200 );
+            assertTrue( testServlet.getPathInfo().equals( "/a" ) );
+            client.disconnect();
+        }
+    }
+
+
+    public void testIdleConnectionsDoNotBlockRequests() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+
+        BasicTestingServlet testServlet = new BasicTestingServlet();
+        httpService.registerServlet( "/test", testServlet, null, null );
+
+        // Open more idle connections than there are pool threads.
+        Socket[] idle = new Socket[20];
+        try
+        {
+            for ( int i = 0; i < idle.length; ++i )
+            {
+                idle[i] = new Socket( "localhost", DEFAULT_PORT );
+            }
+
+            HttpURLConnection client = getConnection( DEFAULT_BASE_URL + "/test/b", "GET" );
+            client.setReadTimeout( 5000 );
+
+            client.connect();
+            assertTrue( client.getResponseCode() == 200 );
+            assertTrue( testServlet.getPathInfo().equals( "/b" ) );
+
+            // An idle connection is still served once it sends a request.
+            OutputStream os = idle[0].getOutputStream();
+            os.write( "GET /test/c HTTP/1.0\r\n\r\n".getBytes( "US-ASCII" ) );
+            os.flush();
+            String response = readInputAsString( idle[0].getInputStream() );
+            assertTrue( response.startsWith( "HTTP/1.0 200" ) || response.startsWith( "HTTP/1.1 200" ) );
+        }
+        finally
+        {
+            for ( int i = 0; i < idle.length; ++i )
+            {
+                if ( idle[i] != null )
+                {
+                    idle[i].close();
+                }
+            }
+        }
+    }
+
+
+    public void testKeepAliveConnectionsDoNotBlockRequests() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+
+        BasicTestingServlet testServlet = new BasicTestingServlet();
+        httpService.registerServlet( "/test", testServlet, null, null );
+
+        // Keep more connections open after a request than there are pool threads.
+        Socket[] idle = new Socket[20];
+        try
+        {
+            for ( int i = 0; i < idle.length; ++i )
+            {
+                idle[i] = new Socket( "localhost", DEFAULT_PORT );
+                idle[i].setSoTimeout( 5000 );
+                // A request without host is rejected without closing the connection.
+                OutputStream os = idle[i].getOutputStream();
+                os.write( "GET /test/a HTTP/1.1\r\n\r\n".getBytes( "US-ASCII" ) );
+                os.flush();
+                readUntil( idle[i].getInputStream(), "HTTP Error 400" );
+            }
+
+            HttpURLConnection client = getConnection( DEFAULT_BASE_URL + "/test/b", "GET" );
+            client.setReadTimeout( 5000 );
+
+            client.connect();
+            assertTrue( client.getResponseCode() == 200 );
+            assertTrue( testServlet.getPathInfo().equals( "/b" ) );
+
+            // A kept alive connection is still served once it sends its next request.
+            OutputStream os = idle[0].getOutputStream();
+            os.write( "GET /test/c HTTP/1.0\r\n\r\n".getBytes( "US-ASCII" ) );
+            os.flush();
+            String response = readInputAsString( idle[0].getInputStream() );
+            assertTrue( response.indexOf( " 200" ) >= 0 );
+            assertTrue( testServlet.getPathInfo().equals( "/c" ) );
+        }
+        finally
+        {
+            for ( int i = 0; i < idle.length; ++i )
+            {
+                if ( idle[i] != null )
+                {
+                    idle[i].close();
+                }
+            }
+        }
+    }
+
+
+    public void testFileResource() throws NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+
+        byte[] content = new byte[100000];
+        for ( int i = 0; i < content.length; ++i )
+        {
+            content[i] = ( byte ) i;
+        }
+        final File file = File.createTempFile( "httplite", ".bin" );
+        try
+        {
+            FileOutputStream fos = new FileOutputStream( file );
+            fos.write( content );
+            fos.close();
+
+            // Resources with file URLs are transferred from the file channel.
+            httpService.registerResources( "/files", "/", new HttpContext()
+            {
+                public boolean handleSecurity( HttpServletRequest request, HttpServletResponse response )
+                {
+                    return true;
+                }
+
+
+                public URL getResource( String name )
+                {
+                    try
+                    {
+                        return file.toURL();
+                    }
+                    catch ( MalformedURLException e )
+                    {
+                        return null;
+                    }
+                }
+
+
+                public String getMimeType( String name )
+                {
+                    return "application/octet-stream";
+                }
+            } );
+
+            HttpURLConnection client = getConnection( DEFAULT_BASE_URL + "/files/content.bin", "GET" );
+            client.connect();
+
+            assertTrue( client.getResponseCode() == 200 );
+            assertEquals( content.length, client.getContentLength() );
+            assertTrue( Arrays.equals( content, readInputAsByteArray( client.getInputStream() ) ) );
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+
+    private static void readUntil( InputStream in, String text ) throws IOException
+    {
+        StringBuffer sb = new StringBuffer();
+        while ( sb.toString().indexOf( text ) < 0 )
+        {
+            int b = in.read();
+            if ( b == -1 )
+            {
+                fail( "Connection closed before " + text );
+            }
+            sb.append( ( char ) b );
+        }
+    }
+}
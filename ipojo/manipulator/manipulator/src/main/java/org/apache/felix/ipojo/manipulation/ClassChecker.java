@@ -123,6 +123,7 @@ public class ClassChecker extends ClassVisitor implements Opcodes {
 
     private boolean isManipulatedField(String name) {
         return ((ClassManipulator.IM_FIELD.equals(name))
+                || (ClassManipulator.METHOD_OFFSET_FIELD.equals(name))
                 || (name.startsWith(ClassManipulator.FIELD_FLAG_PREFIX))
                 || (name.startsWith(ClassManipulator.METHOD_FLAG_PREFIX)));
     }
@@ -43,6 +43,18 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
      */
     public static final  String IM_FIELD = "__IM";
 
+    /**
+     * Method index offset field, added to the method indexes to get the
+     * method slots of the instance manager.
+     */
+    public static final  String METHOD_OFFSET_FIELD = "__IMO";
+
+    /**
+     * Static field holding the method ids registered on the instance manager,
+     * so that all the objects of the class register the same array.
+     */
+    public static final  String METHOD_IDS_FIELD = "__IMIDS";
+
     /**
      * All POJO method will be renamed by using this prefix.
      */
@@ -130,6 +142,12 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
      */
     private boolean m_foundSuitableConstructor = false;
 
+    /**
+     * The descriptors of the constructors taking the instance manager as first argument.
+     * Those constructors are invoked by the instantiator generated for the class.
+     */
+    private List<String> m_constructors = new ArrayList<String>();
+
     /**
      * Name of the super class.
      */
@@ -206,9 +224,10 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
                 m_foundSuitableConstructor = true;
             }
 
-            // Insert the new constructor
-            MethodVisitor mv = super.visitMethod(ACC_PRIVATE, "<init>", newDesc, signature, exceptions);
-            return new ConstructorCodeAdapter(mv, m_owner, m_fields, ACC_PRIVATE, name, newDesc, m_superclass);
+            // Insert the new constructor, package-private so the instantiator can invoke it
+            m_constructors.add(newDesc);
+            MethodVisitor mv = super.visitMethod(0, "<init>", newDesc, signature, exceptions);
+            return new ConstructorCodeAdapter(mv, m_owner, m_fields, 0, name, newDesc, m_superclass);
         }
 
         if ((access & ACC_SYNTHETIC) == ACC_SYNTHETIC && name.startsWith("access$")) {
@@ -435,10 +454,10 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
         mv.visitVarInsn(ALOAD, 0);
         mv.visitFieldInsn(GETFIELD, m_owner, IM_FIELD, "Lorg/apache/felix/ipojo/InstanceManager;");
         mv.visitVarInsn(ALOAD, 0);
-        mv.visitLdcInsn(generateMethodId(name, desc));
+        loadMethodIndex(mv, name, desc);
         mv.loadArgArray();
         mv.visitMethodInsn(INVOKEVIRTUAL, "org/apache/felix/ipojo/InstanceManager", ENTRY,
-                "(Ljava/lang/Object;Ljava/lang/String;[Ljava/lang/Object;)V", false);
+                "(Ljava/lang/Object;I[Ljava/lang/Object;)V", false);
 
         mv.visitVarInsn(ALOAD, 0);
 
@@ -453,7 +472,7 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
         mv.visitVarInsn(ALOAD, 0);
         mv.visitFieldInsn(GETFIELD, m_owner, IM_FIELD, "Lorg/apache/felix/ipojo/InstanceManager;");
         mv.visitVarInsn(ALOAD, 0);
-        mv.visitLdcInsn(generateMethodId(name, desc));
+        loadMethodIndex(mv, name, desc);
         if (returnType.getSort() != Type.VOID) {
             mv.visitVarInsn(returnType.getOpcode(ILOAD), result);
             mv.box(returnType);
@@ -461,7 +480,7 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
             mv.visitInsn(ACONST_NULL);
         }
         mv.visitMethodInsn(INVOKEVIRTUAL, "org/apache/felix/ipojo/InstanceManager", EXIT,
-                "(Ljava/lang/Object;Ljava/lang/String;Ljava/lang/Object;)V", false);
+                "(Ljava/lang/Object;ILjava/lang/Object;)V", false);
 
         mv.visitLabel(l1);
         Label l7 = new Label();
@@ -472,10 +491,10 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
         mv.visitVarInsn(ALOAD, 0);
         mv.visitFieldInsn(GETFIELD, m_owner, IM_FIELD, "Lorg/apache/felix/ipojo/InstanceManager;");
         mv.visitVarInsn(ALOAD, 0);
-        mv.visitLdcInsn(generateMethodId(name, desc));
+        loadMethodIndex(mv, name, desc);
         mv.visitVarInsn(ALOAD, exception);
         mv.visitMethodInsn(INVOKEVIRTUAL, "org/apache/felix/ipojo/InstanceManager", ERROR,
-                "(Ljava/lang/Object;Ljava/lang/String;Ljava/lang/Throwable;)V", false);
+                "(Ljava/lang/Object;ILjava/lang/Throwable;)V", false);
         mv.visitVarInsn(ALOAD, exception);
         mv.visitInsn(ATHROW);
 
@@ -520,6 +539,38 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
         mv.visitEnd();
     }
 
+    /**
+     * Loads the index of the method slot of the given method: the method index offset
+     * assigned by the instance manager plus the index of the method id in the class.
+     * @param mv : the method visitor.
+     * @param name : method name.
+     * @param desc : method descriptor.
+     */
+    private void loadMethodIndex(MethodVisitor mv, String name, String desc) {
+        int index = m_methods.indexOf(generateMethodId(name, desc));
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, m_owner, METHOD_OFFSET_FIELD, "I");
+        push(mv, index);
+        mv.visitInsn(IADD);
+    }
+
+    /**
+     * Pushes the given int value on the stack.
+     * @param mv : the method visitor.
+     * @param value : the value.
+     */
+    private static void push(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
     /**
      * Generate a method flag name.
      * @param name : method name.
@@ -594,11 +645,25 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
     }
 
     /**
-     * Add the instance manager field (__im).
+     * Gets the descriptors of the constructors taking the instance manager as first argument.
+     * This list is complete once the class has been visited.
+     * @return the constructor descriptors.
+     */
+    public List<String> getConstructors() {
+        return m_constructors;
+    }
+
+    /**
+     * Add the instance manager field (__im), the method index offset field (__IMO)
+     * and the method ids field (__IMIDS).
      */
     private void addIMField() {
         FieldVisitor fv = super.visitField(0, IM_FIELD, "Lorg/apache/felix/ipojo/InstanceManager;", null, null);
         fv.visitEnd();
+        fv = super.visitField(0, METHOD_OFFSET_FIELD, "I", null, null);
+        fv.visitEnd();
+        fv = super.visitField(ACC_PRIVATE | ACC_STATIC, METHOD_IDS_FIELD, "[Ljava/lang/String;", null, null);
+        fv.visitEnd();
     }
 
     /**
@@ -679,6 +744,7 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
      * the visit.
      */
     private void createSimpleConstructor() {
+        m_constructors.add("(Lorg/apache/felix/ipojo/InstanceManager;)V");
         MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "<init>",
                 "(Lorg/apache/felix/ipojo/InstanceManager;)V", null, null);
         mv.visitCode();
@@ -748,6 +814,30 @@ public class ClassManipulator extends ClassVisitor implements Opcodes {
         Label endif2 = new Label();
         mv.visitJumpInsn(IFNULL, endif2);
 
+        // Register the method ids, the instance manager assigns the method index offset
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, m_owner, IM_FIELD, "Lorg/apache/felix/ipojo/InstanceManager;");
+        mv.visitFieldInsn(GETSTATIC, m_owner, METHOD_IDS_FIELD, "[Ljava/lang/String;");
+        mv.visitInsn(DUP);
+        Label ids = new Label();
+        mv.visitJumpInsn(IFNONNULL, ids);
+        mv.visitInsn(POP);
+        push(mv, m_methods.size());
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+        for (int i = 0; i < m_methods.size(); i++) {
+            mv.visitInsn(DUP);
+            push(mv, i);
+            mv.visitLdcInsn(m_methods.get(i));
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitInsn(DUP);
+        mv.visitFieldInsn(PUTSTATIC, m_owner, METHOD_IDS_FIELD, "[Ljava/lang/String;");
+        mv.visitLabel(ids);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "org/apache/felix/ipojo/InstanceManager", "registerMethodIds",
+                "([Ljava/lang/String;)I", false);
+        mv.visitFieldInsn(PUTFIELD, m_owner, METHOD_OFFSET_FIELD, "I");
+
         for (String methodId : m_methods) {
             if (!methodId.equals("<init>")) {
                 mv.visitVarInsn(ALOAD, 2);
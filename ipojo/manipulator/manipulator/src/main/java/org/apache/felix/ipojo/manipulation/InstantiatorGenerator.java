@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.felix.ipojo.manipulation;
+
+import java.util.List;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+/**
+ * Generates the instantiator of a manipulated class.
+ * The instantiator implements <code>org.apache.felix.ipojo.PojoInstantiator</code> and invokes
+ * the constructors taking the instance manager directly, so the instance manager does not
+ * need reflection to create POJO objects.
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class InstantiatorGenerator implements Opcodes {
+
+    /**
+     * The suffix appended to the manipulated class name to get the instantiator name.
+     */
+    public static final String SUFFIX = "$$Instantiator";
+
+    /**
+     * The instantiator interface.
+     */
+    private static final String INSTANTIATOR = "org/apache/felix/ipojo/PojoInstantiator";
+
+    /**
+     * Gets the internal name of the instantiator of the given class.
+     * @param owner the internal name of the manipulated class
+     * @return the internal name of the instantiator
+     */
+    public static String getInstantiatorName(String owner) {
+        return owner + SUFFIX;
+    }
+
+    /**
+     * Generates the instantiator of the given class.
+     * @param owner the internal name of the manipulated class
+     * @param constructors the descriptors of the constructors taking the instance manager as first argument
+     * @return the instantiator bytecode
+     */
+    public static byte[] generate(String owner, List<String> constructors) {
+        String name = getInstantiatorName(owner);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name, null, "java/lang/Object",
+                new String[] {INSTANTIATOR});
+
+        // Default constructor
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // Class getPojoClass()
+        mv = cw.visitMethod(ACC_PUBLIC, "getPojoClass", "()Ljava/lang/Class;", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(Type.getObjectType(owner));
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // String[] getConstructorDescriptors()
+        Method method = Method.getMethod("String[] getConstructorDescriptors()");
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        ga.push(constructors.size());
+        ga.newArray(Type.getType(String.class));
+        for (int i = 0; i < constructors.size(); i++) {
+            ga.dup();
+            ga.push(i);
+            ga.push(constructors.get(i));
+            ga.arrayStore(Type.getType(String.class));
+        }
+        ga.returnValue();
+        ga.endMethod();
+
+        // Object newInstance(int, Object[])
+        method = Method.getMethod("Object newInstance(int, Object[])");
+        ga = new GeneratorAdapter(ACC_PUBLIC, method, null, null, cw);
+        Type type = Type.getObjectType(owner);
+        Label[] labels = new Label[constructors.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = ga.newLabel();
+        }
+        Label unknown = ga.newLabel();
+        ga.loadArg(0);
+        ga.visitTableSwitchInsn(0, labels.length - 1, unknown, labels);
+        for (int i = 0; i < labels.length; i++) {
+            ga.mark(labels[i]);
+            ga.newInstance(type);
+            ga.dup();
+            Type[] args = Type.getArgumentTypes(constructors.get(i));
+            for (int j = 0; j < args.length; j++) {
+                ga.loadArg(1);
+                ga.push(j);
+                ga.arrayLoad(Type.getType(Object.class));
+                ga.unbox(args[j]);
+            }
+            ga.invokeConstructor(type, new Method("<init>", constructors.get(i)));
+            ga.returnValue();
+        }
+        ga.mark(unknown);
+        ga.throwException(Type.getType(IllegalArgumentException.class), "Unknown constructor index");
+        ga.endMethod();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+}
@@ -81,6 +81,12 @@ public class Manipulator {
      */
     private String m_className;
 
+    /**
+     * The instantiator generated for the manipulated class,
+     * <code>null</code> if the class was not manipulated.
+     */
+    private byte[] m_instantiator;
+
     public Manipulator(ClassLoader loader) {
         // No classloader set, use current one.
         m_classLoader = loader;
@@ -137,12 +143,30 @@ public class Manipulator {
                 reader.accept(process, 0);
             }
             is2.close();
+            m_instantiator = InstantiatorGenerator.generate(m_className, process.getConstructors());
             return writer.toByteArray();
         } else {
             return origin;
         }
     }
 
+    /**
+     * Gets the instantiator generated for the class by the last {@link Manipulator#manipulate(byte[])} call.
+     * The instantiator lets the instance manager invoke the constructors without reflection.
+     * @return the instantiator bytecode, <code>null</code> if the class was already manipulated.
+     */
+    public byte[] getInstantiator() {
+        return m_instantiator;
+    }
+
+    /**
+     * Gets the resource path of the instantiator generated for the class.
+     * @return the instantiator resource path.
+     */
+    public String getInstantiatorResourcePath() {
+        return InstantiatorGenerator.getInstantiatorName(m_className) + ".class";
+    }
+
     /**
      * Checks whether the class was already manipulated.
      * @return {@code true} if the class was already manipulated, {@code false} otherwise
@@ -142,6 +142,11 @@ public class ManipulationEngine {
                     byte[] out = manipulator.manipulate(bytecode);
                     // Call the visitor
                     result.visitManipulatedResource(info.getResourcePath(), out);
+                    // Add the instantiator invoking the constructors without reflection
+                    if (manipulator.getInstantiator() != null) {
+                        result.visitManipulatedResource(manipulator.getInstantiatorResourcePath(),
+                                manipulator.getInstantiator());
+                    }
                 } catch (IOException e) {
                     m_reporter.error("Cannot manipulate the class " + info.getClassName() + " : " + e.getMessage());
                     return;
@@ -29,8 +29,10 @@ import org.apache.felix.ipojo.metadata.Element;
 import java.io.*;
 import java.net.URL;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -191,6 +193,7 @@ public class JarFileResourceStore implements ResourceStore {
 
         try {
             // Copy classes and resources
+            Set<String> written = new HashSet<String>();
             List<JarEntry> entries = Collections.list(m_source.entries());
             for (JarEntry entry : entries) {
 
@@ -204,6 +207,7 @@ public class JarFileResourceStore implements ResourceStore {
 
                     JarEntry je = new JarEntry(entry.getName());
                     byte[] data = m_content.get(getInternalPath(entry.getName()));
+                    written.add(getInternalPath(entry.getName()));
                     jos.putNextEntry(je);
                     jos.write(data);
                     jos.closeEntry();
@@ -222,6 +226,15 @@ public class JarFileResourceStore implements ResourceStore {
 
                 }
             }
+
+            // Write the generated classes (instantiators, ...)
+            for (Map.Entry<String, byte[]> entry : m_content.entrySet()) {
+                if (!written.contains(entry.getKey())) {
+                    jos.putNextEntry(new JarEntry(entry.getKey()));
+                    jos.write(entry.getValue());
+                    jos.closeEntry();
+                }
+            }
         } finally {
             try {
                 m_source.close();
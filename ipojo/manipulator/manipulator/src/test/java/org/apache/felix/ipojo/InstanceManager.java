@@ -48,4 +48,20 @@ public class InstanceManager {
 
     }
 
+    public int registerMethodIds(String[] methodIds) {
+        return 0;
+    }
+
+    public void onEntry(Object pojo, int methodIndex, Object[] args) {
+
+    }
+
+    public void onExit(Object pojo, int methodIndex, Object result) {
+
+    }
+
+    public void onError(Object pojo, int methodIndex, Throwable error) {
+
+    }
+
 }
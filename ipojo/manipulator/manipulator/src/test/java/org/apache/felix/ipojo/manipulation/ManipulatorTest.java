@@ -24,13 +24,16 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
 import org.apache.felix.ipojo.InstanceManager;
 import org.apache.felix.ipojo.Pojo;
+import org.apache.felix.ipojo.PojoInstantiator;
 import org.junit.Ignore;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.util.CheckClassAdapter;
@@ -431,6 +434,63 @@ public class ManipulatorTest extends TestCase {
     }
 
 
+    public void testInstantiator() throws Exception {
+        Manipulator manipulator = new Manipulator(this.getClass().getClassLoader());
+        byte[] origin = getBytesFromFile(new File("target/test-classes/test/SimplePojo.class"));
+        manipulator.prepare(origin);
+        byte[] clazz = manipulator.manipulate(origin);
+        byte[] instantiator = manipulator.getInstantiator();
+        Assert.assertNotNull(instantiator);
+        Assert.assertEquals("test/SimplePojo$$Instantiator.class", manipulator.getInstantiatorResourcePath());
+
+        ManipulatedClassLoader classloader = new ManipulatedClassLoader("test.SimplePojo", clazz);
+        classloader.addInnerClass("test.SimplePojo$$Instantiator", instantiator);
+        Class cl = classloader.findClass("test.SimplePojo");
+
+        PojoInstantiator factory = (PojoInstantiator)
+                classloader.loadClass("test.SimplePojo$$Instantiator").newInstance();
+        Assert.assertSame(cl, factory.getPojoClass());
+        Assert.assertEquals(Arrays.asList("(Lorg/apache/felix/ipojo/InstanceManager;)V"),
+                Arrays.asList(factory.getConstructorDescriptors()));
+
+        InstanceManager im = new InstanceManager();
+        Object pojo = factory.newInstance(0, new Object[] {im});
+        Assert.assertSame(cl, pojo.getClass());
+        Assert.assertTrue(((Boolean) cl.getMethod("doSomething").invoke(pojo)).booleanValue());
+
+        try {
+            factory.newInstance(1, new Object[] {im});
+            Assert.fail("Unknown constructor index accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testMethodIndexes() throws Exception {
+        Manipulator manipulator = new Manipulator(this.getClass().getClassLoader());
+        byte[] origin = getBytesFromFile(new File("target/test-classes/test/SimplePojo.class"));
+        manipulator.prepare(origin);
+        byte[] clazz = manipulator.manipulate(origin);
+        ManipulatedClassLoader classloader = new ManipulatedClassLoader("test.SimplePojo", clazz);
+        Class cl = classloader.findClass("test.SimplePojo");
+
+        InstanceManager im = Mockito.mock(InstanceManager.class);
+        Mockito.when(im.getRegistredMethods()).thenReturn(Collections.singleton("doSomething"));
+        Mockito.when(im.registerMethodIds(Mockito.any(String[].class))).thenReturn(3);
+
+        Constructor cst = cl.getDeclaredConstructor(InstanceManager.class);
+        cst.setAccessible(true);
+        Object pojo = cst.newInstance(im);
+        ArgumentCaptor<String[]> ids = ArgumentCaptor.forClass(String[].class);
+        Mockito.verify(im).registerMethodIds(ids.capture());
+        int index = Arrays.asList(ids.getValue()).indexOf("doSomething");
+        Assert.assertTrue(index >= 0);
+
+        cl.getMethod("doSomething").invoke(pojo);
+        Mockito.verify(im).onEntry(pojo, 3 + index, new Object[0]);
+        Mockito.verify(im).onExit(pojo, 3 + index, Boolean.TRUE);
+    }
+
 
     public static byte[] getBytesFromFile(File file) throws IOException {
         InputStream is = new FileInputStream(file);
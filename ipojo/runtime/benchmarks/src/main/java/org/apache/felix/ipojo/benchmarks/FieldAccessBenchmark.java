@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo.benchmarks;
+
+import org.apache.felix.ipojo.FieldInterceptor;
+import org.apache.felix.ipojo.InstanceManager;
+import org.apache.felix.ipojo.parser.FieldMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reading of an intercepted field of a manipulated component,
+ * as done when a component uses an injected service dependency, compared
+ * to the same read on the original class.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessBenchmark {
+
+    private Accessor m_plain;
+    private Accessor m_manipulated;
+
+    @Setup
+    public void setUp() throws Exception {
+        m_plain = new FieldComponent();
+
+        ClassLoader loader = new ManipulatingClassLoader(getClass().getClassLoader(), FieldComponent.class.getName());
+        InstanceManager manager = Instances.create(loader.loadClass(FieldComponent.class.getName()));
+        final Object service = new Object();
+        manager.register(new FieldMetadata("m_service", Object.class.getName()), new FieldInterceptor() {
+            public void onSet(Object pojo, String fieldName, Object value) {
+                // Nothing to do.
+            }
+
+            public Object onGet(Object pojo, String fieldName, Object value) {
+                return service;
+            }
+        });
+        m_manipulated = (Accessor) manager.getPojoObject();
+        if (m_manipulated.get() != service) {
+            throw new IllegalStateException("The field access is not intercepted");
+        }
+    }
+
+    @Benchmark
+    public Object plain() {
+        return m_plain.get();
+    }
+
+    @Benchmark
+    public Object intercepted() {
+        return m_manipulated.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object interceptedConcurrently() {
+        return m_manipulated.get();
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo.benchmarks;
+
+import org.apache.felix.ipojo.ComponentFactory;
+import org.apache.felix.ipojo.HandlerManager;
+import org.apache.felix.ipojo.InstanceManager;
+import org.osgi.framework.Bundle;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+
+import java.util.Hashtable;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Creates instance managers outside of an OSGi framework.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public final class Instances {
+
+    private Instances() {
+        // Utility class.
+    }
+
+    /**
+     * Creates an instance manager of the given manipulated class, without handlers.
+     * Interceptors are to be registered on the returned manager.
+     *
+     * @param clazz the manipulated class
+     * @return the instance manager
+     */
+    public static InstanceManager create(final Class<?> clazz) throws ClassNotFoundException {
+        ComponentFactory factory = mock(ComponentFactory.class);
+        when(factory.getClassName()).thenReturn(clazz.getName());
+        // The class name is only known once configured, which requires the factory metadata.
+        when(factory.loadClass(anyString())).thenAnswer(new Answer<Class>() {
+            public Class answer(InvocationOnMock invocation) throws ClassNotFoundException {
+                String name = (String) invocation.getArguments()[0];
+                if (name == null || name.equals(clazz.getName())) {
+                    return clazz;
+                }
+                return clazz.getClassLoader().loadClass(name);
+            }
+        });
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundle()).thenReturn(bundle);
+        InstanceManager manager = new InstanceManager(factory, context, new HandlerManager[0]);
+        return manager;
+    }
+
+}
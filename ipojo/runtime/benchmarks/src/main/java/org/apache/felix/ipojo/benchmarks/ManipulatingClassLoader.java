@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo.benchmarks;
+
+import org.apache.felix.ipojo.manipulation.InstantiatorGenerator;
+import org.apache.felix.ipojo.manipulation.Manipulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class loader defining manipulated versions of the given classes and
+ * their instantiators, as the iPOJO maven plugin would produce them, and
+ * delegating the other classes to its parent.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class ManipulatingClassLoader extends ClassLoader {
+
+    private final String[] m_classes;
+    private final Map<String, byte[]> m_instantiators = new HashMap<String, byte[]>();
+
+    public ManipulatingClassLoader(ClassLoader parent, String... classes) {
+        super(parent);
+        m_classes = classes;
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        for (String manipulated : m_classes) {
+            if (manipulated.equals(name)) {
+                Class<?> clazz = findLoadedClass(name);
+                if (clazz == null) {
+                    clazz = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(clazz);
+                }
+                return clazz;
+            }
+            if ((manipulated + InstantiatorGenerator.SUFFIX).equals(name)) {
+                // The instantiator is generated along with the manipulated class
+                loadClass(manipulated, false);
+                Class<?> clazz = findLoadedClass(name);
+                if (clazz == null) {
+                    byte[] instantiator = m_instantiators.get(name);
+                    clazz = defineClass(name, instantiator, 0, instantiator.length);
+                }
+                return clazz;
+            }
+        }
+        return super.loadClass(name, resolve);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        try {
+            byte[] origin = read(name.replace('.', '/') + ".class");
+            Manipulator manipulator = new Manipulator(getParent());
+            manipulator.prepare(origin);
+            byte[] manipulated = manipulator.manipulate(origin);
+            m_instantiators.put(name + InstantiatorGenerator.SUFFIX, manipulator.getInstantiator());
+            return defineClass(name, manipulated, 0, manipulated.length);
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Cannot manipulate " + name, e);
+        }
+    }
+
+    private byte[] read(String resource) throws IOException {
+        InputStream is = getParent().getResourceAsStream(resource);
+        if (is == null) {
+            throw new IOException("Cannot find " + resource);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo.benchmarks;
+
+import org.apache.felix.ipojo.InstanceManager;
+import org.apache.felix.ipojo.MethodInterceptor;
+import org.apache.felix.ipojo.PojoInstantiator;
+import org.apache.felix.ipojo.metadata.Attribute;
+import org.apache.felix.ipojo.metadata.Element;
+import org.apache.felix.ipojo.parser.MethodMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the call of a monitored method of a manipulated component, and
+ * the creation of the component object using reflection or the generated
+ * instantiator.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodInterceptionBenchmark {
+
+    private Accessor m_plain;
+    private Accessor m_manipulated;
+    private InstanceManager m_manager;
+    private Constructor<?> m_constructor;
+    private PojoInstantiator m_instantiator;
+
+    @Setup
+    public void setUp() throws Exception {
+        m_plain = new MethodComponent();
+
+        ClassLoader loader = new ManipulatingClassLoader(getClass().getClassLoader(), MethodComponent.class.getName());
+        Class<?> clazz = loader.loadClass(MethodComponent.class.getName());
+        m_manager = Instances.create(clazz);
+        Element method = new Element("method", "");
+        method.addAttribute(new Attribute("name", "get"));
+        m_manager.register(new MethodMetadata(method), new MethodInterceptor() {
+            public void onEntry(Object pojo, Member method, Object[] args) {
+                // Nothing to do.
+            }
+
+            public void onExit(Object pojo, Member method, Object returnedObj) {
+                // Nothing to do.
+            }
+
+            public void onError(Object pojo, Member method, Throwable throwable) {
+                // Nothing to do.
+            }
+
+            public void onFinally(Object pojo, Member method) {
+                // Nothing to do.
+            }
+        });
+        m_manipulated = (Accessor) m_manager.getPojoObject();
+
+        m_constructor = clazz.getDeclaredConstructor(InstanceManager.class);
+        m_constructor.setAccessible(true);
+        m_instantiator = (PojoInstantiator) loader.loadClass(clazz.getName() + PojoInstantiator.SUFFIX).newInstance();
+    }
+
+    @Benchmark
+    public Object plain() {
+        return m_plain.get();
+    }
+
+    @Benchmark
+    public Object intercepted() {
+        return m_manipulated.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object interceptedConcurrently() {
+        return m_manipulated.get();
+    }
+
+    @Benchmark
+    public Object reflectiveConstruction() throws Exception {
+        return m_constructor.newInstance(m_manager);
+    }
+
+    @Benchmark
+    public Object generatedConstruction() {
+        return m_instantiator.newInstance(0, new Object[] {m_manager});
+    }
+
+}
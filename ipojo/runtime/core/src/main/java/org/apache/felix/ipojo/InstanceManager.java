@@ -25,10 +25,13 @@ import org.apache.felix.ipojo.parser.FieldMetadata;
 import org.apache.felix.ipojo.parser.MethodMetadata;
 import org.apache.felix.ipojo.util.Logger;
 import org.apache.felix.ipojo.util.Property;
+import org.objectweb.asm.Type;
 import org.osgi.framework.BundleContext;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class defines the container of primitive instances. It manages content initialization
@@ -60,7 +63,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * <li>{@link ComponentInstance#DISPOSED}</li>
      * <li>{@link ComponentInstance#STOPPED}</li>
      */
-    protected int m_state = STOPPED;
+    protected volatile int m_state = STOPPED;
 
     /**
      * The instance state listener list.
@@ -138,10 +141,11 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     private List m_stateQueue = new ArrayList();
 
     /**
-     * The map of [field, value], storing POJO managed
-     * field value.
+     * The map of [field, {@link FieldSlot}], storing POJO managed
+     * field values along with the interceptors monitoring them.
+     * Field accesses only read this map and the slot, without locking.
      */
-    private Map m_fields = new HashMap();
+    private final ConcurrentMap<String, FieldSlot> m_fields = new ConcurrentHashMap<String, FieldSlot>();
 
     /**
      * The Map storing the Method objects by ids.
@@ -149,6 +153,37 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      */
     private Map m_methods =  Collections.synchronizedMap(new HashMap());
 
+    /**
+     * The method slots, indexed by the method indexes used by the manipulated POJO objects.
+     * The array is replaced (never modified) when a POJO class registers its method ids,
+     * so that method interception only costs a volatile read of the array and of the slot.
+     */
+    private volatile MethodSlot[] m_methodSlots = new MethodSlot[0];
+
+    /**
+     * The map of [method id list, index of the first slot in {@link InstanceManager#m_methodSlots}].
+     * This map is also the lock guarding the updates of the method slots.
+     */
+    private final Map<List<String>, Integer> m_methodOffsets = new HashMap<List<String>, Integer>();
+
+    /**
+     * The last registered method id array, the POJO objects of a class registering the same array.
+     */
+    private volatile MethodIds m_lastMethodIds;
+
+    /**
+     * The instantiator generated by the manipulator to invoke the POJO constructors,
+     * <code>null</code> if the class was not manipulated with an instantiator.
+     * Once set, this field doesn't change.
+     */
+    private volatile PojoInstantiator m_instantiator;
+
+    /**
+     * The map of [constructor descriptor, index] of the constructors invoked by {@link InstanceManager#m_instantiator}.
+     * Once set, this map doesn't change.
+     */
+    private Map<String, Integer> m_instantiatorIndexes;
+
     /**
      * The instance's bundle context.
      */
@@ -368,8 +403,9 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     public synchronized Object getFieldValue(String fieldName, Object pojo) {
         Object setByContainer = null;
 
-        if (m_fields != null) {
-            setByContainer = m_fields.get(fieldName);
+        FieldSlot slot = m_fields.get(fieldName);
+        if (slot != null) {
+            setByContainer = slot.m_value;
         }
 
         if (setByContainer == null && pojo != null) { // In the case of no given pojo, return null.
@@ -606,8 +642,8 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @return the actual state of the component instance.
      * @see org.apache.felix.ipojo.ComponentInstance#getState()
      */
-    public synchronized int getState() {
-        return m_state;
+    public int getState() {
+        return m_state; // Volatile field.
     }
 
     /**
@@ -618,8 +654,8 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @return <code>true</code> if the instance is started.
      * @see org.apache.felix.ipojo.ComponentInstance#isStarted()
      */
-    public synchronized boolean isStarted() {
-        return m_state > STOPPED;
+    public boolean isStarted() {
+        return m_state > STOPPED; // Volatile field.
     }
 
     /**
@@ -671,6 +707,64 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
             stop();
             return;
         }
+        loadInstantiator();
+    }
+
+    /**
+     * Loads the instantiator generated by the manipulator for the POJO class.
+     * Classes manipulated without instantiator are created using reflection.
+     */
+    private void loadInstantiator() {
+        try {
+            Class clazz = m_factory.loadClass(m_className + PojoInstantiator.SUFFIX);
+            if (!PojoInstantiator.class.isAssignableFrom(clazz)) {
+                return;
+            }
+            PojoInstantiator instantiator = (PojoInstantiator) clazz.newInstance();
+            // The class may have been defined by the factory classloader.
+            if (instantiator.getPojoClass() != m_clazz) {
+                return;
+            }
+            String[] descriptors = instantiator.getConstructorDescriptors();
+            Map<String, Integer> indexes = new HashMap<String, Integer>();
+            for (int i = 0; i < descriptors.length; i++) {
+                indexes.put(descriptors[i], new Integer(i));
+            }
+            m_instantiatorIndexes = indexes;
+            m_instantiator = instantiator;
+        } catch (ClassNotFoundException e) {
+            // No instantiator, the constructors are invoked using reflection.
+        } catch (Throwable e) {
+            m_logger.log(Logger.WARNING, "[" + m_name + "] Cannot load the instantiator of " + m_className
+                    + ", the constructors are invoked using reflection : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Invokes the given POJO constructor.
+     * The generated instantiator is used when available, reflection otherwise.
+     *
+     * @param cst  the constructor, taking the instance manager as first parameter
+     * @param args the arguments
+     * @return the created object
+     * @throws InstantiationException    if the class is abstract
+     * @throws IllegalAccessException    if the constructor is not accessible
+     * @throws InvocationTargetException if the constructor throws an exception
+     */
+    private Object newInstance(Constructor cst, Object[] args) throws InstantiationException,
+            IllegalAccessException, InvocationTargetException {
+        PojoInstantiator instantiator = m_instantiator;
+        if (instantiator != null) {
+            Integer index = m_instantiatorIndexes.get(Type.getConstructorDescriptor(cst));
+            if (index != null) {
+                try {
+                    return instantiator.newInstance(index.intValue(), args);
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                }
+            }
+        }
+        return cst.newInstance(args);
     }
 
     /**
@@ -737,7 +831,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                     }
                     String methodId = MethodMetadata.computeMethodId(cst);
                     onEntry(null, methodId, values);
-                    instance = cst.newInstance(values);
+                    instance = newInstance(cst, values);
                     onExit(instance, methodId, instance);
                 } else {
                     // Old semantic
@@ -749,7 +843,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                         }
                         Object[] args = new Object[]{this, m_context};
                         onEntry(null, MethodMetadata.BC_CONSTRUCTOR_ID, new Object[]{m_context});
-                        instance = cst.newInstance(args);
+                        instance = newInstance(cst, args);
                         onExit(instance, MethodMetadata.BC_CONSTRUCTOR_ID, instance);
                     } catch (NoSuchMethodException e) {
                         // Create an instance if no instance are already created with <init>()BundleContext
@@ -760,7 +854,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                             }
                             Object[] args = new Object[]{this};
                             onEntry(null, MethodMetadata.EMPTY_CONSTRUCTOR_ID, new Object[0]);
-                            instance = cst.newInstance(args);
+                            instance = newInstance(cst, args);
                             onExit(instance, MethodMetadata.EMPTY_CONSTRUCTOR_ID, instance);
                         }
                     }
@@ -1079,6 +1173,9 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                 m_fieldRegistration.put(field.getFieldName(), newList);
             }
         }
+        // Publish the new interceptor list to the field accesses.
+        getFieldSlot(field.getFieldName()).m_interceptors =
+                (FieldInterceptor[]) m_fieldRegistration.get(field.getFieldName());
     }
 
     /**
@@ -1109,6 +1206,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                 m_methodRegistration.put(method.getMethodIdentifier(), newList);
             }
         }
+        updateMethodSlots(method.getMethodIdentifier());
     }
 
     /**
@@ -1142,6 +1240,62 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
                 m_methodRegistration.put(innerClass + "___" + method.getMethodIdentifier(), newList);
             }
         }
+        updateMethodSlots(innerClass + "___" + method.getMethodIdentifier());
+    }
+
+    /**
+     * Publishes the interceptor list of the given method to the method slots.
+     *
+     * @param methodId the method id
+     */
+    private void updateMethodSlots(String methodId) {
+        synchronized (m_methodOffsets) {
+            MethodInterceptor[] list = (MethodInterceptor[]) m_methodRegistration.get(methodId);
+            MethodSlot[] slots = m_methodSlots;
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i].m_id.equals(methodId)) {
+                    slots[i].m_interceptors = list;
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the ids of the methods of a POJO class, and gets the index of the first
+     * slot assigned to those methods. The POJO then dispatches its method entries, exits and
+     * errors using the index of the method id in the given array, added to the returned index.
+     * This method is invoked by the POJO itself during its initialization.
+     *
+     * @param methodIds the method ids of the POJO class
+     * @return the index of the slot of the first method id.
+     */
+    public int registerMethodIds(String[] methodIds) {
+        // IMPORTANT - method used by the manipulator
+        MethodIds last = m_lastMethodIds;
+        if (last != null && last.m_ids == methodIds) {
+            return last.m_offset;
+        }
+        List<String> key = Arrays.asList(methodIds);
+        synchronized (m_methodOffsets) {
+            Integer offset = m_methodOffsets.get(key);
+            if (offset == null) {
+                MethodSlot[] current = m_methodSlots;
+                MethodSlot[] slots = new MethodSlot[current.length + methodIds.length];
+                System.arraycopy(current, 0, slots, 0, current.length);
+                for (int i = 0; i < methodIds.length; i++) {
+                    MethodSlot slot = new MethodSlot(methodIds[i]);
+                    if (m_methodRegistration != null) {
+                        slot.m_interceptors = (MethodInterceptor[]) m_methodRegistration.get(methodIds[i]);
+                    }
+                    slots[current.length + i] = slot;
+                }
+                offset = new Integer(current.length);
+                m_methodOffsets.put(key, offset);
+                m_methodSlots = slots;
+            }
+            m_lastMethodIds = new MethodIds(methodIds, offset.intValue());
+            return offset.intValue();
+        }
     }
 
     /**
@@ -1180,14 +1334,12 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @return the value decided by the last asked handler (throws a warning if two fields decide two different values)
      */
     public Object onGet(Object pojo, String fieldName) {
-        Object initialValue = null;
-        synchronized (this) { // Stack confinement.
-            initialValue = m_fields.get(fieldName);
-        }
+        FieldSlot slot = getFieldSlot(fieldName);
+        Object initialValue = slot.m_value; // Stack confinement.
         Object result = initialValue;
         boolean hasChanged = false;
         // Get the list of registered handlers
-        FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration.get(fieldName); // Immutable list.
+        FieldInterceptor[] list = slot.m_interceptors; // Immutable list.
         for (int i = 0; list != null && i < list.length; i++) {
             // Call onGet outside of a synchronized block.
             Object handlerResult = list[i].onGet(pojo, fieldName, initialValue);
@@ -1210,10 +1362,7 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
         }
         if (hasChanged) {
             // A change occurs => notify the change
-            //TODO consider just changing the reference, however multiple thread can be an issue
-            synchronized (this) {
-                m_fields.put(fieldName, result);
-            }
+            slot.m_value = result;
             // Call onset outside of a synchronized block.
             for (int i = 0; list != null && i < list.length; i++) {
                 list[i].onSet(pojo, fieldName, result);
@@ -1298,6 +1447,93 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
         }
     }
 
+    /**
+     * Dispatches entry method events on registered method interceptors.
+     * This variant is used by the POJO objects having registered their
+     * method ids with {@link InstanceManager#registerMethodIds(String[])}.
+     *
+     * @param pojo        the pojo object on which method is invoked.
+     * @param methodIndex the index of the method slot.
+     * @param args        the argument array
+     */
+    public void onEntry(Object pojo, int methodIndex, Object[] args) {
+        // IMPORTANT - method used by the manipulator
+        MethodSlot slot = m_methodSlots[methodIndex];
+        MethodInterceptor[] list = slot.m_interceptors;
+        if (list == null) {
+            return;
+        }
+        Member method = getMethod(slot);
+        for (int i = 0; i < list.length; i++) {
+            list[i].onEntry(pojo, method, args);
+        }
+    }
+
+    /**
+     * Dispatches exit method events on registered method interceptors.
+     * This variant is used by the POJO objects having registered their
+     * method ids with {@link InstanceManager#registerMethodIds(String[])}.
+     *
+     * @param pojo        the pojo object on which method was invoked.
+     * @param methodIndex the index of the method slot.
+     * @param result      the returned object.
+     */
+    public void onExit(Object pojo, int methodIndex, Object result) {
+        // IMPORTANT - method used by the manipulator
+        MethodSlot slot = m_methodSlots[methodIndex];
+        MethodInterceptor[] list = slot.m_interceptors;
+        if (list == null) {
+            return;
+        }
+        Member method = getMethod(slot);
+        for (int i = 0; i < list.length; i++) {
+            list[i].onExit(pojo, method, result);
+        }
+        for (int i = 0; i < list.length; i++) {
+            list[i].onFinally(pojo, method);
+        }
+    }
+
+    /**
+     * Dispatches error method events on registered method interceptors.
+     * This variant is used by the POJO objects having registered their
+     * method ids with {@link InstanceManager#registerMethodIds(String[])}.
+     *
+     * @param pojo        the pojo object on which the method was invoked
+     * @param methodIndex the index of the method slot.
+     * @param error       the Throwable object.
+     */
+    public void onError(Object pojo, int methodIndex, Throwable error) {
+        // IMPORTANT - method used by the manipulator
+        MethodSlot slot = m_methodSlots[methodIndex];
+        MethodInterceptor[] list = slot.m_interceptors;
+        if (list == null) {
+            return;
+        }
+        Member method = getMethod(slot);
+        for (int i = 0; i < list.length; i++) {
+            list[i].onError(pojo, method, error);
+        }
+        for (int i = 0; i < list.length; i++) {
+            list[i].onFinally(pojo, method);
+        }
+    }
+
+    /**
+     * Gets the {@link Member} object of the given method slot.
+     * The member is computed on the first call only.
+     *
+     * @param slot the method slot
+     * @return the member object or <code>null</code> if the method cannot be found.
+     */
+    private Member getMethod(MethodSlot slot) {
+        if (!slot.m_resolved) {
+            slot.m_member = getMethodById(slot.m_id);
+            slot.m_resolved = true;
+        }
+        return slot.m_member;
+    }
+
     /**
      * Computes the {@link Method} object from the given id.
      * Once computes, a map is used as a cache to avoid to recompute for
@@ -1388,16 +1624,12 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
      * @param objectValue the new value of the field
      */
     public void onSet(final Object pojo, final String fieldName, final Object objectValue) {
-        synchronized (this) {
-            // First, store the new value.
-            // This must be done in a synchronized block to avoid
-            // concurrent modification
-            m_fields.put(fieldName, objectValue);
-        }
+        // First, store the new value.
+        FieldSlot slot = getFieldSlot(fieldName);
+        slot.m_value = objectValue;
         // The registrations cannot be modified, so we can directly access
         // the interceptor list.
-        FieldInterceptor[] list = (FieldInterceptor[]) m_fieldRegistration
-                .get(fieldName);
+        FieldInterceptor[] list = slot.m_interceptors;
         for (int i = 0; list != null && i < list.length; i++) {
             // The callback must be call outside the synchronization block.
             list[i].onSet(pojo, fieldName, objectValue);
@@ -1405,6 +1637,25 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     }
 
 
+    /**
+     * Gets the slot holding the value of the given field, creating it if the
+     * field was not accessed or registered yet.
+     *
+     * @param fieldName the field name
+     * @return the slot of the field
+     */
+    private FieldSlot getFieldSlot(String fieldName) {
+        FieldSlot slot = m_fields.get(fieldName);
+        if (slot == null) {
+            slot = new FieldSlot();
+            FieldSlot existing = m_fields.putIfAbsent(fieldName, slot);
+            if (existing != null) {
+                slot = existing;
+            }
+        }
+        return slot;
+    }
+
     /**
      * Gets the bundle context used by this component instance.
      *
@@ -1575,4 +1826,64 @@ public class InstanceManager implements ComponentInstance, InstanceStateListener
     public BundleContext getInstanceContext() {
         return m_instanceContext;
     }
+
+    /**
+     * The value of a managed field and the interceptors monitoring it.
+     * The interceptor array is never modified once published, so that a
+     * field access only costs a volatile read of the value and of the array.
+     */
+    private static final class FieldSlot {
+        /**
+         * The current value of the field.
+         */
+        volatile Object m_value;
+
+        /**
+         * The interceptors monitoring the field, <code>null</code> if none.
+         */
+        volatile FieldInterceptor[] m_interceptors;
+    }
+
+    /**
+     * A method of a manipulated class and the interceptors monitoring it.
+     * The interceptor array is never modified once published.
+     */
+    private static final class MethodSlot {
+        /**
+         * The method id.
+         */
+        final String m_id;
+
+        /**
+         * The interceptors monitoring the method, <code>null</code> if none.
+         */
+        volatile MethodInterceptor[] m_interceptors;
+
+        /**
+         * The member object of the method, once resolved.
+         */
+        volatile Member m_member;
+
+        /**
+         * Whether the member object was resolved.
+         */
+        volatile boolean m_resolved;
+
+        MethodSlot(String id) {
+            m_id = id;
+        }
+    }
+
+    /**
+     * A method id array and the index of the slot of its first method id.
+     */
+    private static final class MethodIds {
+        final String[] m_ids;
+        final int m_offset;
+
+        MethodIds(String[] ids, int offset) {
+            m_ids = ids;
+            m_offset = offset;
+        }
+    }
 }
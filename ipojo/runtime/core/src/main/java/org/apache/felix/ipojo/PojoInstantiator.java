@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.ipojo;
+
+/**
+ * Interface implemented by the instantiator classes generated by the manipulator.
+ * An instantiator invokes the constructors of a manipulated class directly,
+ * avoiding the reflective {@link java.lang.reflect.Constructor#newInstance(Object[])}
+ * call when the instance manager creates POJO objects.
+ * The instantiator of the class <code>Foo</code> is named <code>Foo$$Instantiator</code>
+ * and is generated in the same package.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public interface PojoInstantiator {
+
+    /**
+     * The suffix appended to the manipulated class name to get the name of its instantiator.
+     */
+    String SUFFIX = "$$Instantiator";
+
+    /**
+     * Gets the class instantiated by this instantiator.
+     * @return the manipulated class.
+     */
+    Class getPojoClass();
+
+    /**
+     * Gets the descriptors of the constructors invoked by this instantiator.
+     * Those constructors take the instance manager as first parameter.
+     * @return the constructor descriptors, in the order used by {@link PojoInstantiator#newInstance(int, Object[])}.
+     */
+    String[] getConstructorDescriptors();
+
+    /**
+     * Creates a new POJO object.
+     * Exceptions thrown by the constructor are propagated as they are.
+     * @param index the index of the constructor in the array returned by
+     * {@link PojoInstantiator#getConstructorDescriptors()}
+     * @param args the constructor arguments, the instance manager first.
+     * @return the created object.
+     */
+    Object newInstance(int index, Object[] args);
+
+}
@@ -36,6 +36,7 @@ import org.apache.felix.ipojo.extender.internal.queue.pref.HeaderPreferenceSelec
 import org.apache.felix.ipojo.extender.internal.queue.pref.Preference;
 import org.apache.felix.ipojo.extender.internal.queue.pref.PreferenceQueueService;
 import org.apache.felix.ipojo.extender.internal.queue.pref.enforce.EnforcedQueueService;
+import org.apache.felix.ipojo.extender.queue.debug.BundleProcessingReport;
 import org.apache.felix.ipojo.extender.queue.debug.QueueEventProxy;
 import org.apache.felix.ipojo.util.Logger;
 import org.osgi.framework.*;
@@ -62,6 +63,15 @@ public class Extender implements BundleActivator {
      */
     static boolean SYNCHRONOUS_PROCESSING_ENABLED = false;
 
+    /**
+     * Enables the iPOJO parallel processing.
+     * When set to true, the bundles are processed concurrently by a thread pool
+     * sized on the number of available processors, a bundle being processed once
+     * the bundles it is wired to are processed. By default, the bundles are
+     * processed one at a time. Ignored when the processing is synchronous.
+     */
+    static boolean PARALLEL_PROCESSING_ENABLED = false;
+
     /**
      * Property allowing to set if the internal dispatcher is enabled or disabled.
      * Possible value are either {@literal true} or {@literal false}.
@@ -75,6 +85,12 @@ public class Extender implements BundleActivator {
      */
     private static final String SYNCHRONOUS_PROCESSING = "ipojo.processing.synchronous";
 
+    /**
+     * Property allowing to enable the parallel processing of the bundles.
+     * Possible value are either {@literal true} or {@literal false}.
+     */
+    private static final String PARALLEL_PROCESSING = "ipojo.processing.parallel";
+
     /**
      * The Bundle Context of the iPOJO Core bundle.
      */
@@ -93,7 +109,7 @@ public class Extender implements BundleActivator {
     /**
      * The chained processor containing all the true bundle processor.
      */
-    private ChainedBundleProcessor m_processor;
+    private BundleProcessor m_processor;
 
     /**
      * Binds Instances to Factories to Extensions.
@@ -130,6 +146,7 @@ public class Extender implements BundleActivator {
 
         enablingDispatcher(context, m_logger);
         enablingSynchronousProcessing(context, m_logger);
+        enablingParallelProcessing(context, m_logger);
 
         // Create the dispatcher only if required.
         if (DISPATCHER_ENABLED) {
@@ -168,15 +185,20 @@ public class Extender implements BundleActivator {
 
             // Create the queue services
             SynchronousQueueService sync = new SynchronousQueueService(context);
+            // In parallel mode, default to the number of processors, otherwise default to 1
+            // if no system property is set
+            int size = PARALLEL_PROCESSING_ENABLED ? Runtime.getRuntime().availableProcessors() : 1;
             ExecutorQueueService async = new ExecutorQueueService(context,
                                                                   Integer.getInteger(ExecutorQueueService.THREADPOOL_SIZE_PROPERTY,
-                                                                                     1), // default to 1 if no system property is set
+                                                                                     size),
                                                                   threadFactory);
             m_queueService = new PreferenceQueueService(new HeaderPreferenceSelection(), sync, async);
 
-            extensionBundleProcessor = new QueuingActivationProcessor(extensionBundleProcessor, m_queueService);
-            componentsProcessor = new QueuingActivationProcessor(componentsProcessor, m_queueService);
-            configurationProcessor = new QueuingActivationProcessor(configurationProcessor, m_queueService);
+            if (!PARALLEL_PROCESSING_ENABLED) {
+                extensionBundleProcessor = new QueuingActivationProcessor(extensionBundleProcessor, m_queueService);
+                componentsProcessor = new QueuingActivationProcessor(componentsProcessor, m_queueService);
+                configurationProcessor = new QueuingActivationProcessor(configurationProcessor, m_queueService);
+            }
 
             // If required, add the event proxy to both real services
             if (proxy != null) {
@@ -192,6 +214,13 @@ public class Extender implements BundleActivator {
         m_linker.start();
 
         m_processor = ChainedBundleProcessor.create(extensionBundleProcessor, componentsProcessor, configurationProcessor);
+        if (!SYNCHRONOUS_PROCESSING_ENABLED && PARALLEL_PROCESSING_ENABLED) {
+            // A single job per bundle runs the whole chain, keeping the processors order for a given bundle
+            DependencyAwareActivationProcessor parallel =
+                    new DependencyAwareActivationProcessor(m_processor, m_queueService, m_logger);
+            context.registerService(BundleProcessingReport.class, parallel, null);
+            m_processor = parallel;
+        }
 
         m_processor.start();
 
@@ -336,5 +365,40 @@ public class Extender implements BundleActivator {
 
     }
 
+    /**
+     * Enables or disables the parallel processing, so sets the
+     * {@link Extender#PARALLEL_PROCESSING_ENABLED} flag.
+     * This method checks if the {@link Extender#PARALLEL_PROCESSING}
+     * property is set to {@literal true}. Otherwise, bundles are processed
+     * one at a time (default). The property can be set as a system
+     * property ({@literal ipojo.processing.parallel}) or inside the
+     * iPOJO bundle manifest ({@literal ipojo-processing-parallel}).
+     *
+     * @param context the bundle context.
+     * @param logger  the logger to indicates if the parallel processing is set.
+     */
+    private static void enablingParallelProcessing(BundleContext context, Logger logger) {
+        String flag = context.getProperty(PARALLEL_PROCESSING);
+
+        // If null, look in bundle manifest
+        if (flag == null) {
+            String key = PARALLEL_PROCESSING.replace('.', '-');
+            flag = (String) context.getBundle().getHeaders().get(key);
+        }
+
+        if (flag != null) {
+            if (flag.equalsIgnoreCase("true")) {
+                Extender.PARALLEL_PROCESSING_ENABLED = true;
+                logger.log(Logger.INFO, "iPOJO parallel processing enabled");
+                return;
+            }
+        }
+
+        // Either l is null, or the specified value was false
+        Extender.PARALLEL_PROCESSING_ENABLED = false;
+        logger.log(Logger.INFO, "iPOJO parallel processing disabled");
+
+    }
+
 
 }
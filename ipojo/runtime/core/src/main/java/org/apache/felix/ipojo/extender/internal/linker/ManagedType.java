@@ -78,7 +78,14 @@ public class ManagedType implements FactoryStateListener, Lifecycle {
     /**
      * The job used to instantiate the factory.
      */
-    private Future<IPojoFactory> m_future;
+    private volatile Future<IPojoFactory> m_future;
+
+    /**
+     * The valid factory instances are created from.
+     * It is set before the instance tracker is opened, so instance jobs running on another thread than the
+     * factory creation job do not depend on {@link #m_future} being already assigned.
+     */
+    private volatile Factory m_factory;
 
     /**
      * If the Managed Type cannot be initializes, sets this flag to true and no links will be created.
@@ -198,6 +205,7 @@ public class ManagedType implements FactoryStateListener, Lifecycle {
     public void stateChanged(Factory factory, int newState) {
         if (Factory.VALID == newState) {
             // Start tracking instances
+            m_factory = factory;
             m_instanceTracker.open(true);
         } else {
             // Un-track all instances
@@ -308,8 +316,8 @@ public class ManagedType implements FactoryStateListener, Lifecycle {
                         try {
                             // Create the component's instance
                             // It is automatically started
-                            // Future.get should never be null since this tracker is started when the factory has been created
-                            ComponentInstance instance = m_future.get().createComponentInstance(instanceDeclaration.getConfiguration());
+                            // The factory is never null since this tracker is started when the factory becomes valid
+                            ComponentInstance instance = m_factory.createComponentInstance(instanceDeclaration.getConfiguration());
                             if (instance instanceof InstanceBundleContextAware) {
                                 ((InstanceBundleContextAware) instance).setInstanceBundleContext(instanceDeclaration
                                         .getBundle().getBundleContext());
@@ -31,6 +31,8 @@ import org.osgi.framework.Bundle;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Processor handling the {@link #IPOJO_HEADER} and {@link #IPOJO_HEADER_ALT}
@@ -64,7 +66,8 @@ public class ComponentsBundleProcessor implements BundleProcessor {
     /**
      * Registry storing the bundle to components and instances declared within this bundle.
      */
-    private final Map<Bundle, ComponentsAndInstances> m_registry = new HashMap<Bundle, ComponentsAndInstances>();
+    private final ConcurrentMap<Bundle, ComponentsAndInstances> m_registry =
+            new ConcurrentHashMap<Bundle, ComponentsAndInstances>();
 
     /**
      * Creates the component bundle processor.
@@ -199,7 +202,10 @@ public class ComponentsBundleProcessor implements BundleProcessor {
         ComponentsAndInstances cai = m_registry.get(bundle);
         if (cai == null) {
             cai = new ComponentsAndInstances();
-            m_registry.put(bundle, cai);
+            ComponentsAndInstances existing = m_registry.putIfAbsent(bundle, cai);
+            if (existing != null) {
+                cai = existing;
+            }
         }
         return cai;
     }
@@ -39,6 +39,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.apache.felix.ipojo.util.Reflection.fields;
 import static org.apache.felix.ipojo.util.Reflection.methods;
@@ -58,7 +60,8 @@ public class ConfigurationProcessor implements BundleProcessor {
      * Registry storing the bundle to components and instances declared within this bundle.
      * Only instances are expected.
      */
-    private final Map<Bundle, ComponentsAndInstances> m_registry = new HashMap<Bundle, ComponentsAndInstances>();
+    private final ConcurrentMap<Bundle, ComponentsAndInstances> m_registry =
+            new ConcurrentHashMap<Bundle, ComponentsAndInstances>();
 
     /**
      * Set to false to disable this processor.
@@ -299,7 +302,10 @@ public class ConfigurationProcessor implements BundleProcessor {
         ComponentsAndInstances cai = m_registry.get(bundle);
         if (cai == null) {
             cai = new ComponentsAndInstances();
-            m_registry.put(bundle, cai);
+            ComponentsAndInstances existing = m_registry.putIfAbsent(bundle, cai);
+            if (existing != null) {
+                cai = existing;
+            }
         }
         return cai;
     }
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.felix.ipojo.extender.internal.processor;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.ipojo.extender.internal.BundleProcessor;
+import org.apache.felix.ipojo.extender.internal.DefaultJob;
+import org.apache.felix.ipojo.extender.queue.QueueService;
+import org.apache.felix.ipojo.extender.queue.debug.BundleProcessingInfo;
+import org.apache.felix.ipojo.extender.queue.debug.BundleProcessingReport;
+import org.apache.felix.ipojo.util.Log;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+
+/**
+ * A bundle processor submitting one activation job per bundle to the queue service, so independent bundles
+ * can be processed concurrently by a multi-threaded queue.
+ * <p/>
+ * Before being processed, a bundle waits for the activation of the bundles it is wired to (package imports,
+ * required bundles...) when these activations are still pending. Jobs only wait for jobs submitted before them,
+ * so a FIFO queue always makes progress. The processing time of each bundle is recorded and made available
+ * through the {@link BundleProcessingReport} interface.
+ */
+public class DependencyAwareActivationProcessor extends ForwardingBundleProcessor implements BundleProcessingReport {
+
+    /**
+     * Maximum time (in milliseconds) a bundle waits for the activation of one of its dependencies.
+     * Ordering is only an optimization, declarations are linked whatever the activation order, so the
+     * bundle is processed anyway when the timeout expires.
+     */
+    public static final long DEPENDENCY_TIMEOUT = 10000L;
+
+    /**
+     * The wrapped bundle processor used by the job.
+     */
+    private final BundleProcessor m_delegate;
+
+    /**
+     * The queue service.
+     */
+    private final QueueService m_queueService;
+
+    /**
+     * The logger.
+     */
+    private final Log m_logger;
+
+    /**
+     * Whether the bundle wiring can be introspected to compute the activation dependencies.
+     */
+    private final boolean m_wiring;
+
+    /**
+     * The activations that are not completed yet, indexed by bundle id.
+     */
+    private final ConcurrentMap<Long, Activation> m_pending = new ConcurrentHashMap<Long, Activation>();
+
+    /**
+     * The activations of the active bundles, in submission order.
+     */
+    private final List<Activation> m_activations = new CopyOnWriteArrayList<Activation>();
+
+    /**
+     * Creates an instance of the dependency aware bundle processor.
+     *
+     * @param delegate     the bundle processor used by the submitted jobs
+     * @param queueService the used queue service
+     * @param logger       the logger
+     */
+    public DependencyAwareActivationProcessor(BundleProcessor delegate, QueueService queueService, Log logger) {
+        m_delegate = delegate;
+        m_queueService = queueService;
+        m_logger = logger;
+
+        // org.osgi.framework.wiring may not be available, in this case, bundles are processed without ordering.
+        boolean wiring = true;
+        try {
+            this.getClass().getClassLoader().loadClass("org.osgi.framework.wiring.BundleWiring");
+        } catch (ClassNotFoundException e) {
+            m_logger.log(Log.WARNING, "The org.osgi.framework.wiring.BundleWiring class is not provided by the " +
+                    "framework, bundles are processed without dependency ordering.");
+            wiring = false;
+        }
+        m_wiring = wiring;
+    }
+
+    @Override
+    protected BundleProcessor delegate() {
+        return m_delegate;
+    }
+
+    /**
+     * A bundle is starting.
+     * The processing of the bundle is wrapped in a job submitted to the queue service. The job first waits for
+     * the pending activations of the bundles providing wires to this bundle.
+     *
+     * @param bundle the bundle
+     */
+    public void activate(final Bundle bundle) {
+        // Registering and submitting atomically keeps the queue order consistent with the dependencies
+        synchronized (m_pending) {
+            final Activation activation = new Activation(bundle, getPendingDependencies(bundle));
+            m_pending.put(bundle.getBundleId(), activation);
+            m_activations.add(activation);
+            m_queueService.submit(
+                    new DefaultJob<Boolean>(bundle, QueuingActivationProcessor.BUNDLE_ACTIVATION_JOB_TYPE) {
+                        public Boolean call() throws Exception {
+                            return activation.process();
+                        }
+                    },
+                    activation.getDescription());
+        }
+    }
+
+    /**
+     * A bundle is stopping.
+     * A pending activation is cancelled, a running one is awaited before delegating the deactivation.
+     *
+     * @param bundle the bundle
+     */
+    public void deactivate(Bundle bundle) {
+        Activation activation = m_pending.get(bundle.getBundleId());
+        if (activation != null) {
+            activation.cancel();
+            if (activation.getStartTime() != -1) {
+                // Already running, a job not started yet will not process the bundle
+                activation.await();
+            }
+        }
+        for (Activation a : m_activations) {
+            if (a.getBundleId() == bundle.getBundleId()) {
+                m_activations.remove(a);
+            }
+        }
+        super.deactivate(bundle);
+    }
+
+    /**
+     * @return a snapshot of the processing information of the active bundles, in activation order
+     */
+    public List<BundleProcessingInfo> getProcessingInfos() {
+        return new ArrayList<BundleProcessingInfo>(m_activations);
+    }
+
+    /**
+     * Computes the pending activations the given bundle has to wait for.
+     *
+     * @param bundle the bundle
+     * @return the activations of the bundles the given bundle is wired to, not yet completed
+     */
+    private List<Activation> getPendingDependencies(Bundle bundle) {
+        if (!m_wiring || m_pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BundleWiring wiring = bundle.adapt(BundleWiring.class);
+        if (wiring == null) {
+            return Collections.emptyList();
+        }
+        List<BundleWire> wires = wiring.getRequiredWires(null);
+        if (wires == null) {
+            // The wiring is not in use anymore
+            return Collections.emptyList();
+        }
+        List<Activation> dependencies = new ArrayList<Activation>();
+        for (BundleWire wire : wires) {
+            Bundle provider = wire.getProviderWiring().getBundle();
+            Activation activation = m_pending.get(provider.getBundleId());
+            if (provider.getBundleId() != bundle.getBundleId()
+                    && activation != null
+                    && !dependencies.contains(activation)) {
+                dependencies.add(activation);
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * The activation of a bundle, also storing its processing times.
+     */
+    private class Activation implements BundleProcessingInfo {
+
+        /**
+         * The activated bundle.
+         */
+        private final Bundle m_bundle;
+
+        /**
+         * The activations to wait for before processing the bundle.
+         */
+        private final List<Activation> m_dependencies;
+
+        /**
+         * Released when the activation is completed.
+         */
+        private final CountDownLatch m_done = new CountDownLatch(1);
+
+        /**
+         * The date (in milli) when this activation is submitted.
+         */
+        private final long m_enlistmentTime = System.currentTimeMillis();
+
+        /**
+         * The date when the job execution started.
+         */
+        private volatile long m_startTime = -1;
+
+        /**
+         * The date when the dependencies are activated, and the bundle processing started.
+         */
+        private volatile long m_readyTime = -1;
+
+        /**
+         * The date when the bundle processing is completed.
+         */
+        private volatile long m_endTime = -1;
+
+        /**
+         * Set when the bundle is stopped before being processed.
+         */
+        private volatile boolean m_cancelled;
+
+        private Activation(Bundle bundle, List<Activation> dependencies) {
+            m_bundle = bundle;
+            m_dependencies = dependencies;
+        }
+
+        /**
+         * Waits for the dependencies, then processes the bundle.
+         *
+         * @return {@literal true} if the bundle was processed, {@literal false} if the activation was cancelled
+         */
+        private boolean process() {
+            m_startTime = System.currentTimeMillis();
+            try {
+                for (Activation dependency : m_dependencies) {
+                    if (!dependency.await()) {
+                        m_logger.log(Log.WARNING, format("Bundle %d processed before the activation of bundle %d " +
+                                "completed", getBundleId(), dependency.getBundleId()));
+                    }
+                }
+                m_readyTime = System.currentTimeMillis();
+                if (m_cancelled) {
+                    return false;
+                }
+                DependencyAwareActivationProcessor.super.activate(m_bundle);
+                return true;
+            } finally {
+                m_endTime = System.currentTimeMillis();
+                m_pending.remove(getBundleId(), this);
+                m_done.countDown();
+            }
+        }
+
+        /**
+         * Waits for the completion of this activation.
+         *
+         * @return {@literal false} if the activation is still not completed after {@link #DEPENDENCY_TIMEOUT}
+         */
+        private boolean await() {
+            try {
+                return m_done.await(DEPENDENCY_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void cancel() {
+            m_cancelled = true;
+        }
+
+        public long getBundleId() {
+            return m_bundle.getBundleId();
+        }
+
+        public String getSymbolicName() {
+            return m_bundle.getSymbolicName();
+        }
+
+        public List<Long> getDependencies() {
+            List<Long> ids = new ArrayList<Long>();
+            for (Activation dependency : m_dependencies) {
+                ids.add(dependency.getBundleId());
+            }
+            return ids;
+        }
+
+        public long getEnlistmentTime() {
+            return m_enlistmentTime;
+        }
+
+        public long getStartTime() {
+            return m_startTime;
+        }
+
+        public long getEndTime() {
+            return m_endTime;
+        }
+
+        public long getWaitDuration() {
+            long end = m_startTime;
+            if (end == -1) {
+                // Still waiting
+                end = System.currentTimeMillis();
+            }
+            return end - m_enlistmentTime;
+        }
+
+        public long getDependencyWaitDuration() {
+            if ((m_startTime == -1) || (m_readyTime == -1)) {
+                return -1;
+            }
+            return m_readyTime - m_startTime;
+        }
+
+        public long getExecutionDuration() {
+            if ((m_readyTime == -1) || (m_endTime == -1)) {
+                return -1;
+            }
+            return m_endTime - m_readyTime;
+        }
+
+        public String getDescription() {
+            return format("Bundle %d being activated", getBundleId());
+        }
+
+        public String getJobType() {
+            return QueuingActivationProcessor.BUNDLE_ACTIVATION_JOB_TYPE;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Bundle processor handling the {@link #IPOJO_EXTENSION} header.
@@ -50,7 +52,8 @@ public class ExtensionBundleProcessor implements BundleProcessor {
     /**
      * The map storing the association between bundles and the list of extension declaration.
      */
-    private Map<Bundle, List<DefaultExtensionDeclaration>> m_extensions = new HashMap<Bundle, List<DefaultExtensionDeclaration>>();
+    private final ConcurrentMap<Bundle, List<DefaultExtensionDeclaration>> m_extensions =
+            new ConcurrentHashMap<Bundle, List<DefaultExtensionDeclaration>>();
 
     /**
      * Creates the processor.
@@ -168,7 +171,10 @@ public class ExtensionBundleProcessor implements BundleProcessor {
         List<DefaultExtensionDeclaration> declarations = m_extensions.get(bundle);
         if (declarations == null) {
             declarations = new ArrayList<DefaultExtensionDeclaration>();
-            m_extensions.put(bundle, declarations);
+            List<DefaultExtensionDeclaration> existing = m_extensions.putIfAbsent(bundle, declarations);
+            if (existing != null) {
+                declarations = existing;
+            }
         }
         return declarations;
     }
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.felix.ipojo.extender.queue.debug;
+
+import java.util.List;
+
+import org.apache.felix.ipojo.extender.queue.JobInfo;
+
+/**
+ * Information about the activation of a bundle by the iPOJO extender.
+ * The execution duration only covers the bundle processing: the time spent waiting for the
+ * activation of the bundles this bundle is wired to is given by {@link #getDependencyWaitDuration()}.
+ */
+public interface BundleProcessingInfo extends JobInfo {
+
+    /**
+     * @return the identifier of the processed bundle
+     */
+    long getBundleId();
+
+    /**
+     * @return the symbolic name of the processed bundle
+     */
+    String getSymbolicName();
+
+    /**
+     * Gets the bundles whose activation had to complete before this bundle was processed.
+     *
+     * @return the identifiers of these bundles, empty if the bundle did not wait for any other bundle
+     */
+    List<Long> getDependencies();
+
+    /**
+     * Gets the time spent waiting for the activation of the bundles returned by {@link #getDependencies()}.
+     *
+     * @return the dependency wait duration, {@literal -1} if the job has not waited yet
+     */
+    long getDependencyWaitDuration();
+}
@@ -23,10 +23,12 @@ import org.apache.felix.ipojo.*;
 import org.apache.felix.ipojo.handlers.dependency.ServiceUsage.Usage;
 import org.apache.felix.ipojo.util.DependencyModel;
 import org.apache.felix.ipojo.util.Log;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
 import org.osgi.framework.ServiceReference;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.*;
 import java.util.*;
 
@@ -38,6 +40,14 @@ import java.util.*;
 public class Dependency extends DependencyModel implements FieldInterceptor, MethodInterceptor,
         ConstructorInjector {
 
+    /**
+     * Smart proxy classes, shared by the dependencies on the same specification of all the components loaded by
+     * the same class loader. Class loaders and specifications are weakly held, and proxy classes are only kept
+     * alive by their proxy objects, so bundles can still be garbage collected.
+     */
+    private static final Map<ClassLoader, Map<Class, WeakReference<Class>>> SMART_PROXY_CLASSES =
+            new WeakHashMap<ClassLoader, Map<Class, WeakReference<Class>>>();
+
     /**
      * Reference on the Dependency Handler.
      */
@@ -104,6 +114,11 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
      * Proxy Object.
      */
     private Object m_proxyObject;
+    /**
+     * The service object resolved for the current binding epoch (scalar dependencies only).
+     * Avoids looking up the bound service each time a proxied or a non-cached access happens.
+     */
+    private volatile ResolvedService m_resolved;
     /**
      * Constructor parameter index.
      * -1 if not used.
@@ -212,6 +227,7 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
     public void stop() {
         acquireWriteLockIfNotHeld();
         m_isStarted = false;
+        m_resolved = null;
         super.stop();
         releaseWriteLockIfHeld();
 
@@ -512,8 +528,7 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
                     }
 
                     if (type == null || type.equals(DependencyHandler.SMART_PROXY)) {
-                        SmartProxyFactory proxyFactory = new SmartProxyFactory(this.getClass().getClassLoader());
-                        m_proxyObject = proxyFactory.getProxy(this);
+                        m_proxyObject = createSmartProxy();
                     } else {
                         DynamicProxyFactory proxyFactory = new DynamicProxyFactory();
                         m_proxyObject = proxyFactory.getProxy(getSpecification());
@@ -693,9 +708,9 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
                         return objs;
                     }
                 } else { // Scalar dependency.
-                    ServiceReference ref = getServiceReference();
-                    if (ref != null) {
-                        return getService(ref);
+                    Object svc = getBoundService();
+                    if (svc != null) {
+                        return svc;
                     } else {
                         // No service available.
                         // TODO Decide what we have to do.
@@ -757,6 +772,15 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
      * @param usage : Thread Local to populate.
      */
     private void createServiceObject(Usage usage) {
+        if (!isAggregate()) {
+            // Fast path, reuse the service object resolved since the last binding change.
+            ResolvedService resolved = m_resolved;
+            if (resolved != null && resolved.m_epoch == getEpoch()) {
+                usage.m_object = resolved.m_service;
+                return;
+            }
+        }
+
         ServiceReference[] refs = getServiceReferences();
 
         // manage timeout
@@ -779,8 +803,7 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
                 }
                 usage.m_object = m_nullable; // Add null if the Nullable pattern is disabled.
             } else {
-                ServiceReference ref = getServiceReference();
-                usage.m_object = getService(ref);
+                usage.m_object = getBoundService();
             }
         } else {
             switch(m_type) {
@@ -987,6 +1010,78 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
         m_timeout = timeout;
     }
 
+    /**
+     * Gets the service object of the first bound service.
+     * The object is resolved once per binding epoch (see {@link DependencyModel#getEpoch()}), so the following
+     * calls do not look up the bound services until the dependency changes.
+     *
+     * @return the service object, {@code null} if no service is bound
+     */
+    private Object getBoundService() {
+        // The epoch is read first, a concurrent change makes the cached object stale immediately
+        int epoch = getEpoch();
+        ResolvedService resolved = m_resolved;
+        if (resolved != null && resolved.m_epoch == epoch) {
+            return resolved.m_service;
+        }
+        ServiceReference ref = getServiceReference();
+        if (ref == null) {
+            return null;
+        }
+        Object svc = getService(ref);
+        if (svc != null) {
+            m_resolved = new ResolvedService(epoch, svc);
+        }
+        return svc;
+    }
+
+    /**
+     * Creates the smart proxy object of the dependency.
+     * The proxy class is generated once per specification and component class loader.
+     *
+     * @return the proxy object, {@code null} if it cannot be created
+     */
+    private Object createSmartProxy() {
+        try {
+            Class clazz = getSmartProxyClass(getSpecification(),
+                    getHandler().getInstanceManager().getFactory().getBundleClassLoader(),
+                    getHandler().getInstanceManager().getContext().getBundle());
+            Constructor constructor = clazz.getConstructor(
+                    new Class[]{clazz.getClassLoader().loadClass(Dependency.class.getName())});
+            return constructor.newInstance(new Object[]{this});
+        } catch (Throwable e) {
+            m_handler.error("Cannot create the proxy object", e);
+            m_handler.getInstanceManager().stop();
+            return null;
+        }
+    }
+
+    /**
+     * Gets the smart proxy class for the given specification, generating it if no proxy class generated for
+     * the same specification and component class loader is still alive.
+     *
+     * @param spec   the service specification to proxy
+     * @param loader the component class loader
+     * @param bundle the component bundle
+     * @return the proxy class
+     */
+    private static Class getSmartProxyClass(Class spec, ClassLoader loader, Bundle bundle) {
+        synchronized (SMART_PROXY_CLASSES) {
+            Map<Class, WeakReference<Class>> classes = SMART_PROXY_CLASSES.get(loader);
+            if (classes == null) {
+                classes = new WeakHashMap<Class, WeakReference<Class>>();
+                SMART_PROXY_CLASSES.put(loader, classes);
+            }
+            WeakReference<Class> ref = classes.get(spec);
+            Class clazz = ref == null ? null : ref.get();
+            if (clazz == null) {
+                clazz = new SmartProxyFactory(loader, bundle, Dependency.class.getClassLoader()).getProxyClass(spec);
+                classes.put(spec, new WeakReference<Class>(clazz));
+            }
+            return clazz;
+        }
+    }
+
     /**
      * Gets the constructor parameter.
      *
@@ -1104,23 +1199,32 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
     }
 
     /**
-     * Creates smart proxy object for proxied scalar dependencies.
+     * Defines the smart proxy classes of proxied scalar dependencies.
+     * It does not reference any dependency, as the generated classes are shared.
      */
-    private class SmartProxyFactory extends ClassLoader {
+    private static class SmartProxyFactory extends ClassLoader {
 
         /**
          * Handler classloader, used to load the temporal dependency class.
          */
         private ClassLoader m_handlerCL;
 
+        /**
+         * The component bundle.
+         */
+        private Bundle m_bundle;
+
         /**
          * Creates the proxy classloader.
          *
-         * @param parent the handler classloader.
+         * @param parent    the component classloader.
+         * @param bundle    the component bundle.
+         * @param handlerCL the handler classloader.
          */
-        public SmartProxyFactory(ClassLoader parent) {
-            super(getHandler().getInstanceManager().getFactory().getBundleClassLoader());
-            m_handlerCL = parent;
+        public SmartProxyFactory(ClassLoader parent, Bundle bundle, ClassLoader handlerCL) {
+            super(parent);
+            m_bundle = bundle;
+            m_handlerCL = handlerCL;
         }
 
         /**
@@ -1139,26 +1243,6 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
             return defineClass(cn + "$$Proxy", clz, 0, clz.length);
         }
 
-        /**
-         * Create a proxy object for the given specification. The proxy
-         * uses the given dependency to get the service object.
-         *
-         * @param dep  the dependency used to get the service
-         * @return the proxy object.
-         */
-        public Object getProxy(Dependency dep) {
-            try {
-                Class clazz = getProxyClass(getSpecification());
-                Constructor constructor = clazz.getConstructor(
-                        new Class[]{clazz.getClassLoader().loadClass(Dependency.class.getName())});
-                return constructor.newInstance(new Object[]{dep});
-            } catch (Throwable e) {
-                m_handler.error("Cannot create the proxy object", e);
-                m_handler.getInstanceManager().stop();
-                return null;
-            }
-        }
-
         /**
          * Loads the given class.
          * This method uses the classloader of the specification class
@@ -1171,7 +1255,7 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
          */
         public Class loadClass(String name) throws ClassNotFoundException {
             try {
-                return getHandler().getInstanceManager().getContext().getBundle().loadClass(name);
+                return m_bundle.loadClass(name);
             } catch (ClassNotFoundException e) {
                 return m_handlerCL.loadClass(name);
             }
@@ -1256,4 +1340,25 @@ public class Dependency extends DependencyModel implements FieldInterceptor, Met
 
     }
 
+    /**
+     * A service object and the binding epoch it was resolved for.
+     */
+    private static class ResolvedService {
+
+        /**
+         * The binding epoch.
+         */
+        private final int m_epoch;
+
+        /**
+         * The service object.
+         */
+        private final Object m_service;
+
+        private ResolvedService(int epoch, Object service) {
+            m_epoch = epoch;
+            m_service = service;
+        }
+    }
+
 }
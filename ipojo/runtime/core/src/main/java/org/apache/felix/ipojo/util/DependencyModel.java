@@ -133,6 +133,11 @@ public abstract class DependencyModel {
      * The current list of bound services.
      */
     private List<ServiceReference> m_boundServices = new ArrayList<ServiceReference>();
+    /**
+     * The binding epoch, incremented (while holding the exclusive lock) each time the bound services or the
+     * service objects may have changed.
+     */
+    private volatile int m_epoch;
     /**
      * The lock ensuring state consistency of the dependency.
      * This lock can be acquired from all collaborators.
@@ -247,6 +252,7 @@ public abstract class DependencyModel {
         // We're stopping, we must take the exclusive lock
         try {
             acquireWriteLockIfNotHeld();
+            m_epoch++;
             if (m_tracker != null) {
                 m_tracker.close();
                 m_tracker = null;
@@ -407,6 +413,18 @@ public abstract class DependencyModel {
         }
     }
 
+    /**
+     * Gets the binding epoch of the dependency.
+     * The epoch changes each time the bound services or their service objects may have changed, so a service
+     * object resolved for a given epoch can be reused as long as the epoch does not change.
+     *
+     * @return the current binding epoch
+     */
+    public int getEpoch() {
+        // Volatile member, no lock required.
+        return m_epoch;
+    }
+
     /**
      * Gets the list of currently used service references.
      * If no service references, returns <code>null</code>
@@ -667,6 +685,7 @@ public abstract class DependencyModel {
                 return;
             } else {
                 // Update bindings
+                m_epoch++;
                 m_boundServices.clear();
                 if (m_aggregate) {
                     m_boundServices = new ArrayList<ServiceReference>(changeSet.selected);
@@ -752,6 +771,7 @@ public abstract class DependencyModel {
             if (m_tracker == null) { // Not started ...
                 m_aggregate = isAggregate;
             } else {
+                m_epoch++;
                 // We become aggregate.
                 if (!m_aggregate && isAggregate) {
                     m_aggregate = true;
@@ -956,6 +976,7 @@ public abstract class DependencyModel {
         ServiceBindingHolder sbh;
         try {
             acquireWriteLockIfNotHeld();
+            m_epoch++;
             sbh = m_serviceObjects.remove(ref);
         } finally {
             releaseWriteLockIfHeld();
@@ -992,6 +1013,7 @@ public abstract class DependencyModel {
     public void onChange(ServiceReferenceManager.ChangeSet set) {
         try {
             acquireWriteLockIfNotHeld();
+            m_epoch++;
             // First handle the static case with a frozen state
             if (isFrozen() && getState() != BROKEN) {
                 for (ServiceReference ref : set.departures) {
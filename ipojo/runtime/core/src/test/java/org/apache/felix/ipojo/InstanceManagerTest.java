@@ -20,13 +20,16 @@ package org.apache.felix.ipojo;
 
 import org.apache.felix.ipojo.metadata.Attribute;
 import org.apache.felix.ipojo.metadata.Element;
+import org.apache.felix.ipojo.parser.FieldMetadata;
 import org.apache.felix.ipojo.parser.MethodMetadata;
 import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 
 import java.lang.reflect.Member;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -125,6 +128,105 @@ public class InstanceManagerTest {
         assertThat(error.get()).isEqualTo(0);
     }
 
+    @Test
+    public void testFieldInterception() throws ConfigurationException {
+        ComponentFactory factory = mock(ComponentFactory.class);
+        when(factory.getClassName()).thenReturn(MyComponent.class.getName());
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundle()).thenReturn(bundle);
+        InstanceManager manager = new InstanceManager(factory, context, new HandlerManager[0]);
+
+        final AtomicInteger sets = new AtomicInteger();
+        final FieldInterceptor interceptor = new FieldInterceptor() {
+            public void onSet(Object pojo, String fieldName, Object value) {
+                sets.incrementAndGet();
+            }
+
+            public Object onGet(Object pojo, String fieldName, Object value) {
+                return value == null ? "injected" : value;
+            }
+        };
+        manager.register(new FieldMetadata("name", "java.lang.String"), interceptor);
+        assertThat(manager.getRegistredFields()).containsOnly("name");
+
+        // The interceptor injects a value, which is stored and notified.
+        assertThat(manager.onGet(null, "name")).isEqualTo("injected");
+        assertThat(sets.get()).isEqualTo(1);
+        assertThat(manager.onGet(null, "name")).isEqualTo("injected");
+        assertThat(sets.get()).isEqualTo(1);
+
+        manager.onSet(null, "name", "set");
+        assertThat(sets.get()).isEqualTo(2);
+        assertThat(manager.onGet(null, "name")).isEqualTo("set");
+        assertThat(manager.getFieldValue("name")).isEqualTo("set");
+
+        // Fields without interceptors only hold their value.
+        manager.onSet(null, "other", "value");
+        assertThat(manager.onGet(null, "other")).isEqualTo("value");
+    }
+
+    @Test
+    public void testMethodSlots() throws Exception {
+        ComponentFactory factory = mock(ComponentFactory.class);
+        when(factory.loadClass(anyString())).thenReturn(MyComponent.class);
+        when(factory.getClassName()).thenReturn(MyComponent.class.getName());
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getHeaders()).thenReturn(new Hashtable<String, String>());
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundle()).thenReturn(bundle);
+        InstanceManager manager = new InstanceManager(factory, context, new HandlerManager[0]);
+        manager.load();
+
+        Element foo = new Element("method", "");
+        foo.addAttribute(new Attribute("name", "foo"));
+        foo.addAttribute(new Attribute("arguments", "{java.lang.String}"));
+        Element bar = new Element("method", "");
+        bar.addAttribute(new Attribute("name", "bar"));
+        bar.addAttribute(new Attribute("arguments", "{java.lang.String}"));
+
+        final List<String> calls = new ArrayList<String>();
+        MethodInterceptor interceptor = new MethodInterceptor() {
+            public void onEntry(Object pojo, Member method, Object[] args) {
+                calls.add("entry:" + method.getName());
+            }
+
+            public void onExit(Object pojo, Member method, Object returnedObj) {
+                calls.add("exit:" + method.getName());
+            }
+
+            public void onError(Object pojo, Member method, Throwable throwable) {
+                calls.add("error:" + method.getName());
+            }
+
+            public void onFinally(Object pojo, Member method) {
+                calls.add("finally:" + method.getName());
+            }
+        };
+        manager.register(new MethodMetadata(foo), interceptor);
+
+        // Equal id lists share their slots
+        String[] ids = new String[] {"bar$java_lang_String", "foo$java_lang_String"};
+        assertThat(manager.registerMethodIds(ids)).isEqualTo(0);
+        assertThat(manager.registerMethodIds(new String[] {"baz$java_lang_String"})).isEqualTo(2);
+        assertThat(manager.registerMethodIds(ids.clone())).isEqualTo(0);
+
+        MyComponent component = new MyComponent();
+        manager.onEntry(component, 1, new Object[] {"a"});
+        manager.onExit(component, 1, null);
+        manager.onError(component, 1, new Exception());
+        assertThat(calls).containsExactly("entry:foo", "exit:foo", "finally:foo", "error:foo", "finally:foo");
+
+        // Interceptors registered later are published to the slots
+        calls.clear();
+        manager.onEntry(component, 0, new Object[] {"a"});
+        assertThat(calls).isEmpty();
+        manager.register(new MethodMetadata(bar), interceptor);
+        manager.onEntry(component, 0, new Object[] {"a"});
+        assertThat(calls).containsExactly("entry:bar");
+    }
+
     private class Caller implements Runnable {
 
         private final CountDownLatch startSignal;
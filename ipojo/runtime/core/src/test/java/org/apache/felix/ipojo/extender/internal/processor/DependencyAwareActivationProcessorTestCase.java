@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.felix.ipojo.extender.internal.processor;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.ipojo.extender.internal.BundleProcessor;
+import org.apache.felix.ipojo.extender.internal.queue.ExecutorQueueService;
+import org.apache.felix.ipojo.extender.queue.Job;
+import org.apache.felix.ipojo.extender.queue.QueueService;
+import org.apache.felix.ipojo.extender.queue.debug.BundleProcessingInfo;
+import org.apache.felix.ipojo.util.Log;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the behavior of the dependency aware activation processor.
+ */
+public class DependencyAwareActivationProcessorTestCase extends TestCase {
+
+    @Mock
+    private BundleContext m_bundleContext;
+
+    @Mock
+    private BundleProcessor m_delegate;
+
+    @Mock
+    private Log m_logger;
+
+    @Mock
+    private Bundle m_provider;
+
+    @Mock
+    private Bundle m_consumer;
+
+    @Mock
+    private BundleWiring m_wiring;
+
+    @Mock
+    private BundleWiring m_providerWiring;
+
+    @Mock
+    private BundleWire m_wire;
+
+    @Override
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(m_provider.getBundleId()).thenReturn(1L);
+        when(m_consumer.getBundleId()).thenReturn(2L);
+        when(m_consumer.adapt(BundleWiring.class)).thenReturn(m_wiring);
+        when(m_wiring.getRequiredWires(null)).thenReturn(Collections.singletonList(m_wire));
+        when(m_wire.getProviderWiring()).thenReturn(m_providerWiring);
+        when(m_providerWiring.getBundle()).thenReturn(m_provider);
+    }
+
+    public void testBundleIsProcessedAfterItsDependencies() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Bundle> processed = Collections.synchronizedList(new ArrayList<Bundle>());
+        BundleProcessor delegate = new ForwardingBundleProcessor() {
+            @Override
+            protected BundleProcessor delegate() {
+                return m_delegate;
+            }
+
+            @Override
+            public void activate(Bundle bundle) {
+                if (bundle == m_provider) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                processed.add(bundle);
+            }
+        };
+
+        ExecutorQueueService queueService = new ExecutorQueueService(m_bundleContext, 2);
+        queueService.start();
+        try {
+            DependencyAwareActivationProcessor processor =
+                    new DependencyAwareActivationProcessor(delegate, queueService, m_logger);
+            processor.activate(m_provider);
+            processor.activate(m_consumer);
+
+            // The consumer is waiting for the provider on the second thread
+            Thread.sleep(100);
+            assertTrue(processed.isEmpty());
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (processed.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, processed.size());
+            assertSame(m_provider, processed.get(0));
+            assertSame(m_consumer, processed.get(1));
+
+            List<BundleProcessingInfo> infos = processor.getProcessingInfos();
+            assertEquals(2, infos.size());
+            assertEquals(1L, infos.get(0).getBundleId());
+            assertTrue(infos.get(0).getDependencies().isEmpty());
+            assertEquals(2L, infos.get(1).getBundleId());
+            assertEquals(Collections.singletonList(1L), infos.get(1).getDependencies());
+            assertTrue(infos.get(1).getDependencyWaitDuration() >= 0);
+            assertTrue(infos.get(1).getExecutionDuration() >= 0);
+        } finally {
+            queueService.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testPendingActivationIsCancelledOnDeactivation() throws Exception {
+        QueueService queueService = mock(QueueService.class);
+        DependencyAwareActivationProcessor processor =
+                new DependencyAwareActivationProcessor(m_delegate, queueService, m_logger);
+
+        processor.activate(m_provider);
+        ArgumentCaptor<Job> captor = ArgumentCaptor.forClass(Job.class);
+        verify(queueService).submit(captor.capture(), anyString());
+
+        processor.deactivate(m_provider);
+        assertEquals(Boolean.FALSE, captor.getValue().call());
+
+        verify(m_delegate, never()).activate(any(Bundle.class));
+        verify(m_delegate).deactivate(m_provider);
+        assertTrue(processor.getProcessingInfos().isEmpty());
+    }
+}
@@ -129,4 +129,46 @@ public class SmartProxyTest extends TestCase {
         Assert.assertTrue(dependency.onGet(new Object(), "a_field", null) instanceof javax.sql.DataSource);
     }
 
+    /**
+     * Checks that the dependencies on the same specification, from the same bundle, share their proxy class.
+     */
+    public void testProxyClassesAreShared() {
+        Bundle bundle = new MockBundle(Dependency.class.getClassLoader());
+
+        BundleContext context = (BundleContext) Mockito.mock(BundleContext.class);
+        Mockito.when(context.getProperty(DependencyHandler.PROXY_TYPE_PROPERTY)).thenReturn(null);
+        Mockito.when(context.getProperty(Logger.IPOJO_LOG_LEVEL_PROP)).thenReturn(null);
+        Mockito.when(context.getBundle()).thenReturn(bundle);
+
+        ComponentFactory factory = (ComponentFactory) Mockito.mock(ComponentFactory.class);
+        Mockito.when(factory.getBundleClassLoader()).thenReturn(Dependency.class.getClassLoader());
+
+        InstanceManager im = (InstanceManager) Mockito.mock(InstanceManager.class);
+        Mockito.when(im.getContext()).thenReturn(context);
+        Mockito.when(im.getFactory()).thenReturn(factory);
+
+        DependencyHandler handler = (DependencyHandler) Mockito.mock(DependencyHandler.class);
+        Mockito.when(handler.getInstanceManager()).thenReturn(im);
+        Logger logger = new Logger(context, "test", Logger.INFO);
+        Mockito.when(handler.getLogger()).thenReturn(logger);
+
+        Dependency dep1 = new Dependency(handler, "a_field", TestSpecification.class, null, false, false, false,
+                true, "dep1", context, Dependency.DYNAMIC_BINDING_POLICY, null, null, null);
+        Dependency dep2 = new Dependency(handler, "another_field", TestSpecification.class, null, false, false, false,
+                true, "dep2", context, Dependency.DYNAMIC_BINDING_POLICY, null, null, null);
+        dep1.start();
+        dep2.start();
+
+        Object proxy1 = dep1.onGet(new Object(), "a_field", null);
+        Object proxy2 = dep2.onGet(new Object(), "another_field", null);
+        Assert.assertNotSame(proxy1, proxy2);
+        Assert.assertSame(proxy1.getClass(), proxy2.getClass());
+
+        // Stopping changes the binding epoch, so cached service objects are dropped
+        int epoch = dep1.getEpoch();
+        dep1.stop();
+        Assert.assertTrue(dep1.getEpoch() != epoch);
+        dep2.stop();
+    }
+
 }
@@ -39,6 +39,8 @@ import org.apache.felix.ipojo.architecture.InstanceDescription;
 import org.apache.felix.ipojo.extender.ExtensionDeclaration;
 import org.apache.felix.ipojo.extender.InstanceDeclaration;
 import org.apache.felix.ipojo.extender.TypeDeclaration;
+import org.apache.felix.ipojo.extender.queue.debug.BundleProcessingInfo;
+import org.apache.felix.ipojo.extender.queue.debug.BundleProcessingReport;
 import org.apache.felix.service.command.Descriptor;
 
 /**
@@ -69,7 +71,8 @@ public class Arch {
         "factories",
         "components",
         "handlers",
-        "extensions"
+        "extensions",
+        "startup"
     };
     
     /**
@@ -108,6 +111,12 @@ public class Arch {
     @Requires(optional = true)
     private ExtensionDeclaration[] m_extensions;
 
+    /**
+     * The bundle processing reports (only available in parallel processing mode).
+     */
+    @Requires(optional = true)
+    private BundleProcessingReport[] m_reports;
+
     /**
      * Displays iPOJO instances.
      */
@@ -352,4 +361,32 @@ public class Arch {
         }
     }
 
+    /**
+     * Displays the time spent by the extender to process each bundle.
+     */
+    @Descriptor("Display the processing time of each bundle")
+    public void startup() {
+        PrintStream out = System.out;
+        if (m_reports.length == 0) {
+            out.println("No bundle processing report, enable the ipojo.processing.parallel property");
+            return;
+        }
+        for (BundleProcessingReport report : m_reports) {
+            long total = 0;
+            for (BundleProcessingInfo info : report.getProcessingInfos()) {
+                out.println(format("Bundle %d (%s) -> queued: %d ms, dependencies: %d ms, processing: %s",
+                        info.getBundleId(),
+                        info.getSymbolicName(),
+                        info.getWaitDuration(),
+                        Math.max(0, info.getDependencyWaitDuration()),
+                        info.getExecutionDuration() == -1 ? "in progress" : info.getExecutionDuration() + " ms"));
+                if (!info.getDependencies().isEmpty()) {
+                    out.println("  waited for bundles " + info.getDependencies());
+                }
+                total += Math.max(0, info.getExecutionDuration());
+            }
+            out.println(format("Total processing time: %d ms", total));
+        }
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogListener;
+import org.osgi.service.log.LogService;
+
+/**
+ * Measures the throughput of {@link Log#addEntry(LogEntry)} with 1, 8 and 32
+ * writer threads, with and without a registered log listener.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark
+{
+    @Param({ "100" })
+    public int maxSize;
+
+    @Param({ "false", "true" })
+    public boolean listener;
+
+    private Log m_log;
+    private LogEntry m_entry;
+
+    @Setup
+    public void setUp()
+    {
+        m_log = new Log(maxSize, false);
+        if (listener)
+        {
+            m_log.addListener(new LogListener()
+            {
+                public void logged(final LogEntry entry)
+                {
+                    // Nothing to do.
+                }
+            });
+        }
+        m_entry = new LogEntryImpl(null, null, LogService.LOG_INFO, "message", null);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        m_log.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addEntry1()
+    {
+        m_log.addEntry(m_entry);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addEntry8()
+    {
+        m_log.addEntry(m_entry);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void addEntry32()
+    {
+        m_log.addEntry(m_entry);
+    }
+}
@@ -19,6 +19,9 @@
 package org.apache.felix.log;
 
 import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
@@ -39,14 +42,14 @@ import org.osgi.service.log.LogService;
  */
 final class Log implements BundleListener, FrameworkListener, ServiceListener
 {
-    /** The first log entry. */
-    private LogNode m_head;
-    /** The last log entry. */
-    private LogNode m_tail;
-    /** The log size. */
-    private int m_size;
+    /** The slots of the bounded ring buffer; <code>null</code> if unbounded. */
+    private final AtomicReferenceArray m_slots;
+    /** The sequence number of the next write to the ring buffer. */
+    private final AtomicLong m_sequence = new AtomicLong();
+    /** The most recent entry of the unbounded log. */
+    private final AtomicReference m_head = new AtomicReference();
     /** The log listener thread. */
-    private LogListenerThread listenerThread;
+    private volatile LogListenerThread listenerThread;
     /** The maximum size for the log. */
     private final int m_maxSize;
     /** Whether or not to store debug messages. */
@@ -61,12 +64,13 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
     {
         this.m_maxSize = maxSize;
         this.m_storeDebug = storeDebug;
+        this.m_slots = (maxSize > 0) ? new AtomicReferenceArray(maxSize) : null;
     }
 
     /**
      * Close the log.
      */
-    void close()
+    synchronized void close()
     {
         if (listenerThread != null)
         {
@@ -74,62 +78,101 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
             listenerThread = null;
         }
 
-        m_head = null;
-        m_tail = null;
-        m_size = 0;
+        if (m_slots != null)
+        {
+            for (int i = 0; i < m_slots.length(); ++i)
+            {
+                m_slots.set(i, null);
+            }
+        }
+        m_head.set(null);
     }
 
     /**
-     * Adds the entry to the log.
+     * Determines whether an entry at the specified level would be stored in
+     * the historic log or delivered to a listener.  Callers use this to avoid
+     * creating entries that would be discarded straight away.
+     * @param level the level of the entry
+     * @return <code>true</code> if an entry at the level would be recorded;
+     * <code>false</code> otherwise
+     */
+    boolean isLoggable(final int level)
+    {
+        return listenerThread != null
+            || (m_maxSize != 0 && (m_storeDebug || level != LogService.LOG_DEBUG));
+    }
+
+    /**
+     * Adds the entry to the log.  This method does not block: the entry is
+     * stored in the ring buffer (or pushed onto the unbounded log) using
+     * atomic operations only, and handed to the listener thread through a
+     * non-blocking queue.
      * @param entry the entry to add to the log
      */
-    synchronized void addEntry(final LogEntry entry)
+    void addEntry(final LogEntry entry)
     {
-        if (m_maxSize != 0)
+        // add the entry to the historic log
+        if (m_maxSize != 0 && (m_storeDebug || entry.getLevel() != LogService.LOG_DEBUG))
         {
-            // add the entry to the historic log
-            if (m_storeDebug || entry.getLevel() != LogService.LOG_DEBUG)
+            if (m_slots != null)
             {
-                // create a new node for the entry
-                LogNode node = new LogNode(entry);
-
-                // add to the front of the linked list
-                node.setNextNode(m_head);
-                if (m_head != null)
-                {
-                    m_head.setPreviousNode(node);
-                }
-
-                // and store the node
-                m_head = node;
-
-                // bump the size of the list
-                ++m_size;
-
-                // if no tail node - add the node to the tail
-                if (m_tail == null)
-                {
-                    m_tail = node;
-                }
+                store(entry);
             }
-
-            // ensure the historic log doesn't grow beyond a certain size
-            if (m_maxSize != -1)
+            else
             {
-                if (m_size > m_maxSize)
-                {
-                    LogNode last = m_tail.getPreviousNode();
-                    last.setNextNode(null);
-                    m_tail = last;
-                    --m_size;
-                }
+                push(entry);
             }
         }
 
         // notify any listeners
-        if (listenerThread != null)
+        LogListenerThread thread = listenerThread;
+        if (thread != null)
+        {
+            thread.addEntry(entry);
+        }
+    }
+
+    /**
+     * Stores the entry in the next slot of the ring buffer, overwriting the
+     * oldest entry once the buffer is full.
+     * @param entry the entry to store
+     */
+    private void store(final LogEntry entry)
+    {
+        long sequence = m_sequence.getAndIncrement();
+        int index = (int) (sequence % m_slots.length());
+        LogNode node = new LogNode(entry, sequence, null);
+
+        while (true)
         {
-            listenerThread.addEntry(entry);
+            LogNode current = (LogNode) m_slots.get(index);
+            if (current != null && current.getSequence() > sequence)
+            {
+                // a later write has already wrapped around onto this slot -
+                // the entry is older than anything the buffer can hold
+                return;
+            }
+            if (m_slots.compareAndSet(index, current, node))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pushes the entry onto the front of the unbounded log.
+     * @param entry the entry to push
+     */
+    private void push(final LogEntry entry)
+    {
+        while (true)
+        {
+            LogNode head = (LogNode) m_head.get();
+            LogNode node = new LogNode(entry, 0, head);
+            if (m_head.compareAndSet(head, node))
+            {
+                return;
+            }
         }
     }
 
@@ -143,8 +186,9 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
         {
             // create a new listener thread if necessary:
             // the listener thread only runs if there are any registered listeners
-            listenerThread = new LogListenerThread();
-            listenerThread.start();
+            LogListenerThread thread = new LogListenerThread();
+            thread.start();
+            listenerThread = thread;
         }
         listenerThread.addListener(listener);
     }
@@ -170,11 +214,46 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
 
     /**
      * Returns an enumeration of all the entries in the log most recent first.
+     * The enumeration is a snapshot taken without blocking concurrent writers;
+     * entries whose write is still in progress are not included.
      * @return an enumeration of all the entries in the log most recent first
      */
-    synchronized Enumeration getEntries()
+    Enumeration getEntries()
     {
-        return new LogNodeEnumeration(m_head, m_tail);
+        if (m_slots == null)
+        {
+            // the nodes are immutable, so the chain behind a head never changes
+            LogNode head = (LogNode) m_head.get();
+            int count = 0;
+            for (LogNode node = head; node != null; node = node.getNextNode())
+            {
+                ++count;
+            }
+
+            LogNode[] nodes = new LogNode[count];
+            int i = 0;
+            for (LogNode node = head; node != null; node = node.getNextNode())
+            {
+                nodes[i++] = node;
+            }
+            return new LogNodeEnumeration(nodes, count);
+        }
+
+        int capacity = m_slots.length();
+        long last = m_sequence.get() - 1;
+        long first = Math.max(0, last - capacity + 1);
+
+        LogNode[] nodes = new LogNode[(int) (last - first + 1)];
+        int count = 0;
+        for (long sequence = last; sequence >= first; --sequence)
+        {
+            LogNode node = (LogNode) m_slots.get((int) (sequence % capacity));
+            if (node != null && node.getSequence() == sequence)
+            {
+                nodes[count++] = node;
+            }
+        }
+        return new LogNodeEnumeration(nodes, count);
     }
 
     /** The messages returned for the framework events. */
@@ -205,9 +284,15 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
             }
         }
 
+        int level = (eventType == FrameworkEvent.ERROR) ? LogService.LOG_ERROR : LogService.LOG_INFO;
+        if (!isLoggable(level))
+        {
+            return;
+        }
+
         LogEntry entry = new LogEntryImpl(event.getBundle(),
             null,
-            (eventType == FrameworkEvent.ERROR) ? LogService.LOG_ERROR : LogService.LOG_INFO,
+            level,
             message,
             event.getThrowable());
 
@@ -243,7 +328,7 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
             }
         }
 
-        if (message != null)
+        if (message != null && isLoggable(LogService.LOG_INFO))
         {
             LogEntry entry = new LogEntryImpl(event.getBundle(),
                 null,
@@ -280,9 +365,15 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
             }
         }
 
+        int level = (eventType == ServiceEvent.MODIFIED) ? LogService.LOG_DEBUG : LogService.LOG_INFO;
+        if (!isLoggable(level))
+        {
+            return;
+        }
+
         LogEntry entry = new LogEntryImpl(event.getServiceReference().getBundle(),
             event.getServiceReference(),
-            (eventType == ServiceEvent.MODIFIED) ? LogService.LOG_DEBUG : LogService.LOG_INFO,
+            level,
             message,
             null);
 
@@ -76,6 +76,17 @@ final class LogException extends Exception
         return m_className + ": " + m_localizedMessage;
     }
 
+    /**
+     * Does not fill in the stack trace: the stack trace of the original
+     * exception is copied in the constructor, so capturing the stack of the
+     * logging thread would only be wasted effort.
+     * @return this exception
+     */
+    public synchronized Throwable fillInStackTrace()
+    {
+        return this;
+    }
+
     /** The prefix that identifies classes from the "java" namespace. */
     private static final String JAVA_PACKAGE_PREFIX = "java.";
 
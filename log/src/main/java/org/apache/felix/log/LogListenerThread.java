@@ -18,9 +18,12 @@
  */
 package org.apache.felix.log;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
 
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogListener;
@@ -30,13 +33,20 @@ import org.osgi.service.log.LogListener;
  * any {@link LogListener} subscribers.  A subscriber can be added using the
  * {@link org.osgi.service.log.LogReaderService#addLogListener(LogListener)}
  * method.
+ * <p>
+ * Logging threads hand their entries over through a non-blocking queue and
+ * never contend on a monitor; this thread drains the queue in batches of up
+ * to {@link #BATCH_SIZE} entries and parks when there is nothing to deliver.
  */
 final class LogListenerThread extends Thread
 {
-    // The list of entries waiting to be delivered to the log listeners.
-    private final List m_entriesToDeliver = new ArrayList();
+    /** The maximum number of entries delivered in a single go. */
+    private static final int BATCH_SIZE = 256;
+
+    // The queue of entries waiting to be delivered to the log listeners.
+    private final Queue m_entriesToDeliver = new ConcurrentLinkedQueue();
     // The list of listeners.
-    private final List m_listeners = new ArrayList();
+    private final List m_listeners = new CopyOnWriteArrayList();
 
     LogListenerThread() {
         super("FelixLogListener");
@@ -48,11 +58,8 @@ final class LogListenerThread extends Thread
      */
     void addEntry(final LogEntry entry)
     {
-        synchronized (m_entriesToDeliver)
-        {
-            m_entriesToDeliver.add(entry);
-            m_entriesToDeliver.notifyAll();
-        }
+        m_entriesToDeliver.offer(entry);
+        LockSupport.unpark(this);
     }
 
     /**
@@ -61,10 +68,7 @@ final class LogListenerThread extends Thread
      */
     void addListener(final LogListener listener)
     {
-        synchronized (m_listeners)
-        {
-            m_listeners.add(listener);
-        }
+        m_listeners.add(listener);
     }
 
     /**
@@ -73,10 +77,7 @@ final class LogListenerThread extends Thread
      */
     void removeListener(final LogListener listener)
     {
-        synchronized (m_listeners)
-        {
-            m_listeners.remove(listener);
-        }
+        m_listeners.remove(listener);
     }
 
     /**
@@ -85,10 +86,7 @@ final class LogListenerThread extends Thread
      */
     int getListenerCount()
     {
-        synchronized (m_listeners)
-        {
-            return m_listeners.size();
-        }
+        return m_listeners.size();
     }
 
     /**
@@ -96,10 +94,7 @@ final class LogListenerThread extends Thread
      */
     void shutdown()
     {
-        synchronized (m_entriesToDeliver)
-        {
-            interrupt();
-        }
+        interrupt();
     }
 
     /**
@@ -108,63 +103,45 @@ final class LogListenerThread extends Thread
      */
     public void run()
     {
+        LogEntry[] batch = new LogEntry[BATCH_SIZE];
         while (!isInterrupted())
         {
-            List entriesToDeliver = new ArrayList();
-            synchronized (m_entriesToDeliver)
+            int count = 0;
+            LogEntry entry;
+            while (count < batch.length
+                && (entry = (LogEntry) m_entriesToDeliver.poll()) != null)
             {
-                if (m_entriesToDeliver.isEmpty())
-                {
-                    try
-                    {
-                        m_entriesToDeliver.wait();
-                    }
-                    catch (InterruptedException e)
-                    {
-                        // the interrupt-flag is cleared; so, let's play nice and 
-                        // interrupt this thread again to stop it...
-                        interrupt();
-                    }
-                }
-                else 
-                {
-                    // Copy all current entries and deliver them in a single go...
-                    entriesToDeliver.addAll(m_entriesToDeliver);
-                    m_entriesToDeliver.clear();
-                }
+                batch[count++] = entry;
             }
-            
-            if (!entriesToDeliver.isEmpty())
+
+            if (count == 0)
             {
-                // Take a snapshot of all current listeners and deliver all
-                // pending messages to them...
-                List listeners = new ArrayList();
-                synchronized (m_listeners) 
-                {
-                    listeners.addAll(m_listeners);
-                }
+                // an unpark() issued after the queue was found empty makes
+                // this return immediately, so no entry can be missed
+                LockSupport.park(this);
+                continue;
+            }
 
-                Iterator entriesIt = entriesToDeliver.iterator();
-                while (entriesIt.hasNext()) 
+            // the listener list is copy-on-write, so iterating it needs
+            // neither locking nor a defensive copy
+            for (int i = 0; i < count; ++i)
+            {
+                Iterator listenerIt = m_listeners.iterator();
+                while (listenerIt.hasNext())
                 {
-                    LogEntry entry = (LogEntry) entriesIt.next();
-                    
-                    Iterator listenerIt = listeners.iterator();
-                    while (listenerIt.hasNext())
+                    LogListener listener = (LogListener) listenerIt.next();
+
+                    try
+                    {
+                        listener.logged(batch[i]);
+                    }
+                    catch (Throwable t)
                     {
-                        LogListener listener = (LogListener) listenerIt.next();
-                        
-                        try
-                        {
-                            listener.logged(entry);
-                        }
-                        catch (Throwable t)
-                        {
-                            // catch and discard any exceptions thrown by the listener
-                        }
+                        // catch and discard any exceptions thrown by the listener
                     }
                 }
+                batch[i] = null;
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -21,24 +21,31 @@ package org.apache.felix.log;
 import org.osgi.service.log.LogEntry;
 
 /**
- * The class used as a doubly linked list node in the log.
+ * The class used as an immutable node in the log.  A node is either stored in
+ * a slot of the bounded ring buffer (in which case its sequence number
+ * identifies the write that produced it) or linked to its predecessor in the
+ * unbounded log.
  */
 final class LogNode
 {
-    /** The previous node. */
-    private LogNode m_previous;
-    /** The next node. */
-    private LogNode m_next;
+    /** The sequence number of the write that created this node. */
+    private final long m_sequence;
+    /** The next (older) node; only used by the unbounded log. */
+    private final LogNode m_next;
     /** The log entry. */
     private final LogEntry m_entry;
 
     /**
      * Create a new instance.
-     * @param entry the log entry.
+     * @param entry the log entry
+     * @param sequence the sequence number of the write that created this node
+     * @param next the next (older) node or <code>null</code>
      */
-    LogNode(final LogEntry entry)
+    LogNode(final LogEntry entry, final long sequence, final LogNode next)
     {
         m_entry = entry;
+        m_sequence = sequence;
+        m_next = next;
     }
 
     /**
@@ -51,38 +58,20 @@ final class LogNode
     }
 
     /**
-     * Get the next node.
-     * @return the next node
-     */
-    LogNode getNextNode()
-    {
-        return m_next;
-    }
-
-    /**
-     * Set the next node.
-     * @param next the next node
+     * Returns the sequence number of the write that created this node.
+     * @return the sequence number of the write that created this node
      */
-    void setNextNode(final LogNode next)
+    long getSequence()
     {
-        m_next = next;
+        return m_sequence;
     }
 
     /**
-     * Get the previous node.
-     * @return the previous node
-     */
-    LogNode getPreviousNode()
-    {
-        return m_previous;
-    }
-
-    /**
-     * Set the previous node.
-     * @param previous the previous node
+     * Get the next (older) node.
+     * @return the next node
      */
-    void setPreviousNode(final LogNode previous)
+    LogNode getNextNode()
     {
-        m_previous = previous;
+        return m_next;
     }
-}
\ No newline at end of file
+}
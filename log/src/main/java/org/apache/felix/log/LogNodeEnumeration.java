@@ -19,29 +19,30 @@
 package org.apache.felix.log;
 
 import java.util.Enumeration;
-
-import org.osgi.service.log.LogEntry;
+import java.util.NoSuchElementException;
 
 /**
- * Implementation of the {@link Enumeration} interface for a linked list of
- * {@link LogNode} entries.
+ * Implementation of the {@link Enumeration} interface for a snapshot of
+ * {@link LogNode} entries taken from the log.
  */
 final class LogNodeEnumeration implements Enumeration
 {
-    /** The next node. */
-    private LogNode m_next;
-    /** The last node. */
-    private final LogNode m_last;
+    /** The nodes to return. */
+    private final LogNode[] m_nodes;
+    /** The number of valid nodes in the array. */
+    private final int m_count;
+    /** The index of the next node. */
+    private int m_next;
 
     /**
      * Creates a new instance.
-     * @param start the first node to return
-     * @param end the last node to return
+     * @param nodes the nodes to return, most recent first
+     * @param count the number of valid nodes in the array
      */
-    LogNodeEnumeration(final LogNode start, final LogNode end)
+    LogNodeEnumeration(final LogNode[] nodes, final int count)
     {
-        m_next = start;
-        m_last = end;
+        m_nodes = nodes;
+        m_count = count;
     }
 
     /**
@@ -50,7 +51,7 @@ final class LogNodeEnumeration implements Enumeration
      */
     public boolean hasMoreElements()
     {
-        return m_next != null;
+        return m_next < m_count;
     }
 
     /**
@@ -59,19 +60,11 @@ final class LogNodeEnumeration implements Enumeration
      */
     public Object nextElement()
     {
-        LogEntry result = null;
-
-        if (m_next == m_last)
-        {
-            result = m_next.getEntry();
-            m_next = null;
-        }
-        else if (m_next != null)
+        if (m_next >= m_count)
         {
-            result = m_next.getEntry();
-            m_next = m_next.getNextNode();
+            throw new NoSuchElementException();
         }
 
-        return result;
+        return m_nodes[m_next++].getEntry();
     }
-}
\ No newline at end of file
+}
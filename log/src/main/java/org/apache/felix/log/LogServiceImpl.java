@@ -94,6 +94,12 @@ final class LogServiceImpl implements LogService
         final String message,
         final Throwable exception)
     {
+        // nothing would record the entry - don't bother creating it
+        if (!m_log.isLoggable(level))
+        {
+            return;
+        }
+
         m_log.addEntry(new LogEntryImpl((sr != null) ? sr.getBundle() : m_bundle,
             sr,
             level,